@@ -4,121 +4,396 @@ import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
-import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.items.CVItem;
+import org.redcastlemedia.multitallented.civs.util.PersistenceQueue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
 
+/**
+ * Remembers which placed blocks are civs items. Blocks are kept in memory by world and
+ * packed block coordinates, and every put or remove is appended to block-data.dat on the
+ * persistence thread instead of rewriting the whole file. Once most of the journal is
+ * superseded records it gets compacted from a snapshot of the blocks.
+ *
+ * A record is the op byte, the body length, the body (world, block key and for a put the
+ * item) and a CRC32 of all of that. A torn record at the end of the file is cut off on load.
+ */
 @CivsSingleton(priority = CivsSingleton.SingletonLoadPriority.HIGH)
 public class BlockLogger {
+    private static final String FILE_NAME = "block-data.dat";
+    private static final String YAML_FILE_NAME = "block-data.yml";
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final int MIN_COMPACT_RECORDS = 4096;
+
     private static BlockLogger blockLogger = null;
-    private HashMap<String, CVItem> blocks = new HashMap<>();
+    private final HashMap<UUID, HashMap<Long, CVItem>> blocks = new HashMap<>();
+    private final File journalFile;
+    private int blockCount = 0;
+    private int journalRecords = 0;
 
-//    private long lastSave = 0;
-//    private int intervalId = -1;
+    // Only touched on the persistence thread once loading is done
+    private FileChannel channel;
 
     public BlockLogger() {
+        journalFile = new File(Civs.dataLocation, FILE_NAME);
         loadBlocks();
     }
 
     public CVItem getBlock(Location location) {
-        CVItem returnBlock = blocks.get(Region.locationToString(location));
-        if (returnBlock == null) {
-            Location newLocation = new Location(location.getWorld(), location.getX() + 0.5,
-                    location.getY() + 0.5, location.getZ() + 0.5);
-            returnBlock = blocks.get(Region.locationToString(newLocation));
+        if (location == null || location.getWorld() == null) {
+            return null;
+        }
+        HashMap<Long, CVItem> worldBlocks = blocks.get(location.getWorld().getUID());
+        if (worldBlocks == null) {
+            return null;
         }
-        return returnBlock;
+        return worldBlocks.get(toBlockKey(location));
     }
     public void putBlock(Location location, CVItem cvItem) {
-        blocks.put(Region.locationToString(location), cvItem);
-        saveBlocks();
+        if (location == null || location.getWorld() == null) {
+            return;
+        }
+        UUID worldUuid = location.getWorld().getUID();
+        HashMap<Long, CVItem> worldBlocks = blocks.get(worldUuid);
+        if (worldBlocks == null) {
+            worldBlocks = new HashMap<>();
+            blocks.put(worldUuid, worldBlocks);
+        }
+        long key = toBlockKey(location);
+        if (worldBlocks.put(key, cvItem) == null) {
+            blockCount++;
+        }
+        append(writeRecord(OP_PUT, worldUuid, key, cvItem));
     }
     public void removeBlock(Location location) {
-        blocks.remove(Region.locationToString(location));
-        Location newLocation = new Location(location.getWorld(), location.getX() + 0.5,
-                location.getY() + 0.5, location.getZ() + 0.5);
-        blocks.remove(Region.locationToString(newLocation));
-        saveBlocks();
-    }
-//    private void shouldSave() {
-//        if (System.currentTimeMillis() - 300000 > lastSave && intervalId == -1) {
-//            intervalId = Bukkit.getScheduler().scheduleSyncDelayedTask(Civs.getInstance(), new Runnable() {
-//                @Override
-//                public void run() {
-//                    saveBlocks();
-//                }
-//            }, 600L);
-//            lastSave = System.currentTimeMillis() + 300000;
-//        } else if (intervalId == -1) {
-//            saveBlocks();
-//            lastSave = System.currentTimeMillis();
-//        }
-//    }
-
-    private void saveBlocks() {
-//        intervalId = -1;
-        final File blockData = new File(Civs.dataLocation, "block-data.yml");
-        final HashMap<String, CVItem> finalBlocks = blocks;
-        Runnable runMe = new Runnable() {
+        if (location == null || location.getWorld() == null) {
+            return;
+        }
+        UUID worldUuid = location.getWorld().getUID();
+        HashMap<Long, CVItem> worldBlocks = blocks.get(worldUuid);
+        long key = toBlockKey(location);
+        if (worldBlocks == null || worldBlocks.remove(key) == null) {
+            return;
+        }
+        blockCount--;
+        append(writeRecord(OP_REMOVE, worldUuid, key, null));
+    }
+
+    /**
+     * Closes the journal once everything queued before this call has been written.
+     */
+    public void close() {
+        PersistenceQueue.getInstance().submit(new Runnable() {
+            @Override
+            public void run() {
+                closeChannel();
+            }
+        });
+    }
+
+    private void append(final byte[] record) {
+        journalRecords++;
+        if (journalRecords > MIN_COMPACT_RECORDS && blockCount * 2 < journalRecords) {
+            compact();
+            return;
+        }
+        PersistenceQueue.getInstance().submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    FileChannel fileChannel = getChannel();
+                    writeFully(fileChannel, ByteBuffer.wrap(record), fileChannel.size());
+                } catch (IOException e) {
+                    Civs.logger.log(Level.SEVERE, "Unable to write to " + FILE_NAME, e);
+                }
+            }
+        });
+    }
+
+    private void compact() {
+        // Snapshot on the main thread, write on the persistence thread after any earlier appends
+        final List<byte[]> records = new ArrayList<>(blockCount);
+        for (Map.Entry<UUID, HashMap<Long, CVItem>> worldEntry : blocks.entrySet()) {
+            for (Map.Entry<Long, CVItem> entry : worldEntry.getValue().entrySet()) {
+                records.add(writeRecord(OP_PUT, worldEntry.getKey(), entry.getKey(), entry.getValue()));
+            }
+        }
+        journalRecords = records.size();
+        PersistenceQueue.getInstance().submit(new Runnable() {
             @Override
             public void run() {
-                FileConfiguration config = new YamlConfiguration();
                 try {
-                    //Don't load the file. Overwrite it
-                    for (String location : finalBlocks.keySet()) {
-                        CVItem cvItem = finalBlocks.get(location);
-                        String locationString = location.replaceAll("\\.", "^");
-                        config.set(locationString + ".mat", cvItem.getMat().toString());
-                        config.set(locationString + ".name", cvItem.getDisplayName());
-                        config.set(locationString + ".lore", cvItem.getLore());
-                    }
-                    config.save(blockData);
-                } catch (Exception e) {
-                    Civs.logger.severe("Unable to save to block-data.yml");
-                    return;
+                    rewriteJournal(records);
+                } catch (IOException e) {
+                    Civs.logger.log(Level.SEVERE, "Unable to compact " + FILE_NAME, e);
                 }
             }
-        };
-        runMe.run();
+        });
+    }
+
+    private void rewriteJournal(List<byte[]> records) throws IOException {
+        File parent = journalFile.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        File compactFile = new File(journalFile.getPath() + ".compact");
+        try (RandomAccessFile compactAccess = new RandomAccessFile(compactFile, "rw")) {
+            FileChannel compactChannel = compactAccess.getChannel();
+            compactChannel.truncate(0);
+            long position = 0;
+            for (byte[] record : records) {
+                writeFully(compactChannel, ByteBuffer.wrap(record), position);
+                position += record.length;
+            }
+            compactChannel.force(true);
+        }
+        closeChannel();
+        try {
+            Files.move(compactFile.toPath(), journalFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(compactFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
     }
 
     private void loadBlocks() {
-        File blockData = new File(Civs.dataLocation, "block-data.yml");
-        if (!blockData.exists()) {
-            try {
-                blockData.createNewFile();
-            } catch (IOException ioe) {
-                Civs.logger.severe("Unable to write to block-data.yml");
-                return;
+        File yamlFile = new File(Civs.dataLocation, YAML_FILE_NAME);
+        if (!journalFile.exists()) {
+            if (yamlFile.exists()) {
+                convertYamlBlocks(yamlFile);
             }
+            return;
         }
-        FileConfiguration config = new YamlConfiguration();
         try {
-            config.load(blockData);
-            for (String s : config.getKeys(false)) {
-                try {
-                    CVItem cvItem = new CVItem(
-                            Material.valueOf(config.getString(s + ".mat")),
-                            1,
-                            100,
-                            config.getString(s + ".name"),
-                            config.getStringList(s + ".lore")
-                    );
-                    blocks.put(s.replaceAll("\\^", "."), cvItem);
-                } catch (Exception e) {
-                    Civs.logger.severe("Unable to read line from block-data.yml");
-                    e.printStackTrace();
-                    continue;
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(journalFile.toPath()));
+            int validLength = 0;
+            while (buffer.hasRemaining()) {
+                if (!readRecord(buffer)) {
+                    break;
+                }
+                journalRecords++;
+                validLength = buffer.position();
+            }
+            if (validLength < buffer.limit()) {
+                Civs.logger.log(Level.WARNING, "Discarding {0} bytes of incomplete records from the end of {1}",
+                        new Object[] { buffer.limit() - validLength, FILE_NAME });
+                try (RandomAccessFile access = new RandomAccessFile(journalFile, "rw")) {
+                    access.getChannel().truncate(validLength);
                 }
             }
+        } catch (IOException e) {
+            Civs.logger.log(Level.SEVERE, "Unable to read " + FILE_NAME, e);
+            setAside();
+            return;
+        }
+        if (journalRecords > MIN_COMPACT_RECORDS && blockCount * 2 < journalRecords) {
+            compact();
+        }
+    }
 
+    /**
+     * Moves a journal that couldn't be read out of the way and starts a new one from the
+     * blocks read before the error, so nothing gets appended after a bad record.
+     */
+    private void setAside() {
+        File invalidFile = new File(journalFile.getPath() + ".invalid-" + System.currentTimeMillis());
+        try {
+            Files.move(journalFile.toPath(), invalidFile.toPath());
+            Civs.logger.log(Level.SEVERE, "Moved {0} to {1} and starting a new one",
+                    new Object[] { FILE_NAME, invalidFile.getName() });
+        } catch (IOException e) {
+            Civs.logger.log(Level.SEVERE, "Unable to move " + FILE_NAME + ", it will be replaced", e);
+        }
+        compact();
+    }
+
+    /**
+     * Moves blocks saved by older versions into the journal and renames the old file.
+     */
+    private void convertYamlBlocks(File yamlFile) {
+        FileConfiguration config = new YamlConfiguration();
+        try {
+            config.load(yamlFile);
         } catch (Exception e) {
-            Civs.logger.severe("Unable to read from block-data.yml");
+            Civs.logger.log(Level.SEVERE, "Unable to read from " + YAML_FILE_NAME, e);
             return;
         }
+        for (String s : config.getKeys(false)) {
+            try {
+                String[] id = s.replaceAll("\\^", ".").split("~");
+                // Worlds loaded after Civs aren't there yet, so the key is built without them
+                UUID worldUuid = UUID.fromString(id[0]);
+                long key = toBlockKey((int) Math.floor(Double.parseDouble(id[1])),
+                        (int) Math.floor(Double.parseDouble(id[2])), (int) Math.floor(Double.parseDouble(id[3])));
+                CVItem cvItem = new CVItem(
+                        Material.valueOf(config.getString(s + ".mat")),
+                        1,
+                        100,
+                        config.getString(s + ".name"),
+                        config.getStringList(s + ".lore")
+                );
+                HashMap<Long, CVItem> worldBlocks = blocks.get(worldUuid);
+                if (worldBlocks == null) {
+                    worldBlocks = new HashMap<>();
+                    blocks.put(worldUuid, worldBlocks);
+                }
+                if (worldBlocks.put(key, cvItem) == null) {
+                    blockCount++;
+                }
+            } catch (Exception e) {
+                Civs.logger.log(Level.SEVERE, "Unable to read line from " + YAML_FILE_NAME, e);
+            }
+        }
+        compact();
+        PersistenceQueue.getInstance().flush();
+        if (!yamlFile.renameTo(new File(Civs.dataLocation, YAML_FILE_NAME + "-migrated"))) {
+            Civs.logger.log(Level.SEVERE, "Unable to rename {0} after converting it, remove it manually",
+                    YAML_FILE_NAME);
+        }
+        Civs.logger.log(Level.INFO, "Converted {0} blocks to {1}", new Object[] { blockCount, FILE_NAME });
+    }
+
+    /**
+     * Applies the record at the buffer's position and leaves the position after it.
+     * @return false if the record is cut off or fails its checksum
+     */
+    private boolean readRecord(ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        if (buffer.remaining() < 5) {
+            return false;
+        }
+        byte op = buffer.get();
+        int bodyLength = buffer.getInt();
+        if ((op != OP_PUT && op != OP_REMOVE) || bodyLength < 0 || buffer.remaining() < bodyLength + 4) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), start, 5 + bodyLength);
+        DataInputStream body = new DataInputStream(new ByteArrayInputStream(buffer.array(),
+                buffer.position(), bodyLength));
+        buffer.position(buffer.position() + bodyLength);
+        if (buffer.getInt() != (int) crc.getValue()) {
+            return false;
+        }
+        UUID worldUuid = new UUID(body.readLong(), body.readLong());
+        long key = body.readLong();
+        HashMap<Long, CVItem> worldBlocks = blocks.get(worldUuid);
+        if (op == OP_REMOVE) {
+            if (worldBlocks != null && worldBlocks.remove(key) != null) {
+                blockCount--;
+            }
+            return true;
+        }
+        String materialName = body.readUTF();
+        Material material = Material.getMaterial(materialName);
+        if (material == null) {
+            Civs.logger.log(Level.WARNING, "Skipping block with unknown material {0}", materialName);
+            return true;
+        }
+        String name = body.readBoolean() ? body.readUTF() : null;
+        int loreSize = body.readShort();
+        List<String> lore = new ArrayList<>(loreSize);
+        for (int i = 0; i < loreSize; i++) {
+            lore.add(body.readUTF());
+        }
+        if (worldBlocks == null) {
+            worldBlocks = new HashMap<>();
+            blocks.put(worldUuid, worldBlocks);
+        }
+        if (worldBlocks.put(key, new CVItem(material, 1, 100, name, lore)) == null) {
+            blockCount++;
+        }
+        return true;
+    }
+
+    private static byte[] writeRecord(byte op, UUID worldUuid, long key, CVItem cvItem) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(op);
+            out.writeInt(0);
+            out.writeLong(worldUuid.getMostSignificantBits());
+            out.writeLong(worldUuid.getLeastSignificantBits());
+            out.writeLong(key);
+            if (op == OP_PUT) {
+                out.writeUTF(cvItem.getMat().name());
+                out.writeBoolean(cvItem.getDisplayName() != null);
+                if (cvItem.getDisplayName() != null) {
+                    out.writeUTF(cvItem.getDisplayName());
+                }
+                List<String> lore = cvItem.getLore() == null ? new ArrayList<String>() : cvItem.getLore();
+                out.writeShort(lore.size());
+                for (String line : lore) {
+                    out.writeUTF(line);
+                }
+            }
+            out.writeInt(0);
+        } catch (IOException e) {
+            // Writing to memory doesn't throw
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        int bodyLength = record.limit() - 9;
+        record.putInt(1, bodyLength);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, 5 + bodyLength);
+        record.putInt(5 + bodyLength, (int) crc.getValue());
+        return record.array();
+    }
+
+    private static long toBlockKey(Location location) {
+        return toBlockKey(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    private static long toBlockKey(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    private FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            File parent = journalFile.getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            channel = new RandomAccessFile(journalFile, "rw").getChannel();
+        }
+        return channel;
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Civs.logger.log(Level.WARNING, "Unable to close " + FILE_NAME, e);
+        }
+        channel = null;
+    }
+
+    private static void writeFully(FileChannel fileChannel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += fileChannel.write(buffer, position);
+        }
     }
 
     public static BlockLogger getInstance() {
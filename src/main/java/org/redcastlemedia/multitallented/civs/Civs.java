@@ -18,6 +18,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.plugin.RegisteredServiceProvider;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.dynmap.DynmapCommonAPI;
+import org.redcastlemedia.multitallented.civs.civilians.CivilianManager;
 import org.redcastlemedia.multitallented.civs.commands.CivCommand;
 import org.redcastlemedia.multitallented.civs.commands.CivsCommand;
 import org.redcastlemedia.multitallented.civs.dynmaphook.DynmapHook;
@@ -27,9 +28,12 @@ import org.redcastlemedia.multitallented.civs.scheduler.CommonScheduler;
 import org.redcastlemedia.multitallented.civs.scheduler.DailyScheduler;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.util.Constants;
-import org.redcastlemedia.multitallented.civs.util.DebugLogger;
+import org.redcastlemedia.multitallented.civs.util.EconomyLedger;
 import org.redcastlemedia.multitallented.civs.util.LogInfo;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
+import org.redcastlemedia.multitallented.civs.util.PersistenceQueue;
 import org.redcastlemedia.multitallented.civs.placeholderexpansion.PlaceHook;
+import org.redcastlemedia.multitallented.civs.placeholderexpansion.PlaceholderCache;
 import org.redcastlemedia.multitallented.civs.util.StructureUtil;
 import org.reflections.Reflections;
 import org.reflections.util.ClasspathHelper;
@@ -74,11 +78,15 @@ public class Civs extends JavaPlugin {
 
     @Override
     public void onDisable() {
-//        BlockLogger.getInstance().saveBlocks();
+        BlockLogger.getInstance().close();
         StructureUtil.removeAllBoundingBoxes();
         RegionManager.getInstance().saveAllUnsavedRegions();
+        RegionManager.getInstance().closeRegionStore();
         TownManager.getInstance().saveAllUnsavedTowns();
         ConveyorEffect.getInstance().onDisable();
+        CivilianManager.getInstance().savePointsIndex();
+        EconomyLedger.shutdown();
+        PersistenceQueue.shutdown();
         getLogger().info(LogInfo.DISABLED);
         Bukkit.getScheduler().cancelTasks(this);
     }
@@ -140,7 +148,7 @@ public class Civs extends JavaPlugin {
         getServer().getScheduler().scheduleSyncRepeatingTask(this, dailyScheduler, timeUntilDay, 1728000);
 
         if (ConfigManager.getInstance().isDebugLog()) {
-            getServer().getScheduler().scheduleSyncRepeatingTask(this, DebugLogger.timedDebugTask(), 600L, 600L);
+            getServer().getScheduler().scheduleSyncRepeatingTask(this, Metrics.timedDebugTask(), 600L, 600L);
         }
         CommonScheduler commonScheduler = new CommonScheduler();
         getServer().getScheduler().scheduleSyncRepeatingTask(this, commonScheduler, 4L, 4L);
@@ -149,10 +157,31 @@ public class Civs extends JavaPlugin {
 
             @Override
             public void run() {
-                RegionManager.getInstance().saveNextRegion();
-                TownManager.getInstance().saveNextTown();
+                RegionManager.getInstance().queueUnsavedRegions();
+                TownManager.getInstance().queueUnsavedTowns();
             }
         }, 20L, 20L);
+        getServer().getScheduler().scheduleSyncRepeatingTask(this, new Runnable() {
+
+            @Override
+            public void run() {
+                CivilianManager.getInstance().savePointsIndex();
+            }
+        }, 1200L, 1200L);
+
+        long economyFlushTicks = ConfigManager.getInstance().getEconomyFlushSeconds() * 20;
+        Runnable economyFlush = new Runnable() {
+
+            @Override
+            public void run() {
+                EconomyLedger.getInstance().flush();
+            }
+        };
+        if (ConfigManager.getInstance().isEconomyAsyncFlush()) {
+            getServer().getScheduler().runTaskTimerAsynchronously(this, economyFlush, economyFlushTicks, economyFlushTicks);
+        } else {
+            getServer().getScheduler().scheduleSyncRepeatingTask(this, economyFlush, economyFlushTicks, economyFlushTicks);
+        }
     }
 
     private void initCommands() {
@@ -199,7 +228,8 @@ public class Civs extends JavaPlugin {
         if (Bukkit.getPluginManager().isPluginEnabled("DiscordSRV")) {
             discordSRV = DiscordSRV.getPlugin();
         }
-        Bukkit.getPluginManager().registerEvents(new DynmapHook(), this);
+        Metrics.registerEvents(new DynmapHook());
+        Metrics.registerEvents(PlaceholderCache.getInstance());
         if (Bukkit.getPluginManager().isPluginEnabled("dynmap")) {
             DynmapHook.dynmapCommonAPI = (DynmapCommonAPI) Bukkit.getPluginManager().getPlugin("dynmap");
             DynmapHook.initMarkerSet();
@@ -123,6 +123,16 @@ public class ConfigManager {
     @Getter
     boolean debugLog;
     @Getter
+    String regionStorage;
+    @Getter
+    int maxOfflineCivilians;
+    @Getter
+    long economyFlushSeconds;
+    @Getter
+    boolean economyAsyncFlush;
+    @Getter
+    long economyBalanceCacheSeconds;
+    @Getter
     double maxBankDeposit;
     @Getter
     double antiCampCost;
@@ -357,6 +367,11 @@ public class ConfigManager {
             useBoundingBox = config.getBoolean("use-region-bounding-box", true);
             mobsDropItemsWhenKilledInDenyDamage = config.getBoolean("stop-mobs-from-dropping-items-in-safe-zones", false);
             debugLog = config.getBoolean("debug-log", false);
+            regionStorage = config.getString("region-storage", "yaml");
+            maxOfflineCivilians = config.getInt("max-offline-civilians", 1000);
+            economyFlushSeconds = Math.max(1, config.getLong("economy-flush-seconds", 5));
+            economyAsyncFlush = config.getBoolean("economy-async-flush", false);
+            economyBalanceCacheSeconds = config.getLong("economy-balance-cache-seconds", 30);
             maxBankDeposit = config.getDouble("max-bank-deposit", -1);
             allowOfflineRaiding = config.getBoolean("allow-offline-raiding", true);
             allowTeleportingOutOfHostileTowns = config.getBoolean("allow-teleporting-out-of-hostile-towns", true);
@@ -451,6 +466,11 @@ public class ConfigManager {
         allowOfflineRaiding = true;
         maxBankDeposit = -1;
         debugLog = false;
+        regionStorage = "yaml";
+        maxOfflineCivilians = 1000;
+        economyFlushSeconds = 5;
+        economyAsyncFlush = false;
+        economyBalanceCacheSeconds = 30;
         mobsDropItemsWhenKilledInDenyDamage = false;
         useBoundingBox = true;
         revoltCost = "GUNPOWDER*64";
@@ -62,17 +62,8 @@ public class AI {
     }
 
     public static void broadcastToAllPlayers(String key, String[] args, String aiName) {
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            String message = LocaleManager.getInstance().getTranslationWithPlaceholders(player, key);
-            for (int i=0; i<args.length; i++) {
-                message = message.replace("$" + i, args[i]);
-            }
-            if (aiName == null) {
-                player.sendMessage(Civs.getPrefix() + message);
-            } else {
-                player.sendMessage(aiName + message);
-            }
-        }
+        LocaleManager.getInstance().broadcast(Bukkit.getOnlinePlayers(),
+                aiName == null ? Civs.getPrefix() : aiName, key, args);
     }
 
     // TODO commission buildings
@@ -1,6 +1,5 @@
 package org.redcastlemedia.multitallented.civs.alliances;
 
-import org.bukkit.Bukkit;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.event.EventHandler;
@@ -9,14 +8,18 @@ import org.redcastlemedia.multitallented.civs.Civs;
 import org.redcastlemedia.multitallented.civs.CivsSingleton;
 import org.redcastlemedia.multitallented.civs.events.RenameTownEvent;
 import org.redcastlemedia.multitallented.civs.events.TownDestroyedEvent;
+import org.redcastlemedia.multitallented.civs.towns.MembershipCache;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
+import org.redcastlemedia.multitallented.civs.util.ParallelConfigLoader;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.UUID;
 
 @CivsSingleton(priority = CivsSingleton.SingletonLoadPriority.HIGH)
@@ -29,13 +32,14 @@ public class AllianceManager implements Listener {
             if (Civs.getInstance() != null) {
                 instance.loadAllAlliances();
             }
-            Bukkit.getPluginManager().registerEvents(instance, Civs.getInstance());
+            Metrics.registerEvents(instance);
         }
         return instance;
     }
 
     public void reload() {
         alliances.clear();
+        MembershipCache.invalidate();
         if (Civs.getInstance() != null) {
             loadAllAlliances();
         }
@@ -47,19 +51,24 @@ public class AllianceManager implements Listener {
             allianceFolder.mkdir();
             return;
         }
-        try {
-            for (File allianceFile : allianceFolder.listFiles()) {
-                loadAlliance(allianceFile);
-            }
-        } catch (NullPointerException npe) {
-            // dont care
+        long startTime = System.nanoTime();
+        List<ParallelConfigLoader.ParsedConfig> parsedConfigs = ParallelConfigLoader.parseFolder(allianceFolder);
+        long parseTime = System.nanoTime() - startTime;
+        startTime = System.nanoTime();
+        for (ParallelConfigLoader.ParsedConfig parsedConfig : parsedConfigs) {
+            loadAlliance(parsedConfig);
         }
+        MembershipCache.invalidate();
+        ParallelConfigLoader.logTiming("alliances", alliances.size(), parseTime, System.nanoTime() - startTime);
     }
 
-    private void loadAlliance(File allianceFile) {
+    private void loadAlliance(ParallelConfigLoader.ParsedConfig parsedConfig) {
+        File allianceFile = parsedConfig.getFile();
         try {
-            FileConfiguration config = new YamlConfiguration();
-            config.load(allianceFile);
+            FileConfiguration config = parsedConfig.getConfig();
+            if (config == null) {
+                throw parsedConfig.getError();
+            }
             Alliance alliance = new Alliance();
             alliance.setName(allianceFile.getName().replace(".yml", ""));
             alliance.setMembers(new HashSet<String>(config.getStringList("members")));
@@ -97,6 +106,7 @@ public class AllianceManager implements Listener {
 
     public boolean removeAlliance(Alliance alliance) {
         alliances.remove(alliance.getName());
+        MembershipCache.invalidate();
         if (Civs.getInstance() == null) {
             return true;
         }
@@ -109,6 +119,7 @@ public class AllianceManager implements Listener {
     }
 
     public void saveAlliance(Alliance alliance) {
+        MembershipCache.invalidate();
         if (Civs.getInstance() == null) {
             return;
         }
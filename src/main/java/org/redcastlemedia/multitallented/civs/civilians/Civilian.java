@@ -21,9 +21,9 @@ import org.redcastlemedia.multitallented.civs.civclass.ClassManager;
 import org.redcastlemedia.multitallented.civs.items.CivItem;
 import org.redcastlemedia.multitallented.civs.items.ItemManager;
 import org.redcastlemedia.multitallented.civs.regions.Region;
-import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
 import org.redcastlemedia.multitallented.civs.spells.civstate.CivState;
+import org.redcastlemedia.multitallented.civs.towns.MembershipIndex;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 
@@ -305,14 +305,11 @@ public class Civilian {
             count += is.getAmount();
         }
 
-        for (Region region : RegionManager.getInstance().getAllRegions()) {
+        for (Region region : MembershipIndex.getInstance().getOwnedRegions(uuid)) {
             CivItem item = itemManager.getItemType(region.getType());
             if (!item.getGroups().contains(group)) {
                 continue;
             }
-            if (!region.getOwners().contains(uuid)) {
-                continue;
-            }
             count++;
         }
         return count;
@@ -320,9 +317,9 @@ public class Civilian {
 
     public int getCountRegions(String name) {
         int count = 0;
-        for (Region region : RegionManager.getInstance().getAllRegions()) {
+        for (Region region : MembershipIndex.getInstance().getOwnedRegions(uuid)) {
             RegionType regionType = (RegionType) ItemManager.getInstance().getItemType(region.getType());
-            if (region.getOwners().contains(uuid) && (name == null ||
+            if ((name == null ||
                     region.getType().equalsIgnoreCase(name) ||
                     regionType.getGroups().contains(name))) {
                 count++;
@@ -378,10 +375,7 @@ public class Civilian {
                 highestBounty = bounty;
             }
         }
-        for (Town town : TownManager.getInstance().getTowns()) {
-            if (!town.getPeople().containsKey(uuid)) {
-                continue;
-            }
+        for (Town town : MembershipIndex.getInstance().getMemberTowns(uuid)) {
             for (Bounty bounty : town.getBounties()) {
                 if (highestBounty == null || highestBounty.getAmount() < bounty.getAmount()) {
                     highestBounty = bounty;
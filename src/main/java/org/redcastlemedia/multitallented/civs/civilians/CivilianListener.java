@@ -67,6 +67,7 @@ import org.redcastlemedia.multitallented.civs.util.AnnouncementUtil;
 import org.redcastlemedia.multitallented.civs.util.Constants;
 import org.redcastlemedia.multitallented.civs.dynmaphook.DynmapHook;
 import org.redcastlemedia.multitallented.civs.placeholderexpansion.PlaceHook;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 import org.redcastlemedia.multitallented.civs.util.StructureUtil;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
@@ -86,7 +87,7 @@ public class CivilianListener implements Listener {
     public static CivilianListener getInstance() {
         if (civilianListener == null) {
             civilianListener = new CivilianListener();
-            Bukkit.getPluginManager().registerEvents(civilianListener, Civs.getInstance());
+            Metrics.registerEvents(civilianListener);
         }
         return civilianListener;
     }
@@ -511,11 +512,11 @@ public class CivilianListener implements Listener {
         RegionManager.getInstance().removeCheckedRegion(event.getDestination().getLocation());
         if (event.getDestination().getHolder() instanceof Chest) {
             Location inventoryLocation = ((Chest) event.getDestination().getHolder()).getLocation();
-            UnloadedInventoryHandler.getInstance().updateInventoryAtLocation(inventoryLocation);
+            UnloadedInventoryHandler.getInstance().invalidateInventoryAtLocation(inventoryLocation);
         }
         if (event.getSource().getHolder() instanceof Chest) {
             Location inventoryLocation = ((Chest) event.getSource().getHolder()).getLocation();
-            UnloadedInventoryHandler.getInstance().updateInventoryAtLocation(inventoryLocation);
+            UnloadedInventoryHandler.getInstance().invalidateInventoryAtLocation(inventoryLocation);
         }
 //        if (ConfigManager.getInstance().getAllowSharingCivsItems()) {
 //            return;
@@ -530,7 +531,7 @@ public class CivilianListener implements Listener {
     public void onCivilianDragItem(InventoryDragEvent event) {
         if (event.getView().getTopInventory().getHolder() instanceof Chest) {
             Location inventoryLocation = ((Chest) event.getView().getTopInventory().getHolder()).getLocation();
-            UnloadedInventoryHandler.getInstance().updateInventoryAtLocation(inventoryLocation);
+            UnloadedInventoryHandler.getInstance().invalidateInventoryAtLocation(inventoryLocation);
         }
         if (ConfigManager.getInstance().getAllowSharingCivsItems()) {
             return;
@@ -610,8 +611,9 @@ public class CivilianListener implements Listener {
     @EventHandler(ignoreCancelled = true) @SuppressWarnings("unused")
     public void onCivilianClickItem(InventoryClickEvent event) {
         if (event.getClickedInventory() != null) {
-            Location inventoryLocation = event.getClickedInventory().getLocation();
-            UnloadedInventoryHandler.getInstance().updateInventoryAtLocation(inventoryLocation);
+            // Shift clicks in the player's inventory change the chest on top too
+            UnloadedInventoryHandler.getInstance().invalidateInventoryAtLocation(event.getClickedInventory().getLocation());
+            UnloadedInventoryHandler.getInstance().invalidateInventoryAtLocation(event.getView().getTopInventory().getLocation());
         }
         handleCustomItem(event.getCurrentItem(), event.getWhoClicked().getUniqueId());
         if (ConfigManager.getInstance().getAllowSharingCivsItems()) {
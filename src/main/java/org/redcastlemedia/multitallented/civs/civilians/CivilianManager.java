@@ -14,11 +14,14 @@ import org.redcastlemedia.multitallented.civs.civclass.ClassManager;
 import org.redcastlemedia.multitallented.civs.items.CivItem;
 import org.redcastlemedia.multitallented.civs.items.ItemManager;
 import org.redcastlemedia.multitallented.civs.regions.Region;
+import org.redcastlemedia.multitallented.civs.util.ParallelConfigLoader;
+import org.redcastlemedia.multitallented.civs.util.PersistenceQueue;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
 import lombok.Getter;
@@ -27,48 +30,155 @@ import lombok.Setter;
 @CivsSingleton(priority = CivsSingleton.SingletonLoadPriority.HIGH)
 public class CivilianManager {
 
-    private HashMap<UUID, Civilian> civilians = new HashMap<>();
-    private ArrayList<Civilian> sortedCivilians = new ArrayList<>();
+    // Access ordered so the least recently used offline civilians get evicted first
+    private LinkedHashMap<UUID, Civilian> civilians = new LinkedHashMap<>(16, 0.75f, true);
+    private final CivilianPointsIndex pointsIndex = new CivilianPointsIndex();
+    private final HashMap<UUID, List<Consumer<Civilian>>> pendingLoads = new HashMap<>();
     @Getter
     @Setter
     private boolean listNeedsToBeSorted = false;
 
     private static CivilianManager civilianManager = null;
+    private static final String POINTS_FILE_NAME = "player-points.yml";
 
     public void reload() {
         civilians.clear();
-        sortedCivilians.clear();
-        loadAllCivilians();
+        pointsIndex.clear();
+        indexAllCivilians();
     }
 
+    /**
+     * Only the civilians that are currently loaded, which is every online player plus
+     * the offline ones that were used recently. Use getSortedCivilians to go over
+     * everyone.
+     */
     public Collection<Civilian> getCivilians() {
-        return civilians.values();
+        return new ArrayList<>(civilians.values());
     }
 
-    private void loadAllCivilians() {
+    /**
+     * Halves the civilian's karma once for every karma-depreciate-period that has
+     * passed since it was last halved. Civilians that aren't loaded aren't visited by
+     * the scheduler, so they catch up here when they are loaded again.
+     * @return true if the karma changed
+     */
+    public boolean depreciateKarma(Civilian civilian) {
+        long karmaPeriod = ConfigManager.getInstance().getKarmaDepreciatePeriod() * 1000;
+        long now = System.currentTimeMillis();
+        long lastDepreciation = civilian.getLastKarmaDepreciation();
+        if (lastDepreciation + karmaPeriod > now) {
+            return false;
+        }
+        long periods = karmaPeriod > 0 && lastDepreciation > 0 ? (now - lastDepreciation) / karmaPeriod : 1;
+        boolean changed = false;
+        for (long i = 0; i < periods && (civilian.getKarma() > 1 || civilian.getKarma() < -1); i++) {
+            double newKarma = (double) civilian.getKarma() / 2;
+            civilian.setKarma(newKarma < 0 ? (int) Math.ceil(newKarma) : (int) Math.floor(newKarma));
+            changed = true;
+        }
+        if (changed) {
+            civilian.setLastKarmaDepreciation(now);
+        }
+        return changed;
+    }
+
+    /**
+     * Civilians aren't loaded until they are needed. On startup the points of everyone
+     * are read from player-points.yml so that the leaderboard covers everyone. Player
+     * files that aren't in it yet, like all of them the first time, are read for their
+     * points off the main thread.
+     */
+    private void indexAllCivilians() {
+        File pointsFile = new File(Civs.dataLocation, POINTS_FILE_NAME);
+        if (pointsFile.exists()) {
+            FileConfiguration pointsConfig = YamlConfiguration.loadConfiguration(pointsFile);
+            for (String key : pointsConfig.getKeys(false)) {
+                try {
+                    pointsIndex.setPoints(UUID.fromString(key), pointsConfig.getDouble(key, 0));
+                } catch (IllegalArgumentException e) {
+                    Civs.logger.log(Level.WARNING, "Invalid player {0} in {1}", new Object[] { key, POINTS_FILE_NAME });
+                }
+            }
+            pointsIndex.takeChanges();
+        }
         File civilianFolder = new File(Civs.dataLocation, "players");
-        if (!civilianFolder.exists()) {
+        String[] fileNames = civilianFolder.list();
+        if (fileNames == null) {
             return;
         }
-        try {
-            for (File currentFile : civilianFolder.listFiles()) {
-                UUID uuid = UUID.fromString(currentFile.getName().replace(".yml",""));
-                Civilian civilian = loadFromFileCivilian(uuid);
-                civilians.put(uuid, civilian);
-                sortedCivilians.add(civilian);
+        final List<File> unindexedFiles = new ArrayList<>();
+        for (String fileName : fileNames) {
+            if (!fileName.endsWith(".yml")) {
+                continue;
+            }
+            try {
+                UUID uuid = UUID.fromString(fileName.substring(0, fileName.length() - 4));
+                if (!pointsIndex.contains(uuid)) {
+                    unindexedFiles.add(new File(civilianFolder, fileName));
+                }
+            } catch (IllegalArgumentException e) {
+                Civs.logger.log(Level.WARNING, "Skipping invalid player file {0}", fileName);
+            }
+        }
+        if (unindexedFiles.isEmpty()) {
+            return;
+        }
+        Bukkit.getScheduler().runTaskAsynchronously(Civs.getInstance(), new Runnable() {
+            @Override
+            public void run() {
+                long startTime = System.nanoTime();
+                final List<ParallelConfigLoader.ParsedConfig> parsedConfigs = ParallelConfigLoader.parseFiles(unindexedFiles);
+                final long parseTime = System.nanoTime() - startTime;
+                Bukkit.getScheduler().runTask(Civs.getInstance(), new Runnable() {
+                    @Override
+                    public void run() {
+                        long startTime = System.nanoTime();
+                        for (ParallelConfigLoader.ParsedConfig parsedConfig : parsedConfigs) {
+                            if (parsedConfig.getConfig() == null) {
+                                continue;
+                            }
+                            UUID uuid = UUID.fromString(parsedConfig.getName());
+                            // Loaded civilians are newer than their file
+                            if (!pointsIndex.contains(uuid)) {
+                                pointsIndex.setPoints(uuid, parsedConfig.getConfig().getDouble("points", 0));
+                            }
+                        }
+                        ParallelConfigLoader.logTiming("players", parsedConfigs.size(), parseTime,
+                                System.nanoTime() - startTime);
+                    }
+                });
             }
-        } catch (NullPointerException npe) {
+        });
+    }
 
+    /**
+     * Queues player-points.yml to be rewritten if any civilian's points changed.
+     */
+    public void savePointsIndex() {
+        Map<UUID, Double> points = pointsIndex.takeChanges();
+        if (points == null || Civs.dataLocation == null) {
+            return;
         }
-        listNeedsToBeSorted = true;
-        sortCivilians();
+        FileConfiguration pointsConfig = new YamlConfiguration();
+        for (Map.Entry<UUID, Double> entry : points.entrySet()) {
+            pointsConfig.set(entry.getKey().toString(), entry.getValue());
+        }
+        PersistenceQueue.getInstance().write(new File(Civs.dataLocation, POINTS_FILE_NAME), pointsConfig);
+    }
+
+    /**
+     * @return the points of the civilian, without loading it if it isn't loaded
+     */
+    public double getPoints(UUID uuid) {
+        Civilian civilian = civilians.get(uuid);
+        return civilian != null ? civilian.getPoints() : pointsIndex.getPoints(uuid);
     }
 
     public static CivilianManager getInstance() {
         if (civilianManager == null) {
             civilianManager = new CivilianManager();
             if (Civs.getInstance() != null) {
-                civilianManager.loadAllCivilians();
+                civilianManager.indexAllCivilians();
             }
         }
         return civilianManager;
@@ -76,12 +186,11 @@ public class CivilianManager {
 
     void loadCivilian(Player player) {
         Civilian civilian = loadFromFileCivilian(player.getUniqueId());
-        civilians.put(player.getUniqueId(), civilian);
+        cacheCivilian(civilian);
     }
     public void createDefaultCivilian(Player player) {
         Civilian civilian = createDefaultCivilian(player.getUniqueId());
-        civilians.put(player.getUniqueId(), civilian);
-        sortedCivilians.add(civilian);
+        cacheCivilian(civilian);
         listNeedsToBeSorted = true;
     }
     public void sortCivilians() {
@@ -89,16 +198,48 @@ public class CivilianManager {
             return;
         }
         listNeedsToBeSorted = false;
-        sortedCivilians.sort(new Comparator<Civilian>() {
-            @Override
-            public int compare(Civilian o1, Civilian o2) {
-                if (o1.getPoints() == o2.getPoints()) {
-                    return 0;
-                }
-                return o1.getPoints() < o2.getPoints() ? 1 : -1;
+        for (Civilian civilian : civilians.values()) {
+            pointsIndex.setPoints(civilian.getUuid(), civilian.getPoints());
+        }
+    }
+
+    /**
+     * @return every known civilian's uuid, highest points first
+     */
+    public List<UUID> getSortedCivilians() {
+        sortCivilians();
+        return pointsIndex.getSortedCivilians();
+    }
+
+    private void cacheCivilian(Civilian civilian) {
+        civilians.put(civilian.getUuid(), civilian);
+        pointsIndex.setPoints(civilian.getUuid(), civilian.getPoints());
+        evictOfflineCivilians();
+    }
+
+    /**
+     * Drops the least recently used offline civilians once there are too many. Every
+     * change to a civilian is written by saveCivilian and quitting players are saved
+     * in unloadCivilian, so evicted civilians are already on disk.
+     */
+    private void evictOfflineCivilians() {
+        int maxOfflineCivilians = ConfigManager.getInstance().getMaxOfflineCivilians();
+        int offlineCount = civilians.size() - Bukkit.getOnlinePlayers().size();
+        if (offlineCount <= maxOfflineCivilians) {
+            return;
+        }
+        Iterator<Map.Entry<UUID, Civilian>> iterator = civilians.entrySet().iterator();
+        while (offlineCount > maxOfflineCivilians && iterator.hasNext()) {
+            Map.Entry<UUID, Civilian> entry = iterator.next();
+            if (Bukkit.getPlayer(entry.getKey()) != null) {
+                continue;
             }
-        });
+            pointsIndex.setPoints(entry.getKey(), entry.getValue().getPoints());
+            iterator.remove();
+            offlineCount--;
+        }
     }
+
     void unloadCivilian(Player player) {
         Civilian civilian = getCivilian(player.getUniqueId());
         saveCivilian(civilian);
@@ -109,9 +250,77 @@ public class CivilianManager {
         Civilian civilian = civilians.get(uuid);
         if (civilian == null) {
             civilian = loadFromFileCivilian(uuid);
+            cacheCivilian(civilian);
         }
         return civilian;
     }
+
+    /**
+     * Like getCivilian, but a civilian that isn't loaded is read from disk off the main
+     * thread. The callback always runs on the main thread.
+     */
+    public void getCivilian(final UUID uuid, Consumer<Civilian> callback) {
+        if (civilians.containsKey(uuid) || Civs.getInstance() == null) {
+            callback.accept(getCivilian(uuid));
+            return;
+        }
+        List<Consumer<Civilian>> callbacks = pendingLoads.get(uuid);
+        if (callbacks != null) {
+            callbacks.add(callback);
+            return;
+        }
+        callbacks = new ArrayList<>();
+        callbacks.add(callback);
+        pendingLoads.put(uuid, callbacks);
+        final File civilianFile = new File(new File(Civs.dataLocation, "players"), uuid + ".yml");
+        Bukkit.getScheduler().runTaskAsynchronously(Civs.getInstance(), new Runnable() {
+            @Override
+            public void run() {
+                FileConfiguration civConfig = null;
+                Exception error = null;
+                if (civilianFile.exists()) {
+                    civConfig = new YamlConfiguration();
+                    try {
+                        civConfig.load(civilianFile);
+                    } catch (Exception e) {
+                        error = e;
+                    }
+                }
+                final FileConfiguration loadedConfig = civConfig;
+                final Exception loadError = error;
+                Bukkit.getScheduler().runTask(Civs.getInstance(), new Runnable() {
+                    @Override
+                    public void run() {
+                        finishLoadingCivilian(uuid, civilianFile, loadedConfig, loadError);
+                    }
+                });
+            }
+        });
+    }
+
+    private void finishLoadingCivilian(UUID uuid, File civilianFile, FileConfiguration civConfig, Exception error) {
+        List<Consumer<Civilian>> callbacks = pendingLoads.remove(uuid);
+        Civilian civilian = civilians.get(uuid);
+        if (civilian == null) {
+            Player player = Bukkit.getPlayer(uuid);
+            if (error != null) {
+                civilian = invalidCivilianFile(uuid, civilianFile, error);
+            } else if (civConfig == null) {
+                civilian = createDefaultCivilian(uuid);
+                if (player != null) {
+                    saveCivilian(civilian);
+                }
+            } else {
+                civilian = loadFromConfigCivilian(uuid, civilianFile, civConfig, player);
+            }
+            cacheCivilian(civilian);
+        }
+        if (callbacks != null) {
+            for (Consumer<Civilian> callback : callbacks) {
+                callback.accept(civilian);
+            }
+        }
+    }
     private Civilian loadFromFileCivilian(UUID uuid) {
         if (Civs.getInstance() == null) {
             Civilian civilian = createDefaultCivilian(uuid);
@@ -138,7 +347,14 @@ public class CivilianManager {
         FileConfiguration civConfig = new YamlConfiguration();
         try {
             civConfig.load(civilianFile);
+        } catch (Exception ex) {
+            return invalidCivilianFile(uuid, civilianFile, ex);
+        }
+        return loadFromConfigCivilian(uuid, civilianFile, civConfig, player);
+    }
 
+    private Civilian loadFromConfigCivilian(UUID uuid, File civilianFile, FileConfiguration civConfig, Player player) {
+        try {
             ItemManager itemManager = ItemManager.getInstance();
             Map<String, Integer> items = itemManager.loadCivItems(civConfig);
             Set<CivClass> classes = new HashSet<>();
@@ -186,6 +402,7 @@ public class CivilianManager {
             if (civConfig.isSet("last-karma-depreciation")) {
                 civilian.setLastKarmaDepreciation(civConfig.getLong("last-karma-depreciation", -1));
             }
+            depreciateKarma(civilian);
             if (civConfig.isSet("friends")) {
                 HashSet<UUID> friendSet = new HashSet<>();
                 for (String uuidString : civConfig.getStringList("friends")) {
@@ -198,12 +415,16 @@ public class CivilianManager {
 
             return civilian;
         } catch (Exception ex) {
-            Civs.logger.log(Level.SEVERE, "Unable to read " + uuid + ".yml", ex);
-            if (civilianFile.exists()) {
-                civilianFile.delete();
-            }
-            return createDefaultCivilian(uuid);
+            return invalidCivilianFile(uuid, civilianFile, ex);
+        }
+    }
+
+    private Civilian invalidCivilianFile(UUID uuid, File civilianFile, Exception ex) {
+        Civs.logger.log(Level.SEVERE, "Unable to read " + uuid + ".yml", ex);
+        if (civilianFile.exists()) {
+            civilianFile.delete();
         }
+        return createDefaultCivilian(uuid);
     }
     Civilian createDefaultCivilian(UUID uuid) {
         ConfigManager configManager = ConfigManager.getInstance();
@@ -230,6 +451,7 @@ public class CivilianManager {
         return civilian;
     }
     public void saveCivilian(Civilian civilian) {
+        pointsIndex.setPoints(civilian.getUuid(), civilian.getPoints());
         File civilianFolder = new File(Civs.dataLocation, "players");
         if (!civilianFolder.exists()) {
             if (!civilianFolder.mkdir()) {
@@ -328,6 +550,7 @@ public class CivilianManager {
 
     public void deleteCivilian(Civilian civilian) {
         civilians.remove(civilian.getUuid());
+        pointsIndex.remove(civilian.getUuid());
         File playerFolder = new File(Civs.dataLocation, "players");
         File playerFile = new File(playerFolder, civilian.getUuid() + ".yml");
         if (!playerFile.exists()) {
@@ -0,0 +1,84 @@
+package org.redcastlemedia.multitallented.civs.civilians;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Points of every known civilian, including the ones that aren't loaded, so the
+ * leaderboard doesn't need every profile in memory. CivilianManager keeps a copy of
+ * it in player-points.yml so it can be read back without parsing every player file.
+ */
+class CivilianPointsIndex {
+    private final HashMap<UUID, Double> points = new HashMap<>();
+    private final List<UUID> sortedCivilians = new ArrayList<>();
+    private boolean needsSorting = false;
+    private boolean changed = false;
+
+    void clear() {
+        points.clear();
+        sortedCivilians.clear();
+        needsSorting = false;
+        changed = false;
+    }
+
+    void setPoints(UUID uuid, double civilianPoints) {
+        Double previousPoints = points.put(uuid, civilianPoints);
+        if (previousPoints == null) {
+            sortedCivilians.add(uuid);
+            needsSorting = true;
+            changed = true;
+        } else if (previousPoints != civilianPoints) {
+            needsSorting = true;
+            changed = true;
+        }
+    }
+
+    void remove(UUID uuid) {
+        if (points.remove(uuid) != null) {
+            sortedCivilians.remove(uuid);
+            changed = true;
+        }
+    }
+
+    boolean contains(UUID uuid) {
+        return points.containsKey(uuid);
+    }
+
+    double getPoints(UUID uuid) {
+        Double civilianPoints = points.get(uuid);
+        return civilianPoints == null ? 0 : civilianPoints;
+    }
+
+    /**
+     * @return every civilian's points if anything changed since the last call, otherwise null
+     */
+    Map<UUID, Double> takeChanges() {
+        if (!changed) {
+            return null;
+        }
+        changed = false;
+        return new HashMap<>(points);
+    }
+
+    int size() {
+        return points.size();
+    }
+
+    List<UUID> getSortedCivilians() {
+        if (needsSorting) {
+            needsSorting = false;
+            sortedCivilians.sort(new Comparator<UUID>() {
+                @Override
+                public int compare(UUID o1, UUID o2) {
+                    return Double.compare(points.get(o2), points.get(o1));
+                }
+            });
+        }
+        return Collections.unmodifiableList(sortedCivilians);
+    }
+}
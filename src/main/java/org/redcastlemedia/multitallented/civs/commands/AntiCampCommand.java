@@ -10,6 +10,7 @@ import org.redcastlemedia.multitallented.civs.civilians.CivilianManager;
 import org.redcastlemedia.multitallented.civs.regions.effects.AntiCampEffect;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
+import org.redcastlemedia.multitallented.civs.util.EconomyLedger;
 
 @CivsCommand(keys = { "anticamp" })
 public class AntiCampCommand implements CivCommand {
@@ -63,7 +64,7 @@ public class AntiCampCommand implements CivCommand {
         }
 
         if (antiCampCost > 0 && Civs.econ != null) {
-            Civs.econ.withdrawPlayer(player, antiCampCost);
+            EconomyLedger.getInstance().withdrawNow(player, antiCampCost);
         }
         AntiCampEffect.activateAntiCamp(civilian.getUuid(), town);
         return true;
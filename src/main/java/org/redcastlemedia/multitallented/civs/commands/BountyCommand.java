@@ -13,6 +13,7 @@ import org.redcastlemedia.multitallented.civs.civilians.CivilianManager;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.util.Constants;
+import org.redcastlemedia.multitallented.civs.util.EconomyLedger;
 
 @CivsCommand(keys = { "bounty" })
 public class BountyCommand implements CivCommand {
@@ -76,7 +77,7 @@ public class BountyCommand implements CivCommand {
                 }
 
                 town.getBounties().add(new Bounty(civilian.getUuid(), amount));
-                Civs.econ.withdrawPlayer(player, amount);
+                EconomyLedger.getInstance().withdrawNow(player, amount);
             } else {
                 town.getBounties().add(new Bounty(null, amount));
                 commandSender.sendMessage(Civs.getPrefix() + "Bounty set on " + playerName + " for $" + amount);
@@ -112,7 +113,7 @@ public class BountyCommand implements CivCommand {
         if (civilian != null) {
             targetCiv.getBounties().add(new Bounty(civilian.getUuid(), amount));
             CivilianManager.getInstance().saveCivilian(targetCiv);
-            Civs.econ.withdrawPlayer(player, amount);
+            EconomyLedger.getInstance().withdrawNow(player, amount);
         } else {
             targetCiv.getBounties().add(new Bounty(null, amount));
             CivilianManager.getInstance().saveCivilian(targetCiv);
@@ -0,0 +1,32 @@
+package org.redcastlemedia.multitallented.civs.commands;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.redcastlemedia.multitallented.civs.Civs;
+import org.redcastlemedia.multitallented.civs.util.Constants;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
+
+@CivsCommand(keys = { "debug" })
+public class DebugCommand implements CivCommand {
+    private static final int MAX_TIMERS_PER_GROUP = 10;
+
+    @Override
+    public boolean runCommand(CommandSender commandSender, Command command, String label, String[] args) {
+        boolean isAdmin = !(commandSender instanceof Player) || commandSender.isOp() ||
+                (Civs.perm != null && Civs.perm.has(commandSender, Constants.ADMIN_PERMISSION));
+        if (!isAdmin) {
+            return true;
+        }
+        if (args.length > 1 && "reset".equalsIgnoreCase(args[1])) {
+            Metrics.reset();
+            commandSender.sendMessage(Civs.getPrefix() + "Metrics reset");
+            return true;
+        }
+        String group = args.length > 1 ? args[1] : null;
+        for (String line : Metrics.getReport(group, MAX_TIMERS_PER_GROUP)) {
+            commandSender.sendMessage(line);
+        }
+        return true;
+    }
+}
@@ -19,6 +19,7 @@ import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.util.Constants;
+import org.redcastlemedia.multitallented.civs.util.EconomyLedger;
 
 import java.util.HashMap;
 import java.util.UUID;
@@ -167,7 +168,7 @@ public class PortCommand implements CivCommand {
                             "not-enough-money").replace("$1", moneyNeeded + ""));
                     return;
                 } else if (Civs.econ != null) {
-                    Civs.econ.withdrawPlayer(p, ConfigManager.getInstance().getPortMoney());
+                    EconomyLedger.getInstance().withdrawNow(p, ConfigManager.getInstance().getPortMoney());
                 }
 
                 if (ConfigManager.getInstance().getPortDamage() > 0) {
@@ -11,6 +11,7 @@ import org.redcastlemedia.multitallented.civs.civilians.Civilian;
 import org.redcastlemedia.multitallented.civs.civilians.CivilianManager;
 import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
+import org.redcastlemedia.multitallented.civs.towns.MembershipCache;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.util.Constants;
@@ -104,9 +105,11 @@ public class RemoveMemberCommand implements CivCommand {
         }
         if (region != null && region.getPeople().get(invitee.getUniqueId()) != null) {
             region.getRawPeople().remove(invitee.getUniqueId());
+            MembershipCache.invalidate();
             RegionManager.getInstance().saveRegion(region);
         } else if (town != null && town.getPeople().get(invitee.getUniqueId()) != null) {
             town.getRawPeople().remove(invitee.getUniqueId());
+            MembershipCache.invalidate();
             TownManager.getInstance().saveTown(town);
         }
         return true;
@@ -12,6 +12,7 @@ import org.redcastlemedia.multitallented.civs.civilians.CivilianListener;
 import org.redcastlemedia.multitallented.civs.civilians.CivilianManager;
 import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
+import org.redcastlemedia.multitallented.civs.towns.MembershipCache;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.util.Constants;
@@ -48,6 +49,7 @@ public class ResetCommand implements CivCommand {
                     townsToDestroy.add(town);
                 } else {
                     town.getRawPeople().remove(civilian.getUuid());
+                    MembershipCache.invalidate();
                     TownManager.getInstance().saveTown(town);
                 }
             }
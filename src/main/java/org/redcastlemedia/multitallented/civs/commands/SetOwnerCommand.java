@@ -20,6 +20,7 @@ import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.towns.TownType;
 import org.redcastlemedia.multitallented.civs.util.Constants;
+import org.redcastlemedia.multitallented.civs.util.EconomyLedger;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
 import java.util.HashSet;
@@ -144,7 +145,7 @@ public class SetOwnerCommand implements CivCommand {
                 return true;
             }
             if (oligarchyOverride) {
-                Civs.econ.withdrawPlayer(player, price);
+                EconomyLedger.getInstance().withdrawNow(player, price);
                 HashSet<UUID> uuids = new HashSet<>();
                 for (UUID uuid : town.getRawPeople().keySet()) {
                     if (town.getRawPeople().get(uuid).contains(Constants.OWNER)) {
@@ -153,7 +154,7 @@ public class SetOwnerCommand implements CivCommand {
                 }
                 if (!uuids.isEmpty()) {
                     for (UUID uuid : uuids) {
-                        Civs.econ.depositPlayer(Bukkit.getOfflinePlayer(uuid), price / (double) uuids.size());
+                        EconomyLedger.getInstance().depositNow(Bukkit.getOfflinePlayer(uuid), price / (double) uuids.size());
                     }
                 }
             }
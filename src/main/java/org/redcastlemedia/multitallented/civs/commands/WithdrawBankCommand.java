@@ -9,6 +9,7 @@ import org.redcastlemedia.multitallented.civs.civilians.Civilian;
 import org.redcastlemedia.multitallented.civs.civilians.CivilianManager;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
+import org.redcastlemedia.multitallented.civs.util.EconomyLedger;
 import org.redcastlemedia.multitallented.civs.util.OwnershipUtil;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
@@ -34,7 +35,7 @@ public class WithdrawBankCommand implements CivCommand {
         Town town = TownManager.getInstance().getTown(args[1]);
         town.setBankAccount(town.getBankAccount() - amount);
         TownManager.getInstance().saveTown(town);
-        Civs.econ.depositPlayer(player, amount);
+        EconomyLedger.getInstance().depositNow(player, amount);
         player.sendMessage(Civs.getPrefix() + LocaleManager.getInstance().getTranslation(civilian.getLocale(),
                 "withdrawn-money").replace("$1", Util.getNumberFormat(amount, civilian.getLocale()))
                 .replace("$2", town.getName()));
@@ -30,6 +30,9 @@ public class CVInventory {
     private boolean valid = true;
     @Getter
     private long lastUnloadedModification = -1;
+    private final Map<String, Integer> itemCounts = new HashMap<>();
+    private boolean itemCountsValid = false;
+    private boolean contentsStale = false;
 
     protected CVInventory(@NonNull Location location) {
         this.location = location;
@@ -69,12 +72,87 @@ public class CVInventory {
                 this.contents.put(i, new ItemStack(itemStack));
             }
         }
+        this.contentsStale = false;
+        rebuildItemCounts();
+    }
+
+    /**
+     * The chest was changed by something other than this class, so it gets read again
+     * the next time the contents or counts are needed.
+     */
+    public void invalidate() {
+        this.contentsStale = true;
+    }
+
+    private void rebuildItemCounts() {
+        this.itemCounts.clear();
+        this.itemCountsValid = true;
+        for (ItemStack itemStack : this.contents.values()) {
+            countItem(itemStack, 1);
+        }
+    }
+
+    private void countItem(ItemStack itemStack, int sign) {
+        if (!this.itemCountsValid || itemStack == null) {
+            return;
+        }
+        addCount(CVItem.getItemKey(itemStack), sign * itemStack.getAmount());
+        // MMOItems also count for requirements that only go by type and display name
+        String mmoItemKey = CVItem.getMmoItemKey(itemStack);
+        if (mmoItemKey != null) {
+            addCount(mmoItemKey, sign * itemStack.getAmount());
+        }
+    }
+
+    private void addCount(String key, int amount) {
+        Integer count = this.itemCounts.get(key);
+        int newCount = (count == null ? 0 : count) + amount;
+        if (newCount > 0) {
+            this.itemCounts.put(key, newCount);
+        } else {
+            this.itemCounts.remove(key);
+        }
+    }
+
+    private int countItems(CVItem cvItem) {
+        Integer count = this.itemCounts.get(cvItem.getItemKey());
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Each list in reqs is satisfied by having enough of any one of its items.
+     * Items are matched by type and display name, MMOItems by their type and id.
+     */
+    public boolean containsItems(List<List<CVItem>> reqs) {
+        if (Util.isChunkLoadedAt(this.location)) {
+            if (this.contentsStale || !this.itemCountsValid) {
+                update();
+            }
+            if (!this.valid) {
+                return false;
+            }
+        } else if (!this.itemCountsValid) {
+            rebuildItemCounts();
+        }
+        outer: for (List<CVItem> orReqs : reqs) {
+            for (CVItem orReq : orReqs) {
+                int amount = countItems(orReq);
+                if (amount > 0 && amount >= orReq.getQty()) {
+                    continue outer;
+                }
+            }
+            return false;
+        }
+        return true;
     }
 
     public void sync() {
         if (!this.valid) {
             return;
         }
+        if (this.contentsStale) {
+            update();
+        }
         this.size = this.inventory.getSize();
         this.lastUnloadedModification = -1;
         for (int i = 0; i < getSize(); i++) {
@@ -115,8 +193,12 @@ public class CVInventory {
             if (!this.valid) {
                 return null;
             }
+            // The caller can change the stack in the chest
+            this.contentsStale = true;
             return this.inventory.getItem(i);
         } else {
+            // The stack can be changed by the caller, so count again next time
+            this.itemCountsValid = false;
             return contents.get(i);
         }
     }
@@ -128,10 +210,13 @@ public class CVInventory {
                 return;
             }
             this.inventory.setItem(i, itemStack);
+            this.contentsStale = true;
         } else {
             if (i > 0 && i < getSize()) {
+                countItem(contents.get(i), -1);
                 if (itemStack != null) {
                     contents.put(i, itemStack);
+                    countItem(itemStack, 1);
                 } else {
                     contents.remove(i);
                 }
@@ -145,6 +230,7 @@ public class CVInventory {
             if (!this.valid) {
                 return new ItemStack[0];
             }
+            this.contentsStale = true;
             return this.inventory.getContents();
         } else {
             int biggestIndex = 0;
@@ -153,6 +239,7 @@ public class CVInventory {
                     biggestIndex = i;
                 }
             }
+            this.itemCountsValid = false;
             ItemStack[] itemStacks = new ItemStack[Math.max(getSize(), biggestIndex)];
             for (Map.Entry<Integer, ItemStack> entry : this.contents.entrySet()) {
                 itemStacks[entry.getKey()] = entry.getValue();
@@ -182,6 +269,10 @@ public class CVInventory {
         if (!isChunkLoaded && modify) {
             this.lastUnloadedModification = System.currentTimeMillis();
         }
+        if (!modify && getSize() - this.contents.size() >= itemStackParams.length) {
+            // Every stack gets an empty slot if it can't be merged
+            return new HashMap<>();
+        }
         HashMap<Integer, ItemStack> returnItems = new HashMap<>();
         ArrayList<ItemStack> itemStacks = new ArrayList<>(Arrays.asList(itemStackParams));
         Map<Integer, ItemStack> contentsToModify;
@@ -221,9 +312,15 @@ public class CVInventory {
         ItemStack currentStack = itemStacks.get(0);
         if (!contentsToModify.containsKey(i)) {
             contentsToModify.put(i, currentStack);
+            if (contentsToModify == this.contents) {
+                countItem(currentStack, 1);
+            }
             itemStacks.remove(0);
             itemAdded = true;
         } else if (contentsToModify.get(i).isSimilar(currentStack)) {
+            if (contentsToModify == this.contents) {
+                countItem(contentsToModify.get(i), -1);
+            }
             if (contentsToModify.get(i).getAmount() + currentStack.getAmount() < currentStack.getMaxStackSize()) {
                 contentsToModify.get(i).setAmount(contentsToModify.get(i).getAmount() + currentStack.getAmount());
                 itemStacks.remove(0);
@@ -234,6 +331,9 @@ public class CVInventory {
                 currentStack.setAmount(currentStack.getAmount() - difference);
 
             }
+            if (contentsToModify == this.contents) {
+                countItem(contentsToModify.get(i), 1);
+            }
         }
         return itemAdded;
     }
@@ -280,6 +380,7 @@ public class CVInventory {
         if (!contentsToModify.containsKey(i)) {
             return false;
         } else if (contentsToModify.get(i).isSimilar(currentStack)) {
+            countItem(contentsToModify.get(i), -1);
             if (contentsToModify.get(i).getAmount() > currentStack.getAmount()) {
                 contentsToModify.get(i).setAmount(contentsToModify.get(i).getAmount() - currentStack.getAmount());
                 itemStacks.remove(0);
@@ -289,6 +390,7 @@ public class CVInventory {
                 contentsToModify.remove(i);
                 currentStack.setAmount(currentStack.getAmount() - amount);
             }
+            countItem(contentsToModify.get(i), 1);
         }
         return itemRemoved;
     }
@@ -23,6 +23,7 @@ import org.redcastlemedia.multitallented.civs.util.Util;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 /**
  *
@@ -43,6 +44,7 @@ public class CVItem {
     @Getter @Setter
     private String group = null;
     private List<String> lore = new ArrayList<>();
+    private String itemKey = null;
 
     public CVItem(Material mat, int qty, int chance, String displayName, List<String> lore) {
         this.mat = mat;
@@ -335,6 +337,50 @@ public class CVItem {
         }
     }
 
+    /**
+     * Items with the same key are equivalent when comparing display names,
+     * see {@link #equivalentItem(ItemStack, boolean)}. MMOItems are keyed by their
+     * type and id instead, see {@link #getMmoItemKey(ItemStack)}.
+     */
+    public String getItemKey() {
+        if (itemKey == null) {
+            if (mmoItemType != null && mmoItemName != null) {
+                itemKey = getMmoItemKey(mmoItemType, mmoItemName);
+            } else {
+                itemKey = getItemKey(mat, displayName);
+            }
+        }
+        return itemKey;
+    }
+
+    public static String getItemKey(ItemStack itemStack) {
+        String name = itemStack.hasItemMeta() ? itemStack.getItemMeta().getDisplayName() : null;
+        return getItemKey(itemStack.getType(), name);
+    }
+
+    /**
+     * @return the key of the MMOItem requirements this stack counts for, or null if it isn't an MMOItem
+     */
+    public static String getMmoItemKey(ItemStack itemStack) {
+        if (Civs.mmoItems == null) {
+            return null;
+        }
+        NBTItem nbtItem = NBTItem.get(itemStack);
+        if (!nbtItem.hasType()) {
+            return null;
+        }
+        return getMmoItemKey(nbtItem.getString("MMOITEMS_ITEM_TYPE"), nbtItem.getString("MMOITEMS_ITEM_ID"));
+    }
+
+    private static String getItemKey(Material mat, String name) {
+        return name == null ? String.valueOf(mat) : mat + ":" + name;
+    }
+
+    private static String getMmoItemKey(String type, String name) {
+        // equivalentItem ignores case for both
+        return "mmo:" + String.valueOf(type).toUpperCase(Locale.ROOT) + ":" + String.valueOf(name).toUpperCase(Locale.ROOT);
+    }
+
     public boolean equivalentCVItem(CVItem iss) {
         return equivalentCVItem(iss, false);
     }
@@ -366,6 +412,7 @@ public class CVItem {
 
     public void setMat(Material mat) {
         this.mat = mat;
+        this.itemKey = null;
     }
 
     public Material getMat() {
@@ -382,6 +429,7 @@ public class CVItem {
     }
     public void setDisplayName(String name) {
         this.displayName = name;
+        this.itemKey = null;
     }
     public void setLore(List<String> lore) {
         this.lore = lore;
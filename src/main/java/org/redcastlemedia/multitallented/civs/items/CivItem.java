@@ -12,6 +12,7 @@ import java.util.List;
 public abstract class CivItem extends CVItem {
     private final ItemType itemType;
     private final List<String> reqs;
+    private final CivRequirements compiledReqs;
     private final int qty;
     private final int min;
     private final int max;
@@ -33,6 +34,9 @@ public abstract class CivItem extends CVItem {
     public List<String> getCivReqs() {
         return reqs;
     }
+    public CivRequirements getCompiledCivReqs() {
+        return compiledReqs;
+    }
     public int getCivQty() { return qty; }
     public int getCivMin() { return min; }
     public int getCivMax() { return max; }
@@ -89,6 +93,7 @@ public abstract class CivItem extends CVItem {
         }
         this.itemType = itemType;
         this.reqs = reqs;
+        this.compiledReqs = CivRequirements.compile(reqs);
         this.qty = qty;
         this.min = min;
         this.max = max;
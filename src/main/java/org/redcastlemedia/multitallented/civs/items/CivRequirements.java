@@ -0,0 +1,246 @@
+package org.redcastlemedia.multitallented.civs.items;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.redcastlemedia.multitallented.civs.Civs;
+import org.redcastlemedia.multitallented.civs.civilians.Civilian;
+import org.redcastlemedia.multitallented.civs.towns.Town;
+import org.redcastlemedia.multitallented.civs.towns.MembershipIndex;
+import org.redcastlemedia.multitallented.civs.util.Constants;
+
+/**
+ * The civ-reqs of an item, parsed once when the item is loaded. Every line has to be met,
+ * and a line is met if any of its | separated requirements is.
+ *
+ * perm=civs.admin, member=settlement:town, population=15, house, shack:built=1,
+ * bash:level=4, house:has=2 and hamlet:population=15 are supported.
+ */
+public final class CivRequirements {
+    private static final CivRequirements NONE = new CivRequirements(new Requirement[0][]);
+    private static final Requirement NEVER = new Requirement() {
+        @Override
+        public boolean isMet(Context context) {
+            return false;
+        }
+    };
+
+    private final Requirement[][] lines;
+
+    private CivRequirements(Requirement[][] lines) {
+        this.lines = lines;
+    }
+
+    public static CivRequirements compile(List<String> civReqs) {
+        if (civReqs == null || civReqs.isEmpty()) {
+            return NONE;
+        }
+        Requirement[][] lines = new Requirement[civReqs.size()][];
+        for (int i = 0; i < civReqs.size(); i++) {
+            String[] reqs = civReqs.get(i).split("\\|");
+            lines[i] = new Requirement[reqs.length];
+            for (int j = 0; j < reqs.length; j++) {
+                lines[i][j] = compileRequirement(reqs[j]);
+            }
+        }
+        return new CivRequirements(lines);
+    }
+
+    public boolean isEmpty() {
+        return lines.length == 0;
+    }
+
+    public boolean isMet(Context context) {
+        if (lines.length == 0) {
+            return true;
+        }
+        if (context.getPlayer() == null) {
+            return false;
+        }
+        outer: for (Requirement[] line : lines) {
+            for (Requirement requirement : line) {
+                if (requirement.isMet(context)) {
+                    continue outer;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private static Requirement compileRequirement(final String req) {
+        try {
+            //perm=civs.admin
+            if (req.startsWith("perm=")) {
+                final String permission = req.replace("perm=", "");
+                return new Requirement() {
+                    @Override
+                    public boolean isMet(Context context) {
+                        return Civs.perm != null && Civs.perm.has(context.getPlayer(), permission);
+                    }
+                };
+            //member=settlement:town:...
+            } else if (req.startsWith("member=")) {
+                final Set<String> townTypes = new HashSet<>(Arrays.asList(req.replace("member=", "").split(":")));
+                return new Requirement() {
+                    @Override
+                    public boolean isMet(Context context) {
+                        for (Town town : context.getTowns()) {
+                            if (townTypes.contains(town.getType())) {
+                                return true;
+                            }
+                        }
+                        return false;
+                    }
+                };
+            //population=15
+            } else if (req.startsWith("population=")) {
+                return new OwnedTownPopulation(null, Integer.parseInt(req.replace("population=", "")));
+            }
+            final String[] splitReq = req.split(":");
+            //house:???
+            if (splitReq.length < 2) {
+                return new Requirement() {
+                    @Override
+                    public boolean isMet(Context context) {
+                        return context.getCountStashItems(splitReq[0]) > 0 ||
+                                context.getCountNonStashItems(splitReq[0]) > 0;
+                    }
+                };
+            }
+            String[] reqParams = splitReq[1].split("=");
+            //shack:built=1
+            if (reqParams[0].equals("built")) {
+                final int amount = Integer.parseInt(reqParams[1]);
+                return new Requirement() {
+                    @Override
+                    public boolean isMet(Context context) {
+                        return context.getCountNonStashItems(splitReq[0]) >= amount;
+                    }
+                };
+            //bash:level=4
+            } else if (reqParams[0].equals("level")) {
+                final int level = Integer.parseInt(reqParams[1]);
+                return new Requirement() {
+                    @Override
+                    public boolean isMet(Context context) {
+                        CivItem reqItem = ItemManager.getInstance().getItemType(splitReq[0]);
+                        Civilian civilian = context.getCivilian();
+                        if (reqItem == null || civilian.getExp().get(reqItem) == null) {
+                            return false;
+                        }
+                        return civilian.getLevel(reqItem) >= level;
+                    }
+                };
+            //house:has=2
+            } else if (reqParams[0].equals("has")) {
+                final int amount = Integer.parseInt(reqParams[1]);
+                return new Requirement() {
+                    @Override
+                    public boolean isMet(Context context) {
+                        return context.getCountStashItems(splitReq[0]) >= amount ||
+                                context.getCountNonStashItems(splitReq[0]) > amount;
+                    }
+                };
+            //hamlet:population=15
+            } else if (reqParams[0].equals("population")) {
+                return new OwnedTownPopulation(splitReq[0], Integer.parseInt(reqParams[1]));
+            }
+        } catch (RuntimeException e) {
+            Civs.logger.log(Level.WARNING, "Invalid civ-req {0}", req);
+        }
+        return NEVER;
+    }
+
+    private interface Requirement {
+        boolean isMet(Context context);
+    }
+
+    private static class OwnedTownPopulation implements Requirement {
+        private final String townType;
+        private final int population;
+
+        private OwnedTownPopulation(String townType, int population) {
+            this.townType = townType;
+            this.population = population;
+        }
+
+        @Override
+        public boolean isMet(Context context) {
+            for (Town town : context.getTowns()) {
+                if (townType != null && !town.getType().equalsIgnoreCase(townType)) {
+                    continue;
+                }
+                String role = town.getPeople().get(context.getCivilian().getUuid());
+                if (role == null || !role.contains(Constants.OWNER)) {
+                    continue;
+                }
+                if (population <= town.getPopulation()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * What requirements are checked against. Item counts are remembered, so one context
+     * can be shared by all the items of a menu but should not outlive it.
+     */
+    public static class Context {
+        private final Civilian civilian;
+        private final HashMap<String, Integer> stashCounts = new HashMap<>();
+        private final HashMap<String, Integer> nonStashCounts = new HashMap<>();
+        private boolean playerChecked = false;
+        private Player player;
+        private List<Town> towns;
+
+        public Context(Civilian civilian) {
+            this.civilian = civilian;
+        }
+
+        public Civilian getCivilian() {
+            return civilian;
+        }
+
+        Player getPlayer() {
+            if (!playerChecked) {
+                player = Bukkit.getPlayer(civilian.getUuid());
+                playerChecked = true;
+            }
+            return player;
+        }
+
+        List<Town> getTowns() {
+            if (towns == null) {
+                towns = new ArrayList<>(MembershipIndex.getInstance().getMemberTowns(civilian.getUuid()));
+            }
+            return towns;
+        }
+
+        int getCountStashItems(String name) {
+            Integer count = stashCounts.get(name);
+            if (count == null) {
+                count = civilian.getCountStashItems(name);
+                stashCounts.put(name, count);
+            }
+            return count;
+        }
+
+        int getCountNonStashItems(String name) {
+            Integer count = nonStashCounts.get(name);
+            if (count == null) {
+                count = civilian.getCountNonStashItems(name);
+                nonStashCounts.put(name, count);
+            }
+            return count;
+        }
+    }
+}
@@ -1,13 +1,11 @@
 package org.redcastlemedia.multitallented.civs.items;
 
-import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.block.Biome;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
-import org.bukkit.entity.Player;
 import org.redcastlemedia.multitallented.civs.Civs;
 import org.redcastlemedia.multitallented.civs.CivsSingleton;
 import org.redcastlemedia.multitallented.civs.ConfigManager;
@@ -17,8 +15,6 @@ import org.redcastlemedia.multitallented.civs.civilians.CivilianManager;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
 import org.redcastlemedia.multitallented.civs.regions.RegionUpkeep;
 import org.redcastlemedia.multitallented.civs.spells.SpellType;
-import org.redcastlemedia.multitallented.civs.towns.Town;
-import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.towns.TownType;
 import org.redcastlemedia.multitallented.civs.util.Constants;
 import org.redcastlemedia.multitallented.civs.util.FallbackConfigUtil;
@@ -444,10 +440,11 @@ public class ItemManager {
 
     public Map<String, Integer> getNewItems(Civilian civilian) {
         HashMap<String, Integer> newItems = new HashMap<>();
+        CivRequirements.Context context = new CivRequirements.Context(civilian);
         for (CivItem civItem : itemTypes.values()) {
             if (civItem.getItemType() == CivItem.ItemType.FOLDER ||
                     civilian.getStashItems().containsKey(civItem.getProcessedName()) ||
-                    !hasItemUnlocked(civilian, civItem)) {
+                    !hasItemUnlocked(civItem, context)) {
                 continue;
             }
             int count = civilian.getCountStashItems(civItem.getProcessedName()) +
@@ -462,9 +459,9 @@ public class ItemManager {
     }
 
     public List<CivItem> getShopItems(Civilian civilian, CivItem parent) {
-        return getAllItemsWithParent(civilian, parent, true);
+        return getAllItemsWithParent(new CivRequirements.Context(civilian), parent, true);
     }
-    private List<CivItem> getAllItemsWithParent(Civilian civilian, CivItem parent, boolean isShop) {
+    private List<CivItem> getAllItemsWithParent(CivRequirements.Context context, CivItem parent, boolean isShop) {
         List<CivItem> returnList = new ArrayList<>();
         HashSet<CivItem> checkList = new HashSet<>();
         if (parent == null) {
@@ -500,7 +497,7 @@ public class ItemManager {
         returnList.removeAll(checkList);
         checkList.clear();
         for (CivItem item : returnList) {
-            if (!hasItemUnlocked(civilian, item) ||
+            if (!hasItemUnlocked(item, context) ||
                     (isShop && !item.getInShop())) {
                 checkList.add(item);
             }
@@ -512,7 +509,7 @@ public class ItemManager {
             if (currentItem.getItemType() != CivItem.ItemType.FOLDER) {
                 continue;
             }
-            if (getAllItemsWithParent(civilian, currentItem, true).isEmpty()) {
+            if (getAllItemsWithParent(context, currentItem, true).isEmpty()) {
                 checkList.add(currentItem);
             }
         }
@@ -521,110 +518,19 @@ public class ItemManager {
     }
 
     public boolean hasItemUnlocked(Civilian civilian, CivItem civItem) {
-        if (civItem.getCivReqs().isEmpty()) {
-            return true;
-        }
-        Player player = Bukkit.getPlayer(civilian.getUuid());
-        if (player == null) {
-            return false;
-        }
-        outer: for (String reqString : civItem.getCivReqs()) {
-            for (String req : reqString.split("\\|")) {
-                //perm=civs.admin
-                if (req.startsWith("perm=")) {
-                    String permission = req.replace("perm=", "");
-                    if (Civs.perm != null &&
-                            Civs.perm.has(player, permission)) {
-                        continue outer;
-                    } else {
-                        continue;
-                    }
-                //member=settlement:town:...
-                } else if (req.startsWith("member=")) {
-                    String[] townTypeStrings = req.replace("member=", "").split(":");
-                    Set<String> townTypes = new HashSet<>(Arrays.asList(townTypeStrings));
-                    for (Town town : TownManager.getInstance().getTowns()) {
-                        if (townTypes.contains(town.getType()) &&
-                                town.getPeople().containsKey(civilian.getUuid())) {
-                            continue outer;
-                        }
-                    }
-                    continue;
-                //population=15
-                } else if (req.startsWith("population=")) {
-                    int pop = Integer.parseInt(req.replace("population=", ""));
-                    for (Town town : TownManager.getInstance().getTowns()) {
-                        if (!town.getPeople().containsKey(civilian.getUuid()) ||
-                                !town.getPeople().get(civilian.getUuid()).contains(Constants.OWNER)) {
-                            continue;
-                        }
-                        if (pop <= town.getPopulation()) {
-                            continue outer;
-                        }
-                    }
-                    continue;
-                }
-                String[] splitReq = req.split(":");
-                //house:???
-                if (splitReq.length < 2) {
-                    if (civilian.getCountStashItems(splitReq[0]) > 0 ||
-                            civilian.getCountNonStashItems(splitReq[0]) > 0) {
-                        continue outer;
-                    } else {
-                        continue;
-                    }
-                }
-                String[] reqParams = splitReq[1].split("=");
-                //shack:built=1
-                if (reqParams[0].equals("built")) {
-                    if (civilian.getCountNonStashItems(splitReq[0]) >= Integer.parseInt(reqParams[1])) {
-                        continue outer;
-                    } else {
-                        continue;
-                    }
-                //bash:level=4
-                } else if (reqParams[0].equals("level")) {
-                    CivItem reqItem = itemManager.getItemType(splitReq[0]);
-                    if (reqItem == null || civilian.getExp().get(reqItem) == null) {
-                        continue;
-                    }
-                    int level = civilian.getLevel(reqItem);
-                    if (level >= Integer.parseInt(reqParams[1])) {
-                        continue outer;
-                    } else {
-                        continue;
-                    }
-                //house:has=2
-                } else if (reqParams[0].equals("has")) {
-                    if (civilian.getCountStashItems(splitReq[0]) >= Integer.parseInt(reqParams[1]) ||
-                            civilian.getCountNonStashItems(splitReq[0]) > Integer.parseInt(reqParams[1])) {
-                        continue outer;
-                    } else {
-                        continue;
-                    }
-                //hamlet:population=15
-                } else if (reqParams[0].equals("population")) {
-                    int requirement = Integer.parseInt(reqParams[1]);
-                    for (Town town : TownManager.getInstance().getTowns()) {
-                        if (!town.getType().equalsIgnoreCase(splitReq[0]) ||
-                                !town.getPeople().containsKey(civilian.getUuid()) ||
-                                !town.getPeople().get(civilian.getUuid()).contains(Constants.OWNER)) {
-                            continue;
-                        }
-                        if (requirement <= town.getPopulation()) {
-                            continue outer;
-                        }
-                    }
-                    continue;
-                }
-            }
-            return false;
-        }
-        return true;
+        return hasItemUnlocked(civItem, new CivRequirements.Context(civilian));
+    }
+
+    /**
+     * Pass the same context for every item of one menu so item counts are only read once.
+     */
+    public boolean hasItemUnlocked(CivItem civItem, CivRequirements.Context context) {
+        return civItem.getCompiledCivReqs().isMet(context);
     }
 
     public void addMinItems(Civilian civilian) {
         ArrayList<CivItem> addItems = new ArrayList<>();
+        CivRequirements.Context context = new CivRequirements.Context(civilian);
         for (CivItem civItem : itemTypes.values()) {
             if (civItem.getCivMin() < 1) {
                 continue;
@@ -636,7 +542,7 @@ public class ItemManager {
             if (count >= civItem.getCivMin()) {
                 continue;
             }
-            if (hasItemUnlocked(civilian, civItem)) {
+            if (hasItemUnlocked(civItem, context)) {
                 int add = 0;
                 while(count + add < civItem.getCivMin()) {
                     addItems.add(civItem);
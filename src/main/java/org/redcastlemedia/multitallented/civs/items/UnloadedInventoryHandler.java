@@ -75,6 +75,23 @@ public class UnloadedInventoryHandler {
         }
     }
 
+    /**
+     * For events that fire before the chest changes, so it is read again once it's needed.
+     */
+    public void invalidateInventoryAtLocation(Location location) {
+        if (location == null) {
+            return;
+        }
+        HashMap<String, CVInventory> chunkInventories = unloadedChestInventories.get(getChunkString(location));
+        if (chunkInventories == null) {
+            return;
+        }
+        CVInventory cvInventory = chunkInventories.get(Region.locationToString(location));
+        if (cvInventory != null) {
+            cvInventory.invalidate();
+        }
+    }
+
     public CVInventory getChestInventory(Location location) {
         String locationString = Region.locationToString(location);
         String chunkString = getChunkString(location);
@@ -1,8 +1,10 @@
 package org.redcastlemedia.multitallented.civs.localization;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
 
@@ -16,7 +18,6 @@ import org.redcastlemedia.multitallented.civs.ConfigManager;
 import org.redcastlemedia.multitallented.civs.civilians.Civilian;
 import org.redcastlemedia.multitallented.civs.civilians.CivilianManager;
 import org.redcastlemedia.multitallented.civs.util.FallbackConfigUtil;
-import org.redcastlemedia.multitallented.civs.util.Util;
 import org.reflections.Reflections;
 import org.reflections.scanners.ResourcesScanner;
 
@@ -27,6 +28,8 @@ public class LocaleManager {
 
     private static LocaleManager localeManager;
     HashMap<String, HashMap<String, String>> languageMap = new HashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, MessageTemplate>> templateMap =
+            new ConcurrentHashMap<>();
 
     public String getTranslationWithPlaceholders(OfflinePlayer player, String key) {
         Civilian civilian = CivilianManager.getInstance().getCivilian(player.getUniqueId());
@@ -34,6 +37,36 @@ public class LocaleManager {
         return replacePlaceholders(player, messageWithPlaceholders);
     }
 
+    /**
+     * @param args the values of $1, $2 and so on
+     */
+    public String getTranslationWithPlaceholders(OfflinePlayer player, String key, String... args) {
+        Civilian civilian = CivilianManager.getInstance().getCivilian(player.getUniqueId());
+        return render(player, getTemplate(civilian.getLocale(), key), args);
+    }
+
+    /**
+     * Sends prefix + the translation to each player. The message is rendered once per
+     * locale unless it has PlaceholderAPI placeholders.
+     */
+    public void broadcast(Collection<? extends Player> players, String prefix, String key, String... args) {
+        HashMap<String, String> messages = new HashMap<>();
+        for (Player player : players) {
+            String locale = CivilianManager.getInstance().getCivilian(player.getUniqueId()).getLocale();
+            String message = messages.get(locale);
+            if (message == null) {
+                MessageTemplate template = getTemplate(locale, key);
+                if (template != null && template.hasPlaceholders() && Civs.placeholderAPI != null) {
+                    player.sendMessage(prefix + render(player, template, args));
+                    continue;
+                }
+                message = prefix + (template == null ? "" : template.render(args));
+                messages.put(locale, message);
+            }
+            player.sendMessage(message);
+        }
+    }
+
     public String getRawTranslationWithPlaceholders(OfflinePlayer player, String key) {
         Civilian civilian = CivilianManager.getInstance().getCivilian(player.getUniqueId());
         String messageWithPlaceholders = getRawTranslation(civilian.getLocale(), key);
@@ -42,23 +75,16 @@ public class LocaleManager {
 
     @Deprecated
     public String getTranslation(String language, String key) {
-        String textPrefix = ConfigManager.getInstance().getPrefixAllText();
-        if (!languageMap.containsKey(language) ||
-                !languageMap.get(language).containsKey(key) ||
-                languageMap.get(language).get(key).isEmpty()) {
-            HashMap<String, String> map = languageMap.get(ConfigManager.getInstance().getDefaultLanguage());
-            if (map == null) {
-                Civs.logger.severe("Unable to find default language for " + ConfigManager.getInstance().getDefaultLanguage());
-                return "";
-            }
-            String translation = map.get(key);
-            if (translation == null) {
-                Civs.logger.log(Level.SEVERE, "Unable to find any translation for {0}", key);
-                return "";
-            }
-            return Util.parseColors(textPrefix + translation);
-        }
-        return Util.parseColors(textPrefix + languageMap.get(language).get(key));
+        MessageTemplate template = getTemplate(language, key);
+        return template == null ? "" : template.getText();
+    }
+
+    /**
+     * @param args the values of $1, $2 and so on
+     */
+    public String getTranslation(String language, String key, String... args) {
+        MessageTemplate template = getTemplate(language, key);
+        return template == null ? "" : template.render(args);
     }
 
     @Deprecated
@@ -75,6 +101,50 @@ public class LocaleManager {
         return languageMap.keySet();
     }
 
+    MessageTemplate getTemplate(String language, String key) {
+        HashMap<String, String> translations = languageMap.get(language);
+        String translation = translations == null ? null : translations.get(key);
+        if (translation == null || translation.isEmpty()) {
+            language = ConfigManager.getInstance().getDefaultLanguage();
+            translations = languageMap.get(language);
+            if (translations == null) {
+                Civs.logger.severe("Unable to find default language for " + language);
+                return null;
+            }
+            translation = translations.get(key);
+            if (translation == null) {
+                Civs.logger.log(Level.SEVERE, "Unable to find any translation for {0}", key);
+                return null;
+            }
+        }
+        String textPrefix = ConfigManager.getInstance().getPrefixAllText();
+        ConcurrentHashMap<String, MessageTemplate> templates = templateMap.get(language);
+        if (templates == null) {
+            templates = new ConcurrentHashMap<>();
+            ConcurrentHashMap<String, MessageTemplate> previous = templateMap.putIfAbsent(language, templates);
+            if (previous != null) {
+                templates = previous;
+            }
+        }
+        MessageTemplate template = templates.get(key);
+        // Translations can be swapped out after loading, and prefix-all-text changes on reload
+        if (template == null || !template.isCompiledFrom(textPrefix, translation)) {
+            template = new MessageTemplate(textPrefix, translation);
+            templates.put(key, template);
+        }
+        return template;
+    }
+
+    private String render(OfflinePlayer player, MessageTemplate template, String[] args) {
+        if (template == null) {
+            return "";
+        }
+        if (!template.hasPlaceholders() || Civs.placeholderAPI == null) {
+            return template.render(args);
+        }
+        return MessageTemplate.replaceSlots(replacePlaceholders(player, template.getText()), args);
+    }
+
     public String replacePlaceholders(OfflinePlayer player, String input) {
         if (Civs.placeholderAPI == null) {
             return input;
@@ -124,12 +194,25 @@ public class LocaleManager {
 
     private void loadLanguageFromConfig(FileConfiguration config, String name) {
         HashMap<String, String> currentLanguage = new HashMap<>();
+        ConcurrentHashMap<String, MessageTemplate> templates = new ConcurrentHashMap<>();
+        String textPrefix = ConfigManager.getInstance().getPrefixAllText();
 
         for (String translationKey : config.getKeys(false)) {
-            currentLanguage.put(translationKey, config.getString(translationKey));
+            String translation = config.getString(translationKey);
+            currentLanguage.put(translationKey, translation);
+            if (translation != null && !translation.isEmpty()) {
+                templates.put(translationKey, new MessageTemplate(textPrefix, translation));
+            }
         }
 
         languageMap.put(name, currentLanguage);
+        templateMap.put(name, templates);
+    }
+
+    public void reload() {
+        languageMap.clear();
+        templateMap.clear();
+        loadAllConfigs();
     }
 
     public static LocaleManager getInstance() {
@@ -0,0 +1,96 @@
+package org.redcastlemedia.multitallented.civs.localization;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.redcastlemedia.multitallented.civs.util.Util;
+
+/**
+ * A translation with the text prefix added and colors parsed once. $1 to $9 are
+ * indexed so filling them in is a single pass, and a slot without an argument is
+ * left as it is, like String.replace would.
+ */
+final class MessageTemplate {
+    private final String prefix;
+    private final String source;
+    private final String text;
+    private final String[] literals;
+    private final int[] slots;
+    private final boolean hasPlaceholders;
+
+    MessageTemplate(String prefix, String source) {
+        this.prefix = prefix;
+        this.source = source;
+        text = Util.parseColors(prefix + source);
+        List<String> literalList = new ArrayList<>();
+        List<Integer> slotList = new ArrayList<>();
+        int literalStart = 0;
+        for (int i = 0; i < text.length() - 1; i++) {
+            char next = text.charAt(i + 1);
+            if (text.charAt(i) == '$' && next >= '1' && next <= '9') {
+                literalList.add(text.substring(literalStart, i));
+                slotList.add(next - '1');
+                literalStart = i + 2;
+                i++;
+            }
+        }
+        literalList.add(text.substring(literalStart));
+        literals = literalList.toArray(new String[0]);
+        slots = new int[slotList.size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = slotList.get(i);
+        }
+        hasPlaceholders = text.indexOf('%') > -1;
+    }
+
+    boolean isCompiledFrom(String prefix, String source) {
+        return Objects.equals(this.prefix, prefix) && this.source.equals(source);
+    }
+
+    String getText() {
+        return text;
+    }
+
+    /**
+     * PlaceholderAPI placeholders are player specific, so messages with them can't be
+     * shared between players.
+     */
+    boolean hasPlaceholders() {
+        return hasPlaceholders;
+    }
+
+    /**
+     * @param args the values of $1, $2 and so on
+     */
+    String render(String... args) {
+        if (slots.length == 0 || args.length == 0) {
+            return text;
+        }
+        StringBuilder builder = new StringBuilder(text.length() + 16 * slots.length);
+        for (int i = 0; i < slots.length; i++) {
+            builder.append(literals[i]);
+            int slot = slots[i];
+            if (slot < args.length && args[slot] != null) {
+                builder.append(args[slot]);
+            } else {
+                builder.append('$').append(slot + 1);
+            }
+        }
+        builder.append(literals[slots.length]);
+        return builder.toString();
+    }
+
+    /**
+     * Fills the slots of a message that was already changed, the way callers used to
+     * chain String.replace.
+     */
+    static String replaceSlots(String message, String... args) {
+        for (int i = 0; i < args.length && i < 9; i++) {
+            if (args[i] != null) {
+                message = message.replace("$" + (i + 1), args[i]);
+            }
+        }
+        return message;
+    }
+}
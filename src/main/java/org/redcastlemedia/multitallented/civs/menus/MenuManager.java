@@ -26,6 +26,7 @@ import org.redcastlemedia.multitallented.civs.civilians.Civilian;
 import org.redcastlemedia.multitallented.civs.civilians.CivilianManager;
 import org.redcastlemedia.multitallented.civs.events.TwoSecondEvent;
 import org.redcastlemedia.multitallented.civs.util.FallbackConfigUtil;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 import org.reflections.Reflections;
 
 import lombok.Getter;
@@ -50,7 +51,7 @@ public class MenuManager implements Listener {
         if (instance == null) {
             instance = new MenuManager();
             instance.loadMenuConfigs();
-            Bukkit.getPluginManager().registerEvents(instance, Civs.getInstance());
+            Metrics.registerEvents(instance);
         }
         return instance;
     }
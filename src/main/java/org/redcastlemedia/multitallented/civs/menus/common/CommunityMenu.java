@@ -56,10 +56,7 @@ public class CommunityMenu extends CustomMenu {
             }
         } else if (menuIcon.getKey().equals("ports")) {
             boolean hasPort = false;
-            for (Region region : RegionManager.getInstance().getAllRegions()) {
-                if (!region.getEffects().containsKey("port")) {
-                    continue;
-                }
+            for (Region region : RegionManager.getInstance().getRegionsWithEffect("port")) {
                 if (!region.getPeople().containsKey(civilian.getUuid())) {
                     continue;
                 }
@@ -19,10 +19,12 @@ import org.redcastlemedia.multitallented.civs.menus.MenuManager;
 import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
+import org.redcastlemedia.multitallented.civs.towns.MembershipCache;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.tutorials.TutorialManager;
 import org.redcastlemedia.multitallented.civs.util.Constants;
+import org.redcastlemedia.multitallented.civs.util.EconomyLedger;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
 import java.util.*;
@@ -68,6 +70,7 @@ public class ConfirmationMenu extends CustomMenu {
             } else if ("leave".equals(type)) {
                 if (town != null) {
                     town.getRawPeople().remove(civilian.getUuid());
+                    MembershipCache.invalidate();
                     player.sendMessage(LocaleManager.getInstance().getTranslationWithPlaceholders(player,
                             "you-left-town").replace("$1", town.getName()));
                     TownManager.getInstance().saveTown(town);
@@ -95,7 +98,7 @@ public class ConfirmationMenu extends CustomMenu {
                 return;
             }
             if (Civs.econ != null) {
-                Civs.econ.depositPlayer(player, regionType.getPrice() / 2);
+                EconomyLedger.getInstance().depositNow(player, regionType.getPrice() / 2);
             }
             RegionManager.getInstance().removeRegion(region, true, true);
             CivilianListener.getInstance().shouldCancelBlockBreak(region.getLocation().getBlock(), player);
@@ -139,7 +142,7 @@ public class ConfirmationMenu extends CustomMenu {
             player.closeInventory();
             return;
         }
-        Civs.econ.withdrawPlayer(player, civItem.getPrice());
+        EconomyLedger.getInstance().withdrawNow(player, civItem.getPrice());
         player.sendMessage(Civs.getPrefix() +
                 localeManager.getTranslation(civilian.getLocale(), "item-bought")
                         .replace("$1", civItem.getDisplayName())
@@ -20,6 +20,7 @@ import org.redcastlemedia.multitallented.civs.menus.MenuManager;
 import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
+import org.redcastlemedia.multitallented.civs.towns.MembershipIndex;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.towns.TownType;
@@ -85,14 +86,7 @@ public class MainMenu extends CustomMenu {
                 return itemStack;
             }
         } else if (menuIcon.getKey().equals(Constants.REGIONS)) {
-            boolean showBuiltRegions = false;
-            for (Region region : RegionManager.getInstance().getAllRegions()) {
-                if (region.getRawPeople().containsKey(civilian.getUuid())) {
-                    showBuiltRegions = true;
-                    break;
-                }
-            }
-            if (!showBuiltRegions) {
+            if (MembershipIndex.getInstance().getRegions(civilian.getUuid()).isEmpty()) {
                 return new ItemStack(Material.AIR);
             }
         } else if (menuIcon.getKey().equals("guide")) {
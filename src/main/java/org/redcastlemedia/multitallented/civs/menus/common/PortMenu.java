@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -45,16 +44,13 @@ public class PortMenu extends CustomMenu {
             data.put("region", region);
         }
         List<Region> regions = new ArrayList<>();
-        Set<Region> regionSet = RegionManager.getInstance().getAllRegions();
+        List<Region> regionList = RegionManager.getInstance().getRegionsWithEffect("port");
 
         outer:
-        for (Region currentRegion : regionSet) {
+        for (Region currentRegion : regionList) {
             if (regions.contains(currentRegion) || currentRegion.equals(region)) {
                 continue;
             }
-            if (!currentRegion.getEffects().containsKey("port")) {
-                continue;
-            }
             //Don't show private ports
             if (region == null) {
                 if (!PortCommand.canPort(currentRegion, civilian.getUuid(), null)) {
@@ -20,6 +20,7 @@ import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.towns.*;
 import org.redcastlemedia.multitallented.civs.util.Constants;
+import org.redcastlemedia.multitallented.civs.util.EconomyLedger;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
 import java.util.HashMap;
@@ -248,7 +249,7 @@ public class MemberActionMenu extends CustomMenu {
                     return true;
                 }
 
-                Civs.econ.withdrawPlayer(player, price);
+                EconomyLedger.getInstance().withdrawNow(player, price);
 
                 if (town.getVotes().get(civilian.getUuid()).containsKey(uuid)) {
                     town.getVotes().get(civilian.getUuid()).put(uuid,
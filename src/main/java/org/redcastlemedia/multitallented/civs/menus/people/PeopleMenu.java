@@ -36,7 +36,8 @@ public class PeopleMenu extends CustomMenu {
         } else {
             data.put("page", 0);
         }
-        List<Civilian> civilians = new ArrayList<>();
+        // Only uuids, so listing every player doesn't load them
+        List<UUID> civilians = new ArrayList<>();
         Map<UUID, String> ranks = null;
         boolean alreadyOnlineFiltered = false;
         boolean invite = !(!params.containsKey("invite") || "false".equals(params.get("invite")));
@@ -66,13 +67,11 @@ public class PeopleMenu extends CustomMenu {
                         if (region.getRawPeople().containsKey(uuid)) {
                             continue;
                         }
-                        civilians.add(CivilianManager.getInstance().getCivilian(uuid));
+                        civilians.add(uuid);
                     }
                 }
             } else {
-                for (UUID uuid : region.getRawPeople().keySet()) {
-                    civilians.add(CivilianManager.getInstance().getCivilian(uuid));
-                }
+                civilians.addAll(region.getRawPeople().keySet());
             }
         } else if (town != null || params.containsKey(Constants.TOWN)) {
             if (town == null) {
@@ -83,9 +82,7 @@ public class PeopleMenu extends CustomMenu {
             if (invite) {
                 addOnlinePlayers(civilians, town.getRawPeople().keySet());
             } else {
-                for (UUID uuid : town.getRawPeople().keySet()) {
-                    civilians.add(CivilianManager.getInstance().getCivilian(uuid));
-                }
+                civilians.addAll(town.getRawPeople().keySet());
             }
         } else if (params.containsKey("uuid")) {
             boolean filterOnline = params.containsKey("online");
@@ -93,21 +90,21 @@ public class PeopleMenu extends CustomMenu {
                 if (filterOnline && Bukkit.getPlayer(uuid) == null) {
                     continue;
                 }
-                civilians.add(CivilianManager.getInstance().getCivilian(uuid));
+                civilians.add(uuid);
             }
         } else {
             alreadyOnlineFiltered = true;
             if (params.containsKey("online")) {
                 addOnlinePlayers(civilians, new HashSet<>());
             } else {
-                civilians.addAll(CivilianManager.getInstance().getCivilians());
+                civilians.addAll(CivilianManager.getInstance().getSortedCivilians());
             }
         }
         if (!alreadyOnlineFiltered && params.containsKey("online") && "true".equals(params.get("online"))) {
-            civilians.removeIf(new Predicate<Civilian>() {
+            civilians.removeIf(new Predicate<UUID>() {
                 @Override
-                public boolean test(Civilian civilian) {
-                    return Bukkit.getPlayer(civilian.getUuid()) != null;
+                public boolean test(UUID uuid) {
+                    return Bukkit.getPlayer(uuid) != null;
                 }
             });
         }
@@ -133,19 +130,19 @@ public class PeopleMenu extends CustomMenu {
         return data;
     }
 
-    private void rankSort(List<Civilian> civilians, Map<UUID, String> ranks) {
+    private void rankSort(List<UUID> civilians, Map<UUID, String> ranks) {
         if (ranks == null || ranks.isEmpty()) {
             return;
         }
-        civilians.sort(new Comparator<Civilian>() {
+        civilians.sort(new Comparator<UUID>() {
             @Override
-            public int compare(Civilian o1, Civilian o2) {
-                if (!ranks.containsKey(o1.getUuid()) ||
-                        !ranks.containsKey(o2.getUuid())) {
+            public int compare(UUID o1, UUID o2) {
+                if (!ranks.containsKey(o1) ||
+                        !ranks.containsKey(o2)) {
                     return 0;
                 }
-                return Integer.compare(rankWeight(ranks.get(o1.getUuid())),
-                        rankWeight(ranks.get(o2.getUuid())));
+                return Integer.compare(rankWeight(ranks.get(o1)),
+                        rankWeight(ranks.get(o2)));
             }
         });
     }
@@ -161,21 +158,22 @@ public class PeopleMenu extends CustomMenu {
         }
     }
 
-    private void pointsSort(List<Civilian> civilians) {
-        civilians.sort(new Comparator<Civilian>() {
+    private void pointsSort(List<UUID> civilians) {
+        final CivilianManager civilianManager = CivilianManager.getInstance();
+        civilians.sort(new Comparator<UUID>() {
             @Override
-            public int compare(Civilian o1, Civilian o2) {
-                return Double.compare(o1.getPoints(), o2.getPoints());
+            public int compare(UUID o1, UUID o2) {
+                return Double.compare(civilianManager.getPoints(o1), civilianManager.getPoints(o2));
             }
         });
     }
 
-    private void alphabeticalSort(List<Civilian> civilians) {
-        civilians.sort(new Comparator<Civilian>() {
+    private void alphabeticalSort(List<UUID> civilians) {
+        civilians.sort(new Comparator<UUID>() {
             @Override
-            public int compare(Civilian civilian1, Civilian civilian2) {
-                OfflinePlayer offlinePlayer1 = Bukkit.getOfflinePlayer(civilian1.getUuid());
-                OfflinePlayer offlinePlayer2 = Bukkit.getOfflinePlayer(civilian2.getUuid());
+            public int compare(UUID uuid1, UUID uuid2) {
+                OfflinePlayer offlinePlayer1 = Bukkit.getOfflinePlayer(uuid1);
+                OfflinePlayer offlinePlayer2 = Bukkit.getOfflinePlayer(uuid2);
                 try {
                     return offlinePlayer1.getName().compareTo(offlinePlayer2.getName());
                 } catch (Exception e) {
@@ -187,12 +185,12 @@ public class PeopleMenu extends CustomMenu {
         });
     }
 
-    private void addOnlinePlayers(List<Civilian> civilianList, Set<UUID> blacklist) {
+    private void addOnlinePlayers(List<UUID> civilianList, Set<UUID> blacklist) {
         for (Player player : Bukkit.getOnlinePlayers()) {
             if (blacklist.contains(player.getUniqueId())) {
                 continue;
             }
-            civilianList.add(CivilianManager.getInstance().getCivilian(player.getUniqueId()));
+            civilianList.add(player.getUniqueId());
         }
     }
 
@@ -220,15 +218,15 @@ public class PeopleMenu extends CustomMenu {
                 return new ItemStack(Material.AIR);
             }
         } else if ("people".equals(menuIcon.getKey())) {
-            List<Civilian> civilians = (List<Civilian>) MenuManager.getData(civilian.getUuid(), "civilians");
+            List<UUID> civilians = (List<UUID>) MenuManager.getData(civilian.getUuid(), "civilians");
             int page = (int) MenuManager.getData(civilian.getUuid(), "page");
             int startIndex = page * menuIcon.getIndex().size();
             if (civilians.size() <= startIndex + count) {
                 return new ItemStack(Material.AIR);
             }
-            Civilian currentCivilian = civilians.get(startIndex + count);
+            UUID currentUuid = civilians.get(startIndex + count);
             Player currentPlayer = Bukkit.getPlayer(civilian.getUuid());
-            OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(currentCivilian.getUuid());
+            OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(currentUuid);
             if (Civs.perm != null && Civs.perm.playerHas(currentPlayer.getWorld().getName(), offlinePlayer, Constants.PVP_EXEMPT_PERMISSION)) {
                 return new ItemStack(Material.AIR);
             }
@@ -16,6 +16,7 @@ import org.redcastlemedia.multitallented.civs.menus.MenuIcon;
 import org.redcastlemedia.multitallented.civs.menus.MenuManager;
 import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
+import org.redcastlemedia.multitallented.civs.towns.MembershipIndex;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 
@@ -41,11 +42,7 @@ public class RegionListMenu extends CustomMenu {
                 }
             }
         } else {
-            for (Region region : RegionManager.getInstance().getAllRegions()) {
-                if (region.getRawPeople().containsKey(civilian.getUuid())) {
-                    regions.add(region);
-                }
-            }
+            regions.addAll(MembershipIndex.getInstance().getRegions(civilian.getUuid()));
         }
         data.put("regionMap", new HashMap<ItemStack, Region>());
         data.put("regions", regions);
@@ -82,12 +79,7 @@ public class RegionListMenu extends CustomMenu {
             if (MenuManager.getData(civilian.getUuid(), "regions") != null) {
                 regions = (List<Region>) MenuManager.getData(civilian.getUuid(), "regions");
             } else {
-                regions = new ArrayList<>();
-                for (Region region : RegionManager.getInstance().getAllRegions()) {
-                    if (region.getRawPeople().containsKey(civilian.getUuid())) {
-                        regions.add(region);
-                    }
-                }
+                regions = new ArrayList<>(MembershipIndex.getInstance().getRegions(civilian.getUuid()));
             }
             int page = (int) MenuManager.getData(civilian.getUuid(), "page");
             int startIndex = page * menuIcon.getIndex().size();
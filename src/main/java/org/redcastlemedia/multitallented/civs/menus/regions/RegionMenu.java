@@ -28,9 +28,11 @@ import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
 import org.redcastlemedia.multitallented.civs.regions.RegionUpkeep;
 import org.redcastlemedia.multitallented.civs.regions.effects.ForSaleEffect;
+import org.redcastlemedia.multitallented.civs.towns.MembershipCache;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.util.Constants;
+import org.redcastlemedia.multitallented.civs.util.EconomyLedger;
 import org.redcastlemedia.multitallented.civs.util.StructureUtil;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
@@ -251,8 +253,9 @@ public class RegionMenu extends CustomMenu {
         }
         region.getRawPeople().clear();
         region.getRawPeople().put(civilian.getUuid(), Constants.OWNER);
+        MembershipCache.invalidate();
         RegionType regionType = (RegionType) ItemManager.getInstance().getItemType(region.getType());
-        Civs.econ.withdrawPlayer(player, region.getForSale());
+        EconomyLedger.getInstance().withdrawNow(player, region.getForSale());
         String localName = LocaleManager.getInstance().getTranslationWithPlaceholders(player, regionType.getProcessedName() + LocaleConstants.NAME_SUFFIX);
 
         Set<UUID> owners = region.getOwners();
@@ -262,7 +265,7 @@ public class RegionMenu extends CustomMenu {
             for (UUID ownerUuid : owners) {
                 OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(ownerUuid);
                 if (offlinePlayer.hasPlayedBefore()) {
-                    Civs.econ.depositPlayer(offlinePlayer, cutOfTheSale);
+                    EconomyLedger.getInstance().depositNow(offlinePlayer, cutOfTheSale);
 
                     if (offlinePlayer.isOnline()) {
                         Civilian ownerCiv = CivilianManager.getInstance().getCivilian(offlinePlayer.getUniqueId());
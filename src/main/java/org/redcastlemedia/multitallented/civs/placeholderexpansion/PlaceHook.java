@@ -1,17 +1,25 @@
 package org.redcastlemedia.multitallented.civs.placeholderexpansion;
 
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.redcastlemedia.multitallented.civs.Civs;
 import org.redcastlemedia.multitallented.civs.alliances.Alliance;
-import org.redcastlemedia.multitallented.civs.alliances.AllianceManager;
 import org.redcastlemedia.multitallented.civs.civilians.Bounty;
 import org.redcastlemedia.multitallented.civs.civilians.ChatChannel;
 import org.redcastlemedia.multitallented.civs.civilians.Civilian;
 import org.redcastlemedia.multitallented.civs.civilians.CivilianManager;
+import org.redcastlemedia.multitallented.civs.towns.MembershipIndex;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.util.Util;
@@ -34,6 +42,9 @@ public class PlaceHook extends PlaceholderExpansion {
     private static final String POPULATION = "population";
     private static final String HOUSING = "housing";
     private static final String CHAT_CHANNEL_NAME = "chatchannel";
+    private static final Set<String> CACHED_IDENTIFIERS = new HashSet<>(Arrays.asList(
+            TOWN_NAME, POWER, MAX_POWER, POPULATION, HOUSING, NATION));
+    private final Set<String> pendingRefreshes = ConcurrentHashMap.newKeySet();
 
     @Override
     public boolean canRegister() {
@@ -60,16 +71,59 @@ public class PlaceHook extends PlaceholderExpansion {
         if (player == null) {
             return "";
         }
-        Civilian civilian = CivilianManager.getInstance().getCivilian(player.getUniqueId());
-        return routePlaceholder(civilian, identifier, player);
+        return getCachedPlaceholder(identifier, player);
     }
     @Override
     public String onPlaceholderRequest(Player player, String identifier) {
         if (player == null) {
             return "";
         }
-        Civilian civilian = CivilianManager.getInstance().getCivilian(player.getUniqueId());
-        return routePlaceholder(civilian, identifier, player);
+        return getCachedPlaceholder(identifier, player);
+    }
+
+    /**
+     * Civilians, towns and the membership index may only be read on the main thread.
+     * Requests from other threads get the cached value, or the last known one while
+     * a task on the main thread works out the new value.
+     */
+    private String getCachedPlaceholder(String identifier, OfflinePlayer player) {
+        PlaceholderCache placeholderCache = PlaceholderCache.getInstance();
+        UUID uuid = player.getUniqueId();
+        if (Civs.getInstance() == null || Bukkit.isPrimaryThread()) {
+            String value = CACHED_IDENTIFIERS.contains(identifier) ? placeholderCache.get(uuid, identifier) : null;
+            if (value == null) {
+                Civilian civilian = CivilianManager.getInstance().getCivilian(uuid);
+                value = routePlaceholder(civilian, identifier, player);
+                placeholderCache.put(uuid, identifier, value);
+            }
+            return value;
+        }
+        String value = placeholderCache.get(uuid, identifier);
+        if (value == null) {
+            refreshLater(identifier, player);
+            value = placeholderCache.getLastValue(uuid, identifier);
+        }
+        return value == null ? "-" : value;
+    }
+
+    private void refreshLater(final String identifier, final OfflinePlayer player) {
+        final String key = player.getUniqueId() + ":" + identifier;
+        if (!pendingRefreshes.add(key)) {
+            return;
+        }
+        Bukkit.getScheduler().runTask(Civs.getInstance(), new Runnable() {
+            @Override
+            public void run() {
+                CivilianManager.getInstance().getCivilian(player.getUniqueId(), new Consumer<Civilian>() {
+                    @Override
+                    public void accept(Civilian civilian) {
+                        pendingRefreshes.remove(key);
+                        PlaceholderCache.getInstance().put(player.getUniqueId(), identifier,
+                                routePlaceholder(civilian, identifier, player));
+                    }
+                });
+            }
+        });
     }
 
     private String routePlaceholder(Civilian civilian, String identifier, OfflinePlayer player) {
@@ -145,19 +199,8 @@ public class PlaceHook extends PlaceholderExpansion {
     }
 
     private String getNation(Civilian civilian) {
-        for (Alliance alliance : AllianceManager.getInstance().getAllSortedAlliances()) {
-            for (String townName : alliance.getMembers()) {
-                Town town = TownManager.getInstance().getTown(townName);
-                if (town == null) {
-                    continue;
-                }
-                if (town.getRawPeople().containsKey(civilian.getUuid()) &&
-                        !town.getRawPeople().get(civilian.getUuid()).contains("ally")) {
-                    return alliance.getName();
-                }
-            }
-        }
-        return null;
+        List<Alliance> alliances = MembershipIndex.getInstance().getAlliances(civilian.getUuid());
+        return alliances.isEmpty() ? null : alliances.get(0).getName();
     }
 
     private String getReplacement(Civilian civilian) {
@@ -167,10 +210,7 @@ public class PlaceHook extends PlaceholderExpansion {
         } else {
             int highestPopulation = 0;
             Town highestTown = null;
-            for (Town to : TownManager.getInstance().getTowns()) {
-                if (!to.getPeople().containsKey(civilian.getUuid())) {
-                    continue;
-                }
+            for (Town to : MembershipIndex.getInstance().getMemberTowns(civilian.getUuid())) {
                 int pop = to.getPopulation();
                 if (pop > highestPopulation) {
                     highestTown = to;
@@ -0,0 +1,161 @@
+package org.redcastlemedia.multitallented.civs.placeholderexpansion;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.redcastlemedia.multitallented.civs.events.RenameTownEvent;
+import org.redcastlemedia.multitallented.civs.events.TownCreatedEvent;
+import org.redcastlemedia.multitallented.civs.events.TownDestroyedEvent;
+import org.redcastlemedia.multitallented.civs.events.TownDevolveEvent;
+import org.redcastlemedia.multitallented.civs.events.TownEvolveEvent;
+import org.redcastlemedia.multitallented.civs.towns.MembershipCache;
+
+/**
+ * Placeholder values per player. Scoreboard and tab plugins ask for the same values many
+ * times a second, often from their own threads, so values are kept until a town event or
+ * a membership change (MembershipCache) makes them stale. Values like power change without
+ * an event, so every value also expires after MAX_AGE_MILLIS. Values are only worked out
+ * on the main thread, other threads fall back to the last value until then.
+ * Values nobody asked for in EVICT_AFTER_MILLIS, like leaderboard entries for offline
+ * players, are dropped the next time a value is put.
+ */
+public final class PlaceholderCache implements Listener {
+    static final long MAX_AGE_MILLIS = 2000;
+    static final long EVICT_AFTER_MILLIS = 30 * MAX_AGE_MILLIS;
+    private static PlaceholderCache instance = null;
+
+    private final ConcurrentHashMap<UUID, ConcurrentHashMap<String, CachedValue>> values = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile long townEvents = 0;
+    private volatile long lastEviction = System.currentTimeMillis();
+
+    public static synchronized PlaceholderCache getInstance() {
+        if (instance == null) {
+            instance = new PlaceholderCache();
+        }
+        return instance;
+    }
+
+    /**
+     * @return the cached value, or null if there is none or it is stale
+     */
+    public String get(UUID uuid, String identifier) {
+        ConcurrentHashMap<String, CachedValue> playerValues = values.get(uuid);
+        CachedValue cachedValue = playerValues == null ? null : playerValues.get(identifier);
+        if (cachedValue == null || cachedValue.generation != MembershipCache.getGeneration() ||
+                cachedValue.townEvents != townEvents ||
+                System.currentTimeMillis() - cachedValue.created > MAX_AGE_MILLIS) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return cachedValue.value;
+    }
+
+    /**
+     * @return the last value put, even if it is stale, or null if there never was one
+     */
+    public String getLastValue(UUID uuid, String identifier) {
+        ConcurrentHashMap<String, CachedValue> playerValues = values.get(uuid);
+        CachedValue cachedValue = playerValues == null ? null : playerValues.get(identifier);
+        return cachedValue == null ? null : cachedValue.value;
+    }
+
+    public void put(UUID uuid, String identifier, String value) {
+        ConcurrentHashMap<String, CachedValue> playerValues = values.get(uuid);
+        if (playerValues == null) {
+            playerValues = new ConcurrentHashMap<>();
+            ConcurrentHashMap<String, CachedValue> previous = values.putIfAbsent(uuid, playerValues);
+            if (previous != null) {
+                playerValues = previous;
+            }
+        }
+        playerValues.put(identifier, new CachedValue(value, MembershipCache.getGeneration(), townEvents));
+        long now = System.currentTimeMillis();
+        if (now - lastEviction > MAX_AGE_MILLIS) {
+            lastEviction = now;
+            evictOlderThan(now - EVICT_AFTER_MILLIS);
+        }
+    }
+
+    private void evictOlderThan(long time) {
+        for (Map.Entry<UUID, ConcurrentHashMap<String, CachedValue>> entry : values.entrySet()) {
+            Iterator<CachedValue> iterator = entry.getValue().values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().created < time) {
+                    iterator.remove();
+                }
+            }
+            if (entry.getValue().isEmpty()) {
+                values.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    public void invalidate() {
+        townEvents++;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public void resetStats() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    @EventHandler
+    public void onTownCreated(TownCreatedEvent event) {
+        invalidate();
+    }
+
+    @EventHandler
+    public void onTownDestroyed(TownDestroyedEvent event) {
+        invalidate();
+    }
+
+    @EventHandler
+    public void onTownEvolve(TownEvolveEvent event) {
+        invalidate();
+    }
+
+    @EventHandler
+    public void onTownDevolve(TownDevolveEvent event) {
+        invalidate();
+    }
+
+    @EventHandler
+    public void onTownRename(RenameTownEvent event) {
+        invalidate();
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        values.remove(event.getPlayer().getUniqueId());
+    }
+
+    private static final class CachedValue {
+        private final String value;
+        private final long generation;
+        private final long townEvents;
+        private final long created = System.currentTimeMillis();
+
+        private CachedValue(String value, long generation, long townEvents) {
+            this.value = value;
+            this.generation = generation;
+            this.townEvents = townEvents;
+        }
+    }
+}
@@ -32,10 +32,13 @@ import org.redcastlemedia.multitallented.civs.items.ItemManager;
 import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
+import org.redcastlemedia.multitallented.civs.towns.MembershipCache;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.towns.TownType;
 import org.redcastlemedia.multitallented.civs.util.Constants;
+import org.redcastlemedia.multitallented.civs.util.EconomyLedger;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
 import java.util.ArrayList;
@@ -46,7 +49,7 @@ public class DeathListener implements Listener {
 
     public static void getInstance() {
         DeathListener deathListener = new DeathListener();
-        Bukkit.getPluginManager().registerEvents(deathListener, Civs.getInstance());
+        Metrics.registerEvents(deathListener);
     }
 
     @EventHandler(ignoreCancelled = true) @SuppressWarnings("unused")
@@ -254,34 +257,25 @@ public class DeathListener implements Listener {
             return;
         }
 
-        double publicDistance = -1;
         double privateDistance = -1;
         Region graveyard = null;
-        Region publicGraveyard = null;
-        for (Region region : RegionManager.getInstance().getAllRegions()) {
-            if (!region.getLocation().getWorld().equals(deathLocation.getWorld())) {
+        Region publicGraveyard = regionManager.getNearestRegionWithEffect(deathLocation, "graveyard_public");
+        for (Region region : regionManager.getRegionsWithEffect(deathLocation.getWorld().getUID(), "graveyard")) {
+            if (region.getEffects().containsKey("graveyard_public")) {
                 continue;
             }
-            if (region.getEffects().containsKey("graveyard_public")) {
-                double distance = region.getLocation().distanceSquared(deathLocation);
-                if (publicDistance == -1 || publicDistance > distance) {
-                    publicDistance = distance;
-                    publicGraveyard = region;
-                }
-            } else if (region.getEffects().containsKey("graveyard")) {
-                Town town = TownManager.getInstance().getTownAt(region.getLocation());
-                if (town == null) {
-                    continue;
-                }
-                if (!town.getPeople().containsKey(player.getUniqueId()) ||
-                        town.getPeople().get(player.getUniqueId()).contains("guest")) {
-                    continue;
-                }
-                double distance = region.getLocation().distanceSquared(deathLocation);
-                if (privateDistance == -1 || privateDistance > distance) {
-                    privateDistance = distance;
-                    graveyard = region;
-                }
+            Town town = TownManager.getInstance().getTownAt(region.getLocation());
+            if (town == null) {
+                continue;
+            }
+            if (!town.getPeople().containsKey(player.getUniqueId()) ||
+                    town.getPeople().get(player.getUniqueId()).contains("guest")) {
+                continue;
+            }
+            double distance = region.getLocation().distanceSquared(deathLocation);
+            if (privateDistance == -1 || privateDistance > distance) {
+                privateDistance = distance;
+                graveyard = region;
             }
         }
 
@@ -399,8 +393,8 @@ public class DeathListener implements Listener {
             }
 
             if (totalExchange > 0) {
-                Civs.econ.depositPlayer(damager, totalExchange);
-                Civs.econ.withdrawPlayer(player, Math.min(totalExchange, dyingBalance));
+                EconomyLedger.getInstance().depositNow(damager, totalExchange);
+                EconomyLedger.getInstance().withdrawNow(player, Math.min(totalExchange, dyingBalance));
             }
         }
 
@@ -426,7 +420,7 @@ public class DeathListener implements Listener {
         final double BOUNTY_BONUS = bountyBonus;
 
         if (Civs.econ != null) {
-            Civs.econ.depositPlayer(damager, bountyBonus);
+            EconomyLedger.getInstance().depositNow(damager, bountyBonus);
         }
 
         player.sendMessage(Civs.getPrefix() + localeManager.getTranslationWithPlaceholders(player, "death")
@@ -449,6 +443,7 @@ public class DeathListener implements Listener {
                     !town.getRawPeople().get(damagerCiv.getUuid()).contains(Constants.OWNER)) {
                 town.getRawPeople().put(dyingCiv.getUuid(), "member");
                 town.getRawPeople().put(damagerCiv.getUuid(), Constants.OWNER);
+                MembershipCache.invalidate();
                 TownManager.getInstance().saveTown(town);
                 Util.spawnRandomFirework(damager);
                 for (UUID uuid : town.getRawPeople().keySet()) {
@@ -578,13 +573,8 @@ public class DeathListener implements Listener {
         if (jail != null || damager == null) {
             return jail;
         }
-        for (Region r : regionManager.getAllRegions()) {
-            if (!r.getPeople().containsKey(damager.getUniqueId())) {
-                continue;
-            }
-
-            RegionType regionType = (RegionType) ItemManager.getInstance().getItemType(r.getType());
-            if (regionType.getEffects().containsKey("jail")) {
+        for (Region r : regionManager.getRegionsWithTypeEffect("jail")) {
+            if (r.getPeople().containsKey(damager.getUniqueId())) {
                 return r;
             }
         }
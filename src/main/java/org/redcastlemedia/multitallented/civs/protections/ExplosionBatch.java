@@ -0,0 +1,142 @@
+package org.redcastlemedia.multitallented.civs.protections;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.redcastlemedia.multitallented.civs.items.ItemManager;
+import org.redcastlemedia.multitallented.civs.regions.Region;
+import org.redcastlemedia.multitallented.civs.regions.RegionManager;
+import org.redcastlemedia.multitallented.civs.towns.Town;
+import org.redcastlemedia.multitallented.civs.towns.TownManager;
+import org.redcastlemedia.multitallented.civs.towns.TownType;
+
+/**
+ * Collects the explosions of one tick. Town and region lookups are shared by every
+ * explosion in the same block, power_shield deductions are summed per town and the
+ * regions hit by any of the explosions are checked once when the batch is flushed.
+ */
+class ExplosionBatch {
+    static final int EXPLOSION_RADIUS = 5;
+
+    private final HashMap<UUID, HashMap<Long, ExplosionArea>> areas = new HashMap<>();
+    private final LinkedHashMap<Town, Integer> powerReductions = new LinkedHashMap<>();
+    private final List<Location> locations = new ArrayList<>();
+
+    ExplosionArea getArea(Location location) {
+        UUID worldUuid = location.getWorld().getUID();
+        HashMap<Long, ExplosionArea> worldAreas = areas.get(worldUuid);
+        if (worldAreas == null) {
+            worldAreas = new HashMap<>();
+            areas.put(worldUuid, worldAreas);
+        }
+        long key = blockKey(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        ExplosionArea area = worldAreas.get(key);
+        if (area == null) {
+            area = new ExplosionArea(location, this);
+            worldAreas.put(key, area);
+        }
+        return area;
+    }
+
+    int getPendingPowerReduction(Town town) {
+        Integer reduction = powerReductions.get(town);
+        return reduction == null ? 0 : reduction;
+    }
+
+    void reducePower(Town town, int powerReduce) {
+        powerReductions.put(town, getPendingPowerReduction(town) + powerReduce);
+    }
+
+    void addExplosion(ExplosionArea area) {
+        if (!area.queued) {
+            area.queued = true;
+            locations.add(area.location);
+        }
+    }
+
+    List<Location> getLocations() {
+        return locations;
+    }
+
+    void applyPowerReductions() {
+        TownManager townManager = TownManager.getInstance();
+        for (Map.Entry<Town, Integer> entry : powerReductions.entrySet()) {
+            Town town = entry.getKey();
+            if (townManager.getTown(town.getName()) != town) {
+                continue;
+            }
+            townManager.setTownPower(town, town.getPower() - entry.getValue());
+        }
+        powerReductions.clear();
+    }
+
+    private static long blockKey(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    static class ExplosionArea {
+        private final Location location;
+        private final ExplosionBatch batch;
+        private boolean townChecked = false;
+        private boolean queued = false;
+        private Town town;
+        private Set<Region> regionsAt;
+        private Set<Region> regionsNear;
+
+        ExplosionArea(Location location, ExplosionBatch batch) {
+            this.location = location;
+            this.batch = batch;
+        }
+
+        Town getTown() {
+            if (!townChecked) {
+                town = TownManager.getInstance().getTownAt(location);
+                townChecked = true;
+            }
+            return town;
+        }
+
+        /**
+         * Same result as ProtectionHandler.shouldBlockActionEffect with no player,
+         * for a modifier of either 0 or EXPLOSION_RADIUS. Town power counts the
+         * power_shield reductions this batch hasn't applied yet.
+         */
+        boolean hasEffect(String type, int mod) {
+            for (Region region : getRegions(mod)) {
+                if (region.getEffects().containsKey(type)) {
+                    return true;
+                }
+            }
+            Town currentTown = getTown();
+            if (currentTown == null) {
+                return false;
+            }
+            TownType townType = (TownType) ItemManager.getInstance().getItemType(currentTown.getType());
+            if (!townType.getEffects().containsKey(type)) {
+                return false;
+            }
+            int pendingReduction = batch == null ? 0 : batch.getPendingPowerReduction(currentTown);
+            return currentTown.getPower() - pendingReduction > 0 ||
+                    TownManager.getInstance().hasGrace(currentTown, true);
+        }
+
+        private Set<Region> getRegions(int mod) {
+            if (mod == 0) {
+                if (regionsAt == null) {
+                    regionsAt = RegionManager.getInstance().getContainingRegions(location, 0);
+                }
+                return regionsAt;
+            }
+            if (regionsNear == null) {
+                regionsNear = RegionManager.getInstance().getContainingRegions(location, EXPLOSION_RADIUS);
+            }
+            return regionsNear;
+        }
+    }
+}
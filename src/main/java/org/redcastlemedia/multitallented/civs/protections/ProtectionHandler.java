@@ -39,34 +39,39 @@ import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.towns.TownType;
 import org.redcastlemedia.multitallented.civs.items.CVItem;
 import org.redcastlemedia.multitallented.civs.util.Constants;
-import org.redcastlemedia.multitallented.civs.util.DebugLogger;
+import org.redcastlemedia.multitallented.civs.util.EconomyLedger;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
 @CivsSingleton
 public class ProtectionHandler implements Listener {
+    private static final Metrics.Counter CHUNK_LOADS = Metrics.counter("chunk-loads");
+    private ExplosionBatch explosionBatch = null;
 
     public static void getInstance() {
         ProtectionHandler protectionHandler = new ProtectionHandler();
-        Bukkit.getPluginManager().registerEvents(protectionHandler, Civs.getInstance());
+        Metrics.registerEvents(protectionHandler);
     }
 
     @EventHandler
     public void onChunkUnload(ChunkUnloadEvent event) {
 //        System.out.println("chunk unloaded: " + event.getChunk().getX() + ", " + event.getChunk().getZ());
         UnloadedInventoryHandler.getInstance().updateInventoriesInChunk(event.getChunk());
+        ProtectionMap.getInstance().unloadChunk(event.getWorld().getUID(),
+                event.getChunk().getX(), event.getChunk().getZ());
     }
 
     @EventHandler
     public void onChunkLoad(ChunkLoadEvent event) {
-        if (ConfigManager.getInstance().isDebugLog()) {
-            DebugLogger.chunkLoads++;
-        }
+        CHUNK_LOADS.increment();
 //        System.out.println("chunk loaded: " + event.getChunk().getX() + ", " + event.getChunk().getZ());
         UnloadedInventoryHandler.getInstance().syncAllInventoriesInChunk(event.getChunk());
     }
@@ -157,7 +162,7 @@ public class ProtectionHandler implements Listener {
                     region.getRawPeople().containsKey(event.getPlayer().getUniqueId()) &&
                     region.getRawPeople().get(event.getPlayer().getUniqueId()).contains(Constants.OWNER)) {
                 double salvage = regionType.getPrice() / 2;
-                Civs.econ.depositPlayer(event.getPlayer(), salvage);
+                EconomyLedger.getInstance().depositNow(event.getPlayer(), salvage);
             }
             RegionManager.getInstance().removeRegion(region, true, true);
             Civilian civilian = CivilianManager.getInstance().getCivilian(event.getPlayer().getUniqueId());
@@ -369,6 +374,9 @@ public class ProtectionHandler implements Listener {
         if (event.isCancelled() && !ConfigManager.getInstance().getExplosionOverride()) {
             return;
         }
+        final Location location = event.getLocation();
+        ExplosionBatch.ExplosionArea area = explosionBatch != null && location.getWorld() != null ?
+                explosionBatch.getArea(location) : new ExplosionBatch.ExplosionArea(location, null);
         boolean setCancelled = false;
         if (event.getEntity() instanceof TNTPrimed) {
             TNTPrimed tnt = (TNTPrimed) event.getEntity();
@@ -376,16 +384,18 @@ public class ProtectionHandler implements Listener {
             if (tnt.getSource() instanceof Player) {
                 player = (Player) tnt.getSource();
             }
-            setCancelled = !event.isCancelled() && shouldBlockActionEffect(event.getLocation(), null, "block_tnt", 5);
-            if (shouldBlockActionEffect(event.getLocation(), null, "power_shield", 0)) {
-                Town town = TownManager.getInstance().getTownAt(event.getLocation());
+            setCancelled = !event.isCancelled() && area.hasEffect("block_tnt", ExplosionBatch.EXPLOSION_RADIUS);
+            if (area.hasEffect("power_shield", 0)) {
+                Town town = area.getTown();
                 if (town != null) {
                     int powerReduce = 1;
                     if (town.getEffects().get("power_shield") != null) {
                         powerReduce = Integer.parseInt(town.getEffects().get("power_shield"));
                     }
-                    if (town.getPower() > 0) {
-                        TownManager.getInstance().setTownPower(town, town.getPower() - powerReduce);
+                    int pendingReduction = explosionBatch == null ? 0 :
+                            explosionBatch.getPendingPowerReduction(town);
+                    if (town.getPower() - pendingReduction > 0) {
+                        getExplosionBatch().reducePower(town, powerReduce);
                         setCancelled = true;
                     }
                 }
@@ -400,45 +410,65 @@ public class ProtectionHandler implements Listener {
             return;
         }
         setCancelled = !event.isCancelled() &&
-                (shouldBlockActionEffect(event.getLocation(), null, "block_explosion", 5) ||
-                shouldBlockActionEffect(event.getLocation(), null, "power_shield", 5));
+                (area.hasEffect("block_explosion", ExplosionBatch.EXPLOSION_RADIUS) ||
+                area.hasEffect("power_shield", ExplosionBatch.EXPLOSION_RADIUS));
         if (setCancelled) {
             event.setCancelled(true);
             return;
         }
         if (event.getEntity() instanceof Creeper) {
-            setCancelled = !event.isCancelled() && shouldBlockActionEffect(event.getLocation(), null, "block_creeper", 5);
+            setCancelled = !event.isCancelled() && area.hasEffect("block_creeper", ExplosionBatch.EXPLOSION_RADIUS);
         } else if (event.getEntity() instanceof Fireball) {
-            setCancelled = !event.isCancelled() && shouldBlockActionEffect(event.getLocation(), null, "block_ghast", 5);
+            setCancelled = !event.isCancelled() && area.hasEffect("block_ghast", ExplosionBatch.EXPLOSION_RADIUS);
         } else if (event.getEntity() instanceof Wither || event.getEntity() instanceof WitherSkull) {
-            setCancelled = !event.isCancelled() && shouldBlockActionEffect(event.getLocation(), null, "block_wither", 5);
+            setCancelled = !event.isCancelled() && area.hasEffect("block_wither", ExplosionBatch.EXPLOSION_RADIUS);
         }
         if (setCancelled) {
             event.setCancelled(true);
             return;
         }
 
-        final Location location = event.getLocation();
-        CheckRegionBlocks checkRegionBlocks = new CheckRegionBlocks(location);
-        Bukkit.getScheduler().scheduleSyncDelayedTask(Civs.getInstance(), checkRegionBlocks, 1L);
+        getExplosionBatch().addExplosion(area);
+    }
+
+    private ExplosionBatch getExplosionBatch() {
+        if (explosionBatch == null) {
+            final ExplosionBatch batch = new ExplosionBatch();
+            Bukkit.getScheduler().scheduleSyncDelayedTask(Civs.getInstance(), new Runnable() {
+                @Override
+                public void run() {
+                    flushExplosions(batch);
+                }
+            }, 1L);
+            explosionBatch = batch;
+        }
+        return explosionBatch;
+    }
+
+    private void flushExplosions(ExplosionBatch batch) {
+        if (explosionBatch == batch) {
+            explosionBatch = null;
+        }
+        batch.applyPowerReductions();
+        if (!batch.getLocations().isEmpty()) {
+            new CheckRegionBlocks(batch.getLocations()).run();
+        }
     }
 
     class CheckRegionBlocks implements Runnable {
-        private final Location location;
+        private final List<Location> locations;
         CheckRegionBlocks(Location location) {
-            this.location = location;
+            this(Collections.singletonList(location));
+        }
+        CheckRegionBlocks(List<Location> locations) {
+            this.locations = locations;
         }
         @Override
         public void run() {
             RegionManager regionManager = RegionManager.getInstance();
-            Set<Region> tempArray = new HashSet<>();
-            for (Region region : regionManager.getContainingRegions(location, 5)) {
-//                RegionType regionType = (RegionType) ItemManager.getInstance().getItemType(region.getType());
-//                if (Region.hasRequiredBlocksOnCenter(regionType, region.getLocation()).length == 0 &&
-//                        Region.hasRequiredBlocks(region.getType(), region.getLocation()).length == 0) {
-//                    tempArray.add(region);
-//                }
-                tempArray.add(region);
+            Set<Region> tempArray = new LinkedHashSet<>();
+            for (Location location : locations) {
+                tempArray.addAll(regionManager.getContainingRegions(location, ExplosionBatch.EXPLOSION_RADIUS));
             }
             for (Region region : tempArray) {
                 regionManager.removeRegion(region, true, true);
@@ -635,11 +665,19 @@ public class ProtectionHandler implements Listener {
     }
 
     static boolean shouldBlockAction(Block block, Player player, String type) {
-        Location location = Region.idToLocation(Region.blockLocationToString(block.getLocation()));
+        Location blockLocation = block.getLocation();
+        if (!ProtectionMap.getInstance().mayProtect(blockLocation, type)) {
+            return false;
+        }
+        Location location = Region.idToLocation(Region.blockLocationToString(blockLocation));
         return shouldBlockAction(location, player, type);
     }
     static boolean shouldBlockAction(Block block, Player player, String type, String pRole) {
-        Location location = Region.idToLocation(Region.blockLocationToString(block.getLocation()));
+        Location blockLocation = block.getLocation();
+        if (!ProtectionMap.getInstance().mayProtect(blockLocation, type)) {
+            return false;
+        }
+        Location location = Region.idToLocation(Region.blockLocationToString(blockLocation));
         return shouldBlockAction(location, player, type, pRole);
     }
     static boolean shouldBlockAction(Location location, Player player, String type) {
@@ -647,6 +685,9 @@ public class ProtectionHandler implements Listener {
     }
 
     static boolean shouldBlockAction(Location location, String type) {
+        if (!ProtectionMap.getInstance().mayProtect(location, type)) {
+            return false;
+        }
         RegionManager regionManager = RegionManager.getInstance();
         TownManager townManager = TownManager.getInstance();
         Town town = townManager.getTownAt(location);
@@ -673,6 +714,9 @@ public class ProtectionHandler implements Listener {
         if (player != null && player.getGameMode() == GameMode.CREATIVE) {
             return false;
         }
+        if (!ProtectionMap.getInstance().mayProtect(location, type)) {
+            return false;
+        }
         RegionManager regionManager = RegionManager.getInstance();
         TownManager townManager = TownManager.getInstance();
         Town town = townManager.getTownAt(location);
@@ -0,0 +1,208 @@
+package org.redcastlemedia.multitallented.civs.protections;
+
+import java.util.HashMap;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.redcastlemedia.multitallented.civs.items.ItemManager;
+import org.redcastlemedia.multitallented.civs.regions.Region;
+import org.redcastlemedia.multitallented.civs.regions.RegionManager;
+import org.redcastlemedia.multitallented.civs.towns.Town;
+import org.redcastlemedia.multitallented.civs.towns.TownManager;
+import org.redcastlemedia.multitallented.civs.towns.TownType;
+
+/**
+ * Remembers, per chunk and per block column, which effects a region or town could apply there.
+ * A clear bit means no region or town in that column has the effect, so protection checks
+ * can return early. A set bit only means the full check in ProtectionHandler has to run,
+ * since town power/grace and region height are not part of the map.
+ *
+ * Chunks are built the first time they are checked and are dropped when a region or town
+ * covering them changes, or when the chunk unloads.
+ */
+public final class ProtectionMap {
+    private static final int CHUNK_SHIFT = 4;
+    private static final ChunkFlags EMPTY = new ChunkFlags();
+    private static ProtectionMap instance = null;
+
+    private final HashMap<UUID, HashMap<Long, ChunkFlags>> chunks = new HashMap<>();
+    private final HashMap<String, Integer> flagIds = new HashMap<>();
+
+    public static ProtectionMap getInstance() {
+        if (instance == null) {
+            instance = new ProtectionMap();
+        }
+        return instance;
+    }
+
+    public boolean mayProtect(Location location, String type) {
+        if (location == null || location.getWorld() == null) {
+            return true;
+        }
+        return mayProtect(location.getWorld(), location.getBlockX(), location.getBlockZ(), type);
+    }
+
+    public boolean mayProtect(World world, int blockX, int blockZ, String type) {
+        if (world == null) {
+            return true;
+        }
+        ChunkFlags chunkFlags = getChunkFlags(world.getUID(), blockX >> CHUNK_SHIFT, blockZ >> CHUNK_SHIFT);
+        if (chunkFlags == EMPTY) {
+            return false;
+        }
+        Integer flagId = flagIds.get(type);
+        if (flagId == null || flagId >= chunkFlags.columns.length) {
+            return false;
+        }
+        long[] columns = chunkFlags.columns[flagId];
+        if (columns == null) {
+            return false;
+        }
+        int column = (blockX & 15) | ((blockZ & 15) << 4);
+        return (columns[column >> 6] & (1L << (column & 63))) != 0;
+    }
+
+    public void invalidate(UUID worldUuid, int minChunkX, int maxChunkX, int minChunkZ, int maxChunkZ) {
+        HashMap<Long, ChunkFlags> worldChunks = chunks.get(worldUuid);
+        if (worldChunks == null || worldChunks.isEmpty()) {
+            return;
+        }
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                worldChunks.remove(chunkKey(chunkX, chunkZ));
+            }
+        }
+    }
+
+    public void invalidate(Region region) {
+        Location location = region.getLocation();
+        if (location.getWorld() == null) {
+            return;
+        }
+        invalidate(location.getWorld().getUID(),
+                toChunk(location.getX() - 1 - region.getRadiusXN()), toChunk(location.getX() + 1 + region.getRadiusXP()),
+                toChunk(location.getZ() - 1 - region.getRadiusZN()), toChunk(location.getZ() + 1 + region.getRadiusZP()));
+    }
+
+    public void unloadChunk(UUID worldUuid, int chunkX, int chunkZ) {
+        invalidate(worldUuid, chunkX, chunkX, chunkZ, chunkZ);
+    }
+
+    public void clear() {
+        chunks.clear();
+    }
+
+    private ChunkFlags getChunkFlags(UUID worldUuid, int chunkX, int chunkZ) {
+        HashMap<Long, ChunkFlags> worldChunks = chunks.get(worldUuid);
+        if (worldChunks == null) {
+            worldChunks = new HashMap<>();
+            chunks.put(worldUuid, worldChunks);
+        }
+        long key = chunkKey(chunkX, chunkZ);
+        ChunkFlags chunkFlags = worldChunks.get(key);
+        if (chunkFlags == null) {
+            chunkFlags = buildChunkFlags(worldUuid, chunkX, chunkZ);
+            worldChunks.put(key, chunkFlags);
+        }
+        return chunkFlags;
+    }
+
+    private ChunkFlags buildChunkFlags(UUID worldUuid, int chunkX, int chunkZ) {
+        ChunkFlags chunkFlags = null;
+        int minX = chunkX << CHUNK_SHIFT;
+        int minZ = chunkZ << CHUNK_SHIFT;
+        for (Region region : RegionManager.getInstance().getRegionsInChunk(worldUuid, chunkX, chunkZ)) {
+            if (region.getEffects() == null || region.getEffects().isEmpty()) {
+                continue;
+            }
+            Location location = region.getLocation();
+            int[] bounds = toColumnBounds(minX, minZ,
+                    location.getX() - 0.5 - region.getRadiusXN(), location.getX() + 0.5 + region.getRadiusXP(),
+                    location.getZ() - 0.5 - region.getRadiusZN(), location.getZ() + 0.5 + region.getRadiusZP());
+            if (bounds == null) {
+                continue;
+            }
+            if (chunkFlags == null) {
+                chunkFlags = new ChunkFlags();
+            }
+            for (String key : region.getEffects().keySet()) {
+                chunkFlags.set(getFlagId(key), bounds);
+            }
+        }
+        ItemManager itemManager = ItemManager.getInstance();
+        for (Town town : TownManager.getInstance().getTownsInChunk(worldUuid, chunkX, chunkZ)) {
+            TownType townType = (TownType) itemManager.getItemType(town.getType());
+            if (townType == null || townType.getEffects().isEmpty()) {
+                continue;
+            }
+            int radius = townType.getBuildRadius();
+            Location location = town.getLocation();
+            int[] bounds = toColumnBounds(minX, minZ,
+                    location.getX() - radius, location.getX() + radius,
+                    location.getZ() - radius, location.getZ() + radius);
+            if (bounds == null) {
+                continue;
+            }
+            if (chunkFlags == null) {
+                chunkFlags = new ChunkFlags();
+            }
+            for (String key : townType.getEffects().keySet()) {
+                chunkFlags.set(getFlagId(key), bounds);
+            }
+        }
+        return chunkFlags == null ? EMPTY : chunkFlags;
+    }
+
+    private int getFlagId(String key) {
+        Integer flagId = flagIds.get(key);
+        if (flagId == null) {
+            flagId = flagIds.size();
+            flagIds.put(key, flagId);
+        }
+        return flagId;
+    }
+
+    // Columns of this chunk that overlap the bounds, relative to the chunk corner
+    private static int[] toColumnBounds(int chunkMinX, int chunkMinZ, double minX, double maxX,
+                                        double minZ, double maxZ) {
+        int columnMinX = Math.max(0, (int) Math.floor(minX) - chunkMinX);
+        int columnMaxX = Math.min(15, (int) Math.floor(maxX) - chunkMinX);
+        int columnMinZ = Math.max(0, (int) Math.floor(minZ) - chunkMinZ);
+        int columnMaxZ = Math.min(15, (int) Math.floor(maxZ) - chunkMinZ);
+        if (columnMinX > columnMaxX || columnMinZ > columnMaxZ) {
+            return null;
+        }
+        return new int[] { columnMinX, columnMaxX, columnMinZ, columnMaxZ };
+    }
+
+    private static int toChunk(double coordinate) {
+        return ((int) Math.floor(coordinate)) >> CHUNK_SHIFT;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static class ChunkFlags {
+        private long[][] columns = new long[0][];
+
+        private void set(int flagId, int[] bounds) {
+            if (flagId >= columns.length) {
+                long[][] newColumns = new long[flagId + 1][];
+                System.arraycopy(columns, 0, newColumns, 0, columns.length);
+                columns = newColumns;
+            }
+            if (columns[flagId] == null) {
+                columns[flagId] = new long[4];
+            }
+            long[] flagColumns = columns[flagId];
+            for (int x = bounds[0]; x <= bounds[1]; x++) {
+                for (int z = bounds[2]; z <= bounds[3]; z++) {
+                    int column = x | (z << 4);
+                    flagColumns[column >> 6] |= 1L << (column & 63);
+                }
+            }
+        }
+    }
+}
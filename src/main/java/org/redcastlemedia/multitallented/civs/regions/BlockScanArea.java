@@ -0,0 +1,64 @@
+package org.redcastlemedia.multitallented.civs.regions;
+
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+/**
+ * The block types in a box of a world. Big boxes are read from chunk snapshots taken
+ * up front instead of asking the world for a Block at every position. Snapshots copy
+ * the whole chunk, so small boxes still read from the world.
+ */
+class BlockScanArea {
+    private static final int MIN_BLOCKS_PER_SNAPSHOT = 4096;
+
+    private final World world;
+    private final int maxHeight;
+    private final int minChunkX;
+    private final int minChunkZ;
+    private final int chunksZ;
+    private final ChunkSnapshot[] snapshots;
+
+    BlockScanArea(World world, int xMin, int xMax, int yMin, int yMax, int zMin, int zMax) {
+        this.world = world;
+        this.maxHeight = world.getMaxHeight();
+        this.minChunkX = xMin >> 4;
+        this.minChunkZ = zMin >> 4;
+        int chunksX = (xMax >> 4) - minChunkX + 1;
+        this.chunksZ = (zMax >> 4) - minChunkZ + 1;
+        long volume = (long) (xMax - xMin + 1) * (yMax - yMin + 1) * (zMax - zMin + 1);
+        if (xMax < xMin || yMax < yMin || zMax < zMin ||
+                volume < (long) chunksX * chunksZ * MIN_BLOCKS_PER_SNAPSHOT) {
+            this.snapshots = null;
+            return;
+        }
+        this.snapshots = new ChunkSnapshot[chunksX * chunksZ];
+        for (int x = 0; x < chunksX; x++) {
+            for (int z = 0; z < chunksZ; z++) {
+                Chunk chunk = world.getChunkAt(minChunkX + x, minChunkZ + z);
+                if (chunk != null) {
+                    snapshots[x * chunksZ + z] = chunk.getChunkSnapshot(false, false, false);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the type of the block, or null if the world has no block there
+     */
+    Material getType(int x, int y, int z) {
+        if (snapshots != null) {
+            ChunkSnapshot snapshot = snapshots[((x >> 4) - minChunkX) * chunksZ + (z >> 4) - minChunkZ];
+            if (snapshot != null) {
+                if (y < 0 || y >= maxHeight) {
+                    return Material.AIR;
+                }
+                return snapshot.getBlockType(x & 15, y, z & 15);
+            }
+        }
+        Block block = world.getBlockAt(x, y, z);
+        return block == null ? null : block.getType();
+    }
+}
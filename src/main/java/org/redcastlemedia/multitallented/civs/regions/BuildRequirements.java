@@ -0,0 +1,270 @@
+package org.redcastlemedia.multitallented.civs.regions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.redcastlemedia.multitallented.civs.items.CVItem;
+
+/**
+ * The build requirements of a region type compiled once into tables indexed by
+ * Material ordinal. Each group of requirements is a list of alternatives, and a
+ * scan counts blocks against them with plain int arrays.
+ */
+class BuildRequirements {
+    static final int NO_MATCH = 0;
+    static final int MATCHED = 1;
+    static final int FINISHED_GROUP = 2;
+    private static final int NOT_REQUIRED = -1;
+
+    private final int[] slotByOrdinal;
+    private final Material[] slotMaterials;
+    private final int[][] groupSlots;
+    private final CVItem[][] groupItems;
+    private final int[][] groupsBySlot;
+    private final int[] reqSlots;
+
+    BuildRequirements(List<List<CVItem>> reqs) {
+        slotByOrdinal = new int[Material.values().length];
+        Arrays.fill(slotByOrdinal, NOT_REQUIRED);
+        List<Material> materials = new ArrayList<>();
+        List<Integer> allSlots = new ArrayList<>();
+        groupSlots = new int[reqs.size()][];
+        groupItems = new CVItem[reqs.size()][];
+        for (int i = 0; i < reqs.size(); i++) {
+            // A material listed twice in a group keeps the last quantity
+            LinkedHashMap<Integer, CVItem> group = new LinkedHashMap<>();
+            for (CVItem item : reqs.get(i)) {
+                int ordinal = item.getMat().ordinal();
+                if (slotByOrdinal[ordinal] == NOT_REQUIRED) {
+                    slotByOrdinal[ordinal] = materials.size();
+                    materials.add(item.getMat());
+                }
+                allSlots.add(slotByOrdinal[ordinal]);
+                group.put(slotByOrdinal[ordinal], item);
+            }
+            groupSlots[i] = new int[group.size()];
+            groupItems[i] = new CVItem[group.size()];
+            int j = 0;
+            for (Map.Entry<Integer, CVItem> entry : group.entrySet()) {
+                groupSlots[i][j] = entry.getKey();
+                groupItems[i][j] = entry.getValue();
+                j++;
+            }
+        }
+        slotMaterials = materials.toArray(new Material[0]);
+        reqSlots = new int[allSlots.size()];
+        for (int i = 0; i < reqSlots.length; i++) {
+            reqSlots[i] = allSlots.get(i);
+        }
+        groupsBySlot = new int[slotMaterials.length][0];
+        for (int i = 0; i < groupSlots.length; i++) {
+            for (int slot : groupSlots[i]) {
+                int[] groups = groupsBySlot[slot];
+                groups = Arrays.copyOf(groups, groups.length + 1);
+                groups[groups.length - 1] = i;
+                groupsBySlot[slot] = groups;
+            }
+        }
+    }
+
+    /**
+     * @param missingItem an item that is about to be removed, so one more of it is required
+     */
+    Progress start(CVItem missingItem) {
+        return new Progress(missingItem);
+    }
+
+    private static final class Group {
+        private final int[] slots;
+        private final int[] remaining;
+        private boolean done;
+
+        private Group(int[] slots, int[] remaining) {
+            this.slots = slots;
+            this.remaining = remaining;
+        }
+
+        private int indexOf(int slot) {
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i] == slot) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * The state of one scan. Blocks are counted towards the first unfinished group
+     * that accepts them. Setting every alternative of a group to what is left of the
+     * matched one is how requirements have always been counted.
+     */
+    class Progress {
+        private final List<Group> groups = new ArrayList<>();
+        private final Group[][] groupsBySlot;
+        private final int[] maxCheck;
+        private int liveGroups;
+        private int[] foundBlocks = new int[64];
+        private int foundStart = 0;
+        private int foundEnd = 0;
+
+        private Progress(CVItem missingItem) {
+            maxCheck = new int[slotMaterials.length];
+            for (int i = 0; i < groupSlots.length; i++) {
+                int[] remaining = new int[groupSlots[i].length];
+                for (int j = 0; j < remaining.length; j++) {
+                    CVItem item = groupItems[i][j];
+                    remaining[j] = missingItem != null && missingItem.equivalentCVItem(item) ?
+                            item.getQty() + 1 : item.getQty();
+                    maxCheck[groupSlots[i][j]] += remaining[j];
+                }
+                groups.add(new Group(groupSlots[i], remaining));
+            }
+            liveGroups = groups.size();
+            groupsBySlot = new Group[slotMaterials.length][];
+            for (int slot = 0; slot < groupsBySlot.length; slot++) {
+                int[] groupIndexes = BuildRequirements.this.groupsBySlot[slot];
+                groupsBySlot[slot] = new Group[groupIndexes.length];
+                for (int i = 0; i < groupIndexes.length; i++) {
+                    groupsBySlot[slot][i] = groups.get(groupIndexes[i]);
+                }
+            }
+        }
+
+        boolean isComplete() {
+            return liveGroups == 0;
+        }
+
+        int count(Material mat) {
+            int slot = getSlot(mat);
+            return slot == NOT_REQUIRED ? NO_MATCH : count(slot);
+        }
+
+        /**
+         * Same as {@link #count(Material)} but remembers where matching blocks were
+         * so the region can be trimmed to fit its build radius.
+         */
+        int count(Material mat, int x, int y, int z) {
+            int slot = getSlot(mat);
+            if (slot == NOT_REQUIRED) {
+                return NO_MATCH;
+            }
+            int result = count(slot);
+            if (result != NO_MATCH) {
+                if (foundEnd + 4 > foundBlocks.length) {
+                    foundBlocks = Arrays.copyOf(foundBlocks, foundBlocks.length * 2);
+                }
+                foundBlocks[foundEnd++] = slot;
+                foundBlocks[foundEnd++] = x;
+                foundBlocks[foundEnd++] = y;
+                foundBlocks[foundEnd++] = z;
+            }
+            return result;
+        }
+
+        private int getSlot(Material mat) {
+            return mat == null ? NOT_REQUIRED : slotByOrdinal[mat.ordinal()];
+        }
+
+        private int count(int slot) {
+            maxCheck[slot]--;
+            for (Group group : groupsBySlot[slot]) {
+                if (group.done) {
+                    continue;
+                }
+                int remaining = group.remaining[group.indexOf(slot)];
+                if (remaining < 2) {
+                    group.done = true;
+                    liveGroups--;
+                    return FINISHED_GROUP;
+                }
+                Arrays.fill(group.remaining, remaining - 1);
+                return MATCHED;
+            }
+            return NO_MATCH;
+        }
+
+        /**
+         * Drops the oldest blocks found until the region fits its build radius again,
+         * giving their requirements back.
+         */
+        RegionPoints trimExcessRegion(RegionPoints radii, Location location, RegionType regionType) {
+            if (Region.radiusCheck(radii, regionType).isValid()) {
+                return radii;
+            }
+
+            RegionPoints returnRadii;
+            do {
+                int slot = foundBlocks[foundStart];
+                foundStart += 4;
+                maxCheck[slot]++;
+                if (maxCheck[slot] > 0) {
+                    boolean foundMat = false;
+                    for (Group group : groupsBySlot[slot]) {
+                        if (!group.done) {
+                            foundMat = true;
+                            group.remaining[group.indexOf(slot)]++;
+                        }
+                    }
+                    if (!foundMat && isUnfulfilled(slot)) {
+                        addGroup(slot);
+                    }
+                }
+                returnRadii = buildNewRadii(location);
+            } while (foundStart < foundEnd && (returnRadii.isEquivalentTo(radii) ||
+                    !Region.radiusCheck(returnRadii, regionType).isValid()));
+            return returnRadii;
+        }
+
+        private boolean isUnfulfilled(int slot) {
+            for (int reqSlot : reqSlots) {
+                if (reqSlot != slot && maxCheck[reqSlot] < 1) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void addGroup(int slot) {
+            Group group = new Group(new int[] { slot }, new int[] { 1 });
+            groups.add(group);
+            Group[] slotGroups = Arrays.copyOf(groupsBySlot[slot], groupsBySlot[slot].length + 1);
+            slotGroups[slotGroups.length - 1] = group;
+            groupsBySlot[slot] = slotGroups;
+            liveGroups++;
+        }
+
+        private RegionPoints buildNewRadii(Location location) {
+            RegionPoints radii = new RegionPoints(0, 0, 0, 0, 0, 0);
+            for (int i = foundStart; i < foundEnd; i += 4) {
+                RegionManager.getInstance().adjustRadii(radii, location,
+                        foundBlocks[i + 1], foundBlocks[i + 2], foundBlocks[i + 3]);
+            }
+            return radii;
+        }
+
+        /**
+         * @return the unfinished groups with how many of each block they still need
+         */
+        List<HashMap<Material, Integer>> getMissingBlocks() {
+            List<HashMap<Material, Integer>> missingBlocks = new ArrayList<>();
+            for (Group group : groups) {
+                if (group.done) {
+                    continue;
+                }
+                HashMap<Material, Integer> groupMap = new HashMap<>();
+                for (int i = 0; i < group.slots.length; i++) {
+                    groupMap.put(slotMaterials[group.slots[i]], group.remaining[i]);
+                }
+                missingBlocks.add(groupMap);
+            }
+            return missingBlocks;
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package org.redcastlemedia.multitallented.civs.regions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.redcastlemedia.multitallented.civs.Civs;
+import org.redcastlemedia.multitallented.civs.util.ParallelConfigLoader;
+import org.redcastlemedia.multitallented.civs.util.PersistenceQueue;
+
+/**
+ * Keeps every region in one append-only file instead of a file per region. Saving a
+ * region appends a record with its YAML and removing one appends a tombstone, so a
+ * change never rewrites anything but that region. An index in memory points at the
+ * newest record for each region, and once most of the file is superseded records it
+ * gets compacted into a fresh file.
+ *
+ * A record is the op byte, the id (short length + UTF-8), the YAML (int length + UTF-8)
+ * and a CRC32 of all of that. A torn record at the end of the file is cut off on load.
+ */
+class LogRegionStore implements RegionStore {
+    static final String FILE_NAME = "regions.dat";
+    private static final int MAGIC = 0x43565231;
+    private static final int HEADER_LENGTH = 4;
+    private static final byte OP_SAVE = 1;
+    private static final byte OP_DELETE = 2;
+    private static final long MIN_COMPACT_LENGTH = 1 << 20;
+
+    private final File logFile;
+    private final ConcurrentHashMap<String, FileConfiguration> pending = new ConcurrentHashMap<>();
+    private final HashMap<String, RecordPointer> index = new HashMap<>();
+    private FileChannel channel;
+    private long liveLength;
+    private boolean unusable;
+
+    LogRegionStore(File logFile) {
+        this.logFile = logFile;
+    }
+
+    @Override
+    public synchronized Map<String, FileConfiguration> loadAll() {
+        index.clear();
+        liveLength = 0;
+        if (!logFile.exists()) {
+            return new LinkedHashMap<>();
+        }
+        Map<String, String> sources = new LinkedHashMap<>();
+        try {
+            FileChannel fileChannel = getChannel();
+            long length = fileChannel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException(FILE_NAME + " is too large to load");
+            }
+            // Read into the heap rather than mapping the file, since a mapped file can't be
+            // truncated or replaced on Windows while the mapping is still reachable
+            ByteBuffer buffer = readFully(fileChannel, new RecordPointer(0, (int) length));
+            if (length < HEADER_LENGTH || buffer.getInt() != MAGIC) {
+                setAside();
+                return new LinkedHashMap<>();
+            }
+            int validLength = HEADER_LENGTH;
+            while (buffer.hasRemaining()) {
+                int offset = buffer.position();
+                Record record = readRecord(buffer);
+                if (record == null) {
+                    break;
+                }
+                RecordPointer previous;
+                if (record.op == OP_SAVE) {
+                    previous = index.put(record.id, new RecordPointer(offset, buffer.position() - offset));
+                } else {
+                    previous = index.remove(record.id);
+                }
+                if (previous != null) {
+                    liveLength -= previous.length;
+                }
+                if (record.op == OP_SAVE) {
+                    liveLength += buffer.position() - offset;
+                }
+                validLength = buffer.position();
+            }
+            for (Map.Entry<String, RecordPointer> entry : index.entrySet()) {
+                buffer.position((int) entry.getValue().offset);
+                sources.put(entry.getKey(), readRecord(buffer).payload);
+            }
+            if (validLength < length) {
+                Civs.logger.log(Level.WARNING, "Discarding {0} bytes of incomplete records from the end of {1}",
+                        new Object[] { length - validLength, FILE_NAME });
+                fileChannel.truncate(validLength);
+            }
+            compactIfNeeded();
+        } catch (IOException e) {
+            Civs.logger.log(Level.SEVERE, "Unable to read " + FILE_NAME, e);
+        }
+        return ParallelConfigLoader.parseStrings(sources);
+    }
+
+    @Override
+    public FileConfiguration load(String id) {
+        FileConfiguration config = new YamlConfiguration();
+        try {
+            FileConfiguration pendingConfig = pending.get(id);
+            if (pendingConfig == PersistenceQueue.DELETED) {
+                return null;
+            } else if (pendingConfig != null) {
+                config.loadFromString(pendingConfig.saveToString());
+                return config;
+            }
+            String payload = readPayload(id);
+            if (payload == null) {
+                return null;
+            }
+            config.loadFromString(payload);
+        } catch (Exception e) {
+            Civs.logger.log(Level.SEVERE, "Unable to read region " + id + " from " + FILE_NAME, e);
+            return null;
+        }
+        return config;
+    }
+
+    @Override
+    public void save(String id, FileConfiguration config) {
+        enqueue(id, config);
+    }
+
+    @Override
+    public void delete(String id) {
+        enqueue(id, PersistenceQueue.DELETED);
+    }
+
+    private void enqueue(final String id, FileConfiguration config) {
+        if (pending.put(id, config) != null) {
+            return;
+        }
+        PersistenceQueue.getInstance().submit(new Runnable() {
+            @Override
+            public void run() {
+                FileConfiguration current = pending.get(id);
+                while (current != null) {
+                    append(id, current);
+                    if (pending.remove(id, current)) {
+                        break;
+                    }
+                    current = pending.get(id);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void flush() {
+        PersistenceQueue.getInstance().flush();
+        synchronized (this) {
+            try {
+                if (channel != null) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                Civs.logger.log(Level.SEVERE, "Unable to sync " + FILE_NAME, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        synchronized (this) {
+            closeChannel();
+        }
+    }
+
+    synchronized void compact() throws IOException {
+        File compactFile = new File(logFile.getPath() + ".compact");
+        HashMap<String, RecordPointer> compactIndex = new HashMap<>();
+        FileChannel fileChannel = getChannel();
+        try (RandomAccessFile compactAccess = new RandomAccessFile(compactFile, "rw")) {
+            FileChannel compactChannel = compactAccess.getChannel();
+            compactChannel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.putInt(MAGIC).flip();
+            writeFully(compactChannel, header, 0);
+            long position = HEADER_LENGTH;
+            for (Map.Entry<String, RecordPointer> entry : index.entrySet()) {
+                ByteBuffer record = readFully(fileChannel, entry.getValue());
+                writeFully(compactChannel, record, position);
+                compactIndex.put(entry.getKey(), new RecordPointer(position, entry.getValue().length));
+                position += entry.getValue().length;
+            }
+            compactChannel.force(true);
+        }
+        closeChannel();
+        try {
+            Files.move(compactFile.toPath(), logFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(compactFile.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        index.clear();
+        index.putAll(compactIndex);
+    }
+
+    synchronized long getLength() throws IOException {
+        return logFile.exists() ? getChannel().size() : 0;
+    }
+
+    private synchronized void append(String id, FileConfiguration config) {
+        try {
+            RecordPointer previous = index.get(id);
+            if (config == PersistenceQueue.DELETED && previous == null) {
+                return;
+            }
+            FileChannel fileChannel = getChannel();
+            long offset = fileChannel.size();
+            ByteBuffer record = config == PersistenceQueue.DELETED ? writeRecord(OP_DELETE, id, "") :
+                    writeRecord(OP_SAVE, id, config.saveToString());
+            int length = record.remaining();
+            writeFully(fileChannel, record, offset);
+            if (previous != null) {
+                liveLength -= previous.length;
+            }
+            if (config == PersistenceQueue.DELETED) {
+                index.remove(id);
+            } else {
+                index.put(id, new RecordPointer(offset, length));
+                liveLength += length;
+            }
+            compactIfNeeded();
+        } catch (IOException e) {
+            Civs.logger.log(Level.SEVERE, "Unable to write region " + id + " to " + FILE_NAME, e);
+        }
+    }
+
+    private synchronized String readPayload(String id) throws IOException {
+        RecordPointer pointer = index.get(id);
+        if (pointer == null) {
+            return null;
+        }
+        Record record = readRecord(readFully(getChannel(), pointer));
+        if (record == null) {
+            throw new IOException("Corrupt record for " + id);
+        }
+        return record.payload;
+    }
+
+    /**
+     * Moves a file that isn't a region log out of the way so that a new log gets started
+     * instead of appending records to it. If it can't be moved nothing gets written.
+     */
+    private void setAside() throws IOException {
+        closeChannel();
+        unusable = true;
+        File invalidFile = new File(logFile.getPath() + ".invalid-" + System.currentTimeMillis());
+        Files.move(logFile.toPath(), invalidFile.toPath());
+        unusable = false;
+        Civs.logger.log(Level.SEVERE, "{0} is not a region log, moved it to {1} and starting a new one",
+                new Object[] { FILE_NAME, invalidFile.getName() });
+    }
+
+    private void compactIfNeeded() throws IOException {
+        long length = channel == null ? 0 : channel.size();
+        if (length > MIN_COMPACT_LENGTH && liveLength * 2 < length) {
+            compact();
+        }
+    }
+
+    private FileChannel getChannel() throws IOException {
+        if (unusable) {
+            throw new IOException(FILE_NAME + " is not a region log and could not be moved");
+        }
+        if (channel == null) {
+            File parent = logFile.getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            channel = new RandomAccessFile(logFile, "rw").getChannel();
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+                header.putInt(MAGIC).flip();
+                writeFully(channel, header, 0);
+            }
+        }
+        return channel;
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Civs.logger.log(Level.WARNING, "Unable to close " + FILE_NAME, e);
+        }
+        channel = null;
+    }
+
+    private static ByteBuffer writeRecord(byte op, String id, String payload) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(1 + 2 + idBytes.length + 4 + payloadBytes.length + 4);
+        record.put(op).putShort((short) idBytes.length).put(idBytes)
+                .putInt(payloadBytes.length).put(payloadBytes);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    /**
+     * Reads the record at the buffer's position and leaves the position after it.
+     * @return null if the record is cut off or fails its checksum
+     */
+    private static Record readRecord(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < 3) {
+            return null;
+        }
+        byte op = buffer.get();
+        int idLength = buffer.getShort() & 0xFFFF;
+        if ((op != OP_SAVE && op != OP_DELETE) || buffer.remaining() < idLength + 4) {
+            return null;
+        }
+        byte[] idBytes = new byte[idLength];
+        buffer.get(idBytes);
+        int payloadLength = buffer.getInt();
+        if (payloadLength < 0 || buffer.remaining() < payloadLength + 4) {
+            return null;
+        }
+        byte[] payloadBytes = new byte[payloadLength];
+        buffer.get(payloadBytes);
+        CRC32 crc = new CRC32();
+        ByteBuffer checked = buffer.duplicate();
+        checked.limit(buffer.position()).position(start);
+        crc.update(checked);
+        if (buffer.getInt() != (int) crc.getValue()) {
+            return null;
+        }
+        return new Record(op, new String(idBytes, StandardCharsets.UTF_8),
+                new String(payloadBytes, StandardCharsets.UTF_8));
+    }
+
+    private static ByteBuffer readFully(FileChannel fileChannel, RecordPointer pointer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(pointer.length);
+        long position = pointer.offset;
+        while (buffer.hasRemaining()) {
+            int read = fileChannel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of " + FILE_NAME);
+            }
+            position += read;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel fileChannel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += fileChannel.write(buffer, position);
+        }
+    }
+
+    private static final class Record {
+        private final byte op;
+        private final String id;
+        private final String payload;
+
+        private Record(byte op, String id, String payload) {
+            this.op = op;
+            this.id = id;
+            this.payload = payload;
+        }
+    }
+
+    private static final class RecordPointer {
+        private final long offset;
+        private final int length;
+
+        private RecordPointer(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
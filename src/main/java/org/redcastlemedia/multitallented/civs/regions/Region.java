@@ -18,11 +18,13 @@ import org.redcastlemedia.multitallented.civs.items.CVInventory;
 import org.redcastlemedia.multitallented.civs.items.CVItem;
 import org.redcastlemedia.multitallented.civs.items.ItemManager;
 import org.redcastlemedia.multitallented.civs.items.UnloadedInventoryHandler;
+import org.redcastlemedia.multitallented.civs.protections.ProtectionMap;
 import org.redcastlemedia.multitallented.civs.towns.*;
 import org.redcastlemedia.multitallented.civs.tutorials.TutorialManager;
 import org.redcastlemedia.multitallented.civs.util.CommandUtil;
 import org.redcastlemedia.multitallented.civs.util.Constants;
-import org.redcastlemedia.multitallented.civs.util.DebugLogger;
+import org.redcastlemedia.multitallented.civs.util.EconomyLedger;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 import org.redcastlemedia.multitallented.civs.util.OwnershipUtil;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
@@ -30,6 +32,7 @@ import java.util.*;
 import java.util.logging.Level;
 
 public class Region {
+    private static final Metrics.Counter INVENTORY_MODIFICATIONS = Metrics.counter("inventory-modifications");
 
     private String type;
     private final Map<UUID, String> people;
@@ -57,6 +60,8 @@ public class Region {
     private double forSale = -1;
     @Getter @Setter
     private boolean warehouseEnabled = true;
+    private Map<UUID, String> cachedPeople;
+    private long cachedPeopleGeneration = -1;
 
     public Region(String type,
                   HashMap<UUID, String> people,
@@ -110,6 +115,8 @@ public class Region {
     }
     public void setEffects(HashMap<String, String> effects) {
         this.effects = effects;
+        ProtectionMap.getInstance().invalidate(this);
+        RegionManager.getInstance().reindexEffects(this);
     }
 
     public String getType() {
@@ -118,27 +125,41 @@ public class Region {
     public void setType(String type) { this.type = type; }
     public void setPeople(UUID uuid, String role) {
         people.put(uuid, role);
+        MembershipCache.invalidate();
     }
 
     public Map<UUID, String> getRawPeople() {
         return people;
     }
+
+    /**
+     * Members of the region plus everyone in the town it is in. The result is cached until
+     * MembershipCache is invalidated, so it must not be modified.
+     */
     public Map<UUID, String> getPeople() {
+        if (cachedPeople != null && cachedPeopleGeneration == MembershipCache.getGeneration()) {
+            return cachedPeople;
+        }
         TownManager townManager = TownManager.getInstance();
         Town town = townManager.getTownAt(getLocation());
         if (town == null) {
+            cachedPeople = people;
+            cachedPeopleGeneration = MembershipCache.getGeneration();
             return people;
         }
         HashMap<UUID, String> newPeople = new HashMap<>(people);
-        for (UUID uuid : town.getPeople().keySet()) {
-            if (!newPeople.containsKey(uuid)) {
-                if (town.getPeople().get(uuid).contains("foreign")) {
-                    newPeople.put(uuid, "allyforeign");
+        HashMap<UUID, String> townPeople = town.getPeople();
+        for (Map.Entry<UUID, String> entry : townPeople.entrySet()) {
+            if (!newPeople.containsKey(entry.getKey())) {
+                if (entry.getValue().contains("foreign")) {
+                    newPeople.put(entry.getKey(), "allyforeign");
                 } else {
-                    newPeople.put(uuid, "ally");
+                    newPeople.put(entry.getKey(), "ally");
                 }
             }
         }
+        cachedPeople = newPeople;
+        cachedPeopleGeneration = MembershipCache.getGeneration();
         return newPeople;
     }
     public Set<UUID> getOwners() {
@@ -224,40 +245,15 @@ public class Region {
                 Double.parseDouble(idSplit[3]));
     }
 
-    private static List<HashMap<Material, Integer>> cloneReqMap(List<List<CVItem>> reqMap) {
-        return cloneReqMap(reqMap, null);
-    }
-
-    private static List<HashMap<Material, Integer>> cloneReqMap(List<List<CVItem>> reqMap, CVItem missingItem) {
-        List<HashMap<Material, Integer>> itemCheck = new ArrayList<>();
-        for (List<CVItem> currentList : reqMap) {
-            HashMap<Material, Integer> currentReqMap = new HashMap<>();
-            for (CVItem currentItem : currentList) {
-                CVItem clone = currentItem.clone();
-                if (missingItem != null && missingItem.equivalentCVItem(clone)) {
-                    currentReqMap.put(clone.getMat(), clone.getQty() + 1);
-                } else {
-                    currentReqMap.put(clone.getMat(), clone.getQty());
-                }
-            }
-            itemCheck.add(currentReqMap);
-        }
-        return itemCheck;
-    }
-
     public boolean hasRequiredBlocks() {
         ItemManager itemManager = ItemManager.getInstance();
         RegionType regionType = (RegionType) itemManager.getItemType(type);
-        List<HashMap<Material, Integer>> itemCheck = cloneReqMap(regionType.getReqs());
+        BuildRequirements.Progress progress = regionType.getBuildRequirements().start(null);
 
-        if (itemCheck.isEmpty()) {
+        if (progress.isComplete()) {
             return true;
         }
 
-        return addItemCheck(itemCheck);
-    }
-
-    private boolean addItemCheck(List<HashMap<Material, Integer>> itemCheck) {
         Location location = getLocation();
         World currentWorld = location.getWorld();
         int xMax = (int) location.getX() + radiusXP;
@@ -270,53 +266,13 @@ public class Region {
         yMax = yMax > currentWorld.getMaxHeight() ? currentWorld.getMaxHeight() : yMax;
         yMin = yMin < 0 ? 0 : yMin;
 
-        HashMap<Material, Integer> maxCheck = new HashMap<>();
-        for (HashMap<Material, Integer> tempMap : itemCheck) {
-            for (Material mat : tempMap.keySet()) {
-                if (maxCheck.containsKey(mat)) {
-                    maxCheck.put(mat, maxCheck.get(mat) + tempMap.get(mat));
-                } else {
-                    maxCheck.put(mat, tempMap.get(mat).intValue());
-                }
-            }
-        }
+        BlockScanArea scanArea = new BlockScanArea(currentWorld, xMin, xMax, yMin, yMax, zMin, zMax);
         for (int x=xMin; x<=xMax;x++) {
             for (int y=yMin; y<=yMax; y++) {
                 for (int z=zMin; z<=zMax; z++) {
-
-                    Block currentBlock = currentWorld.getBlockAt(x,y,z);
-                    if (currentBlock == null) {
-                        continue;
-                    }
-                    Material mat = currentBlock.getType();
-                    if (maxCheck.containsKey(mat)) {
-                        maxCheck.put(mat, maxCheck.get(mat) - 1);
-                    }
-                    boolean destroyIndex = false;
-                    int i=0;
-                    for (HashMap<Material, Integer> tempMap : itemCheck) {
-                        if (tempMap.containsKey(mat)) {
-
-                            if (tempMap.get(mat) < 2) {
-                                destroyIndex = true;
-                            } else {
-                                for (Material currentMat : tempMap.keySet()) {
-                                    tempMap.put(currentMat, tempMap.get(mat) - 1);
-                                }
-                            }
-                            break;
-                        }
-                        i++;
-                    }
-                    if (destroyIndex) {
-                        if (itemCheck.size() < 2) {
-                            itemCheck.remove(i);
-                            if (itemCheck.isEmpty()) {
-                                return true;
-                            }
-                        } else {
-                            itemCheck.remove(i);
-                        }
+                    if (progress.count(scanArea.getType(x, y, z)) == BuildRequirements.FINISHED_GROUP &&
+                            progress.isComplete()) {
+                        return true;
                     }
                 }
             }
@@ -326,60 +282,28 @@ public class Region {
 
     private static RegionPoints addItemCheck(RegionPoints radii, Location location, World currentWorld,
                                      double xMin, double xMax, double yMin, double yMax, double zMin, double zMax,
-                                     List<HashMap<Material, Integer>> itemCheck, RegionType regionType) {
-
-        HashMap<Material, Integer> maxCheck = new HashMap<>();
-        for (HashMap<Material, Integer> tempMap : itemCheck) {
-            for (Material mat : tempMap.keySet()) {
-                if (maxCheck.containsKey(mat)) {
-                    maxCheck.put(mat, maxCheck.get(mat) + tempMap.get(mat));
-                } else {
-                    maxCheck.put(mat, tempMap.get(mat).intValue());
-                }
-            }
-        }
-        List<Block> blocksFound = new ArrayList<>();
+                                     BuildRequirements.Progress progress, RegionType regionType) {
+        BlockScanArea scanArea = new BlockScanArea(currentWorld,
+                (int) Math.floor(xMin), (int) Math.floor(xMax),
+                (int) Math.floor(yMin), (int) Math.floor(yMax),
+                (int) Math.floor(zMin), (int) Math.floor(zMax));
         outer: for (double x=xMin; x<=xMax;x++) {
+            int blockX = (int) Math.floor(x);
             for (double y=yMin; y<=yMax; y++) {
+                int blockY = (int) Math.floor(y);
                 for (double z=zMin; z<=zMax; z++) {
+                    int blockZ = (int) Math.floor(z);
 
-                    Location location1 = new Location(currentWorld, x, y, z);
-                    Block currentBlock = location1.getBlock();
-                    if (currentBlock == null) {
+                    Material mat = scanArea.getType(blockX, blockY, blockZ);
+                    int result = progress.count(mat, blockX, blockY, blockZ);
+                    if (result == BuildRequirements.NO_MATCH) {
                         continue;
                     }
-                    Material mat = currentBlock.getType();
-                    if (maxCheck.containsKey(mat)) {
-                        maxCheck.put(mat, maxCheck.get(mat) - 1);
-                    }
-                    boolean destroyIndex = false;
-                    int i=0;
-                    outer1: for (HashMap<Material, Integer> tempMap : itemCheck) {
-                        if (tempMap.containsKey(mat)) {
-                            blocksFound.add(currentBlock);
-
-                            if (tempMap.get(mat) < 2) {
-                                destroyIndex = true;
-                            } else {
-                                for (Material currentMat : tempMap.keySet()) {
-                                    tempMap.put(currentMat, tempMap.get(mat) - 1);
-                                }
-                            }
-                            RegionManager.getInstance().adjustRadii(radii, location, x,y,z);
-                            break outer1;
-                        }
-                        i++;
-                    }
-                    if (destroyIndex) {
-                        if (itemCheck.size() < 2) {
-                            itemCheck.remove(i);
-                            radii = trimExcessRegion(blocksFound, itemCheck,
-                                    maxCheck, radii, location, regionType);
-                            if (itemCheck.isEmpty()) {
-                                break outer;
-                            }
-                        } else {
-                            itemCheck.remove(i);
+                    RegionManager.getInstance().adjustRadii(radii, location, x,y,z);
+                    if (result == BuildRequirements.FINISHED_GROUP && progress.isComplete()) {
+                        radii = progress.trimExcessRegion(radii, location, regionType);
+                        if (progress.isComplete()) {
+                            break outer;
                         }
                     }
                 }
@@ -388,67 +312,13 @@ public class Region {
         return radii;
     }
 
-    private static RegionPoints buildNewRadii(List<Block> blocks, Location location) {
-        RegionPoints radii = new RegionPoints(0, 0, 0, 0, 0, 0);
-        for (Block block : blocks) {
-            RegionManager.getInstance().adjustRadii(radii, location,
-                    block.getX(), block.getY(), block.getZ());
-        }
-        return radii;
-    }
-
-    private static RegionPoints trimExcessRegion(List<Block> blocksFound,
-                                     List<HashMap<Material, Integer>> itemCheck,
-                                     HashMap<Material, Integer> maxCheck,
-                                     RegionPoints radii, Location location, RegionType regionType) {
-        if (radiusCheck(radii, regionType).isValid()) {
-            return radii;
-        }
-
-        RegionPoints returnRadii;
-        do {
-            Block block = blocksFound.remove(0);
-            if (maxCheck.containsKey(block.getType())) {
-                maxCheck.put(block.getType(), maxCheck.get(block.getType()) + 1);
-                if (maxCheck.get(block.getType()) > 0) {
-                    boolean foundMat = false;
-                    for (HashMap<Material, Integer> tempMap : itemCheck) {
-                        if (tempMap.containsKey(block.getType())) {
-                            foundMat = true;
-                            tempMap.put(block.getType(), tempMap.get(block.getType()) + 1);
-                        }
-                    }
-                    if (!foundMat) {
-                        boolean unfullFilled = true;
-                        itemLoop: for (List<CVItem> tempList : regionType.getReqs()) {
-                            for (CVItem item : tempList) {
-                                if (item.getMat() != block.getType() &&
-                                        maxCheck.get(item.getMat()) < 1) {
-                                    unfullFilled = false;
-                                    break itemLoop;
-                                }
-                            }
-                        }
-                        if (unfullFilled) {
-                            HashMap<Material, Integer> tempMap = new HashMap<>();
-                            tempMap.put(block.getType(), 1);
-                            itemCheck.add(tempMap);
-                        }
-                    }
-                }
-            }
-            returnRadii = buildNewRadii(blocksFound, location);
-        } while (!blocksFound.isEmpty() && (returnRadii.isEquivalentTo(radii) || !radiusCheck(returnRadii, regionType).isValid()));
-        return returnRadii;
-    }
-
     public static RegionPoints hasRequiredBlocks(String type, Location location, boolean useCivItem) {
         ItemManager itemManager = ItemManager.getInstance();
         RegionType regionType = (RegionType) itemManager.getItemType(type);
-        List<HashMap<Material, Integer>> itemCheck = cloneReqMap(regionType.getReqs());
+        BuildRequirements.Progress progress = regionType.getBuildRequirements().start(null);
 
         RegionPoints radii = new RegionPoints(0, 0, 0, 0, 0, 0);
-        if (itemCheck.isEmpty()) {
+        if (progress.isComplete()) {
             radiusCheck(radii, regionType);
             return radii;
         }
@@ -466,9 +336,9 @@ public class Region {
         yMin = yMin < 0 ? 0 : yMin;
 
         radii = addItemCheck(radii, location, currentWorld, xMin, xMax, yMin, yMax, zMin, zMax,
-                itemCheck, regionType);
-        boolean hasReqs = itemCheck.isEmpty();
-        if (itemCheck.isEmpty() && useCivItem) {
+                progress, regionType);
+        boolean hasReqs = progress.isComplete();
+        if (hasReqs && useCivItem) {
             Block centerBlock = location.getBlock();
             if (regionType.getMat() != centerBlock.getType()) {
                 hasReqs = false;
@@ -486,7 +356,7 @@ public class Region {
                 regionType.getBuildRadiusX() != regionType.getBuildRadiusY()) {
             return new RegionPoints();
         }
-        List<HashMap<Material, Integer>> itemCheck = cloneReqMap(regionType.getReqs());
+        BuildRequirements.Progress progress = regionType.getBuildRequirements().start(null);
         World currentWorld = location.getWorld();
         if (currentWorld == null) {
             return new RegionPoints();
@@ -509,41 +379,25 @@ public class Region {
         yMax = yMax > currentWorld.getMaxHeight() ? currentWorld.getMaxHeight() : yMax;
         yMin = yMin < 0 ? 0 : yMin;
 
+        BlockScanArea scanArea = new BlockScanArea(currentWorld,
+                (int) Math.floor(xMin), (int) Math.floor(xMax),
+                (int) Math.floor(yMin), (int) Math.floor(yMax),
+                (int) Math.floor(zMin), (int) Math.floor(zMax));
         outer: for (double x=xMin; x<=xMax;x++) {
             for (double y=yMin; y<=yMax; y++) {
                 for (double z=zMin; z<=zMax; z++) {
 
-                    Location location1 = new Location(currentWorld, x, y, z);
-                    Block currentBlock = location1.getBlock();
-                    if (currentBlock.getType() == Material.AIR) {
+                    Material mat = scanArea.getType((int) Math.floor(x), (int) Math.floor(y), (int) Math.floor(z));
+                    if (mat == null || mat == Material.AIR) {
                         continue;
                     }
-                    Material mat = currentBlock.getType();
-                    boolean destroyIndex = false;
-                    int i=0;
-                    outer1: for (HashMap<Material, Integer> tempMap : itemCheck) {
-                        if (tempMap.containsKey(mat)) {
-                            if (tempMap.get(mat) < 2) {
-                                destroyIndex = true;
-                            } else {
-                                for (Material currentMat : tempMap.keySet()) {
-                                    tempMap.put(currentMat, tempMap.get(mat) - 1);
-                                }
-                            }
-                            break outer1;
-                        }
-                        i++;
-                    }
-                    if (destroyIndex) {
-                        itemCheck.remove(i);
-                        if (itemCheck.isEmpty()) {
-                            break outer;
-                        }
+                    if (progress.count(mat) == BuildRequirements.FINISHED_GROUP && progress.isComplete()) {
+                        break outer;
                     }
                 }
             }
         }
-        if (!itemCheck.isEmpty()) {
+        if (!progress.isComplete()) {
             return new RegionPoints();
         } else {
             return regionPoints;
@@ -603,12 +457,12 @@ public class Region {
             missingItem = CVItem.createFromItemStack(missingStack);
         }
         RegionType regionType = (RegionType) itemManager.getItemType(type);
-        List<HashMap<Material, Integer>> itemCheck = cloneReqMap(regionType.getReqs(), missingItem);
+        BuildRequirements.Progress progress = regionType.getBuildRequirements().start(missingItem);
 
         RegionPoints radii = new RegionPoints(0, 0, 0, 0, 0, 0);
-        if (itemCheck.isEmpty()) {
+        if (progress.isComplete()) {
             radiusCheck(radii, regionType);
-            return itemCheck;
+            return progress.getMissingBlocks();
         }
 
         World currentWorld = location.getWorld();
@@ -624,20 +478,28 @@ public class Region {
         yMin = yMin < 0 ? 0 : yMin;
 
         radii = addItemCheck(radii, location, currentWorld, xMin, xMax, yMin, yMax, zMin, zMax,
-                itemCheck, regionType);
+                progress, regionType);
         radii = radiusCheck(radii, regionType);
         if (!radii.isValid()) {
-            return itemCheck;
+            return progress.getMissingBlocks();
         }
-        return itemCheck.isEmpty() ? null : itemCheck;
+        return progress.isComplete() ? null : progress.getMissingBlocks();
     }
 
     public boolean shouldTick() {
+        long nextUpkeepTime = getNextUpkeepTime();
+        return nextUpkeepTime > -1 && nextUpkeepTime < new Date().getTime();
+    }
+
+    /**
+     * @return when the period since the last upkeep is over, or -1 if this region has no period
+     */
+    public long getNextUpkeepTime() {
         ItemManager itemManager = ItemManager.getInstance();
         RegionType regionType = (RegionType) itemManager.getItemType(type);
 
         if (regionType.getPeriod() == 0) {
-            return false;
+            return -1;
         }
 
         Town town = TownManager.getInstance().getTownAt(getLocation());
@@ -647,7 +509,7 @@ public class Region {
                     .getGovernment(town.getGovernmentType()));
         }
 
-        return lastTick + period * 1000 < new Date().getTime();
+        return lastTick + period * 1000;
     }
     public boolean hasUpkeepItems() {
         return RegionManager.getInstance().hasRegionChestChanged(this) &&
@@ -803,10 +665,7 @@ public class Region {
                 }
             }
             if (chestInventory != null) {
-                if (ConfigManager.getInstance().isDebugLog()) {
-                    DebugLogger.incrementRegion(this);
-                    DebugLogger.inventoryModifications++;
-                }
+                INVENTORY_MODIFICATIONS.increment();
                 Util.removeItems(regionUpkeep.getInputs(), chestInventory);
                 chestInventory.addItem(output);
 
@@ -891,8 +750,7 @@ public class Region {
                 if (government.getGovernmentType() == GovernmentType.COMMUNISM) {
                     payout = payout / size;
                     for (UUID uuid : town.getRawPeople().keySet()) {
-                        OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(uuid);
-                        Civs.econ.depositPlayer(offlinePlayer, payout);
+                        EconomyLedger.getInstance().deposit(uuid, payout);
                         hasMoney = true;
                     }
                 } else if (government.getGovernmentType() == GovernmentType.COOPERATIVE) {
@@ -900,22 +758,21 @@ public class Region {
                     town.setBankAccount(town.getBankAccount() + coopCut);
                     HashMap<UUID, Double> payouts = OwnershipUtil.getCooperativeSplit(town);
                     for (UUID uuid : payouts.keySet()) {
-                        OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(uuid);
-                        Civs.econ.depositPlayer(offlinePlayer, payouts.get(uuid) * payout);
+                        EconomyLedger.getInstance().deposit(uuid, payouts.get(uuid) * payout);
                         hasMoney = true;
                     }
                 }
             } else {
                 payout = payout / (double) getOwners().size();
+                EconomyLedger economyLedger = EconomyLedger.getInstance();
                 for (UUID uuid : getOwners()) {
-                    OfflinePlayer player = Bukkit.getOfflinePlayer(uuid);
                     if (payout == 0) {
                         hasMoney = true;
                     } else if (payout > 0) {
-                        Civs.econ.depositPlayer(player, payout);
+                        economyLedger.deposit(uuid, payout);
                         hasMoney = true;
-                    } else if (Civs.econ.has(player, payout)) {
-                        Civs.econ.withdrawPlayer(player, Math.abs(payout));
+                    } else if (economyLedger.has(uuid, Math.abs(payout))) {
+                        economyLedger.withdraw(uuid, Math.abs(payout));
                         hasMoney = true;
                     }
                 }
@@ -0,0 +1,191 @@
+package org.redcastlemedia.multitallented.civs.regions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.redcastlemedia.multitallented.civs.items.CivItem;
+import org.redcastlemedia.multitallented.civs.items.ItemManager;
+
+/**
+ * Regions by effect key (per world), by the effects of their region type, and by region
+ * type and group. The keys a region was indexed under are remembered so it can be taken
+ * out even after its type or effects changed. Effects are sometimes removed in place, so
+ * effect lookups check the region still has the effect before returning it. The region
+ * type's effects don't change when a region goes inactive, so those lookups don't.
+ */
+class RegionKeyIndex {
+    private final HashMap<String, HashMap<UUID, LinkedHashSet<Region>>> effectBuckets = new HashMap<>();
+    private final HashMap<String, LinkedHashSet<Region>> typeEffectBuckets = new HashMap<>();
+    private final HashMap<String, LinkedHashSet<Region>> typeBuckets = new HashMap<>();
+    private final HashMap<String, LinkedHashSet<Region>> groupBuckets = new HashMap<>();
+    private final HashMap<Region, IndexedKeys> indexedKeys = new HashMap<>();
+
+    void clear() {
+        effectBuckets.clear();
+        typeEffectBuckets.clear();
+        typeBuckets.clear();
+        groupBuckets.clear();
+        indexedKeys.clear();
+    }
+
+    void add(Region region) {
+        UUID worldUuid = region.getLocation().getWorld().getUID();
+        IndexedKeys keys = new IndexedKeys(worldUuid, region.getType().toLowerCase());
+        for (String effectKey : region.getEffects().keySet()) {
+            keys.effects.add(effectKey);
+            HashMap<UUID, LinkedHashSet<Region>> worlds = effectBuckets.get(effectKey);
+            if (worlds == null) {
+                worlds = new HashMap<>();
+                effectBuckets.put(effectKey, worlds);
+            }
+            getOrCreate(worlds, worldUuid).add(region);
+        }
+        getOrCreate(typeBuckets, keys.type).add(region);
+        CivItem civItem = ItemManager.getInstance().getItemType(region.getType());
+        if (civItem instanceof RegionType) {
+            for (String effectKey : ((RegionType) civItem).getEffects().keySet()) {
+                keys.typeEffects.add(effectKey);
+                getOrCreate(typeEffectBuckets, effectKey).add(region);
+            }
+        }
+        if (civItem != null && civItem.getGroups() != null) {
+            for (String group : civItem.getGroups()) {
+                keys.groups.add(group);
+                getOrCreate(groupBuckets, group).add(region);
+            }
+        }
+        indexedKeys.put(region, keys);
+    }
+
+    void remove(Region region) {
+        IndexedKeys keys = indexedKeys.remove(region);
+        if (keys == null) {
+            return;
+        }
+        for (String effectKey : keys.effects) {
+            HashMap<UUID, LinkedHashSet<Region>> worlds = effectBuckets.get(effectKey);
+            if (worlds != null) {
+                erase(worlds, keys.worldUuid, region);
+                if (worlds.isEmpty()) {
+                    effectBuckets.remove(effectKey);
+                }
+            }
+        }
+        for (String effectKey : keys.typeEffects) {
+            erase(typeEffectBuckets, effectKey, region);
+        }
+        erase(typeBuckets, keys.type, region);
+        for (String group : keys.groups) {
+            erase(groupBuckets, group, region);
+        }
+    }
+
+    List<Region> getRegionsWithEffect(String effectKey) {
+        HashMap<UUID, LinkedHashSet<Region>> worlds = effectBuckets.get(effectKey);
+        if (worlds == null) {
+            return Collections.emptyList();
+        }
+        List<Region> regions = new ArrayList<>();
+        for (LinkedHashSet<Region> worldRegions : worlds.values()) {
+            addWithEffect(regions, worldRegions, effectKey);
+        }
+        return regions;
+    }
+
+    List<Region> getRegionsWithEffect(UUID worldUuid, String effectKey) {
+        HashMap<UUID, LinkedHashSet<Region>> worlds = effectBuckets.get(effectKey);
+        if (worlds == null || !worlds.containsKey(worldUuid)) {
+            return Collections.emptyList();
+        }
+        List<Region> regions = new ArrayList<>();
+        addWithEffect(regions, worlds.get(worldUuid), effectKey);
+        return regions;
+    }
+
+    Region getNearestRegionWithEffect(Location location, String effectKey) {
+        HashMap<UUID, LinkedHashSet<Region>> worlds = effectBuckets.get(effectKey);
+        if (worlds == null || location.getWorld() == null) {
+            return null;
+        }
+        LinkedHashSet<Region> worldRegions = worlds.get(location.getWorld().getUID());
+        if (worldRegions == null) {
+            return null;
+        }
+        Region nearest = null;
+        double nearestDistance = -1;
+        for (Region region : worldRegions) {
+            if (!region.getEffects().containsKey(effectKey)) {
+                continue;
+            }
+            double distance = region.getLocation().distanceSquared(location);
+            if (nearest == null || distance < nearestDistance) {
+                nearest = region;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    Set<Region> getRegionsWithTypeEffect(String effectKey) {
+        LinkedHashSet<Region> regions = typeEffectBuckets.get(effectKey);
+        return regions == null ? Collections.<Region>emptySet() : Collections.unmodifiableSet(regions);
+    }
+
+    Set<Region> getRegionsOfType(String type) {
+        LinkedHashSet<Region> regions = typeBuckets.get(type.toLowerCase());
+        return regions == null ? Collections.<Region>emptySet() : Collections.unmodifiableSet(regions);
+    }
+
+    Set<Region> getRegionsInGroup(String group) {
+        LinkedHashSet<Region> regions = groupBuckets.get(group);
+        return regions == null ? Collections.<Region>emptySet() : Collections.unmodifiableSet(regions);
+    }
+
+    private static void addWithEffect(List<Region> regions, Set<Region> candidates, String effectKey) {
+        for (Region region : candidates) {
+            if (region.getEffects().containsKey(effectKey)) {
+                regions.add(region);
+            }
+        }
+    }
+
+    private static <K> LinkedHashSet<Region> getOrCreate(Map<K, LinkedHashSet<Region>> buckets, K key) {
+        LinkedHashSet<Region> regions = buckets.get(key);
+        if (regions == null) {
+            regions = new LinkedHashSet<>();
+            buckets.put(key, regions);
+        }
+        return regions;
+    }
+
+    private static <K> void erase(Map<K, LinkedHashSet<Region>> buckets, K key, Region region) {
+        LinkedHashSet<Region> regions = buckets.get(key);
+        if (regions == null) {
+            return;
+        }
+        regions.remove(region);
+        if (regions.isEmpty()) {
+            buckets.remove(key);
+        }
+    }
+
+    private static class IndexedKeys {
+        private final UUID worldUuid;
+        private final String type;
+        private final List<String> effects = new ArrayList<>();
+        private final List<String> typeEffects = new ArrayList<>();
+        private final List<String> groups = new ArrayList<>();
+
+        private IndexedKeys(UUID worldUuid, String type) {
+            this.worldUuid = worldUuid;
+            this.type = type;
+        }
+    }
+}
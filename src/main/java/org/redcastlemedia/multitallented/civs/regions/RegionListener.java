@@ -29,6 +29,8 @@ import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.towns.TownType;
 import org.redcastlemedia.multitallented.civs.items.CVItem;
 import org.redcastlemedia.multitallented.civs.util.Constants;
+import org.redcastlemedia.multitallented.civs.util.EconomyLedger;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
 @CivsSingleton
@@ -36,7 +38,7 @@ public class RegionListener implements Listener {
 
     public static void getInstance() {
         RegionListener regionListener = new RegionListener();
-        Bukkit.getPluginManager().registerEvents(regionListener, Civs.getInstance());
+        Metrics.registerEvents(regionListener);
     }
 
     /**
@@ -133,7 +135,7 @@ public class RegionListener implements Listener {
             return;
         }
         Civilian civilian = CivilianManager.getInstance().getCivilian(player.getUniqueId());
-        Civs.econ.depositPlayer(player, price);
+        EconomyLedger.getInstance().depositNow(player, price);
         town.setBankAccount(town.getBankAccount() - price);
         TownManager.getInstance().saveTown(town);
         String priceString = Util.getNumberFormat(price, civilian.getLocale());
@@ -174,7 +176,7 @@ public class RegionListener implements Listener {
         Civilian civilian = CivilianManager.getInstance().getCivilian(event.getPlayer().getUniqueId());
         double amount = event.getRegionType().getPrice() * (double) buff.getAmount() / 100;
         String amountString = Util.getNumberFormat(amount, civilian.getLocale());
-        Civs.econ.depositPlayer(event.getPlayer(), amount);
+        EconomyLedger.getInstance().depositNow(event.getPlayer(), amount);
         event.getPlayer().sendMessage(Civs.getPrefix() + LocaleManager.getInstance().getTranslation(
                 civilian.getLocale(), "cost-buff"
         ).replace("$1", amountString)
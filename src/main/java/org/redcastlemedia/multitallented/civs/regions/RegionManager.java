@@ -1,12 +1,11 @@
 package org.redcastlemedia.multitallented.civs.regions;
 
-import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -45,33 +44,49 @@ import org.redcastlemedia.multitallented.civs.regions.effects.CreateRegionListen
 import org.redcastlemedia.multitallented.civs.regions.effects.DestroyRegionListener;
 import org.redcastlemedia.multitallented.civs.regions.effects.RegionCreatedListener;
 import org.redcastlemedia.multitallented.civs.regions.effects.WarehouseEffect;
+import org.redcastlemedia.multitallented.civs.scheduler.CommonScheduler;
+import org.redcastlemedia.multitallented.civs.scheduler.RegionTickUtil;
 import org.redcastlemedia.multitallented.civs.towns.Government;
 import org.redcastlemedia.multitallented.civs.towns.GovernmentManager;
 import org.redcastlemedia.multitallented.civs.towns.GovernmentType;
+import org.redcastlemedia.multitallented.civs.towns.MembershipIndex;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.towns.TownType;
 import org.redcastlemedia.multitallented.civs.tutorials.TutorialManager;
 import org.redcastlemedia.multitallented.civs.util.CommandUtil;
 import org.redcastlemedia.multitallented.civs.util.Constants;
-import org.redcastlemedia.multitallented.civs.util.DebugLogger;
+import org.redcastlemedia.multitallented.civs.util.EconomyLedger;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
+import org.redcastlemedia.multitallented.civs.util.ParallelConfigLoader;
 import org.redcastlemedia.multitallented.civs.util.StructureUtil;
 
 @CivsSingleton(priority = CivsSingleton.SingletonLoadPriority.HIGH)
 public class RegionManager {
+    private static final Metrics.Counter SAVES = Metrics.counter("saves");
 
     private HashMap<UUID, ArrayList<Region>> regions = new HashMap<>();
     protected HashMap<String, Region> regionLocations = new HashMap<>();
+    private final LinkedHashSet<Region> allRegions = new LinkedHashSet<>();
+    private final Set<Region> allRegionsView = Collections.unmodifiableSet(allRegions);
+    private final RegionSpatialIndex regionIndex = new RegionSpatialIndex();
+    private final RegionKeyIndex keyIndex = new RegionKeyIndex();
     private static RegionManager regionManager;
     private HashMap<String, CreateRegionListener> createRegionListeners = new HashMap<>();
     private HashMap<String, RegionCreatedListener> regionCreatedListenerHashMap = new HashMap<>();
     private HashMap<String, DestroyRegionListener> destroyRegionListener = new HashMap<>();
     private HashSet<Region> checkedRegions = new HashSet<>();
-    private ArrayList<Region> needsSaving = new ArrayList<>();
+    private LinkedHashSet<Region> needsSaving = new LinkedHashSet<>();
+    private RegionStore regionStore = null;
 
     public void reload() {
         regions.clear();
         regionLocations.clear();
+        allRegions.clear();
+        regionIndex.clear();
+        keyIndex.clear();
+        RegionTickUtil.clearSchedule();
+        CommonScheduler.clearOccupants();
         if (Civs.getInstance() != null) {
             loadAllRegions();
         }
@@ -100,7 +115,11 @@ public class RegionManager {
         }
         regions.get(worldUuid).add(region);
         regionLocations.put(region.getId(), region);
-        sortRegions(worldUuid);
+        allRegions.add(region);
+        regionIndex.add(region);
+        keyIndex.add(region);
+        MembershipIndex.getInstance().addRegion(region);
+        RegionTickUtil.scheduleRegion(region);
         for (Map.Entry<String, RegionCreatedListener> entry : regionCreatedListenerHashMap.entrySet()) {
             if (region.getEffects().containsKey(entry.getKey())) {
                 entry.getValue().regionCreatedHandler(region);
@@ -112,62 +131,128 @@ public class RegionManager {
     public void loadAllRegions() {
         regions.clear();
         regionLocations.clear();
-        File regionFolder = new File(Civs.dataLocation, Constants.REGIONS);
-        if (!regionFolder.exists()) {
-            regionFolder.mkdir();
+        allRegions.clear();
+        regionIndex.clear();
+        keyIndex.clear();
+        RegionTickUtil.clearSchedule();
+        CommonScheduler.clearOccupants();
+        closeRegionStore();
+        long startTime = System.nanoTime();
+        Map<String, FileConfiguration> regionConfigs = getRegionStore().loadAll();
+        long parseTime = System.nanoTime() - startTime;
+        startTime = System.nanoTime();
+        for (Map.Entry<String, FileConfiguration> entry : regionConfigs.entrySet()) {
+            loadRegionFile(entry.getKey(), entry.getValue());
         }
-        try {
-            for (File file : regionFolder.listFiles()) {
-                loadRegionFile(file);
-            }
-        } catch (NullPointerException npe) {
-            Civs.logger.log(Level.WARNING, "No region files found to load", npe);
+        ParallelConfigLoader.logTiming(Constants.REGIONS, regionLocations.size(), parseTime,
+                System.nanoTime() - startTime);
+    }
+
+    public RegionStore getRegionStore() {
+        if (regionStore == null) {
+            regionStore = RegionStore.open(ConfigManager.getInstance().getRegionStorage(), Civs.dataLocation);
+        }
+        return regionStore;
+    }
+
+    public void closeRegionStore() {
+        if (regionStore != null) {
+            regionStore.close();
+            regionStore = null;
         }
     }
 
-    private boolean loadRegionFile(File file) {
+    private void loadRegionFile(String id, FileConfiguration regionConfig) {
         try {
-            Region region = loadRegion(file);
+            Region region = loadRegion(regionConfig, id);
             if (region == null || regionLocations.containsKey(region.getId())) {
-                return true;
+                return;
             }
             UUID worldName = region.getLocation().getWorld().getUID();
             if (!regions.containsKey(worldName)) {
                 regions.put(worldName, new ArrayList<>());
             }
             regions.get(worldName).add(region);
-            sortRegions(worldName);
             regionLocations.put(region.getId(), region);
+            allRegions.add(region);
+            regionIndex.add(region);
+            keyIndex.add(region);
+            RegionTickUtil.scheduleRegion(region);
         } catch (Exception e) {
-            Civs.logger.severe("Unable to load invalid region file " + file.getName());
+            Civs.logger.severe("Unable to load invalid region " + id);
         }
-        return false;
     }
 
     public Region getRegionById(String id) {
         return regionLocations.get(id);
     }
 
-    private void sortRegions(UUID worldName) {
-        regions.get(worldName).sort(new Comparator<Region>() {
-            @Override
-            public int compare(Region r1, Region r2) {
-                if (r1.getLocation().getX() - r1.getRadiusXN() > r2.getLocation().getX() - r2.getRadiusXN()) {
-                    return 1;
-                } else if (r1.getLocation().getX() - r1.getRadiusXN() < r2.getLocation().getX() - r2.getRadiusXN()) {
-                    return -1;
-                }
-                return 0;
-            }
-        });
+    public void reindexRegion(Region region) {
+        if (!regionLocations.containsKey(region.getId())) {
+            return;
+        }
+        regionIndex.remove(region);
+        regionIndex.add(region);
+        keyIndex.remove(region);
+        keyIndex.add(region);
+        RegionTickUtil.scheduleRegion(region);
     }
 
-    public Set<Region> getAllRegions() {
-        Set<Region> returnSet = new HashSet<>();
-        for (Map.Entry<UUID, ArrayList<Region>> entry : regions.entrySet()) {
-            returnSet.addAll(entry.getValue());
+    /**
+     * Called when a region's effects are replaced. Regions that are not loaded yet are
+     * indexed when they are added.
+     */
+    public void reindexEffects(Region region) {
+        if (regionLocations.get(region.getId()) != region) {
+            return;
         }
-        return returnSet;
+        keyIndex.remove(region);
+        keyIndex.add(region);
+    }
+
+    /**
+     * @return a read-only view of every loaded region. Copy it before adding or removing
+     * regions while iterating.
+     */
+    public Set<Region> getAllRegions() {
+        return allRegionsView;
+    }
+
+    public List<Region> getRegionsWithEffect(String effectKey) {
+        return keyIndex.getRegionsWithEffect(effectKey);
+    }
+
+    public List<Region> getRegionsWithEffect(UUID worldUuid, String effectKey) {
+        return keyIndex.getRegionsWithEffect(worldUuid, effectKey);
+    }
+
+    /**
+     * @return the region with the effect closest to the location in the same world, or null
+     */
+    public Region getNearestRegionWithEffect(Location location, String effectKey) {
+        return keyIndex.getNearestRegionWithEffect(location, effectKey);
+    }
+
+    /**
+     * @return a read-only view of the regions whose region type has the effect, including
+     * inactive ones
+     */
+    public Set<Region> getRegionsWithTypeEffect(String effectKey) {
+        return keyIndex.getRegionsWithTypeEffect(effectKey);
+    }
+
+    /**
+     * @return a read-only view of the regions of that type
+     */
+    public Set<Region> getRegionsOfType(String type) {
+        return keyIndex.getRegionsOfType(type);
+    }
+
+    /**
+     * @return a read-only view of the regions whose type is in that group
+     */
+    public Set<Region> getRegionsInGroup(String group) {
+        return keyIndex.getRegionsInGroup(group);
     }
 
     public void removeRegion(Region region, boolean broadcast, boolean checkCritReqs) {
@@ -203,17 +288,17 @@ public class RegionManager {
     }
 
     private void broadcastRegionDestroyed(Region region) {
+        List<Player> nearbyPlayers = new ArrayList<>();
         for (Player player : Bukkit.getOnlinePlayers()) {
             if (region.getLocation().getWorld() == null ||
                     !region.getLocation().getWorld().equals(player.getWorld())) {
                 continue;
             }
             if (player.getLocation().distance(region.getLocation()) < 25) {
-                player.sendMessage(Civs.getPrefix() +
-                        LocaleManager.getInstance().getTranslationWithPlaceholders(player, "region-destroyed")
-                                .replace("$1", region.getType()));
+                nearbyPlayers.add(player);
             }
         }
+        LocaleManager.getInstance().broadcast(nearbyPlayers, Civs.getPrefix(), "region-destroyed", region.getType());
     }
 
     private void removeRegion(Region region) {
@@ -221,18 +306,14 @@ public class RegionManager {
             entry.getValue().remove(region);
         }
         regionLocations.remove(region.getId());
-        File dataFolder = new File(Civs.dataLocation, Constants.REGIONS);
-        if (!dataFolder.exists()) {
-            dataFolder.mkdir();
-        }
+        allRegions.remove(region);
+        regionIndex.remove(region);
+        keyIndex.remove(region);
+        MembershipIndex.getInstance().removeRegion(region);
+        CommonScheduler.removeRegionOccupants(region);
+        needsSaving.remove(region);
         Civs.logger.info(region.getType() + "@" + region.getId() + " was removed.");
-        File regionFile = new File(dataFolder, region.getId() + ".yml");
-        if (!regionFile.exists()) {
-            return;
-        }
-        if (!regionFile.delete()) {
-            Civs.logger.log(Level.SEVERE, "Unable to delete file {0}.yml", region.getId());
-        }
+        getRegionStore().delete(region.getId());
     }
 
     public void saveRegion(Region region) {
@@ -243,56 +324,32 @@ public class RegionManager {
         return needsSaving.size();
     }
 
-    public void saveNextRegion() {
-        Region r = null;
-        if (!needsSaving.isEmpty()) {
-            r = needsSaving.iterator().next();
-            saveRegionNow(r);
-            while (needsSaving.contains(r)) {
-                needsSaving.remove(r);
-            }
+    public void queueUnsavedRegions() {
+        for (Region region : needsSaving) {
+            saveRegionNow(region);
         }
+        needsSaving.clear();
     }
 
     public void saveAllUnsavedRegions() {
-        for (Region region : new HashSet<>(needsSaving)) {
-            saveRegionNow(region);
+        queueUnsavedRegions();
+        if (Civs.getInstance() != null) {
+            getRegionStore().flush();
         }
-        needsSaving.clear();
     }
 
     private static void saveRegionNow(Region region) {
         if (Civs.getInstance() == null) {
             return;
         }
-        if (ConfigManager.getInstance().isDebugLog()) {
-            DebugLogger.saves++;
-        }
-        File regionFolder = new File(Civs.dataLocation, Constants.REGIONS);
-        if (!regionFolder.exists()) {
-            boolean folderCreated = regionFolder.mkdir();
-            if (!folderCreated) {
-                Civs.logger.log(Level.SEVERE, "Unable to create {0} folder", Constants.REGIONS);
-                return;
-            }
-        }
-        File regionFile = new File(regionFolder, region.getId() + ".yml");
-        if (!regionFile.exists()) {
-            try {
-                boolean fileCreated = regionFile.createNewFile();
-                if (!fileCreated) {
-                    Civs.logger.severe("Unable to create " + region.getId() + ".yml");
-                    return;
-                }
-            } catch (IOException ioexception) {
-                Civs.logger.severe("Unable to create " + region.getId() + ".yml");
-                return;
-            }
+        SAVES.increment();
+        FileConfiguration regionConfig = createRegionConfig(region);
+        if (regionConfig != null) {
+            getInstance().getRegionStore().save(region.getId(), regionConfig);
         }
-        saveRegionToFile(region, regionFile);
     }
 
-    private static void saveRegionToFile(Region region, File regionFile) {
+    static FileConfiguration createRegionConfig(Region region) {
         FileConfiguration regionConfig = new YamlConfiguration();
         try {
             regionConfig.set("location", region.getId());
@@ -323,18 +380,17 @@ public class RegionManager {
             } else {
                 regionConfig.set(ActiveEffect.LAST_ACTIVE_KEY, null);
             }
-            regionConfig.save(regionFile);
         } catch (Exception e) {
             Civs.logger.severe("Unable to write to " + region.getId() + ".yml");
+            return null;
         }
+        return regionConfig;
     }
 
     @SuppressWarnings("unchecked")
-    private Region loadRegion(File regionFile) {
-        FileConfiguration regionConfig = new YamlConfiguration();
+    Region loadRegion(FileConfiguration regionConfig, String id) {
         Region region;
         try {
-            regionConfig.load(regionFile);
             int[] radii = new int[6];
             radii[0] = regionConfig.getInt("xp-radius");
             radii[1] = regionConfig.getInt("zp-radius");
@@ -378,7 +434,7 @@ public class RegionManager {
                 }
             }
         } catch (Exception e) {
-            Civs.logger.log(Level.SEVERE, "Unable to read " + regionFile.getName(), e);
+            Civs.logger.log(Level.SEVERE, "Unable to read region " + id, e);
             return null;
         }
         return region;
@@ -396,61 +452,16 @@ public class RegionManager {
             return null;
         }
         UUID worldUuid = location.getWorld().getUID();
-        if (regions.get(worldUuid) == null || regions.get(worldUuid).isEmpty()) {
-            return null;
-        }
-
-        double maxdex = regions.get(worldUuid).size() - 1d;
-        return treeSort(maxdex, worldUuid, location);
-    }
-
-    private Region treeSort(double maxdex, UUID worldUuid, Location location) {
-        int index;
-        double mindex = 0;
-        double prevIndex = -5;
-        double prevDiff = 999999;
-        boolean roundUp = false;
-        for (;;) {
-            if (roundUp) {
-                index = (int) Math.ceil(((maxdex - mindex) / 2) + mindex);
-            } else {
-                index = (int) Math.floor(((maxdex - mindex) / 2) + mindex);
-            }
-            Region r = regions.get(worldUuid).get(index);
-
-            if (withinRegion(r, location)) {
-                return r;
-            } else if (location.getX() < r.getLocation().getX() - r.getRadiusXN()) {
-                maxdex = index;
-                roundUp = false;
-            } else if (location.getX() > r.getLocation().getX() + r.getRadiusXN()) {
-                mindex = index;
-                roundUp = true;
-            } else {
-                return findRegion((int) mindex, (int) maxdex, location, index);
-            }
-            if (prevIndex == index || prevDiff == Math.abs(maxdex - mindex)) {
-                return null;
+        for (Region region : regionIndex.getBuildBucket(worldUuid, location.getX(), location.getZ())) {
+            if (withinRegion(region, location)) {
+                return region;
             }
-            prevDiff = Math.abs(maxdex - mindex);
-            prevIndex = index;
         }
+        return null;
     }
 
-    private Region findRegion(int index1, int index2, Location location, int index) {
-        if (location.getWorld() == null) {
-            return null;
-        }
-        UUID worldUuid = location.getWorld().getUID();
-        for (int i=index1; i<=index2; i++) {
-            if (i==index) {
-                continue;
-            }
-            if (withinRegion(regions.get(worldUuid).get(i), location)) {
-                return regions.get(worldUuid).get(i);
-            }
-        }
-        return null;
+    public List<Region> getRegionsInChunk(UUID worldUuid, int chunkX, int chunkZ) {
+        return regionIndex.getBuildBucket(worldUuid, chunkX << 4, chunkZ << 4);
     }
 
     private boolean withinRegion(Region region, Location location) {
@@ -705,12 +716,12 @@ public class RegionManager {
         }
         Map<UUID, String> people;
         if (rebuildRegion != null) {
-            people = rebuildRegion.getPeople();
+            people = new HashMap<>(rebuildRegion.getPeople());
             if (Civs.econ != null && people.containsKey(player.getUniqueId()) &&
                     !people.get(player.getUniqueId()).contains("ally") &&
                     !regionType.isRebuildRequired()) {
                 RegionType rebuildRegionType = (RegionType) ItemManager.getInstance().getItemType(rebuildRegion.getType());
-                Civs.econ.depositPlayer(player, rebuildRegionType.getPrice() / 2);
+                EconomyLedger.getInstance().depositNow(player, rebuildRegionType.getPrice() / 2);
             }
             removeRegion(rebuildRegion, false, false);
         } else {
@@ -877,31 +888,32 @@ public class RegionManager {
     }
 
     public Set<Region> getRegionsXYZ(Location location, RegionPoints regionPoints, boolean useEffects) {
-        UUID worldUuid = location.getWorld().getUID();
         HashSet<Region> returnRegions = new HashSet<>();
-        if (this.regions.get(worldUuid) == null) {
+        if (location.getWorld() == null) {
             return returnRegions;
         }
-        for (int i = this.regions.get(worldUuid).size() - 1; i>-1; i--) {
-            Region region = this.regions.get(worldUuid).get(i);
-            RegionType regionType = (RegionType) ItemManager.getInstance().getItemType(region.getType());
-            if (!useEffects) {
-                boolean withinX = location.getX() > region.getLocation().getX() - region.getRadiusXN() - regionPoints.getRadiusXP() &&
-                        location.getX() < region.getLocation().getX() + region.getRadiusXP() + regionPoints.getRadiusXN();
-                boolean withinY = location.getY() > region.getLocation().getY() - region.getRadiusYN() - regionPoints.getRadiusYP() &&
-                        location.getY() < region.getLocation().getY() + region.getRadiusYP() + regionPoints.getRadiusYN();
-                boolean withinZ = location.getZ() > region.getLocation().getZ() - region.getRadiusZN() - regionPoints.getRadiusZP() &&
-                        location.getZ() < region.getLocation().getZ() + region.getRadiusZP() + regionPoints.getRadiusZN();
-
-                if (withinX && withinY && withinZ) {
-                    returnRegions.add(region);
-                    continue;
-                }
-                if (location.getX() > region.getLocation().getX() - region.getRadiusXN() + regionPoints.getRadiusXN()) {
-                    break;
+        UUID worldUuid = location.getWorld().getUID();
+        List<List<Region>> buckets = regionIndex.getBuckets(worldUuid,
+                location.getX() - regionPoints.getRadiusXN(), location.getX() + regionPoints.getRadiusXP(),
+                location.getZ() - regionPoints.getRadiusZN(), location.getZ() + regionPoints.getRadiusZP(),
+                useEffects);
+        for (List<Region> bucket : buckets) {
+            for (Region region : bucket) {
+                if (!useEffects) {
+                    boolean withinX = location.getX() > region.getLocation().getX() - region.getRadiusXN() - regionPoints.getRadiusXP() &&
+                            location.getX() < region.getLocation().getX() + region.getRadiusXP() + regionPoints.getRadiusXN();
+                    boolean withinY = location.getY() > region.getLocation().getY() - region.getRadiusYN() - regionPoints.getRadiusYP() &&
+                            location.getY() < region.getLocation().getY() + region.getRadiusYP() + regionPoints.getRadiusYN();
+                    boolean withinZ = location.getZ() > region.getLocation().getZ() - region.getRadiusZN() - regionPoints.getRadiusZP() &&
+                            location.getZ() < region.getLocation().getZ() + region.getRadiusZP() + regionPoints.getRadiusZN();
+
+                    if (withinX && withinY && withinZ) {
+                        returnRegions.add(region);
+                    }
+                } else {
+                    RegionType regionType = (RegionType) ItemManager.getInstance().getItemType(region.getType());
+                    addRegionWithinBounds(location, regionPoints, returnRegions, region, regionType);
                 }
-            } else {
-                addRegionWithinBounds(location, regionPoints, returnRegions, region, regionType);
             }
         }
         return returnRegions;
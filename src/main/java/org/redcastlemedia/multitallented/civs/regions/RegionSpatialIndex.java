@@ -0,0 +1,156 @@
+package org.redcastlemedia.multitallented.civs.regions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.redcastlemedia.multitallented.civs.items.ItemManager;
+import org.redcastlemedia.multitallented.civs.protections.ProtectionMap;
+
+/**
+ * Buckets regions by every chunk their bounds overlap so that lookups only look at
+ * regions near the location. Build bounds and effect bounds are kept in separate
+ * buckets because the effect radius is usually much larger than the build radius.
+ */
+class RegionSpatialIndex {
+    private static final int CHUNK_SHIFT = 4;
+
+    private final HashMap<UUID, HashMap<Long, List<Region>>> buildBuckets = new HashMap<>();
+    private final HashMap<UUID, HashMap<Long, List<Region>>> effectBuckets = new HashMap<>();
+    private final HashMap<Region, int[]> buildChunks = new HashMap<>();
+    private final HashMap<Region, int[]> effectChunks = new HashMap<>();
+
+    void clear() {
+        buildBuckets.clear();
+        effectBuckets.clear();
+        buildChunks.clear();
+        effectChunks.clear();
+        ProtectionMap.getInstance().clear();
+    }
+
+    void add(Region region) {
+        Location location = region.getLocation();
+        UUID worldUuid = location.getWorld().getUID();
+        int[] build = toChunkBounds(location.getX() - region.getRadiusXN(), location.getX() + region.getRadiusXP(),
+                location.getZ() - region.getRadiusZN(), location.getZ() + region.getRadiusZP());
+        insert(buildBuckets, worldUuid, region, build);
+        buildChunks.put(region, build);
+        ProtectionMap.getInstance().invalidate(worldUuid, build[0], build[1], build[2], build[3]);
+
+        int effectRadius = getEffectRadius(region);
+        int[] effect = toChunkBounds(location.getX() - effectRadius, location.getX() + effectRadius,
+                location.getZ() - effectRadius, location.getZ() + effectRadius);
+        insert(effectBuckets, worldUuid, region, effect);
+        effectChunks.put(region, effect);
+    }
+
+    void remove(Region region) {
+        if (region.getLocation().getWorld() == null) {
+            return;
+        }
+        UUID worldUuid = region.getLocation().getWorld().getUID();
+        int[] build = buildChunks.remove(region);
+        if (build != null) {
+            erase(buildBuckets, worldUuid, region, build);
+            ProtectionMap.getInstance().invalidate(worldUuid, build[0], build[1], build[2], build[3]);
+        }
+        int[] effect = effectChunks.remove(region);
+        if (effect != null) {
+            erase(effectBuckets, worldUuid, region, effect);
+        }
+    }
+
+    List<Region> getBuildBucket(UUID worldUuid, double x, double z) {
+        HashMap<Long, List<Region>> worldBuckets = buildBuckets.get(worldUuid);
+        if (worldBuckets == null) {
+            return Collections.emptyList();
+        }
+        List<Region> bucket = worldBuckets.get(chunkKey(toChunk(x), toChunk(z)));
+        return bucket == null ? Collections.<Region>emptyList() : bucket;
+    }
+
+    List<List<Region>> getBuckets(UUID worldUuid, double minX, double maxX,
+                                  double minZ, double maxZ, boolean useEffects) {
+        HashMap<Long, List<Region>> worldBuckets = useEffects ? effectBuckets.get(worldUuid) :
+                buildBuckets.get(worldUuid);
+        if (worldBuckets == null || worldBuckets.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<List<Region>> buckets = new ArrayList<>();
+        int minChunkX = toChunk(minX);
+        int maxChunkX = toChunk(maxX);
+        int minChunkZ = toChunk(minZ);
+        int maxChunkZ = toChunk(maxZ);
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                List<Region> bucket = worldBuckets.get(chunkKey(chunkX, chunkZ));
+                if (bucket != null) {
+                    buckets.add(bucket);
+                }
+            }
+        }
+        return buckets;
+    }
+
+    private static int getEffectRadius(Region region) {
+        RegionType regionType = (RegionType) ItemManager.getInstance().getItemType(region.getType());
+        return regionType == null ? 0 : regionType.getEffectRadius();
+    }
+
+    private static void insert(HashMap<UUID, HashMap<Long, List<Region>>> buckets, UUID worldUuid,
+                               Region region, int[] chunks) {
+        HashMap<Long, List<Region>> worldBuckets = buckets.get(worldUuid);
+        if (worldBuckets == null) {
+            worldBuckets = new HashMap<>();
+            buckets.put(worldUuid, worldBuckets);
+        }
+        for (int chunkX = chunks[0]; chunkX <= chunks[1]; chunkX++) {
+            for (int chunkZ = chunks[2]; chunkZ <= chunks[3]; chunkZ++) {
+                long key = chunkKey(chunkX, chunkZ);
+                List<Region> bucket = worldBuckets.get(key);
+                if (bucket == null) {
+                    bucket = new ArrayList<>(2);
+                    worldBuckets.put(key, bucket);
+                }
+                bucket.add(region);
+            }
+        }
+    }
+
+    private static void erase(HashMap<UUID, HashMap<Long, List<Region>>> buckets, UUID worldUuid,
+                              Region region, int[] chunks) {
+        HashMap<Long, List<Region>> worldBuckets = buckets.get(worldUuid);
+        if (worldBuckets == null) {
+            return;
+        }
+        for (int chunkX = chunks[0]; chunkX <= chunks[1]; chunkX++) {
+            for (int chunkZ = chunks[2]; chunkZ <= chunks[3]; chunkZ++) {
+                long key = chunkKey(chunkX, chunkZ);
+                List<Region> bucket = worldBuckets.get(key);
+                if (bucket == null) {
+                    continue;
+                }
+                bucket.remove(region);
+                if (bucket.isEmpty()) {
+                    worldBuckets.remove(key);
+                }
+            }
+        }
+    }
+
+    // Padded by a block on each side since region bounds are checked against the block center
+    private static int[] toChunkBounds(double minX, double maxX, double minZ, double maxZ) {
+        return new int[] { toChunk(minX - 1), toChunk(maxX + 1), toChunk(minZ - 1), toChunk(maxZ + 1) };
+    }
+
+    static int toChunk(double coordinate) {
+        return ((int) Math.floor(coordinate)) >> CHUNK_SHIFT;
+    }
+
+    static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,86 @@
+package org.redcastlemedia.multitallented.civs.regions;
+
+import java.io.File;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.redcastlemedia.multitallented.civs.Civs;
+import org.redcastlemedia.multitallented.civs.util.Constants;
+
+/**
+ * Where region data gets persisted. Each region is stored as the same config that
+ * used to be its regions/id.yml file. Saves may be written in the background, so
+ * {@link #load(String)} has to return writes that are still queued.
+ */
+public interface RegionStore {
+    String YAML = "yaml";
+    String LOG = "log";
+
+    /**
+     * @return every stored region config keyed by region id
+     */
+    Map<String, FileConfiguration> loadAll();
+
+    /**
+     * @return a copy of the stored config for the region, or null if there is none
+     */
+    FileConfiguration load(String id);
+
+    void save(String id, FileConfiguration config);
+
+    void delete(String id);
+
+    /**
+     * Blocks until all saves and deletes so far have been written.
+     */
+    void flush();
+
+    void close();
+
+    /**
+     * Opens the store selected by region-storage in the config. If the data is still
+     * in the other format it gets converted once and the old data is renamed, not deleted.
+     */
+    static RegionStore open(String type, File dataFolder) {
+        File yamlFolder = new File(dataFolder, Constants.REGIONS);
+        File logFile = new File(dataFolder, LogRegionStore.FILE_NAME);
+        if (LOG.equalsIgnoreCase(type)) {
+            LogRegionStore logStore = new LogRegionStore(logFile);
+            String[] yamlFiles = yamlFolder.list();
+            if (!logFile.exists() && yamlFiles != null && yamlFiles.length > 0) {
+                copy(new YamlRegionStore(yamlFolder), logStore);
+                retire(yamlFolder, new File(dataFolder, Constants.REGIONS + "-migrated"));
+            }
+            return logStore;
+        }
+        YamlRegionStore yamlStore = new YamlRegionStore(yamlFolder);
+        if (logFile.exists()) {
+            LogRegionStore logStore = new LogRegionStore(logFile);
+            copy(logStore, yamlStore);
+            logStore.close();
+            // An invalid log has already been moved aside by loadAll
+            if (logFile.exists()) {
+                retire(logFile, new File(dataFolder, LogRegionStore.FILE_NAME + ".exported"));
+            }
+        }
+        return yamlStore;
+    }
+
+    static int copy(RegionStore from, RegionStore to) {
+        Map<String, FileConfiguration> regionConfigs = from.loadAll();
+        for (Map.Entry<String, FileConfiguration> entry : regionConfigs.entrySet()) {
+            to.save(entry.getKey(), entry.getValue());
+        }
+        to.flush();
+        Civs.logger.log(Level.INFO, "Converted {0} regions to the new region storage", regionConfigs.size());
+        return regionConfigs.size();
+    }
+
+    static void retire(File oldData, File renamedData) {
+        if (!oldData.renameTo(renamedData)) {
+            Civs.logger.log(Level.SEVERE, "Unable to rename {0} after converting it, remove it manually",
+                    oldData.getName());
+        }
+    }
+}
@@ -19,6 +19,7 @@ public class RegionType extends CivItem {
 
     private final String name;
     private final List<List<CVItem>> reqs;
+    private BuildRequirements buildRequirements = null;
 
     private final HashMap<String, String> effects;
 
@@ -110,6 +111,12 @@ public class RegionType extends CivItem {
     public List<List<CVItem>> getReqs() {
         return cloneReqMap(reqs);
     }
+    BuildRequirements getBuildRequirements() {
+        if (buildRequirements == null) {
+            buildRequirements = new BuildRequirements(reqs);
+        }
+        return buildRequirements;
+    }
     public HashMap<String, String> getEffects() {
         return effects;
     }
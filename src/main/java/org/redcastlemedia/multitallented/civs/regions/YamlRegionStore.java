@@ -0,0 +1,87 @@
+package org.redcastlemedia.multitallented.civs.regions;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.redcastlemedia.multitallented.civs.Civs;
+import org.redcastlemedia.multitallented.civs.util.ParallelConfigLoader;
+import org.redcastlemedia.multitallented.civs.util.PersistenceQueue;
+
+/**
+ * The original layout, one regions/id.yml file per region.
+ */
+class YamlRegionStore implements RegionStore {
+    private final File regionFolder;
+
+    YamlRegionStore(File regionFolder) {
+        this.regionFolder = regionFolder;
+    }
+
+    @Override
+    public Map<String, FileConfiguration> loadAll() {
+        Map<String, FileConfiguration> regionConfigs = new LinkedHashMap<>();
+        if (!regionFolder.exists()) {
+            regionFolder.mkdir();
+            return regionConfigs;
+        }
+        for (ParallelConfigLoader.ParsedConfig parsedConfig : ParallelConfigLoader.parseFolder(regionFolder)) {
+            if (parsedConfig.getConfig() == null) {
+                Civs.logger.log(Level.SEVERE, "Unable to read " + parsedConfig.getFile().getName(),
+                        parsedConfig.getError());
+                continue;
+            }
+            regionConfigs.put(parsedConfig.getName(), parsedConfig.getConfig());
+        }
+        return regionConfigs;
+    }
+
+    @Override
+    public FileConfiguration load(String id) {
+        File regionFile = getFile(id);
+        FileConfiguration config = new YamlConfiguration();
+        try {
+            FileConfiguration pending = PersistenceQueue.getInstance().getPending(regionFile);
+            if (pending == PersistenceQueue.DELETED) {
+                return null;
+            } else if (pending != null) {
+                config.loadFromString(pending.saveToString());
+            } else if (regionFile.exists()) {
+                config.load(regionFile);
+            } else {
+                return null;
+            }
+        } catch (Exception e) {
+            Civs.logger.log(Level.SEVERE, "Unable to read " + regionFile.getName(), e);
+            return null;
+        }
+        return config;
+    }
+
+    @Override
+    public void save(String id, FileConfiguration config) {
+        PersistenceQueue.getInstance().write(getFile(id), config);
+    }
+
+    @Override
+    public void delete(String id) {
+        PersistenceQueue.getInstance().delete(getFile(id));
+    }
+
+    @Override
+    public void flush() {
+        PersistenceQueue.getInstance().flush();
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private File getFile(String id) {
+        return new File(regionFolder, id + ".yml");
+    }
+}
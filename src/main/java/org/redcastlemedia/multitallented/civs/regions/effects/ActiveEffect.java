@@ -1,25 +1,28 @@
 package org.redcastlemedia.multitallented.civs.regions.effects;
 
-import org.bukkit.Bukkit;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
-import org.redcastlemedia.multitallented.civs.Civs;
 import org.redcastlemedia.multitallented.civs.events.PlayerInRegionEvent;
 import org.redcastlemedia.multitallented.civs.events.RegionTickEvent;
 import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
+import org.redcastlemedia.multitallented.civs.scheduler.RegionTickUtil;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 
-public class ActiveEffect implements Listener {
+public class ActiveEffect implements Listener, RegionTickListener {
 
     public static final String LAST_ACTIVE_KEY = "last-active";
     public static final String KEY = "active";
 
     public static void getInstance() {
-        Bukkit.getPluginManager().registerEvents(new ActiveEffect(), Civs.getInstance());
+        ActiveEffect activeEffect = new ActiveEffect();
+        Metrics.registerEvents(activeEffect);
+        RegionTickUtil.addRegionTickListener(KEY, activeEffect);
+        RegionTickUtil.addEveryCycleEffect(KEY);
     }
 
-    @EventHandler
-    public void onRegionTick(RegionTickEvent event) {
+    @Override
+    public void regionTickHandler(RegionTickEvent event) {
         if (!event.getRegion().getEffects().containsKey(KEY)) {
             return;
         }
@@ -16,6 +16,7 @@ import org.redcastlemedia.multitallented.civs.civilians.CivilianManager;
 import org.redcastlemedia.multitallented.civs.events.TwoSecondEvent;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
 import java.util.ArrayList;
@@ -35,7 +36,7 @@ public class AntiCampEffect implements Listener {
 
     public static void getInstance() {
         AntiCampEffect antiCampEffect = new AntiCampEffect();
-        Bukkit.getPluginManager().registerEvents(antiCampEffect, Civs.getInstance());
+        Metrics.registerEvents(antiCampEffect);
     }
 
     public static boolean canActivateAntiCamp(UUID uuid, Town town) {
@@ -24,8 +24,11 @@ import org.redcastlemedia.multitallented.civs.items.CVInventory;
 import org.redcastlemedia.multitallented.civs.items.UnloadedInventoryHandler;
 import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
+import org.redcastlemedia.multitallented.civs.scheduler.RegionTickUtil;
 import org.redcastlemedia.multitallented.civs.spells.effects.DamageEffect;
 import org.redcastlemedia.multitallented.civs.items.CVItem;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
+import org.redcastlemedia.multitallented.civs.util.NearbyEntityCache;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
 import java.util.*;
@@ -33,17 +36,20 @@ import java.util.*;
 import static org.redcastlemedia.multitallented.civs.util.Util.isLocationWithinSightOfPlayer;
 
 @CivsSingleton
-public class ArrowTurret implements Listener {
+public class ArrowTurret implements Listener, RegionTickListener {
     public static String KEY = "arrow_turret";
     public static HashMap<Arrow, Integer> arrowDamages = new HashMap<>();
 
     public static void getInstance() {
-        Bukkit.getPluginManager().registerEvents(new ArrowTurret(), Civs.getInstance());
+        ArrowTurret arrowTurret = new ArrowTurret();
+        Metrics.registerEvents(arrowTurret);
+        RegionTickUtil.addRegionTickListener(KEY, arrowTurret);
+        RegionTickUtil.addEveryCycleEffect(KEY);
     }
 
     //Shoot arrows at mobs
-    @EventHandler
-    public void onRegionTickEvent(RegionTickEvent event) {
+    @Override
+    public void regionTickHandler(RegionTickEvent event) {
         if (ConfigManager.getInstance().getDenyArrowTurretShootAtMobs() ||
                 !isLocationWithinSightOfPlayer(event.getRegion().getLocation())) {
             return;
@@ -55,12 +61,11 @@ public class ArrowTurret implements Listener {
         RegionType regionType = event.getRegionType();
         Location location = region.getLocation();
 
-        for (Entity e : location.getWorld().getNearbyEntities(location, regionType.getEffectRadius(),
-                regionType.getEffectRadius(), regionType.getEffectRadius())) {
-            if ((!(e instanceof Monster) && !(e instanceof Phantom))) {
+        for (LivingEntity monster : NearbyEntityCache.getNearbyEntities(location, regionType.getEffectRadius(),
+                regionType.getEffectRadius(), regionType.getEffectRadius(), LivingEntity.class)) {
+            if ((!(monster instanceof Monster) && !(monster instanceof Phantom))) {
                 continue;
             }
-            LivingEntity monster = (LivingEntity) e;
             if (monster.getLocation().distance(location) > regionType.getEffectRadius()) {
                 continue;
             }
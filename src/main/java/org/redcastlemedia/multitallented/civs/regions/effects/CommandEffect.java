@@ -16,6 +16,7 @@ import org.redcastlemedia.multitallented.civs.events.PlayerExitTownEvent;
 import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownType;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 
 @CivsSingleton
 public class CommandEffect implements Listener {
@@ -23,7 +24,7 @@ public class CommandEffect implements Listener {
     public static final String EXIT_KEY = "exit_command";
 
     public static void getInstance() {
-        Bukkit.getPluginManager().registerEvents(new CommandEffect(), Civs.getInstance());
+        Metrics.registerEvents(new CommandEffect());
     }
 
     @EventHandler(priority = EventPriority.LOW)
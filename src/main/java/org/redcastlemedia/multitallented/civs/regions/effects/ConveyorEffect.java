@@ -1,6 +1,5 @@
 package org.redcastlemedia.multitallented.civs.regions.effects;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -17,9 +16,7 @@ import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.event.world.ChunkUnloadEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
-import org.redcastlemedia.multitallented.civs.Civs;
 import org.redcastlemedia.multitallented.civs.CivsSingleton;
-import org.redcastlemedia.multitallented.civs.ConfigManager;
 import org.redcastlemedia.multitallented.civs.events.RegionDestroyedEvent;
 import org.redcastlemedia.multitallented.civs.events.RegionTickEvent;
 import org.redcastlemedia.multitallented.civs.events.TwoSecondEvent;
@@ -29,7 +26,8 @@ import org.redcastlemedia.multitallented.civs.items.UnloadedInventoryHandler;
 import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
-import org.redcastlemedia.multitallented.civs.util.DebugLogger;
+import org.redcastlemedia.multitallented.civs.scheduler.RegionTickUtil;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
 import java.util.*;
@@ -37,7 +35,8 @@ import java.util.*;
 import static org.redcastlemedia.multitallented.civs.util.Util.isLocationWithinSightOfPlayer;
 
 @CivsSingleton
-public class ConveyorEffect implements Listener, RegionCreatedListener {
+public class ConveyorEffect implements Listener, RegionCreatedListener, RegionTickListener {
+    private static final Metrics.Counter INVENTORY_MODIFICATIONS = Metrics.counter("inventory-modifications");
     private static ConveyorEffect instance = null;
     private HashMap<Region, StorageMinecart> carts = new HashMap<>();
     private HashMap<Region, StorageMinecart> orphanCarts = new HashMap<>();
@@ -48,12 +47,14 @@ public class ConveyorEffect implements Listener, RegionCreatedListener {
 
     public ConveyorEffect() {
         RegionManager.getInstance().addRegionCreatedListener(KEY, this);
+        RegionTickUtil.addRegionTickListener(KEY, this);
+        RegionTickUtil.addEveryCycleEffect(KEY);
     }
 
     public static ConveyorEffect getInstance() {
         if (instance == null) {
             instance = new ConveyorEffect();
-            Bukkit.getPluginManager().registerEvents(instance, Civs.getInstance());
+            Metrics.registerEvents(instance);
         }
         return instance;
     }
@@ -129,8 +130,8 @@ public class ConveyorEffect implements Listener, RegionCreatedListener {
         }
     }
 
-    @EventHandler
-    public void onCustomEvent(RegionTickEvent event) {
+    @Override
+    public void regionTickHandler(RegionTickEvent event) {
         if (disabled || !event.getRegion().getEffects().containsKey(KEY) ||
                 !cacheSpawnPoints.containsKey(event.getRegion())) {
             return;
@@ -188,8 +189,8 @@ public class ConveyorEffect implements Listener, RegionCreatedListener {
                 regionInventory.removeItem(is);
             }
             try {
-                if (!iss.isEmpty() && ConfigManager.getInstance().isDebugLog()) {
-                    DebugLogger.inventoryModifications++;
+                if (!iss.isEmpty()) {
+                    INVENTORY_MODIFICATIONS.increment();
                 }
                 for (ItemStack is : iss) {
                     cachedDestinationInventory.addItem(is);
@@ -218,8 +219,8 @@ public class ConveyorEffect implements Listener, RegionCreatedListener {
 
             StorageMinecart cart = loc.getWorld().spawn(loc, StorageMinecart.class);
 
-            if (!iss.isEmpty() && ConfigManager.getInstance().isDebugLog()) {
-                DebugLogger.inventoryModifications++;
+            if (!iss.isEmpty()) {
+                INVENTORY_MODIFICATIONS.increment();
             }
             for (ItemStack is : iss) {
                 cart.getInventory().addItem(is);
@@ -345,17 +346,13 @@ public class ConveyorEffect implements Listener, RegionCreatedListener {
                             sm.getInventory().removeItem(is);
                         }
                     }
-                    if (ConfigManager.getInstance().isDebugLog()) {
-                        DebugLogger.inventoryModifications++;
-                    }
+                    INVENTORY_MODIFICATIONS.increment();
                     sm.getInventory().removeItem(is);
                     destinationInventory.addItem(is);
                     RegionManager.getInstance().removeCheckedRegion(region);
                 } else {
                     sm.getInventory().removeItem(is);
-                    if (ConfigManager.getInstance().isDebugLog()) {
-                        DebugLogger.inventoryModifications++;
-                    }
+                    INVENTORY_MODIFICATIONS.increment();
                     originInv.addItem(is);
                 }
             } catch (NullPointerException npe) {
@@ -15,6 +15,7 @@ import org.redcastlemedia.multitallented.civs.items.ItemManager;
 import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 
 import java.util.HashMap;
 import java.util.UUID;
@@ -25,7 +26,7 @@ public class EvolveEffect implements Listener {
     public static String KEY = "evolve";
 
     public static void getInstance() {
-        Bukkit.getPluginManager().registerEvents(new EvolveEffect(), Civs.getInstance());
+        Metrics.registerEvents(new EvolveEffect());
     }
 
     @EventHandler
@@ -79,6 +80,7 @@ public class EvolveEffect implements Listener {
         r.setExp(0);
         r.setType(regionType.getName());
         r.setEffects((HashMap<String, String>) regionType.getEffects().clone());
+        RegionManager.getInstance().reindexRegion(r);
         RegionManager.getInstance().saveRegion(r);
     }
 }
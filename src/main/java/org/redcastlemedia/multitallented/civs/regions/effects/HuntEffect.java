@@ -24,6 +24,7 @@ import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
 import org.redcastlemedia.multitallented.civs.util.Constants;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
 import java.util.HashMap;
@@ -35,7 +36,7 @@ public class HuntEffect implements Listener, CreateRegionListener {
     public static final String KEY = "hunt";
 
     public static void getInstance() {
-        Bukkit.getPluginManager().registerEvents(new HuntEffect(), Civs.getInstance());
+        Metrics.registerEvents(new HuntEffect());
     }
 
     @Override
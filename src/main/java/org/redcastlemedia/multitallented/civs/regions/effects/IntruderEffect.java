@@ -19,6 +19,7 @@ import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.util.Constants;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 
 import java.util.HashMap;
 
@@ -29,7 +30,7 @@ public class IntruderEffect implements Listener {
     private final static String KEY = "intruder";
 
     public static void getInstance() {
-        Bukkit.getPluginManager().registerEvents(new IntruderEffect(), Civs.getInstance());
+        Metrics.registerEvents(new IntruderEffect());
     }
 
     @EventHandler
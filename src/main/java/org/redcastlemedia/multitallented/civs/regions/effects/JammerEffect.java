@@ -22,6 +22,7 @@ import org.redcastlemedia.multitallented.civs.spells.Vector3D;
 import org.redcastlemedia.multitallented.civs.util.AnnouncementUtil;
 import org.redcastlemedia.multitallented.civs.util.Constants;
 import org.redcastlemedia.multitallented.civs.util.DiscordUtil;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 
 import java.util.HashMap;
 import java.util.UUID;
@@ -33,7 +34,7 @@ public class JammerEffect implements Listener, RegionCreatedListener {
     private static HashMap<UUID, Long> cooldowns = new HashMap<>();
 
     public static void getInstance() {
-        Bukkit.getPluginManager().registerEvents(new JammerEffect(), Civs.getInstance());
+        Metrics.registerEvents(new JammerEffect());
     }
 
     public JammerEffect() {
@@ -71,10 +72,8 @@ public class JammerEffect implements Listener, RegionCreatedListener {
         }
 
         HashMap<Location, Region> jammers = new HashMap<>();
-        for (Region region : RegionManager.getInstance().getAllRegions()) {
-            if (region.getEffects().containsKey(KEY)) {
-                jammers.put(region.getLocation(), region);
-            }
+        for (Region region : RegionManager.getInstance().getRegionsWithEffect(KEY)) {
+            jammers.put(region.getLocation(), region);
         }
 
         Vector3D observerStart = new Vector3D(event.getFrom());
@@ -19,6 +19,7 @@ import org.redcastlemedia.multitallented.civs.events.PlayerExitTownEvent;
 import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownType;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 
 @CivsSingleton @SuppressWarnings("unused")
 public class PermissionEffect implements Listener {
@@ -26,7 +27,7 @@ public class PermissionEffect implements Listener {
     private static final Map<UUID, HashSet<String>> permissionMap = new HashMap<>();
 
     public static void getInstance() {
-        Bukkit.getPluginManager().registerEvents(new PermissionEffect(), Civs.getInstance());
+        Metrics.registerEvents(new PermissionEffect());
     }
 
     @EventHandler
@@ -16,6 +16,7 @@ import org.redcastlemedia.multitallented.civs.events.PlayerInTownEvent;
 import org.redcastlemedia.multitallented.civs.events.RegionDestroyedEvent;
 import org.redcastlemedia.multitallented.civs.events.TownDestroyedEvent;
 import org.redcastlemedia.multitallented.civs.regions.Region;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 
 @CivsSingleton
 public class PotionAreaEffect implements Listener {
@@ -23,7 +24,7 @@ public class PotionAreaEffect implements Listener {
     private static HashMap<String, Long> cooldowns = new HashMap<>();
 
     public static void getInstance() {
-        Bukkit.getPluginManager().registerEvents(new PotionAreaEffect(), Civs.getInstance());
+        Metrics.registerEvents(new PotionAreaEffect());
     }
 
     @EventHandler
@@ -29,6 +29,7 @@ import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.towns.TownType;
 import org.redcastlemedia.multitallented.civs.util.DiscordUtil;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 
 import java.util.HashMap;
 import java.util.Set;
@@ -42,7 +43,7 @@ public class RaidPortEffect implements Listener, CreateRegionListener {
     private HashMap<Town, Long> cooldowns = new HashMap<>();
 
     public static void getInstance() {
-        Bukkit.getPluginManager().registerEvents(new RaidPortEffect(), Civs.getInstance());
+        Metrics.registerEvents(new RaidPortEffect());
     }
 
     public RaidPortEffect() {
@@ -455,10 +456,7 @@ public class RaidPortEffect implements Listener, CreateRegionListener {
     @EventHandler
     public void onRename(RenameTownEvent event) {
         RegionManager rm = RegionManager.getInstance();
-        for (Region r : rm.getAllRegions()) {
-            if (!r.getEffects().containsKey("raid_port")) {
-                continue;
-            }
+        for (Region r : rm.getRegionsWithEffect("raid_port")) {
 
             Sign sign;
             Block b = r.getLocation().getBlock().getRelative(BlockFace.UP);
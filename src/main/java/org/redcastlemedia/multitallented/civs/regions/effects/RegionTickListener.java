@@ -0,0 +1,7 @@
+package org.redcastlemedia.multitallented.civs.regions.effects;
+
+import org.redcastlemedia.multitallented.civs.events.RegionTickEvent;
+
+public interface RegionTickListener {
+    void regionTickHandler(RegionTickEvent event);
+}
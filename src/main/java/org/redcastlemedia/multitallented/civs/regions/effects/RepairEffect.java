@@ -2,7 +2,6 @@ package org.redcastlemedia.multitallented.civs.regions.effects;
 
 import java.util.HashSet;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -18,12 +17,13 @@ import org.redcastlemedia.multitallented.civs.CivsSingleton;
 import org.redcastlemedia.multitallented.civs.localization.LocaleManager;
 import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 
 @CivsSingleton @SuppressWarnings("unused")
 public class RepairEffect implements Listener {
 
     public static void getInstance() {
-        Bukkit.getPluginManager().registerEvents(new RepairEffect(), Civs.getInstance());
+        Metrics.registerEvents(new RepairEffect());
     }
 
     private static final String KEY = "repair";
@@ -24,27 +24,33 @@ import org.redcastlemedia.multitallented.civs.items.ItemManager;
 import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
+import org.redcastlemedia.multitallented.civs.scheduler.RegionTickUtil;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.towns.TownType;
 import org.redcastlemedia.multitallented.civs.util.DiscordUtil;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 @CivsSingleton
-public class SiegeEffect implements Listener, CreateRegionListener {
+public class SiegeEffect implements Listener, CreateRegionListener, RegionTickListener {
     public static String CHARGING_KEY = "charging_drain_power";
     public static String KEY = "drain_power";
 
     public static void getInstance() {
-        Bukkit.getPluginManager().registerEvents(new SiegeEffect(), Civs.getInstance());
+        Metrics.registerEvents(new SiegeEffect());
     }
 
     public SiegeEffect() {
         RegionManager.getInstance().addCreateRegionListener(KEY, this);
         RegionManager.getInstance().addCreateRegionListener(CHARGING_KEY, this);
+        RegionTickUtil.addRegionTickListener(KEY, this);
     }
 
-    @EventHandler
-    public void onCustomEvent(RegionTickEvent event) {
+    @Override
+    public void regionTickHandler(RegionTickEvent event) {
         if (!event.getRegion().getEffects().containsKey(KEY) || !event.isHasUpkeep()) {
             return;
         }
@@ -143,11 +149,9 @@ public class SiegeEffect implements Listener, CreateRegionListener {
 
     @EventHandler
     public void onRename(RenameTownEvent event) {
-        for (Region r : RegionManager.getInstance().getAllRegions()) {
-            if (!r.getEffects().containsKey(KEY) &&
-                    !r.getEffects().containsKey(CHARGING_KEY)) {
-                continue;
-            }
+        Set<Region> siegeRegions = new LinkedHashSet<>(RegionManager.getInstance().getRegionsWithEffect(KEY));
+        siegeRegions.addAll(RegionManager.getInstance().getRegionsWithEffect(CHARGING_KEY));
+        for (Region r : siegeRegions) {
 
             Sign sign;
             Block b = r.getLocation().getBlock().getRelative(BlockFace.UP);
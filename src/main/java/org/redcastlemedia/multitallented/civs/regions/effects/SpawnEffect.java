@@ -1,6 +1,5 @@
 package org.redcastlemedia.multitallented.civs.regions.effects;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
@@ -11,6 +10,8 @@ import org.redcastlemedia.multitallented.civs.CivsSingleton;
 import org.redcastlemedia.multitallented.civs.events.RegionUpkeepEvent;
 import org.redcastlemedia.multitallented.civs.items.ItemManager;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
+import org.redcastlemedia.multitallented.civs.util.NearbyEntityCache;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
 @CivsSingleton
@@ -19,7 +20,7 @@ public class SpawnEffect implements Listener {
     public final String KEY = "spawn";
 
     public static void getInstance() {
-        Bukkit.getPluginManager().registerEvents(new SpawnEffect(), Civs.getInstance());
+        Metrics.registerEvents(new SpawnEffect());
     }
 
     @EventHandler(ignoreCancelled = true)
@@ -51,12 +52,13 @@ public class SpawnEffect implements Listener {
 //                }
 //            }
 //        }
-        if (location.getWorld().getNearbyEntities(location, radius, radius, radius).size() > 5) {
+        if (NearbyEntityCache.getNearbyEntities(location, radius, radius, radius).size() > 5) {
             return;
         }
 
         Location spawnLocation = new Location(location.getWorld(), location.getX(), location.getY() + 1, location.getZ());
 
         location.getWorld().spawnEntity(spawnLocation, entityType);
+        NearbyEntityCache.invalidate(spawnLocation);
     }
 }
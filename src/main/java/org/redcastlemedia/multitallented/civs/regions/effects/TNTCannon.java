@@ -26,6 +26,7 @@ import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
 import org.redcastlemedia.multitallented.civs.util.Constants;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 
 @CivsSingleton
 public class TNTCannon implements Listener, CreateRegionListener {
@@ -34,7 +35,7 @@ public class TNTCannon implements Listener, CreateRegionListener {
     private final HashMap<Location, Long> cooldowns = new HashMap<>();
 
     public static void getInstance() {
-        Bukkit.getPluginManager().registerEvents(new TNTCannon(), Civs.getInstance());
+        Metrics.registerEvents(new TNTCannon());
     }
 
     public TNTCannon() {
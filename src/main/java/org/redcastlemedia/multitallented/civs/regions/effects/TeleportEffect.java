@@ -8,7 +8,6 @@ import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
-import org.redcastlemedia.multitallented.civs.Civs;
 import org.redcastlemedia.multitallented.civs.CivsSingleton;
 import org.redcastlemedia.multitallented.civs.civilians.Civilian;
 import org.redcastlemedia.multitallented.civs.civilians.CivilianManager;
@@ -17,6 +16,7 @@ import org.redcastlemedia.multitallented.civs.menus.MenuManager;
 import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.util.Constants;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
 @CivsSingleton
@@ -24,7 +24,7 @@ public class TeleportEffect implements Listener, RegionCreatedListener {
     public static String KEY = "teleport";
 
     public static void getInstance() {
-        Bukkit.getPluginManager().registerEvents(new TeleportEffect(), Civs.getInstance());
+        Metrics.registerEvents(new TeleportEffect());
     }
 
     public TeleportEffect() {
@@ -87,7 +87,7 @@ public class TeleportEffect implements Listener, RegionCreatedListener {
     }
 
     private static boolean hasPotentialDestinations(Region region) {
-        for (Region currentRegion : RegionManager.getInstance().getAllRegions()) {
+        for (Region currentRegion : RegionManager.getInstance().getRegionsWithEffect(KEY)) {
             if (isPotentialTeleportDestination(region, currentRegion)) {
                 return true;
             }
@@ -1,25 +1,23 @@
 package org.redcastlemedia.multitallented.civs.regions.effects;
 
-import org.bukkit.Bukkit;
-import org.bukkit.event.EventHandler;
-import org.bukkit.event.Listener;
-import org.redcastlemedia.multitallented.civs.Civs;
 import org.redcastlemedia.multitallented.civs.CivsSingleton;
 import org.redcastlemedia.multitallented.civs.events.RegionTickEvent;
+import org.redcastlemedia.multitallented.civs.scheduler.RegionTickUtil;
 
 import java.util.HashMap;
 
 @CivsSingleton
-public class TemporaryEffect implements Listener {
+public class TemporaryEffect implements RegionTickListener {
     public static String KEY = "temporary";
     private HashMap<String, Long> created = new HashMap<>();
 
     public static void getInstance() {
-        Bukkit.getPluginManager().registerEvents(new TemporaryEffect(), Civs.getInstance());
+        RegionTickUtil.addRegionTickListener(KEY, new TemporaryEffect());
+        RegionTickUtil.addEveryCycleEffect(KEY);
     }
 
-    @EventHandler
-    public void onRegionTick(RegionTickEvent event) {
+    @Override
+    public void regionTickHandler(RegionTickEvent event) {
         if (!event.getRegion().getEffects().containsKey(KEY)) {
             return;
         }
@@ -1,11 +1,9 @@
 package org.redcastlemedia.multitallented.civs.regions.effects;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
-import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Villager;
 import org.bukkit.event.EventHandler;
@@ -23,21 +21,24 @@ import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
 import org.redcastlemedia.multitallented.civs.scheduler.CommonScheduler;
+import org.redcastlemedia.multitallented.civs.scheduler.RegionTickUtil;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.towns.TownType;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
+import org.redcastlemedia.multitallented.civs.util.NearbyEntityCache;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
 import java.util.HashMap;
-import java.util.function.Predicate;
 
 @CivsSingleton
-public class VillagerEffect implements CreateRegionListener, DestroyRegionListener, Listener, RegionCreatedListener {
+public class VillagerEffect implements CreateRegionListener, DestroyRegionListener, Listener, RegionCreatedListener,
+        RegionTickListener {
     public static String KEY = "villager";
     protected static HashMap<String, Long> townCooldowns = new HashMap<>();
 
     public static void getInstance() {
-        Bukkit.getPluginManager().registerEvents(new VillagerEffect(), Civs.getInstance());
+        Metrics.registerEvents(new VillagerEffect());
     }
 
     public VillagerEffect() {
@@ -45,10 +46,12 @@ public class VillagerEffect implements CreateRegionListener, DestroyRegionListen
         regionManager.addCreateRegionListener(KEY, this);
         regionManager.addRegionCreatedListener(KEY, this);
         regionManager.addDestroyRegionListener(KEY, this);
+        RegionTickUtil.addRegionTickListener(KEY, this);
+        RegionTickUtil.addEveryCycleEffect(KEY);
     }
 
-    @EventHandler
-    public void onRegionTickEvent(RegionTickEvent event) {
+    @Override
+    public void regionTickHandler(RegionTickEvent event) {
         Region region = event.getRegion();
         if (region.getEffects().containsKey(VillagerEffect.KEY)) {
             VillagerEffect.spawnVillager(region);
@@ -154,32 +157,24 @@ public class VillagerEffect implements CreateRegionListener, DestroyRegionListen
 
             }
         }
-        if (region.getLocation().getWorld().getNearbyEntities(region.getLocation(),
+        if (NearbyEntityCache.getNearbyEntities(region.getLocation(),
                 Math.max(region.getRadiusXN(), region.getRadiusXP()),
                 Math.max(region.getRadiusYN(), region.getRadiusYP()),
                 Math.max(region.getRadiusZN(), region.getRadiusZP()),
-                new Predicate<Entity>() {
-                    @Override
-                    public boolean test(Entity entity) {
-                        return entity instanceof Villager;
-                    }
-                }).size() >= regionVillagerCount) {
+                Villager.class).size() >= regionVillagerCount) {
             return null;
         }
-        villagerCount = town.getLocation().getWorld().getNearbyEntities(town.getLocation(), radius, radiusY, radius,
-                new Predicate<Entity>() {
-                    @Override
-                    public boolean test(Entity entity) {
-                        return entity instanceof Villager;
-                    }
-                }).size();
+        villagerCount = NearbyEntityCache.getNearbyEntities(town.getLocation(), radius, radiusY, radius,
+                Villager.class).size();
 
         townCooldowns.put(town.getName(), System.currentTimeMillis());
         if (town.getVillagers() <= villagerCount) {
             return null;
         }
 
-        return region.getLocation().getWorld().spawn(region.getLocation().add(0, 0.5, 0), Villager.class);
+        Villager villager = region.getLocation().getWorld().spawn(region.getLocation().add(0, 0.5, 0), Villager.class);
+        NearbyEntityCache.invalidate(region.getLocation());
+        return villager;
     }
 
     @EventHandler
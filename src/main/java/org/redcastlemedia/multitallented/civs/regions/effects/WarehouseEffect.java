@@ -1,6 +1,5 @@
 package org.redcastlemedia.multitallented.civs.regions.effects;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -15,7 +14,6 @@ import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
@@ -23,7 +21,6 @@ import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.inventory.ItemStack;
 import org.redcastlemedia.multitallented.civs.Civs;
 import org.redcastlemedia.multitallented.civs.CivsSingleton;
-import org.redcastlemedia.multitallented.civs.ConfigManager;
 import org.redcastlemedia.multitallented.civs.events.RegionDestroyedEvent;
 import org.redcastlemedia.multitallented.civs.events.RegionTickEvent;
 import org.redcastlemedia.multitallented.civs.items.CVInventory;
@@ -32,16 +29,19 @@ import org.redcastlemedia.multitallented.civs.items.ItemManager;
 import org.redcastlemedia.multitallented.civs.items.UnloadedInventoryHandler;
 import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
+import org.redcastlemedia.multitallented.civs.regions.RegionStore;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
 import org.redcastlemedia.multitallented.civs.regions.RegionUpkeep;
+import org.redcastlemedia.multitallented.civs.scheduler.RegionTickUtil;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.util.Constants;
-import org.redcastlemedia.multitallented.civs.util.DebugLogger;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
 @CivsSingleton
-public class WarehouseEffect implements Listener, RegionCreatedListener {
+public class WarehouseEffect implements Listener, RegionCreatedListener, RegionTickListener {
+    private static final Metrics.Counter INVENTORY_MODIFICATIONS = Metrics.counter("inventory-modifications");
     public static final String KEY = "warehouse";
     private static final String UNABLE_TO_SAVE_CHEST = "Unable to save new chest for {0}.yml";
     public Map<Region, List<CVInventory>> invs = new HashMap<>();
@@ -51,13 +51,15 @@ public class WarehouseEffect implements Listener, RegionCreatedListener {
     public static WarehouseEffect getInstance() {
         if (instance == null) {
             instance = new WarehouseEffect();
-            Bukkit.getPluginManager().registerEvents(instance, Civs.getInstance());
+            Metrics.registerEvents(instance);
         }
         return instance;
     }
 
     public WarehouseEffect() {
         RegionManager.getInstance().addRegionCreatedListener(KEY, this);
+        RegionTickUtil.addRegionTickListener(KEY, this);
+        RegionTickUtil.addEveryCycleEffect(KEY);
     }
 
     @EventHandler(ignoreCancelled = true)
@@ -77,25 +79,15 @@ public class WarehouseEffect implements Listener, RegionCreatedListener {
         }
 
 
-        File dataFolder = new File(Civs.dataLocation, Constants.REGIONS);
-        if (!dataFolder.exists()) {
-            return;
-        }
-        File dataFile = new File(dataFolder, r.getId() + ".yml");
-        if (!dataFile.exists()) {
-            return;
-        }
-        FileConfiguration config = new YamlConfiguration();
-        try {
-            config.load(dataFile);
-            List<String> locationList = config.getStringList(Constants.CHESTS);
-            locationList.add(Region.locationToString(l));
-            config.set(Constants.CHESTS, locationList);
-            config.save(dataFile);
-        } catch (Exception e) {
-            Civs.logger.log(Level.WARNING, UNABLE_TO_SAVE_CHEST, r.getId());
+        RegionStore regionStore = RegionManager.getInstance().getRegionStore();
+        FileConfiguration config = regionStore.load(r.getId());
+        if (config == null) {
             return;
         }
+        List<String> locationList = config.getStringList(Constants.CHESTS);
+        locationList.add(Region.locationToString(l));
+        config.set(Constants.CHESTS, locationList);
+        regionStore.save(r.getId(), config);
 
         if (!invs.containsKey(r)) {
             invs.put(r, new ArrayList<>());
@@ -145,29 +137,21 @@ public class WarehouseEffect implements Listener, RegionCreatedListener {
         }
 
 
-        File dataFolder = new File(Civs.dataLocation, Constants.REGIONS);
-        if (!dataFolder.exists()) {
+        if (Civs.getInstance() == null) {
             return;
         }
-        File dataFile = new File(dataFolder, r.getId() + ".yml");
-        if (!dataFile.exists()) {
-            Civs.logger.log(Level.SEVERE, "Warehouse region file does not exist {0}.yml", r.getId());
+        RegionStore regionStore = RegionManager.getInstance().getRegionStore();
+        FileConfiguration config = regionStore.load(r.getId());
+        if (config == null) {
+            Civs.logger.log(Level.SEVERE, "Warehouse region data does not exist for {0}", r.getId());
             return;
         }
-        FileConfiguration config = new YamlConfiguration();
-        try {
-            config.load(dataFile);
-            ArrayList<String> locationList = new ArrayList<>();
-            for (CVInventory cvInventory : chests) {
-                locationList.add(Region.blockLocationToString(cvInventory.getLocation()));
-            }
-            config.set(Constants.CHESTS, locationList);
-            config.save(dataFile);
-        } catch (Exception e) {
-            e.printStackTrace();
-            Civs.logger.log(Level.WARNING, UNABLE_TO_SAVE_CHEST, r.getId());
-            return;
+        ArrayList<String> locationList = new ArrayList<>();
+        for (CVInventory cvInventory : chests) {
+            locationList.add(Region.blockLocationToString(cvInventory.getLocation()));
         }
+        config.set(Constants.CHESTS, locationList);
+        regionStore.save(r.getId(), config);
         checkExcessChests(r);
     }
 
@@ -205,8 +189,8 @@ public class WarehouseEffect implements Listener, RegionCreatedListener {
         }, 1L);
     }
 
-    @EventHandler
-    public void onCustomEvent(RegionTickEvent event) {
+    @Override
+    public void regionTickHandler(RegionTickEvent event) {
         if (!event.getRegion().getEffects().containsKey(KEY)) {
             return;
         }
@@ -285,46 +269,30 @@ public class WarehouseEffect implements Listener, RegionCreatedListener {
         }
 
         //Remove excess chests from the data file
-        deletefromfile: if (deletedSomething) {
-            File dataFolder = new File(Civs.dataLocation, Constants.REGIONS);
-            if (!dataFolder.exists()) {
-                break deletefromfile;
-            }
-            File dataFile = new File(dataFolder, r.getId() + ".yml");
-            if (!dataFile.exists()) {
-                break deletefromfile;
-            }
-            FileConfiguration config = new YamlConfiguration();
-            try {
-                config.load(dataFile);
-                ArrayList<String> locationList = new ArrayList<String>();
-                for (CVInventory inventoryLocation : invs.get(r)) {
-                    locationList.add(Region.blockLocationToString(inventoryLocation.getLocation()));
-                }
-                config.set(Constants.CHESTS, locationList);
-                config.save(dataFile);
-            } catch (Exception e) {
-                Civs.logger.log(Level.WARNING, UNABLE_TO_SAVE_CHEST, r.getId());
+        if (deletedSomething) {
+            RegionStore regionStore = RegionManager.getInstance().getRegionStore();
+            FileConfiguration config = regionStore.load(r.getId());
+            if (config == null) {
                 return;
             }
+            ArrayList<String> locationList = new ArrayList<String>();
+            for (CVInventory inventoryLocation : invs.get(r)) {
+                locationList.add(Region.blockLocationToString(inventoryLocation.getLocation()));
+            }
+            config.set(Constants.CHESTS, locationList);
+            regionStore.save(r.getId(), config);
         }
     }
 
     private void checkExcessChests(Region r) {
         if ((!invs.containsKey(r) || invs.get(r).isEmpty()) && Civs.getInstance() != null) {
             // Since there isn't a cached list of chests for this warehouse, retrieve it from the data file
-            File dataFolder = new File(Civs.dataLocation, Constants.REGIONS);
-            if (!dataFolder.exists()) {
+            FileConfiguration config = RegionManager.getInstance().getRegionStore().load(r.getId());
+            if (config == null) {
+                Civs.logger.severe("Region data not found for " + r.getId());
                 return;
             }
-            File dataFile = new File(dataFolder, r.getId() + ".yml");
-            if (!dataFile.exists()) {
-                Civs.logger.severe("Data file not found " + r.getId() + ".yml");
-                return;
-            }
-            FileConfiguration config = new YamlConfiguration();
             try {
-                config.load(dataFile);
                 List<CVInventory> tempLocations = processLocationList(config.getStringList(Constants.CHESTS));
                 for (CVInventory inventoryLocation : tempLocations) {
                     if (!availableItems.containsKey(r)) {
@@ -487,9 +455,7 @@ public class WarehouseEffect implements Listener, RegionCreatedListener {
                 ItemStack moveMe = itemsToMove.get(inventoryLocation).get(i);
                 inventoryLocation.removeItem(moveMe);
                 refreshChest(region, inventoryLocation.getLocation());
-                if (ConfigManager.getInstance().isDebugLog()) {
-                    DebugLogger.inventoryModifications++;
-                }
+                INVENTORY_MODIFICATIONS.increment();
                 destinationInventory.addItem(moveMe);
                 RegionManager.getInstance().removeCheckedRegion(destination);
                 for (Integer failingUpkeepIndex : new HashSet<>(destination.getFailingUpkeeps())) {
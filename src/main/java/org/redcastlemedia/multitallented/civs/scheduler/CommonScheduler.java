@@ -19,12 +19,16 @@ import org.redcastlemedia.multitallented.civs.regions.RegionType;
 import org.redcastlemedia.multitallented.civs.towns.*;
 import org.redcastlemedia.multitallented.civs.util.AnnouncementUtil;
 import org.redcastlemedia.multitallented.civs.util.Constants;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 import org.redcastlemedia.multitallented.civs.util.StructureUtil;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Level;
 
@@ -32,22 +36,30 @@ import lombok.Getter;
 import lombok.Setter;
 
 public class CommonScheduler implements Runnable {
+    // every 30 seconds players are checked even if they didn't move, in case regions or towns changed around them
+    private static final int RECONCILE_CYCLES = 15;
+    private static final Metrics.Timer TIMER = Metrics.timer(Metrics.SCHEDULER, "common");
     @Getter
-    protected static final Map<UUID, ArrayList<Region>> lastRegion = new HashMap<>();
+    protected static final Map<UUID, Set<Region>> lastRegion = new HashMap<>();
     @Getter
     protected static final Map<UUID, Town> lastTown = new HashMap<>();
+    private static final Map<Region, Set<UUID>> regionOccupants = new HashMap<>();
+    private static final Map<Town, Set<UUID>> townOccupants = new HashMap<>();
+    private static final Set<UUID> movedPlayers = new HashSet<>();
     private static final HashMap<UUID, Long> lastAnnouncment = new HashMap<>();
     private int i = 0;
+    private int cycle = 0;
     private boolean notTwoSecond = true;
     @Getter @Setter
     protected static boolean run = true;
 
     @Override
     public void run() {
+        if (!run) {
+            return;
+        }
+        long start = TIMER.start();
         try {
-            if (!run) {
-                return;
-            }
             depreciateKarma();
             StructureUtil.cleanUpExpiredBoundingBoxes();
             if (ConfigManager.getInstance().isUseParticleBoundingBoxes()) {
@@ -56,13 +68,33 @@ public class CommonScheduler implements Runnable {
 
             Collection<? extends Player> players = Bukkit.getOnlinePlayers();
             int maxTPS = 5;
+            if (i == 0 && cycle % RECONCILE_CYCLES == 0) {
+                for (Player player : players) {
+                    movedPlayers.add(player.getUniqueId());
+                }
+            }
+            checkMovedPlayers();
+            if (i == 0) {
+                runPlayerInRegionEvents();
+                runPlayerInTownEvents();
+            }
             int chunk = players.size() / maxTPS;
-            for (int j = chunk * i; j < (i == maxTPS - 1 ? players.size() : chunk * (i + 1)); j++) {
-                checkPlayer((Player) players.toArray()[j]);
+            int start = chunk * i;
+            int end = i == maxTPS - 1 ? players.size() : chunk * (i + 1);
+            int j = 0;
+            for (Player player : players) {
+                if (j >= end) {
+                    break;
+                }
+                if (j >= start) {
+                    checkPlayer(player);
+                }
+                j++;
             }
             RegionTickUtil.runUpkeeps();
             if (i == maxTPS - 1) {
                 i = 0;
+                cycle++;
                 notTwoSecond = !notTwoSecond;
                 if (!notTwoSecond) {
                     Bukkit.getPluginManager().callEvent(new TwoSecondEvent());
@@ -74,12 +106,114 @@ public class CommonScheduler implements Runnable {
         } catch (Exception e) {
             Civs.logger.log(Level.SEVERE, "Error occurred during Civs heartbeat thread", e);
         }
+        TIMER.stop(start);
+    }
+
+    /**
+     * Players are only looked up in regions and towns when they moved to another block,
+     * see {@link PresenceListener}.
+     */
+    public static void markMoved(UUID uuid) {
+        movedPlayers.add(uuid);
+    }
+
+    public static void removeOccupant(UUID uuid) {
+        movedPlayers.remove(uuid);
+        Set<Region> regions = lastRegion.get(uuid);
+        if (regions != null) {
+            for (Region region : regions) {
+                removeOccupant(regionOccupants, region, uuid);
+            }
+        }
+        Town town = lastTown.get(uuid);
+        if (town != null) {
+            removeOccupant(townOccupants, town, uuid);
+        }
+    }
+
+    public static void removeRegionOccupants(Region region) {
+        regionOccupants.remove(region);
+    }
+
+    public static void removeTownOccupants(Town town) {
+        townOccupants.remove(town);
+    }
+
+    /**
+     * Players are added back to the reloaded regions and towns the next time
+     * they are checked.
+     */
+    public static void clearOccupants() {
+        regionOccupants.clear();
+        townOccupants.clear();
+    }
+
+    private static <T> void removeOccupant(Map<T, Set<UUID>> occupants, T key, UUID uuid) {
+        Set<UUID> uuids = occupants.get(key);
+        if (uuids != null) {
+            uuids.remove(uuid);
+            if (uuids.isEmpty()) {
+                occupants.remove(key);
+            }
+        }
+    }
+
+    private void checkMovedPlayers() {
+        if (movedPlayers.isEmpty()) {
+            return;
+        }
+        ArrayList<UUID> uuids = new ArrayList<>(movedPlayers);
+        movedPlayers.clear();
+        for (UUID uuid : uuids) {
+            Player player = Bukkit.getPlayer(uuid);
+            if (player == null) {
+                continue;
+            }
+            try {
+                playerInRegion(player);
+                playerInTown(player);
+            } catch (Exception e) {
+                Civs.logger.log(Level.SEVERE, "Error occurred during Civs heartbeat player check", e);
+            }
+        }
+    }
+
+    private void runPlayerInRegionEvents() {
+        RegionManager regionManager = RegionManager.getInstance();
+        for (Map.Entry<Region, Set<UUID>> entry : new ArrayList<>(regionOccupants.entrySet())) {
+            Region region = entry.getKey();
+            if (regionManager.getRegionById(region.getId()) != region) {
+                continue;
+            }
+            RegionType regionType = (RegionType) ItemManager.getInstance().getItemType(region.getType());
+            for (UUID uuid : new ArrayList<>(entry.getValue())) {
+                Bukkit.getPluginManager().callEvent(new PlayerInRegionEvent(uuid, region, regionType));
+            }
+        }
+    }
+
+    private void runPlayerInTownEvents() {
+        TownManager townManager = TownManager.getInstance();
+        for (Map.Entry<Town, Set<UUID>> entry : new ArrayList<>(townOccupants.entrySet())) {
+            Town town = entry.getKey();
+            if (townManager.getTown(town.getName()) != town) {
+                continue;
+            }
+            TownType townType = (TownType) ItemManager.getInstance().getItemType(town.getType());
+            for (UUID uuid : new ArrayList<>(entry.getValue())) {
+                Bukkit.getPluginManager().callEvent(new PlayerInTownEvent(uuid, town, townType));
+                if (town.getRawPeople().containsKey(uuid) &&
+                        town.getRawPeople().get(uuid).contains(Constants.OWNER) &&
+                        town.getLastActive() + 10000 < System.currentTimeMillis()) {
+                    town.setLastActive(System.currentTimeMillis());
+                    townManager.saveTown(town);
+                }
+            }
+        }
     }
 
     private void checkPlayer(Player player) {
         try {
-            playerInRegion(player);
-            playerInTown(player);
             if (ConfigManager.getInstance().getUseClassesAndSpells()) {
                 incrementMana(player);
             }
@@ -109,17 +243,11 @@ public class CommonScheduler implements Runnable {
     }
 
     private void depreciateKarma() {
-        long karmaPeriod = ConfigManager.getInstance().getKarmaDepreciatePeriod() * 1000;
-        //TODO lazy loop this
+        // Civilians that aren't loaded catch up on their depreciation when they are loaded
         for (Civilian civilian : CivilianManager.getInstance().getCivilians()) {
-            if ((civilian.getKarma() < 2 && civilian.getKarma() > -2) ||
-                    (civilian.getLastKarmaDepreciation() + karmaPeriod > System.currentTimeMillis())) {
-                continue;
+            if (CivilianManager.getInstance().depreciateKarma(civilian)) {
+                CivilianManager.getInstance().saveCivilian(civilian);
             }
-            civilian.setLastKarmaDepreciation(System.currentTimeMillis());
-            double newKarma = (double) civilian.getKarma() / 2;
-            civilian.setKarma(newKarma < 0 ? (int) Math.ceil(newKarma) : (int) Math.floor(newKarma));
-            CivilianManager.getInstance().saveCivilian(civilian);
         }
     }
 
@@ -148,9 +276,6 @@ public class CommonScheduler implements Runnable {
         TownType townType = null;
         if (town != null) {
             townType = (TownType) ItemManager.getInstance().getItemType(town.getType());
-            PlayerInTownEvent playerInTownEvent = new PlayerInTownEvent(player.getUniqueId(),
-                    town, townType);
-            Bukkit.getPluginManager().callEvent(playerInTownEvent);
         }
         TownType prevTownType = null;
         if (prevTown != null) {
@@ -167,17 +292,14 @@ public class CommonScheduler implements Runnable {
             exitTown(player, civilian, prevTown, prevTownType);
         }
 
+        if (prevTown != null && !prevTown.equals(town)) {
+            removeOccupant(townOccupants, prevTown, player.getUniqueId());
+        }
         if (town == null && prevTown != null) {
             lastTown.remove(player.getUniqueId());
         } else if (town != null) {
             lastTown.put(player.getUniqueId(), town);
-        }
-
-        if (town != null && town.getRawPeople().containsKey(player.getUniqueId()) &&
-                town.getRawPeople().get(player.getUniqueId()).contains(Constants.OWNER) &&
-                town.getLastActive() + 10000 < System.currentTimeMillis()) {
-            town.setLastActive(System.currentTimeMillis());
-            TownManager.getInstance().saveTown(town);
+            townOccupants.computeIfAbsent(town, k -> new HashSet<>()).add(player.getUniqueId());
         }
     }
 
@@ -221,39 +343,34 @@ public class CommonScheduler implements Runnable {
 
     private void playerInRegion(Player player) {
         RegionManager regionManager = RegionManager.getInstance();
-        ArrayList<Region> containedRegions = new ArrayList<>();
-        containedRegions.addAll(regionManager.getRegionEffectsAt(player.getLocation(), 0));
+        Set<Region> containedRegions = new LinkedHashSet<>(regionManager.getRegionEffectsAt(player.getLocation(), 0));
 
-        for (Region region : containedRegions) {
-            RegionType regionType = (RegionType) ItemManager.getInstance().getItemType(region.getType());
-            PlayerInRegionEvent playerInRegionEvent = new PlayerInRegionEvent(player.getUniqueId(),
-                    region, regionType);
-            Bukkit.getPluginManager().callEvent(playerInRegionEvent);
-        }
-
-        ArrayList<Region> previousRegions = lastRegion.get(player.getUniqueId());
+        Set<Region> previousRegions = lastRegion.get(player.getUniqueId());
         if (previousRegions == null) {
-            previousRegions = new ArrayList<>();
+            previousRegions = new HashSet<>();
         }
 
         for (Region r : containedRegions) {
+            regionOccupants.computeIfAbsent(r, k -> new HashSet<>()).add(player.getUniqueId());
+            if (previousRegions.contains(r)) {
+                continue;
+            }
             RegionType regionType = (RegionType) ItemManager.getInstance().getItemType(r.getType());
-            if (!previousRegions.contains(r)) {
-                if (ConfigManager.getInstance().isEnterExitMessagesUseTitles()) {
-                    Civilian civilian = CivilianManager.getInstance().getCivilian(player.getUniqueId());
-                    String localRegionTypeName = LocaleManager.getInstance().getTranslation(civilian.getLocale(),
-                            regionType.getProcessedName() + LocaleConstants.NAME_SUFFIX);
-                    player.sendTitle(" ", ChatColor.BLUE + localRegionTypeName, 5, 40, 5);
-                }
-                PlayerEnterRegionEvent playerEnterRegionEvent = new PlayerEnterRegionEvent(player.getUniqueId(),
-                        r, regionType);
-                Bukkit.getPluginManager().callEvent(playerEnterRegionEvent);
+            if (ConfigManager.getInstance().isEnterExitMessagesUseTitles()) {
+                Civilian civilian = CivilianManager.getInstance().getCivilian(player.getUniqueId());
+                String localRegionTypeName = LocaleManager.getInstance().getTranslation(civilian.getLocale(),
+                        regionType.getProcessedName() + LocaleConstants.NAME_SUFFIX);
+                player.sendTitle(" ", ChatColor.BLUE + localRegionTypeName, 5, 40, 5);
             }
+            PlayerEnterRegionEvent playerEnterRegionEvent = new PlayerEnterRegionEvent(player.getUniqueId(),
+                    r, regionType);
+            Bukkit.getPluginManager().callEvent(playerEnterRegionEvent);
         }
 
         for (Region r : previousRegions) {
-            RegionType regionType = (RegionType) ItemManager.getInstance().getItemType(r.getType());
             if (!containedRegions.contains(r)) {
+                removeOccupant(regionOccupants, r, player.getUniqueId());
+                RegionType regionType = (RegionType) ItemManager.getInstance().getItemType(r.getType());
                 PlayerExitRegionEvent playerExitRegionEvent = new PlayerExitRegionEvent(player.getUniqueId(),
                         r, regionType);
                 Bukkit.getPluginManager().callEvent(playerExitRegionEvent);
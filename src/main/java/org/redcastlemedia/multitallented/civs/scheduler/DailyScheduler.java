@@ -6,8 +6,6 @@ import java.util.HashSet;
 import java.util.Random;
 import java.util.UUID;
 
-import org.bukkit.Bukkit;
-import org.bukkit.OfflinePlayer;
 import org.redcastlemedia.multitallented.civs.Civs;
 import org.redcastlemedia.multitallented.civs.ConfigManager;
 import org.redcastlemedia.multitallented.civs.items.ItemManager;
@@ -16,6 +14,7 @@ import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
 import org.redcastlemedia.multitallented.civs.towns.*;
 import org.redcastlemedia.multitallented.civs.util.Constants;
+import org.redcastlemedia.multitallented.civs.util.EconomyLedger;
 
 public class DailyScheduler implements Runnable {
 
@@ -23,7 +22,7 @@ public class DailyScheduler implements Runnable {
     @Override
     public void run() {
         RegionManager regionManager = RegionManager.getInstance();
-        for (Region region : regionManager.getAllRegions()) {
+        for (Region region : new ArrayList<>(regionManager.getAllRegions())) {
             RegionType regionType = (RegionType) ItemManager.getInstance().getItemType(region.getType());
             if (regionType.isDailyPeriod()) {
                 region.runUpkeep(false);
@@ -138,6 +137,30 @@ public class DailyScheduler implements Runnable {
         if (Civs.econ == null) {
             return;
         }
+        HashSet<UUID> taxpayers = new HashSet<>();
+        for (Town town : TownManager.getInstance().getTowns()) {
+            if (town.getTaxes() < 1) {
+                continue;
+            }
+            for (UUID uuid : town.getRawPeople().keySet()) {
+                if (!town.getRawPeople().get(uuid).contains("ally")) {
+                    taxpayers.add(uuid);
+                }
+            }
+        }
+        if (taxpayers.isEmpty()) {
+            return;
+        }
+        EconomyLedger.getInstance().prefetchBalances(taxpayers, new Runnable() {
+            @Override
+            public void run() {
+                collectTaxes();
+            }
+        });
+    }
+
+    private void collectTaxes() {
+        EconomyLedger economyLedger = EconomyLedger.getInstance();
         HashSet<Town> saveThese = new HashSet<>();
         for (Town town : TownManager.getInstance().getTowns()) {
             if (town.getTaxes() < 1) {
@@ -147,11 +170,10 @@ public class DailyScheduler implements Runnable {
                 if (town.getRawPeople().get(uuid).contains("ally")) {
                     continue;
                 }
-                OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(uuid);
-                if (offlinePlayer == null || !Civs.econ.has(offlinePlayer, town.getTaxes())) {
+                if (!economyLedger.has(uuid, town.getTaxes())) {
                     continue;
                 }
-                Civs.econ.withdrawPlayer(offlinePlayer, town.getTaxes());
+                economyLedger.withdraw(uuid, town.getTaxes(), new TaxRefund(town, town.getTaxes()));
                 town.setBankAccount(town.getBankAccount() + town.getTaxes());
                 saveThese.add(town);
             }
@@ -160,4 +182,25 @@ public class DailyScheduler implements Runnable {
             TownManager.getInstance().saveTown(town);
         }
     }
+
+    private static class TaxRefund implements Runnable {
+        // Held directly since the town can be renamed before the flush gets to the withdrawal
+        private final Town town;
+        private final double taxes;
+
+        private TaxRefund(Town town, double taxes) {
+            this.town = town;
+            this.taxes = taxes;
+        }
+
+        @Override
+        public void run() {
+            // A destroyed town took the taxes with it
+            if (TownManager.getInstance().getTown(town.getName()) != town) {
+                return;
+            }
+            town.setBankAccount(town.getBankAccount() - taxes);
+            TownManager.getInstance().saveTown(town);
+        }
+    }
 }
@@ -0,0 +1,61 @@
+package org.redcastlemedia.multitallented.civs.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.redcastlemedia.multitallented.civs.CivsSingleton;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
+
+/**
+ * Tells the CommonScheduler which players need to be checked for entering or leaving
+ * regions and towns, instead of checking everyone every cycle.
+ */
+@CivsSingleton
+public class PresenceListener implements Listener {
+
+    public static void getInstance() {
+        Metrics.registerEvents(new PresenceListener());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        if (changedBlock(event.getFrom(), event.getTo())) {
+            CommonScheduler.markMoved(event.getPlayer().getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        if (changedBlock(event.getFrom(), event.getTo())) {
+            CommonScheduler.markMoved(event.getPlayer().getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        CommonScheduler.markMoved(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        CommonScheduler.markMoved(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        CommonScheduler.removeOccupant(event.getPlayer().getUniqueId());
+    }
+
+    private boolean changedBlock(Location from, Location to) {
+        return to != null && (from.getBlockX() != to.getBlockX() ||
+                from.getBlockY() != to.getBlockY() ||
+                from.getBlockZ() != to.getBlockZ() ||
+                from.getWorld() != to.getWorld());
+    }
+}
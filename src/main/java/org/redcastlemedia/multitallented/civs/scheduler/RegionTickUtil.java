@@ -1,58 +1,225 @@
 package org.redcastlemedia.multitallented.civs.scheduler;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 
 import org.bukkit.Bukkit;
-import org.bukkit.event.EventHandler;
-import org.bukkit.event.Listener;
+import org.redcastlemedia.multitallented.civs.Civs;
 import org.redcastlemedia.multitallented.civs.civilians.CivilianListener;
 import org.redcastlemedia.multitallented.civs.events.RegionTickEvent;
-import org.redcastlemedia.multitallented.civs.events.TwoSecondEvent;
 import org.redcastlemedia.multitallented.civs.items.ItemManager;
 import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
+import org.redcastlemedia.multitallented.civs.regions.effects.RegionTickListener;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
 
+/**
+ * Regions wait in a queue ordered by when they next need to tick, so each run only
+ * looks at the regions that are due. A region is due when its upkeep period is over,
+ * or every cycle if it has an effect that listens to every RegionTickEvent. Regions
+ * whose upkeep failed are retried every cycle like before.
+ *
+ * A ticking region only calls the tick listeners of the effects it has. The Bukkit
+ * RegionTickEvent is still fired, but only while another plugin listens to it.
+ */
 public final class RegionTickUtil {
-    private static final int MAX_TPCycle = 10;
-    private static int i = 0;
+    // runUpkeeps is called every 4 ticks, this used to be 10 runs to get through all regions
+    private static final long CYCLE_MILLIS = 2000;
+    private static final long MAX_NANOS_PER_RUN = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final PriorityQueue<ScheduledRegion> upkeepQueue = new PriorityQueue<>();
+    private static final HashMap<Region, ScheduledRegion> scheduledRegions = new HashMap<>();
+    private static final Set<String> everyCycleEffects = new HashSet<>();
+    private static final HashMap<String, RegionTickListener> tickListeners = new HashMap<>();
+    private static final Metrics.Timer UPKEEP_TIMER = Metrics.timer(Metrics.SCHEDULER, "upkeep");
+    private static long scheduleCount = 0;
+
     private RegionTickUtil() {
 
     }
 
+    /**
+     * Regions with this effect get a RegionTickEvent every cycle instead of only
+     * when their upkeep is due.
+     */
+    public static void addEveryCycleEffect(String effectKey) {
+        if (!everyCycleEffects.add(effectKey)) {
+            return;
+        }
+        // Effects can register after the regions were already loaded
+        for (Region region : RegionManager.getInstance().getRegionsWithEffect(effectKey)) {
+            scheduleRegion(region);
+        }
+    }
+
+    /**
+     * Each effect has one tick listener.
+     * @throws IllegalStateException if another listener is already registered for the effect
+     */
+    public static void addRegionTickListener(String effectKey, RegionTickListener listener) {
+        RegionTickListener previous = tickListeners.get(effectKey);
+        if (previous != null && previous != listener) {
+            throw new IllegalStateException("Region tick listener for " + effectKey + " is already registered");
+        }
+        tickListeners.put(effectKey, listener);
+    }
+
+    public static void removeRegionTickListener(String effectKey) {
+        tickListeners.remove(effectKey);
+    }
+
+    /**
+     * Queues a new region, or reschedules one whose type or effects changed.
+     */
+    public static void scheduleRegion(Region region) {
+        schedule(region, System.currentTimeMillis());
+    }
+
+    public static void clearSchedule() {
+        upkeepQueue.clear();
+        scheduledRegions.clear();
+    }
+
     public static void runUpkeeps() {
-        List<Region> regionList = new ArrayList<>(RegionManager.getInstance().getAllRegions());
-        int chunk = regionList.size() / MAX_TPCycle;
-        for (int j = chunk * i; j < (i == MAX_TPCycle - 1 ? regionList.size() : chunk * (i + 1)); j++) {
-            Region region = regionList.get(j);
+        long start = UPKEEP_TIMER.start();
+        long now = System.currentTimeMillis();
+        long deadline = System.nanoTime() + MAX_NANOS_PER_RUN;
+        RegionManager regionManager = RegionManager.getInstance();
+        // Due regions left over when the time runs out are still first in line next run
+        while (!upkeepQueue.isEmpty() && upkeepQueue.peek().dueTime <= now && System.nanoTime() < deadline) {
+            ScheduledRegion scheduledRegion = upkeepQueue.poll();
+            Region region = scheduledRegion.region;
+            if (scheduledRegions.get(region) != scheduledRegion) {
+                continue;
+            }
+            scheduledRegions.remove(region);
+            if (regionManager.getRegionById(region.getId()) != region) {
+                continue;
+            }
+            tickRegion(region);
+            if (regionManager.getRegionById(region.getId()) == region && !scheduledRegions.containsKey(region)) {
+                schedule(region, now + CYCLE_MILLIS);
+            }
+        }
+        UPKEEP_TIMER.stop(start);
+    }
+
+    private static void tickRegion(Region region) {
+        Metrics.Timer timer = Metrics.timer(Metrics.REGION_TYPE, region.getType());
+        long start = timer.start();
+        try {
+            RegionType regionType = (RegionType) ItemManager.getInstance().getItemType(region.getType());
+            boolean shouldTick = !regionType.isDailyPeriod() && region.shouldTick();
+
+            boolean hasUpkeep = false;
             try {
-                RegionType regionType = (RegionType) ItemManager.getInstance().getItemType(region.getType());
-                boolean shouldTick = !regionType.isDailyPeriod() && region.shouldTick();
-
-                boolean hasUpkeep = false;
-                try {
-                    hasUpkeep = shouldTick && region.runUpkeep();
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+                hasUpkeep = shouldTick && region.runUpkeep();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
 
-                RegionTickEvent regionTickEvent = new RegionTickEvent(region, regionType, hasUpkeep, shouldTick);
+            List<String> tickedEffects = getTickedEffects(region);
+            boolean hasExternalListeners = RegionTickEvent.getHandlerList().getRegisteredListeners().length > 0;
+            if (tickedEffects == null && !hasExternalListeners) {
+                return;
+            }
+            RegionTickEvent regionTickEvent = new RegionTickEvent(region, regionType, hasUpkeep, shouldTick);
+            if (tickedEffects != null) {
+                for (String effectKey : tickedEffects) {
+                    dispatch(effectKey, regionTickEvent);
+                }
+            }
+            if (hasExternalListeners) {
                 Bukkit.getPluginManager().callEvent(regionTickEvent);
-                if (regionTickEvent.getShouldDestroy()) {
-                    RegionManager.getInstance().removeRegion(region, true, true);
-                    CivilianListener.getInstance().shouldCancelBlockBreak(region.getLocation().getBlock(), null);
+            }
+            if (regionTickEvent.getShouldDestroy()) {
+                RegionManager.getInstance().removeRegion(region, true, true);
+                CivilianListener.getInstance().shouldCancelBlockBreak(region.getLocation().getBlock(), null);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            timer.stop(start);
+        }
+    }
+
+    /**
+     * @return the effects of the region that have a tick listener, or null if none do
+     */
+    private static List<String> getTickedEffects(Region region) {
+        List<String> tickedEffects = null;
+        // Collected first because listeners can change the effects of the region they tick
+        for (String effectKey : region.getEffects().keySet()) {
+            if (tickListeners.containsKey(effectKey)) {
+                if (tickedEffects == null) {
+                    tickedEffects = new ArrayList<>();
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
+                tickedEffects.add(effectKey);
             }
         }
-        if (i == MAX_TPCycle - 1) {
-            i = 0;
-        } else {
-            i++;
+        return tickedEffects;
+    }
+
+    private static void dispatch(String effectKey, RegionTickEvent regionTickEvent) {
+        Metrics.Timer timer = Metrics.timer(Metrics.EFFECT, effectKey);
+        long start = timer.start();
+        try {
+            tickListeners.get(effectKey).regionTickHandler(regionTickEvent);
+        } catch (Exception e) {
+            Civs.logger.log(Level.SEVERE, "Error ticking " + effectKey + " for " +
+                    regionTickEvent.getRegion().getId(), e);
+        }
+        timer.stop(start);
+    }
+
+    private static void schedule(Region region, long earliestTime) {
+        RegionType regionType = (RegionType) ItemManager.getInstance().getItemType(region.getType());
+        long dueTime = -1;
+        if (regionType != null) {
+            for (String effectKey : region.getEffects().keySet()) {
+                if (everyCycleEffects.contains(effectKey)) {
+                    dueTime = earliestTime;
+                    break;
+                }
+            }
+            long nextUpkeepTime = regionType.isDailyPeriod() ? -1 : region.getNextUpkeepTime();
+            if (dueTime == -1 && nextUpkeepTime > -1) {
+                // shouldTick only passes once the period is strictly over
+                dueTime = Math.max(nextUpkeepTime + 1, earliestTime);
+            }
+        }
+        if (dueTime == -1) {
+            scheduledRegions.remove(region);
+            return;
+        }
+        ScheduledRegion scheduledRegion = new ScheduledRegion(region, dueTime, scheduleCount++);
+        scheduledRegions.put(region, scheduledRegion);
+        upkeepQueue.add(scheduledRegion);
+    }
+
+    private static final class ScheduledRegion implements Comparable<ScheduledRegion> {
+        private final Region region;
+        private final long dueTime;
+        private final long order;
+
+        private ScheduledRegion(Region region, long dueTime, long order) {
+            this.region = region;
+            this.dueTime = dueTime;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(ScheduledRegion other) {
+            if (dueTime != other.dueTime) {
+                return Long.compare(dueTime, other.dueTime);
+            }
+            return Long.compare(order, other.order);
         }
     }
 }
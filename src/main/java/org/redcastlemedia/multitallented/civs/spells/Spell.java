@@ -20,6 +20,7 @@ import javax.script.ScriptEngineManager;
 import java.util.*;
 
 public class Spell {
+    private static ScriptEngine scriptEngine = null;
     private final Player caster;
     private String type;
     private int level;
@@ -523,8 +524,20 @@ public class Spell {
         if (configString.equals("0")) {
             return 0;
         }
-        ScriptEngineManager mgr = new ScriptEngineManager();
-        ScriptEngine engine = mgr.getEngineByName("JavaScript");
+        SpellExpression expression = SpellExpression.compile(configString);
+        if (expression != null) {
+            Double value = expression.evaluate(level, target, spell);
+            if (value != null) {
+                return value;
+            }
+        }
+        return evaluateWithScriptEngine(configString, level, target, spell);
+    }
+    private static double evaluateWithScriptEngine(String configString, int level, Object target, Spell spell) {
+        if (scriptEngine == null) {
+            scriptEngine = new ScriptEngineManager().getEngineByName("JavaScript");
+        }
+        ScriptEngine engine = scriptEngine;
         try {
             Object engineEval = engine.eval(replaceAllVariables(configString, level, target, spell));
             if (engineEval instanceof Integer) {
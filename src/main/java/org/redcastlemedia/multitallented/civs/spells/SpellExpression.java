@@ -0,0 +1,429 @@
+package org.redcastlemedia.multitallented.civs.spells;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Compiled form of a spell config value like "5 + 2 * $level$" or "Math.min($damage#amount$, 10)".
+ * Supports numbers, $level$, $rand$, $component#variable$, + - * / %, parentheses and the
+ * Math functions below. Anything else is left to the script engine so that existing configs
+ * keep their exact meaning (for example ^ is xor there, not a power).
+ */
+public final class SpellExpression {
+    private static final HashMap<String, SpellExpression> compiledExpressions = new HashMap<>();
+    private static final SpellExpression UNSUPPORTED = new SpellExpression(null);
+
+    private final Node root;
+
+    private SpellExpression(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * @return the compiled expression, or null if the script engine has to evaluate it
+     */
+    public static SpellExpression compile(String configString) {
+        SpellExpression expression = compiledExpressions.get(configString);
+        if (expression == null) {
+            // Increment and decrement are not arithmetic in the script engine
+            Node root = configString.contains("--") || configString.contains("++") ? null :
+                    new Parser(configString).parse();
+            expression = root == null ? UNSUPPORTED : new SpellExpression(root);
+            compiledExpressions.put(configString, expression);
+        }
+        return expression == UNSUPPORTED ? null : expression;
+    }
+
+    /**
+     * @return the value, or null if an ability variable is not set for this target
+     */
+    public Double evaluate(int level, Object target, Spell spell) {
+        Context context = new Context(level, target, spell);
+        double value = root.evaluate(context);
+        return context.missingVariable ? null : value;
+    }
+
+    private static class Context {
+        private final int level;
+        private final Object target;
+        private final Spell spell;
+        private boolean randDrawn = false;
+        private double rand;
+        private boolean missingVariable = false;
+
+        private Context(int level, Object target, Spell spell) {
+            this.level = level;
+            this.target = target;
+            this.spell = spell;
+        }
+
+        // Every $rand$ in one value shares the same roll
+        private double getRand() {
+            if (!randDrawn) {
+                rand = Math.random();
+                randDrawn = true;
+            }
+            return rand;
+        }
+
+        private double getVariable(String component, String variable) {
+            if (spell == null || target == null) {
+                missingVariable = true;
+                return 0;
+            }
+            HashMap<Object, HashMap<String, Double>> targetVars = spell.getAbilityVariables().get(component);
+            HashMap<String, Double> componentVars = targetVars == null ? null : targetVars.get(target);
+            Double value = componentVars == null ? null : componentVars.get(variable);
+            if (value == null) {
+                missingVariable = true;
+                return 0;
+            }
+            return value;
+        }
+    }
+
+    private abstract static class Node {
+        abstract double evaluate(Context context);
+    }
+
+    private static class Constant extends Node {
+        private final double value;
+
+        private Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        double evaluate(Context context) {
+            return value;
+        }
+    }
+
+    private static class Level extends Node {
+        @Override
+        double evaluate(Context context) {
+            return context.level;
+        }
+    }
+
+    private static class Rand extends Node {
+        @Override
+        double evaluate(Context context) {
+            return context.getRand();
+        }
+    }
+
+    private static class Variable extends Node {
+        private final String component;
+        private final String variable;
+
+        private Variable(String component, String variable) {
+            this.component = component;
+            this.variable = variable;
+        }
+
+        @Override
+        double evaluate(Context context) {
+            return context.getVariable(component, variable);
+        }
+    }
+
+    private static class Negate extends Node {
+        private final Node node;
+
+        private Negate(Node node) {
+            this.node = node;
+        }
+
+        @Override
+        double evaluate(Context context) {
+            return -node.evaluate(context);
+        }
+    }
+
+    private static class Operation extends Node {
+        private final char operator;
+        private final Node left;
+        private final Node right;
+
+        private Operation(char operator, Node left, Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(Context context) {
+            double leftValue = left.evaluate(context);
+            double rightValue = right.evaluate(context);
+            switch (operator) {
+                case '+':
+                    return leftValue + rightValue;
+                case '-':
+                    return leftValue - rightValue;
+                case '*':
+                    return leftValue * rightValue;
+                case '/':
+                    return leftValue / rightValue;
+                default:
+                    return leftValue % rightValue;
+            }
+        }
+    }
+
+    private static class Function extends Node {
+        private final String name;
+        private final Node[] args;
+
+        private Function(String name, Node[] args) {
+            this.name = name;
+            this.args = args;
+        }
+
+        @Override
+        double evaluate(Context context) {
+            switch (name) {
+                case "random":
+                    return Math.random();
+                case "min": {
+                    double value = Double.POSITIVE_INFINITY;
+                    for (Node arg : args) {
+                        value = Math.min(value, arg.evaluate(context));
+                    }
+                    return value;
+                }
+                case "max": {
+                    double value = Double.NEGATIVE_INFINITY;
+                    for (Node arg : args) {
+                        value = Math.max(value, arg.evaluate(context));
+                    }
+                    return value;
+                }
+                case "pow":
+                    return Math.pow(args[0].evaluate(context), args[1].evaluate(context));
+                case "floor":
+                    return Math.floor(args[0].evaluate(context));
+                case "ceil":
+                    return Math.ceil(args[0].evaluate(context));
+                case "round":
+                    return Math.floor(args[0].evaluate(context) + 0.5);
+                case "abs":
+                    return Math.abs(args[0].evaluate(context));
+                default:
+                    return Math.sqrt(args[0].evaluate(context));
+            }
+        }
+
+        private static int getArgCount(String name) {
+            switch (name) {
+                case "random":
+                    return 0;
+                case "min":
+                case "max":
+                    return -1;
+                case "pow":
+                    return 2;
+                case "floor":
+                case "ceil":
+                case "round":
+                case "abs":
+                case "sqrt":
+                    return 1;
+                default:
+                    return -2;
+            }
+        }
+    }
+
+    /**
+     * Recursive descent parser. Returns null from parse for anything it doesn't support.
+     */
+    private static class Parser {
+        private final String input;
+        private int position = 0;
+        private boolean failed = false;
+
+        private Parser(String input) {
+            this.input = input;
+        }
+
+        private Node parse() {
+            Node node = parseSum();
+            skipWhitespace();
+            if (failed || position < input.length()) {
+                return null;
+            }
+            return node;
+        }
+
+        private Node parseSum() {
+            Node node = parseProduct();
+            while (!failed) {
+                skipWhitespace();
+                char next = peek();
+                if (next != '+' && next != '-') {
+                    break;
+                }
+                position++;
+                node = new Operation(next, node, parseProduct());
+            }
+            return node;
+        }
+
+        private Node parseProduct() {
+            Node node = parseUnary();
+            while (!failed) {
+                skipWhitespace();
+                char next = peek();
+                if (next != '*' && next != '/' && next != '%') {
+                    break;
+                }
+                position++;
+                node = new Operation(next, node, parseUnary());
+            }
+            return node;
+        }
+
+        private Node parseUnary() {
+            skipWhitespace();
+            char next = peek();
+            if (next == '-') {
+                position++;
+                return new Negate(parseUnary());
+            }
+            if (next == '+') {
+                position++;
+                return parseUnary();
+            }
+            return parsePrimary();
+        }
+
+        private Node parsePrimary() {
+            skipWhitespace();
+            char next = peek();
+            if (next == '(') {
+                position++;
+                Node node = parseSum();
+                skipWhitespace();
+                return expect(')') ? node : fail();
+            }
+            if (next == '$') {
+                return parseVariable();
+            }
+            if (Character.isDigit(next) || next == '.') {
+                return parseNumber();
+            }
+            if (input.startsWith("Math.", position)) {
+                return parseMath();
+            }
+            return fail();
+        }
+
+        private Node parseVariable() {
+            int end = input.indexOf('$', position + 1);
+            if (end < 0) {
+                return fail();
+            }
+            String name = input.substring(position + 1, end);
+            position = end + 1;
+            if (name.equals("level")) {
+                return new Level();
+            }
+            if (name.equals("rand")) {
+                return new Rand();
+            }
+            int separator = name.indexOf('#');
+            if (separator < 1 || separator == name.length() - 1 || name.indexOf('#', separator + 1) > -1) {
+                return fail();
+            }
+            return new Variable(name.substring(0, separator), name.substring(separator + 1));
+        }
+
+        private Node parseNumber() {
+            int start = position;
+            while (position < input.length() && (Character.isDigit(input.charAt(position)) ||
+                    input.charAt(position) == '.')) {
+                position++;
+            }
+            if (position < input.length() && (input.charAt(position) == 'e' || input.charAt(position) == 'E')) {
+                position++;
+                if (position < input.length() && (input.charAt(position) == '+' || input.charAt(position) == '-')) {
+                    position++;
+                }
+                while (position < input.length() && Character.isDigit(input.charAt(position))) {
+                    position++;
+                }
+            }
+            String number = input.substring(start, position);
+            // The script engine reads a leading zero as octal
+            if (number.length() > 1 && number.charAt(0) == '0' && Character.isDigit(number.charAt(1))) {
+                return fail();
+            }
+            try {
+                return new Constant(Double.parseDouble(number));
+            } catch (NumberFormatException e) {
+                return fail();
+            }
+        }
+
+        private Node parseMath() {
+            position += "Math.".length();
+            int start = position;
+            while (position < input.length() && Character.isLetter(input.charAt(position))) {
+                position++;
+            }
+            String name = input.substring(start, position);
+            if (name.equals("PI")) {
+                return new Constant(Math.PI);
+            }
+            if (name.equals("E")) {
+                return new Constant(Math.E);
+            }
+            int argCount = Function.getArgCount(name);
+            skipWhitespace();
+            if (argCount == -2 || !expect('(')) {
+                return fail();
+            }
+            List<Node> args = new ArrayList<>();
+            skipWhitespace();
+            if (peek() != ')') {
+                args.add(parseSum());
+                skipWhitespace();
+                while (!failed && peek() == ',') {
+                    position++;
+                    args.add(parseSum());
+                    skipWhitespace();
+                }
+            }
+            if (!expect(')') || (argCount > -1 && args.size() != argCount)) {
+                return fail();
+            }
+            return new Function(name, args.toArray(new Node[0]));
+        }
+
+        private boolean expect(char c) {
+            if (peek() != c) {
+                return false;
+            }
+            position++;
+            return true;
+        }
+
+        private char peek() {
+            return position < input.length() ? input.charAt(position) : '\0';
+        }
+
+        private void skipWhitespace() {
+            while (position < input.length() && Character.isWhitespace(input.charAt(position))) {
+                position++;
+            }
+        }
+
+        private Node fail() {
+            failed = true;
+            position = input.length();
+            return new Constant(0);
+        }
+    }
+}
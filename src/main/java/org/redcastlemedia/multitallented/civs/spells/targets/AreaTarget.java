@@ -3,13 +3,11 @@ package org.redcastlemedia.multitallented.civs.spells.targets;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.entity.ArmorStand;
 import org.bukkit.entity.Entity;
-import org.bukkit.entity.EntityType;
 import org.bukkit.entity.LivingEntity;
 import org.redcastlemedia.multitallented.civs.spells.Spell;
+import org.redcastlemedia.multitallented.civs.util.NearbyEntityCache;
 
-import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -34,28 +32,23 @@ public class AreaTarget extends Target {
         int range = (int) Math.round(Spell.getLevelAdjustedValue(getConfig().getString("range","15"), level, null, spell));
         int radius = (int) Math.round(Spell.getLevelAdjustedValue(getConfig().getString("radius", "5"), level, null, spell));
         int maxTargets = (int) Math.round(Spell.getLevelAdjustedValue(getConfig().getString("max-targets", "-1"), level, null, spell));
-        Collection<Entity> nearbyEntities;
+        Location center;
         if (range < 1) {
-            nearbyEntities = player.getNearbyEntities(radius, radius, radius);
+            center = player.getLocation();
         } else {
             HashSet<Material> materialHashSet = new HashSet<>();
-            Location center = player.getTargetBlock(materialHashSet, range).getLocation();
+            center = player.getTargetBlock(materialHashSet, range).getLocation();
             center = applyTargetSettings(center);
-            ArmorStand removeMe = (ArmorStand) center.getWorld().spawnEntity(center, EntityType.ARMOR_STAND);
-            removeMe.setVisible(false);
-            nearbyEntities = removeMe.getNearbyEntities(radius, radius, radius);
-            removeMe.remove();
         }
 
-        for (Entity target : nearbyEntities) {
+        for (LivingEntity target : NearbyEntityCache.getNearbyEntities(center, radius, radius, radius,
+                LivingEntity.class)) {
             if (maxTargets > 0 && returnSet.size() >= maxTargets) {
                 break;
             }
 
-            if (target != player &&
-                    target instanceof LivingEntity) {
-
-                returnSet.add((LivingEntity) target);
+            if (target != player) {
+                returnSet.add(target);
             }
         }
         return returnSet;
@@ -10,6 +10,7 @@ import org.bukkit.entity.Player;
 import org.redcastlemedia.multitallented.civs.civilians.Civilian;
 import org.redcastlemedia.multitallented.civs.spells.Spell;
 import org.redcastlemedia.multitallented.civs.spells.Vector3D;
+import org.redcastlemedia.multitallented.civs.util.NearbyEntityCache;
 
 import java.util.HashMap;
 import java.util.HashSet;
@@ -49,15 +50,15 @@ public class VectorTarget extends Target {
         Location wallLocation = player.getTargetBlock(materialHashSet, range).getLocation();
         double wallDistance = player.getLocation().distanceSquared(wallLocation);
         // Get nearby entities
-        for (Entity target : player.getNearbyEntities(range, range, range)) {
+        for (LivingEntity target : NearbyEntityCache.getNearbyEntities(player.getLocation(), range, range, range,
+                LivingEntity.class)) {
             // Bounding box of the given player
             Vector3D targetPos = new Vector3D(target.getLocation());
             Vector3D minimum = targetPos.add(-0.5, 0, -0.5);
             Vector3D maximum = targetPos.add(0.5, 1.67, 0.5);
 
             if (target != player &&
-                    Vector3D.hasIntersection(observerStart, observerEnd, minimum, maximum) &&
-                    target instanceof LivingEntity) {
+                    Vector3D.hasIntersection(observerStart, observerEnd, minimum, maximum)) {
 
                 if (!pen && player.getLocation().distanceSquared(target.getLocation()) > wallDistance) {
                     continue;
@@ -73,7 +74,7 @@ public class VectorTarget extends Target {
                     }
                 }
 
-                returnSet.add((LivingEntity) target);
+                returnSet.add(target);
             }
         }
 
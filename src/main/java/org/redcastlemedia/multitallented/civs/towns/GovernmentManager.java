@@ -24,6 +24,7 @@ import org.redcastlemedia.multitallented.civs.civilians.Civilian;
 import org.redcastlemedia.multitallented.civs.civilians.CivilianManager;
 import org.redcastlemedia.multitallented.civs.items.CVItem;
 import org.redcastlemedia.multitallented.civs.util.Constants;
+import org.redcastlemedia.multitallented.civs.util.EconomyLedger;
 import org.redcastlemedia.multitallented.civs.util.FallbackConfigUtil;
 import org.redcastlemedia.multitallented.civs.util.Util;
 import org.reflections.Reflections;
@@ -210,7 +211,7 @@ public class GovernmentManager {
             for (UUID uuid : town.getRawPeople().keySet()) {
                 OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(uuid);
                 if (offlinePlayer != null) {
-                    Civs.econ.depositPlayer(offlinePlayer, town.getBankAccount() / size);
+                    EconomyLedger.getInstance().depositNow(offlinePlayer, town.getBankAccount() / size);
                 }
             }
             town.setBankAccount(0);
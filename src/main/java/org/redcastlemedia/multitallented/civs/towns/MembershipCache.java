@@ -0,0 +1,22 @@
+package org.redcastlemedia.multitallented.civs.towns;
+
+/**
+ * Keeps track of when merged rosters (Town.getPeople and Region.getPeople) were last valid.
+ * Anything that changes who belongs to a town, region or alliance, or which town a region
+ * sits in, must call invalidate so the next getPeople rebuilds its roster.
+ */
+public final class MembershipCache {
+    private static volatile long generation = 0;
+
+    private MembershipCache() {
+
+    }
+
+    public static long getGeneration() {
+        return generation;
+    }
+
+    public static void invalidate() {
+        generation++;
+    }
+}
@@ -0,0 +1,178 @@
+package org.redcastlemedia.multitallented.civs.towns;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.redcastlemedia.multitallented.civs.alliances.Alliance;
+import org.redcastlemedia.multitallented.civs.alliances.AllianceManager;
+import org.redcastlemedia.multitallented.civs.regions.Region;
+import org.redcastlemedia.multitallented.civs.regions.RegionManager;
+import org.redcastlemedia.multitallented.civs.util.Constants;
+
+/**
+ * What each player belongs to: their role in each town, the towns whose roster (allies
+ * included) has them, the alliances of the towns they are a member of, and the regions
+ * whose roster has them. Everything is rebuilt together after MembershipCache is
+ * invalidated, and regions are added and removed as RegionManager adds and removes them.
+ *
+ * Collections returned here are shared and must not be modified.
+ */
+public final class MembershipIndex {
+    private static MembershipIndex instance = null;
+
+    private final HashMap<UUID, Memberships> memberships = new HashMap<>();
+    private long generation = -1;
+
+    public static MembershipIndex getInstance() {
+        if (instance == null) {
+            instance = new MembershipIndex();
+        }
+        return instance;
+    }
+
+    /**
+     * @return the player's role in each town whose own roster has them, in TownManager order
+     */
+    public Map<Town, String> getTownRoles(UUID uuid) {
+        Memberships playerMemberships = getMemberships(uuid);
+        return playerMemberships == null ? Collections.<Town, String>emptyMap() : playerMemberships.townRoles;
+    }
+
+    public List<Town> getMemberTowns(UUID uuid) {
+        Memberships playerMemberships = getMemberships(uuid);
+        return playerMemberships == null ? Collections.<Town>emptyList() : playerMemberships.memberTowns;
+    }
+
+    /**
+     * @return the alliances of every town the player is a non-ally member of, sorted like
+     * AllianceManager.getAllSortedAlliances
+     */
+    public List<Alliance> getAlliances(UUID uuid) {
+        Memberships playerMemberships = getMemberships(uuid);
+        return playerMemberships == null ? Collections.<Alliance>emptyList() : playerMemberships.alliances;
+    }
+
+    /**
+     * @return regions whose own roster has the player with any role, allies included
+     */
+    public Set<Region> getRegions(UUID uuid) {
+        Memberships playerMemberships = getMemberships(uuid);
+        return playerMemberships == null ? Collections.<Region>emptySet() : playerMemberships.regions;
+    }
+
+    /**
+     * @return regions whose own roster has the player with a role other than ally
+     */
+    public Set<Region> getMemberRegions(UUID uuid) {
+        Memberships playerMemberships = getMemberships(uuid);
+        return playerMemberships == null ? Collections.<Region>emptySet() : playerMemberships.memberRegions;
+    }
+
+    public Set<Region> getOwnedRegions(UUID uuid) {
+        Memberships playerMemberships = getMemberships(uuid);
+        return playerMemberships == null ? Collections.<Region>emptySet() : playerMemberships.ownedRegions;
+    }
+
+    public void addRegion(Region region) {
+        if (generation != MembershipCache.getGeneration()) {
+            return;
+        }
+        indexRegion(region);
+    }
+
+    public void removeRegion(Region region) {
+        if (generation != MembershipCache.getGeneration()) {
+            return;
+        }
+        for (UUID uuid : region.getRawPeople().keySet()) {
+            Memberships playerMemberships = memberships.get(uuid);
+            if (playerMemberships != null) {
+                playerMemberships.regions.remove(region);
+                playerMemberships.memberRegions.remove(region);
+                playerMemberships.ownedRegions.remove(region);
+            }
+        }
+    }
+
+    private Memberships getMemberships(UUID uuid) {
+        if (generation != MembershipCache.getGeneration()) {
+            rebuild();
+        }
+        return memberships.get(uuid);
+    }
+
+    private void rebuild() {
+        memberships.clear();
+        HashMap<String, List<UUID>> townMembers = new HashMap<>();
+        for (Town town : TownManager.getInstance().getTowns()) {
+            List<UUID> members = new ArrayList<>();
+            for (Map.Entry<UUID, String> entry : town.getRawPeople().entrySet()) {
+                getOrCreate(entry.getKey()).townRoles.put(town, entry.getValue());
+                if (!entry.getValue().contains("ally")) {
+                    members.add(entry.getKey());
+                }
+            }
+            townMembers.put(town.getName(), members);
+            for (UUID uuid : town.getPeople().keySet()) {
+                getOrCreate(uuid).memberTowns.add(town);
+            }
+        }
+        for (Alliance alliance : AllianceManager.getInstance().getAllSortedAlliances()) {
+            for (String townName : alliance.getMembers()) {
+                List<UUID> members = townMembers.get(townName);
+                if (members == null) {
+                    continue;
+                }
+                for (UUID uuid : members) {
+                    List<Alliance> alliances = getOrCreate(uuid).alliances;
+                    if (alliances.isEmpty() || alliances.get(alliances.size() - 1) != alliance) {
+                        alliances.add(alliance);
+                    }
+                }
+            }
+        }
+        for (Region region : RegionManager.getInstance().getAllRegions()) {
+            indexRegion(region);
+        }
+        generation = MembershipCache.getGeneration();
+    }
+
+    private void indexRegion(Region region) {
+        for (Map.Entry<UUID, String> entry : region.getRawPeople().entrySet()) {
+            Memberships playerMemberships = getOrCreate(entry.getKey());
+            playerMemberships.regions.add(region);
+            if (entry.getValue().contains("ally")) {
+                continue;
+            }
+            playerMemberships.memberRegions.add(region);
+            if (entry.getValue().contains(Constants.OWNER)) {
+                playerMemberships.ownedRegions.add(region);
+            }
+        }
+    }
+
+    private Memberships getOrCreate(UUID uuid) {
+        Memberships playerMemberships = memberships.get(uuid);
+        if (playerMemberships == null) {
+            playerMemberships = new Memberships();
+            memberships.put(uuid, playerMemberships);
+        }
+        return playerMemberships;
+    }
+
+    private static class Memberships {
+        private final LinkedHashMap<Town, String> townRoles = new LinkedHashMap<>();
+        private final List<Town> memberTowns = new ArrayList<>();
+        private final List<Alliance> alliances = new ArrayList<>();
+        private final LinkedHashSet<Region> regions = new LinkedHashSet<>();
+        private final LinkedHashSet<Region> memberRegions = new LinkedHashSet<>();
+        private final LinkedHashSet<Region> ownedRegions = new LinkedHashSet<>();
+    }
+}
@@ -37,6 +37,8 @@ public class Town {
     private long lastDisable;
     private final int Y_LEVEL = 80;
     private int villagers;
+    private HashMap<UUID, String> cachedPeople;
+    private long cachedPeopleGeneration = -1;
 
     @Getter
     @Setter
@@ -129,8 +131,22 @@ public class Town {
     }
     public void setPeople(UUID uuid, String role) {
         people.put(uuid, role);
+        MembershipCache.invalidate();
     }
+
+    /**
+     * Members of the town plus members of allied towns. The result is cached until
+     * MembershipCache is invalidated, so it must not be modified.
+     */
     public HashMap<UUID, String> getPeople() {
+        if (cachedPeople != null && cachedPeopleGeneration == MembershipCache.getGeneration()) {
+            return cachedPeople;
+        }
+        cachedPeople = mergeAlliedPeople();
+        cachedPeopleGeneration = MembershipCache.getGeneration();
+        return cachedPeople;
+    }
+    private HashMap<UUID, String> mergeAlliedPeople() {
         HashSet<Alliance> allies = new HashSet<>(AllianceManager.getInstance().getAlliances(this));
         if (allies.isEmpty()) {
             return people;
@@ -25,8 +25,12 @@ import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
 import org.redcastlemedia.multitallented.civs.regions.effects.HousingEffect;
+import org.redcastlemedia.multitallented.civs.scheduler.CommonScheduler;
 import org.redcastlemedia.multitallented.civs.util.Constants;
-import org.redcastlemedia.multitallented.civs.util.DebugLogger;
+import org.redcastlemedia.multitallented.civs.util.EconomyLedger;
+import org.redcastlemedia.multitallented.civs.util.Metrics;
+import org.redcastlemedia.multitallented.civs.util.ParallelConfigLoader;
+import org.redcastlemedia.multitallented.civs.util.PersistenceQueue;
 import org.redcastlemedia.multitallented.civs.util.Util;
 
 import java.io.File;
@@ -34,18 +38,28 @@ import java.util.*;
 
 @CivsSingleton(priority = CivsSingleton.SingletonLoadPriority.HIGH)
 public class TownManager {
+    private static final Metrics.Counter SAVES = Metrics.counter("saves");
+    // Keys written by saveTownNow. Anything else in a town file is left alone.
+    private static final List<String> SAVED_KEYS = Arrays.asList("name", "type", "location", "people",
+            "gov-type-changed-today", "last-active", "revolt", "child-locations", "housing", "population",
+            "villagers", "last-disable", "power", "max-power", "gov-type", "taxes", "bank", "last-vote",
+            "votes", "idiocracy-score", "bounties", "colonial-town");
 
     private static TownManager townManager = null;
     private HashMap<String, Town> towns = new HashMap<>();
     private List<Town> sortedTowns = new ArrayList<>();
+    private final TownSpatialIndex townIndex = new TownSpatialIndex();
     private HashMap<UUID, Town> invites = new HashMap<>();
-    private ArrayList<Town> needsSaving = new ArrayList<>();
+    private LinkedHashSet<Town> needsSaving = new LinkedHashSet<>();
 
 
     public void reload() {
         towns.clear();
         sortedTowns.clear();
+        townIndex.clear();
         invites.clear();
+        MembershipCache.invalidate();
+        CommonScheduler.clearOccupants();
         loadAllTowns();
     }
 
@@ -54,21 +68,22 @@ public class TownManager {
         if (!townFolder.exists()) {
             townFolder.mkdir();
         }
-        try {
-            for (File file : townFolder.listFiles()) {
-                FileConfiguration config = new YamlConfiguration();
-                try {
-                    config.load(file);
-
-                    loadTown(config);
-                } catch (Exception e) {
-                    Civs.logger.warning("Unable to read from towns/" + file.getName());
-                    e.printStackTrace();
+        long startTime = System.nanoTime();
+        List<ParallelConfigLoader.ParsedConfig> parsedConfigs = ParallelConfigLoader.parseFolder(townFolder);
+        long parseTime = System.nanoTime() - startTime;
+        startTime = System.nanoTime();
+        for (ParallelConfigLoader.ParsedConfig parsedConfig : parsedConfigs) {
+            try {
+                if (parsedConfig.getConfig() == null) {
+                    throw parsedConfig.getError();
                 }
+                loadTown(parsedConfig.getConfig());
+            } catch (Exception e) {
+                Civs.logger.warning("Unable to read from towns/" + parsedConfig.getFile().getName());
+                e.printStackTrace();
             }
-        } catch (NullPointerException npe) {
-            Civs.logger.severe("Unable to read from town folder!");
         }
+        ParallelConfigLoader.logTiming("towns", towns.size(), parseTime, System.nanoTime() - startTime);
     }
 
     public List<Town> getTowns() { return sortedTowns; }
@@ -77,25 +92,18 @@ public class TownManager {
     }
 
     public Town getTownAt(Location location) {
+        if (location == null || location.getWorld() == null) {
+            return null;
+        }
         ItemManager itemManager = ItemManager.getInstance();
-        for (Town town : sortedTowns) {
+        for (Town town : townIndex.getBucket(location.getWorld().getUID(), location.getX(), location.getZ())) {
             TownType townType = (TownType) itemManager.getItemType(town.getType());
             int radius = townType.getBuildRadius();
             int radiusY = townType.getBuildRadiusY();
             Location townLocation = town.getLocation();
 
-            if (townLocation.getWorld() == null) {
-                continue;
-            }
-            if (!townLocation.getWorld().equals(location.getWorld())) {
-                continue;
-            }
-
-            if (townLocation.getX() - radius >= location.getX()) {
-                break;
-            }
-
-            if (townLocation.getX() + radius >= location.getX() &&
+            if (townLocation.getX() - radius < location.getX() &&
+                    townLocation.getX() + radius >= location.getX() &&
                     townLocation.getZ() + radius >= location.getZ() &&
                     townLocation.getZ() - radius <= location.getZ() &&
                     townLocation.getY() - radiusY <= location.getY() &&
@@ -107,6 +115,10 @@ public class TownManager {
         return null;
     }
 
+    public List<Town> getTownsInChunk(UUID worldUuid, int chunkX, int chunkZ) {
+        return townIndex.getBucket(worldUuid, chunkX << 4, chunkZ << 4);
+    }
+
     public void checkCriticalRequirements(Region region) {
         Town town = getTownAt(region.getLocation());
         if (town == null) {
@@ -154,25 +166,32 @@ public class TownManager {
         int buildRadius = townType.getBuildRadius() + modifier;
         int buildRadiusY = townType.getBuildRadiusY() + modifier;
         List<Town> towns = new ArrayList<>();
-        for (Town town : getTowns()) {
-            if (!location.getWorld().equals(town.getLocation().getWorld())) {
-                continue;
-            }
-            TownType currentTownType = (TownType) ItemManager.getInstance().getItemType(town.getType());
-            if (location.getX() + buildRadius >= town.getLocation().getX() - currentTownType.getBuildRadius() &&
-                    location.getX() - buildRadius <= town.getLocation().getX() + currentTownType.getBuildRadius() &&
-                    location.getZ() + buildRadius >= town.getLocation().getZ() - currentTownType.getBuildRadius() &&
-                    location.getZ() - buildRadius <= town.getLocation().getZ() + currentTownType.getBuildRadius() &&
-                    Math.max(location.getY() - buildRadiusY, 0) <=
-                            Math.max(town.getLocation().getY() + currentTownType.getBuildRadiusY(), 0) &&
-                    Math.min(location.getY() + buildRadiusY, location.getWorld().getMaxHeight()) >=
-                            Math.min(town.getLocation().getY() - currentTownType.getBuildRadiusY(), town.getLocation().getWorld().getMaxHeight())) {
-                towns.add(town);
+        List<List<Town>> buckets = townIndex.getBuckets(location.getWorld().getUID(),
+                location.getX() - buildRadius, location.getX() + buildRadius,
+                location.getZ() - buildRadius, location.getZ() + buildRadius);
+        HashSet<Town> checkedTowns = new HashSet<>();
+        for (List<Town> bucket : buckets) {
+            for (Town town : bucket) {
+                if (checkedTowns.add(town) && intersects(location, buildRadius, buildRadiusY, town)) {
+                    towns.add(town);
+                }
             }
         }
         return towns;
     }
 
+    private boolean intersects(Location location, int buildRadius, int buildRadiusY, Town town) {
+        TownType currentTownType = (TownType) ItemManager.getInstance().getItemType(town.getType());
+        return location.getX() + buildRadius >= town.getLocation().getX() - currentTownType.getBuildRadius() &&
+                location.getX() - buildRadius <= town.getLocation().getX() + currentTownType.getBuildRadius() &&
+                location.getZ() + buildRadius >= town.getLocation().getZ() - currentTownType.getBuildRadius() &&
+                location.getZ() - buildRadius <= town.getLocation().getZ() + currentTownType.getBuildRadius() &&
+                Math.max(location.getY() - buildRadiusY, 0) <=
+                        Math.max(town.getLocation().getY() + currentTownType.getBuildRadiusY(), 0) &&
+                Math.min(location.getY() + buildRadiusY, location.getWorld().getMaxHeight()) >=
+                        Math.min(town.getLocation().getY() - currentTownType.getBuildRadiusY(), town.getLocation().getWorld().getMaxHeight());
+    }
+
     private void loadTown(FileConfiguration config) {
 
         HashMap<UUID, String> people = new HashMap<>();
@@ -259,12 +278,10 @@ public class TownManager {
 
     public Set<Town> getOwnedTowns(Civilian civilian) {
         HashSet<Town> townSet = new HashSet();
-        for (Town town : towns.values()) {
-            if (!town.getRawPeople().containsKey(civilian.getUuid()) ||
-                    !town.getRawPeople().get(civilian.getUuid()).contains(Constants.OWNER)) {
-                continue;
+        for (Map.Entry<Town, String> entry : MembershipIndex.getInstance().getTownRoles(civilian.getUuid()).entrySet()) {
+            if (entry.getValue().contains(Constants.OWNER)) {
+                townSet.add(entry.getKey());
             }
-            townSet.add(town);
         }
         return townSet;
     }
@@ -272,44 +289,29 @@ public class TownManager {
     public void addTown(Town town) {
         towns.put(town.getName(), town);
         sortedTowns.add(town);
-        if (sortedTowns.size() > 1) {
-            Collections.sort(sortedTowns, new Comparator<Town>() {
-
-                @Override
-                public int compare(Town o1, Town o2) {
-                    ItemManager itemManager = ItemManager.getInstance();
-                    TownType townType1 = (TownType) itemManager.getItemType(o1.getType());
-                    TownType townType2 = (TownType) itemManager.getItemType(o2.getType());
-                    if (o1.getLocation().getX() - townType1.getBuildRadius() >
-                            o2.getLocation().getX() - townType2.getBuildRadius()) {
-                        return 1;
-                    } else if (o1.getLocation().getX() - townType1.getBuildRadius() <
-                            o2.getLocation().getX() - townType2.getBuildRadius()) {
-                        return -1;
-                    }
-                    return 0;
-                }
-            });
-        }
+        townIndex.add(town);
+        MembershipCache.invalidate();
     }
     public void removeTown(Town town, boolean broadcast) {
         removeTown(town, broadcast, true);
     }
     public void removeTown(Town town, boolean broadcast, boolean destroyRing) {
         if (broadcast) {
-            for (Player player : Bukkit.getOnlinePlayers()) {
-                player.sendMessage(Civs.getPrefix() + LocaleManager.getInstance().getTranslationWithPlaceholders(player,
-                        "town-destroyed").replace("$1", town.getName()));
-            }
+            LocaleManager.getInstance().broadcast(Bukkit.getOnlinePlayers(), Civs.getPrefix(),
+                    "town-destroyed", town.getName());
             TownType townType = (TownType) ItemManager.getInstance().getItemType(town.getType());
             TownDestroyedEvent townDestroyedEvent = new TownDestroyedEvent(town, townType);
             Bukkit.getPluginManager().callEvent(townDestroyedEvent);
         }
         towns.remove(town.getName());
         sortedTowns.remove(town);
+        townIndex.remove(town);
+        MembershipCache.invalidate();
+        CommonScheduler.removeTownOccupants(town);
         if (destroyRing && ConfigManager.getInstance().getTownRings()) {
             town.destroyRing(true, broadcast);
         }
+        needsSaving.remove(town);
         removeTownFile(town.getName());
     }
 
@@ -344,7 +346,10 @@ public class TownManager {
         Bukkit.getPluginManager().callEvent(townDevolveEvent);
         town.destroyRing(false, true);
         TownType childTownType = (TownType) ItemManager.getInstance().getItemType(townType.getChild());
+        townIndex.remove(town);
         town.setType(childTownType.getProcessedName());
+        townIndex.add(town);
+        MembershipCache.invalidate();
         town.setPower(childTownType.getMaxPower());
         town.setMaxPower(childTownType.getMaxPower());
         TownManager.getInstance().saveTown(town);
@@ -358,11 +363,7 @@ public class TownManager {
 
     private void removeTownFile(String townName) {
         File townFolder = new File(Civs.dataLocation, "towns");
-        if (!townFolder.exists()) {
-            townFolder.mkdir();
-        }
-        File townFile = new File(townFolder, townName + ".yml");
-        townFile.delete();
+        PersistenceQueue.getInstance().delete(new File(townFolder, townName + ".yml"));
     }
 
     public boolean hasGrace(Town town, boolean disable) {
@@ -429,47 +430,29 @@ public class TownManager {
     }
 
     public void saveAllUnsavedTowns() {
-        for (Town town : new HashSet<>(needsSaving)) {
-            saveTownNow(town);
+        queueUnsavedTowns();
+        if (Civs.getInstance() != null) {
+            PersistenceQueue.getInstance().flush();
         }
-        needsSaving.clear();
     }
 
     public int getCountOfPendingSaves() {
         return needsSaving.size();
     }
 
-    public void saveNextTown() {
-        Town t = null;
+    public void queueUnsavedTowns() {
         for (Town town : needsSaving) {
-            t = town;
-            saveTownNow(t);
-            break;
-        }
-        if (t != null) {
-            while (needsSaving.contains(t)) {
-                needsSaving.remove(t);
-            }
+            saveTownNow(town);
         }
+        needsSaving.clear();
     }
 
     private void saveTownNow(Town town) {
-        if (ConfigManager.getInstance().isDebugLog()) {
-            DebugLogger.saves++;
-        }
+        SAVES.increment();
         File townFolder = new File(Civs.dataLocation, "towns");
-        if (!townFolder.exists()) {
-            townFolder.mkdir();
-        }
         File townFile = new File(townFolder, town.getName() + ".yml");
         try {
-            if (!townFile.exists()) {
-                townFile.createNewFile();
-            }
             FileConfiguration config = new YamlConfiguration();
-            config.load(townFile);
-
-
             config.set("name", town.getName());
             config.set("type", town.getType());
             config.set("location", Region.locationToString(town.getLocation()));
@@ -543,7 +526,7 @@ public class TownManager {
             }
 
             //TODO save all town properties
-            config.save(townFile);
+            PersistenceQueue.getInstance().merge(townFile, config, SAVED_KEYS);
         } catch (Exception e) {
             e.printStackTrace();
             Civs.logger.severe("Unable to save town " + town.getName() + ".yml");
@@ -570,9 +553,8 @@ public class TownManager {
 
     public Set<Town> findCommonTowns(Civilian damagerCiv, Civilian dyingCiv) {
         HashSet<Town> commonTowns = new HashSet<>();
-        for (Town town : sortedTowns) {
-            if (town.getPeople().containsKey(damagerCiv.getUuid()) &&
-                    town.getPeople().containsKey(dyingCiv.getUuid())) {
+        for (Town town : MembershipIndex.getInstance().getMemberTowns(damagerCiv.getUuid())) {
+            if (town.getPeople().containsKey(dyingCiv.getUuid())) {
                 commonTowns.add(town);
             }
         }
@@ -580,12 +562,10 @@ public class TownManager {
     }
 
     public Town isOwnerOfATown(Civilian civilian) {
-        for (Town town : sortedTowns) {
-            if (!town.getRawPeople().containsKey(civilian.getUuid()) ||
-                    !town.getRawPeople().get(civilian.getUuid()).contains(Constants.OWNER)) {
-                continue;
+        for (Map.Entry<Town, String> entry : MembershipIndex.getInstance().getTownRoles(civilian.getUuid()).entrySet()) {
+            if (entry.getValue().contains(Constants.OWNER)) {
+                return entry.getKey();
             }
-            return town;
         }
         return null;
     }
@@ -707,7 +687,7 @@ public class TownManager {
                         .replace("$2", "" + townType.getChildPopulation()));
                 return;
             }
-            people = intersectTown.getPeople();
+            people = new HashMap<>(intersectTown.getPeople());
             newTownLocation = intersectTown.getLocation();
             childLocations.add(newTownLocation);
             name = intersectTown.getName();
@@ -758,7 +738,7 @@ public class TownManager {
                     newTown.getBankAccount() > 0) {
                 double price = townType.getPrice();
                 price = Math.min(price, newTown.getBankAccount());
-                Civs.econ.depositPlayer(player, price);
+                EconomyLedger.getInstance().depositNow(player, price);
                 newTown.setBankAccount(newTown.getBankAccount() - price);
                 String priceString = Util.getNumberFormat(price, civilian.getLocale());
                 player.sendMessage(Civs.getPrefix() + LocaleManager.getInstance().getTranslationWithPlaceholders(player,
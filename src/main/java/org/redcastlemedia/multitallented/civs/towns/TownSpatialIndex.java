@@ -0,0 +1,125 @@
+package org.redcastlemedia.multitallented.civs.towns;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.redcastlemedia.multitallented.civs.items.ItemManager;
+import org.redcastlemedia.multitallented.civs.protections.ProtectionMap;
+
+/**
+ * Buckets towns by every chunk their build radius overlaps, partitioned by world,
+ * so that town lookups only look at towns near the location.
+ */
+class TownSpatialIndex {
+    private static final int CHUNK_SHIFT = 4;
+
+    private final HashMap<UUID, HashMap<Long, List<Town>>> buckets = new HashMap<>();
+    private final HashMap<Town, int[]> townChunks = new HashMap<>();
+    private final HashMap<Town, UUID> townWorlds = new HashMap<>();
+
+    void clear() {
+        buckets.clear();
+        townChunks.clear();
+        townWorlds.clear();
+        ProtectionMap.getInstance().clear();
+    }
+
+    void add(Town town) {
+        Location location = town.getLocation();
+        if (location == null || location.getWorld() == null) {
+            return;
+        }
+        TownType townType = (TownType) ItemManager.getInstance().getItemType(town.getType());
+        int radius = townType == null ? 0 : townType.getBuildRadius();
+        int[] chunks = new int[] {
+                toChunk(location.getX() - radius - 1), toChunk(location.getX() + radius + 1),
+                toChunk(location.getZ() - radius - 1), toChunk(location.getZ() + radius + 1)
+        };
+        UUID worldUuid = location.getWorld().getUID();
+        HashMap<Long, List<Town>> worldBuckets = buckets.get(worldUuid);
+        if (worldBuckets == null) {
+            worldBuckets = new HashMap<>();
+            buckets.put(worldUuid, worldBuckets);
+        }
+        for (int chunkX = chunks[0]; chunkX <= chunks[1]; chunkX++) {
+            for (int chunkZ = chunks[2]; chunkZ <= chunks[3]; chunkZ++) {
+                long key = chunkKey(chunkX, chunkZ);
+                List<Town> bucket = worldBuckets.get(key);
+                if (bucket == null) {
+                    bucket = new ArrayList<>(1);
+                    worldBuckets.put(key, bucket);
+                }
+                bucket.add(town);
+            }
+        }
+        townChunks.put(town, chunks);
+        townWorlds.put(town, worldUuid);
+        ProtectionMap.getInstance().invalidate(worldUuid, chunks[0], chunks[1], chunks[2], chunks[3]);
+    }
+
+    void remove(Town town) {
+        int[] chunks = townChunks.remove(town);
+        UUID worldUuid = townWorlds.remove(town);
+        if (chunks == null || worldUuid == null) {
+            return;
+        }
+        ProtectionMap.getInstance().invalidate(worldUuid, chunks[0], chunks[1], chunks[2], chunks[3]);
+        HashMap<Long, List<Town>> worldBuckets = buckets.get(worldUuid);
+        if (worldBuckets == null) {
+            return;
+        }
+        for (int chunkX = chunks[0]; chunkX <= chunks[1]; chunkX++) {
+            for (int chunkZ = chunks[2]; chunkZ <= chunks[3]; chunkZ++) {
+                long key = chunkKey(chunkX, chunkZ);
+                List<Town> bucket = worldBuckets.get(key);
+                if (bucket == null) {
+                    continue;
+                }
+                bucket.remove(town);
+                if (bucket.isEmpty()) {
+                    worldBuckets.remove(key);
+                }
+            }
+        }
+    }
+
+    List<Town> getBucket(UUID worldUuid, double x, double z) {
+        HashMap<Long, List<Town>> worldBuckets = buckets.get(worldUuid);
+        if (worldBuckets == null) {
+            return Collections.emptyList();
+        }
+        List<Town> bucket = worldBuckets.get(chunkKey(toChunk(x), toChunk(z)));
+        return bucket == null ? Collections.<Town>emptyList() : bucket;
+    }
+
+    List<List<Town>> getBuckets(UUID worldUuid, double minX, double maxX, double minZ, double maxZ) {
+        HashMap<Long, List<Town>> worldBuckets = buckets.get(worldUuid);
+        if (worldBuckets == null || worldBuckets.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<List<Town>> returnBuckets = new ArrayList<>();
+        int maxChunkX = toChunk(maxX);
+        int maxChunkZ = toChunk(maxZ);
+        for (int chunkX = toChunk(minX); chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = toChunk(minZ); chunkZ <= maxChunkZ; chunkZ++) {
+                List<Town> bucket = worldBuckets.get(chunkKey(chunkX, chunkZ));
+                if (bucket != null) {
+                    returnBuckets.add(bucket);
+                }
+            }
+        }
+        return returnBuckets;
+    }
+
+    private static int toChunk(double coordinate) {
+        return ((int) Math.floor(coordinate)) >> CHUNK_SHIFT;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+}
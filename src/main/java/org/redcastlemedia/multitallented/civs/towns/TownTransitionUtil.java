@@ -6,6 +6,7 @@ import java.util.UUID;
 import org.bukkit.Bukkit;
 import org.redcastlemedia.multitallented.civs.Civs;
 import org.redcastlemedia.multitallented.civs.ConfigManager;
+import org.redcastlemedia.multitallented.civs.util.EconomyLedger;
 
 public final class TownTransitionUtil {
     private TownTransitionUtil() {
@@ -13,22 +14,24 @@ public final class TownTransitionUtil {
     }
 
     public static void checkTownTransitions() {
-        HashSet<Town> saveThese = new HashSet<>();
         int i=0;
         for (final Town town : TownManager.getInstance().getTowns()) {
             i++;
             Bukkit.getScheduler().scheduleSyncDelayedTask(Civs.getInstance(), new Runnable() {
                @Override
                public void run() {
-                   if (checkTown(town)) {
-                       saveThese.add(town);
-                   }
+                   // The money gap needs every member's balance, so read them off the main thread first
+                   EconomyLedger.getInstance().prefetchBalances(new HashSet<>(town.getRawPeople().keySet()), new Runnable() {
+                       @Override
+                       public void run() {
+                           if (checkTown(town)) {
+                               TownManager.getInstance().saveTown(town);
+                           }
+                       }
+                   });
                }
             },i*20);
         }
-        for (Town town : saveThese) {
-            TownManager.getInstance().saveTown(town);
-        }
     }
 
     protected static boolean checkTown(Town town) {
@@ -49,7 +52,7 @@ public final class TownTransitionUtil {
                 double highestMoney = 0;
                 double totalMoney = 0;
                 for (UUID uuid : town.getRawPeople().keySet()) {
-                    double money = Civs.econ.getBalance(Bukkit.getOfflinePlayer(uuid));
+                    double money = EconomyLedger.getInstance().getBalance(uuid);
                     totalMoney += money;
                     if (highestMoney < money) {
                         highestMoney = money;
@@ -15,6 +15,7 @@ import org.redcastlemedia.multitallented.civs.civilians.CivilianManager;
 import org.redcastlemedia.multitallented.civs.menus.MenuManager;
 import org.redcastlemedia.multitallented.civs.items.CVItem;
 import org.redcastlemedia.multitallented.civs.util.CommandUtil;
+import org.redcastlemedia.multitallented.civs.util.EconomyLedger;
 import org.redcastlemedia.multitallented.civs.util.FallbackConfigUtil;
 import org.redcastlemedia.multitallented.civs.util.PermissionUtil;
 import org.redcastlemedia.multitallented.civs.util.Util;
@@ -166,7 +167,7 @@ public class TutorialManager {
 
         double money = step.getRewardMoney();
         if (money > 0 && Civs.econ != null) {
-            Civs.econ.depositPlayer(offlinePlayer, money);
+            EconomyLedger.getInstance().depositNow(offlinePlayer, money);
         }
         List<String> permissions = step.getPermissions();
         if (Civs.perm != null && !permissions.isEmpty()) {
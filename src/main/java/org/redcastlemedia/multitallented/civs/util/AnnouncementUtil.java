@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
 
@@ -17,7 +18,6 @@ import org.redcastlemedia.multitallented.civs.Civs;
 import org.redcastlemedia.multitallented.civs.ConfigManager;
 import org.redcastlemedia.multitallented.civs.localization.LocaleManager;
 import org.redcastlemedia.multitallented.civs.alliances.Alliance;
-import org.redcastlemedia.multitallented.civs.alliances.AllianceManager;
 import org.redcastlemedia.multitallented.civs.civilians.Bounty;
 import org.redcastlemedia.multitallented.civs.civilians.Civilian;
 import org.redcastlemedia.multitallented.civs.civilians.CivilianManager;
@@ -29,6 +29,7 @@ import org.redcastlemedia.multitallented.civs.regions.effects.HousingEffect;
 import org.redcastlemedia.multitallented.civs.towns.Government;
 import org.redcastlemedia.multitallented.civs.towns.GovernmentManager;
 import org.redcastlemedia.multitallented.civs.towns.GovernmentType;
+import org.redcastlemedia.multitallented.civs.towns.MembershipIndex;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 
@@ -56,17 +57,17 @@ public final class AnnouncementUtil {
         boolean isOwnerOfATown = false;
         boolean isInAnAlliance = false;
         HashSet<Town> towns = new HashSet<>();
-        for (Town town : TownManager.getInstance().getTowns()) {
-            if (town.getRawPeople().containsKey(player.getUniqueId())) {
-                towns.add(town);
-                if (town.getRawPeople().get(player.getUniqueId()).contains(Constants.OWNER)) {
-                    isOwnerOfATown = true;
-                    if (!isInAnAlliance) {
-                        for (Alliance alliance : AllianceManager.getInstance().getAllAlliances()) {
-                            if (alliance.getMembers().contains(town.getName())) {
-                                isInAnAlliance = true;
-                                break;
-                            }
+        MembershipIndex membershipIndex = MembershipIndex.getInstance();
+        for (Map.Entry<Town, String> entry : membershipIndex.getTownRoles(player.getUniqueId()).entrySet()) {
+            Town town = entry.getKey();
+            towns.add(town);
+            if (entry.getValue().contains(Constants.OWNER)) {
+                isOwnerOfATown = true;
+                if (!isInAnAlliance) {
+                    for (Alliance alliance : membershipIndex.getAlliances(player.getUniqueId())) {
+                        if (alliance.getMembers().contains(town.getName())) {
+                            isInAnAlliance = true;
+                            break;
                         }
                     }
                 }
@@ -148,14 +149,7 @@ public final class AnnouncementUtil {
             }
         }
 
-        ArrayList<Region> regions = new ArrayList<>();
-        for (Region region : RegionManager.getInstance().getAllRegions()) {
-            if (!region.getRawPeople().containsKey(player.getUniqueId()) ||
-                    region.getRawPeople().get(player.getUniqueId()).contains("ally")) {
-                continue;
-            }
-            regions.add(region);
-        }
+        ArrayList<Region> regions = new ArrayList<>(membershipIndex.getMemberRegions(player.getUniqueId()));
         Collections.shuffle(regions);
         int regionCount = 0;
         for (Region region : regions) {
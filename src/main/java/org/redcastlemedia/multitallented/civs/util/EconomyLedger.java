@@ -0,0 +1,470 @@
+package org.redcastlemedia.multitallented.civs.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.redcastlemedia.multitallented.civs.Civs;
+import org.redcastlemedia.multitallented.civs.ConfigManager;
+
+import net.milkbowl.vault.economy.EconomyResponse;
+
+/**
+ * Money moved by upkeep payouts and taxes adds up here per account and is sent to
+ * Vault every economy-flush-seconds, on an async task if economy-async-flush is on.
+ * Deposits and withdrawals are kept apart, so each account gets at most one deposit
+ * and one withdrawal per flush. Balances are cached for economy-balance-cache-seconds
+ * and always include the amounts not sent yet. Money that has to move right away goes
+ * through depositNow and withdrawNow, which also drop the cached balance.
+ *
+ * If the economy throws, the amount is kept for the next flush. A refused deposit is
+ * dropped and logged. A refused withdrawal runs its refund callback on the main thread,
+ * or stays pending until the account can pay if it has none. Whatever is still unsent
+ * after a flush or when the server stops is saved to economy-ledger.yml and sent after
+ * the next start. The file is only removed once a flush has sent everything in it.
+ */
+public final class EconomyLedger {
+    private static EconomyLedger economyLedger = null;
+    private static volatile boolean closed = false;
+    private static final String FILE_NAME = "economy-ledger.yml";
+
+    private final HashMap<UUID, Account> pending = new HashMap<>();
+    private final HashMap<UUID, Account> inFlight = new HashMap<>();
+    private final HashMap<UUID, CachedBalance> balances = new HashMap<>();
+    private final Object flushLock = new Object();
+    private final Metrics.Timer flushTimer = Metrics.timer(Metrics.PERSISTENCE, "economy-flush");
+    // Only touched while holding flushLock, or in the constructor
+    private boolean unsentSaved = false;
+
+    private EconomyLedger() {
+        // After shutdown the unsent transactions are already saved and must not be read back
+        if (!closed) {
+            loadUnsent();
+        }
+    }
+
+    public static synchronized EconomyLedger getInstance() {
+        if (economyLedger == null) {
+            economyLedger = new EconomyLedger();
+        }
+        return economyLedger;
+    }
+
+    public void deposit(UUID uuid, double amount) {
+        if (amount <= 0 || isClosed(uuid, amount)) {
+            return;
+        }
+        synchronized (this) {
+            getAccount(pending, uuid).deposit += amount;
+        }
+    }
+
+    public void withdraw(UUID uuid, double amount) {
+        withdraw(uuid, amount, null);
+    }
+
+    /**
+     * @param onRefused runs on the main thread if the economy refuses the withdrawal,
+     *                  to take back whatever was given for it. Without one the withdrawal
+     *                  stays pending until the account can pay.
+     */
+    public void withdraw(UUID uuid, double amount, Runnable onRefused) {
+        if (amount <= 0 || isClosed(uuid, -amount)) {
+            return;
+        }
+        synchronized (this) {
+            getAccount(pending, uuid).withdrawals.add(new Withdrawal(amount, onRefused));
+        }
+    }
+
+    public boolean has(UUID uuid, double amount) {
+        return getBalance(uuid) >= amount;
+    }
+
+    /**
+     * @return the last known Vault balance plus everything not sent to Vault yet
+     */
+    public double getBalance(UUID uuid) {
+        CachedBalance cachedBalance;
+        synchronized (this) {
+            cachedBalance = balances.get(uuid);
+            // A balance read while a flush runs may or may not include the amount in flight
+            if (cachedBalance != null && (!cachedBalance.isStale() || inFlight.containsKey(uuid))) {
+                return cachedBalance.balance + getUnsent(uuid);
+            }
+        }
+        if (Civs.econ == null) {
+            return getUnsent(uuid);
+        }
+        double balance = Civs.econ.getBalance(Bukkit.getOfflinePlayer(uuid));
+        synchronized (this) {
+            if (!inFlight.containsKey(uuid)) {
+                balances.put(uuid, new CachedBalance(balance));
+            }
+            return balance + getUnsent(uuid);
+        }
+    }
+
+    /**
+     * Deposits through Vault now instead of on the next flush.
+     */
+    public EconomyResponse depositNow(OfflinePlayer offlinePlayer, double amount) {
+        try {
+            return Civs.econ.depositPlayer(offlinePlayer, amount);
+        } finally {
+            invalidateBalance(offlinePlayer.getUniqueId());
+        }
+    }
+
+    /**
+     * Withdraws through Vault now instead of on the next flush.
+     */
+    public EconomyResponse withdrawNow(OfflinePlayer offlinePlayer, double amount) {
+        try {
+            return Civs.econ.withdrawPlayer(offlinePlayer, amount);
+        } finally {
+            invalidateBalance(offlinePlayer.getUniqueId());
+        }
+    }
+
+    private synchronized void invalidateBalance(UUID uuid) {
+        balances.remove(uuid);
+    }
+
+    /**
+     * Reads the Vault balance of every account off the main thread (unless economy-async-flush
+     * is off) and then runs the callback on the main thread, so has() and getBalance() don't
+     * block for these accounts while it runs.
+     */
+    public void prefetchBalances(final Collection<UUID> uuids, final Runnable callback) {
+        if (Civs.econ == null || Civs.getInstance() == null ||
+                !ConfigManager.getInstance().isEconomyAsyncFlush()) {
+            fetchBalances(uuids);
+            callback.run();
+            return;
+        }
+        Bukkit.getScheduler().runTaskAsynchronously(Civs.getInstance(), new Runnable() {
+            @Override
+            public void run() {
+                fetchBalances(uuids);
+                Bukkit.getScheduler().runTask(Civs.getInstance(), callback);
+            }
+        });
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size() + inFlight.size();
+    }
+
+    /**
+     * Sends the deposits and withdrawals of every account to Vault. Only one flush runs at a time.
+     */
+    public void flush() {
+        if (Civs.econ == null) {
+            return;
+        }
+        synchronized (flushLock) {
+            if (closed) {
+                return;
+            }
+            sendPending();
+            saveUnsent();
+        }
+    }
+
+    /**
+     * Sends and saves what is left. The ledger takes no more transactions afterwards.
+     */
+    public static synchronized void shutdown() {
+        if (economyLedger == null) {
+            closed = true;
+            return;
+        }
+        synchronized (economyLedger.flushLock) {
+            if (Civs.econ != null) {
+                economyLedger.sendPending();
+            }
+            int count = economyLedger.saveUnsent();
+            if (count > 0) {
+                Civs.logger.log(Level.WARNING, "Saved {0} unsent economy transactions to {1}",
+                        new Object[] { count, FILE_NAME });
+            }
+            closed = true;
+        }
+    }
+
+    static synchronized void reset() {
+        economyLedger = null;
+        closed = false;
+    }
+
+    private boolean isClosed(UUID uuid, double amount) {
+        if (closed) {
+            Civs.logger.log(Level.SEVERE, "Economy ledger is closed, dropping {0} for {1}",
+                    new Object[] { amount, uuid });
+        }
+        return closed;
+    }
+
+    private void sendPending() {
+        HashMap<UUID, Account> accounts;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            accounts = new HashMap<>(pending);
+            inFlight.putAll(pending);
+            pending.clear();
+        }
+        long start = flushTimer.start();
+        List<Runnable> refunds = new ArrayList<>();
+        for (Map.Entry<UUID, Account> entry : accounts.entrySet()) {
+            send(entry.getKey(), entry.getValue(), refunds);
+        }
+        flushTimer.stop(start);
+        for (Runnable refund : refunds) {
+            runOnMainThread(refund);
+        }
+    }
+
+    private void send(UUID uuid, Account account, List<Runnable> refunds) {
+        OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(uuid);
+        Account unsent = new Account();
+        EconomyResponse lastResponse = null;
+        boolean sentAll = true;
+        if (account.deposit > 0) {
+            try {
+                EconomyResponse response = Civs.econ.depositPlayer(offlinePlayer, account.deposit);
+                if (response != null && !response.transactionSuccess()) {
+                    Civs.logger.log(Level.WARNING, "Economy refused deposit of {0} for {1}: {2}",
+                            new Object[] { account.deposit, uuid, response.errorMessage });
+                    sentAll = false;
+                }
+                lastResponse = response;
+            } catch (Exception e) {
+                Civs.logger.log(Level.SEVERE, "Unable to deposit " + account.deposit + " for " + uuid +
+                        ", retrying next flush", e);
+                unsent.deposit = account.deposit;
+                sentAll = false;
+            }
+        }
+        double withdrawn = account.getWithdrawn();
+        if (withdrawn > 0) {
+            try {
+                EconomyResponse response = Civs.econ.withdrawPlayer(offlinePlayer, withdrawn);
+                if (response != null && !response.transactionSuccess()) {
+                    // Some of the withdrawals may still fit, so try them one at a time
+                    sendEach(uuid, offlinePlayer, account.withdrawals, unsent, refunds);
+                    sentAll = false;
+                } else {
+                    lastResponse = response;
+                }
+            } catch (Exception e) {
+                Civs.logger.log(Level.SEVERE, "Unable to withdraw " + withdrawn + " for " + uuid +
+                        ", retrying next flush", e);
+                unsent.withdrawals.addAll(account.withdrawals);
+                sentAll = false;
+            }
+        }
+        synchronized (this) {
+            inFlight.remove(uuid);
+            if (sentAll && lastResponse != null) {
+                balances.put(uuid, new CachedBalance(lastResponse.balance));
+            } else {
+                balances.remove(uuid);
+            }
+            if (unsent.deposit > 0 || !unsent.withdrawals.isEmpty()) {
+                Account retry = getAccount(pending, uuid);
+                retry.deposit += unsent.deposit;
+                retry.withdrawals.addAll(unsent.withdrawals);
+            }
+        }
+    }
+
+    private void sendEach(UUID uuid, OfflinePlayer offlinePlayer, List<Withdrawal> withdrawals,
+                          Account unsent, List<Runnable> refunds) {
+        for (Withdrawal withdrawal : withdrawals) {
+            EconomyResponse response;
+            try {
+                response = Civs.econ.withdrawPlayer(offlinePlayer, withdrawal.amount);
+            } catch (Exception e) {
+                Civs.logger.log(Level.SEVERE, "Unable to withdraw " + withdrawal.amount + " for " + uuid +
+                        ", retrying next flush", e);
+                unsent.withdrawals.add(withdrawal);
+                continue;
+            }
+            if (response == null || response.transactionSuccess()) {
+                continue;
+            }
+            if (withdrawal.onRefused != null) {
+                Civs.logger.log(Level.WARNING, "Economy refused withdrawal of {0} for {1}, refunding: {2}",
+                        new Object[] { withdrawal.amount, uuid, response.errorMessage });
+                refunds.add(withdrawal.onRefused);
+                continue;
+            }
+            if (!withdrawal.refused) {
+                Civs.logger.log(Level.WARNING, "Economy refused withdrawal of {0} for {1}, keeping it pending: {2}",
+                        new Object[] { withdrawal.amount, uuid, response.errorMessage });
+                withdrawal.refused = true;
+            }
+            unsent.withdrawals.add(withdrawal);
+        }
+    }
+
+    private void fetchBalances(Collection<UUID> uuids) {
+        if (Civs.econ == null) {
+            return;
+        }
+        // Holding the flush lock means nothing is in flight, so the balance matches getUnsent
+        synchronized (flushLock) {
+            for (UUID uuid : uuids) {
+                double balance = Civs.econ.getBalance(Bukkit.getOfflinePlayer(uuid));
+                synchronized (this) {
+                    balances.put(uuid, new CachedBalance(balance));
+                }
+            }
+        }
+    }
+
+    private void runOnMainThread(Runnable runnable) {
+        if (Civs.getInstance() == null || Bukkit.isPrimaryThread()) {
+            runnable.run();
+        } else {
+            Bukkit.getScheduler().runTask(Civs.getInstance(), runnable);
+        }
+    }
+
+    private static Account getAccount(HashMap<UUID, Account> accounts, UUID uuid) {
+        Account account = accounts.get(uuid);
+        if (account == null) {
+            account = new Account();
+            accounts.put(uuid, account);
+        }
+        return account;
+    }
+
+    private synchronized double getUnsent(UUID uuid) {
+        double unsent = 0;
+        Account pendingAccount = pending.get(uuid);
+        if (pendingAccount != null) {
+            unsent += pendingAccount.deposit - pendingAccount.getWithdrawn();
+        }
+        Account inFlightAccount = inFlight.get(uuid);
+        if (inFlightAccount != null) {
+            unsent += inFlightAccount.deposit - inFlightAccount.getWithdrawn();
+        }
+        return unsent;
+    }
+
+    private void loadUnsent() {
+        if (Civs.dataLocation == null) {
+            return;
+        }
+        File ledgerFile = new File(Civs.dataLocation, FILE_NAME);
+        if (!ledgerFile.exists()) {
+            return;
+        }
+        FileConfiguration config = YamlConfiguration.loadConfiguration(ledgerFile);
+        ConfigurationSection section = config.getConfigurationSection("pending");
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                try {
+                    UUID uuid = UUID.fromString(key);
+                    Account account = getAccount(pending, uuid);
+                    account.deposit = section.getDouble(key + ".deposit", 0);
+                    double withdrawn = section.getDouble(key + ".withdraw", 0);
+                    if (withdrawn > 0) {
+                        account.withdrawals.add(new Withdrawal(withdrawn, null));
+                    }
+                } catch (IllegalArgumentException e) {
+                    Civs.logger.log(Level.WARNING, "Invalid account {0} in {1}", new Object[] { key, FILE_NAME });
+                }
+            }
+        }
+        Civs.logger.log(Level.INFO, "Loaded {0} unsent economy transactions", pending.size());
+        // Kept until a flush has sent these, so a crash before then doesn't lose them
+        unsentSaved = true;
+    }
+
+    /**
+     * Writes what is still pending to the ledger file, or deletes it once nothing is.
+     * @return the number of accounts saved
+     */
+    private int saveUnsent() {
+        FileConfiguration config = new YamlConfiguration();
+        int count = 0;
+        synchronized (this) {
+            for (Map.Entry<UUID, Account> entry : pending.entrySet()) {
+                Account account = entry.getValue();
+                if (account.deposit > 0) {
+                    config.set("pending." + entry.getKey() + ".deposit", account.deposit);
+                }
+                // Refund callbacks can't be saved, so these are sent as plain withdrawals after a restart
+                if (account.getWithdrawn() > 0) {
+                    config.set("pending." + entry.getKey() + ".withdraw", account.getWithdrawn());
+                }
+                count++;
+            }
+        }
+        if (Civs.dataLocation == null || Civs.getInstance() == null) {
+            return count;
+        }
+        File ledgerFile = new File(Civs.dataLocation, FILE_NAME);
+        if (count > 0) {
+            PersistenceQueue.getInstance().write(ledgerFile, config);
+            unsentSaved = true;
+        } else if (unsentSaved) {
+            PersistenceQueue.getInstance().delete(ledgerFile);
+            unsentSaved = false;
+        }
+        return count;
+    }
+
+    private static class Account {
+        private double deposit;
+        private final List<Withdrawal> withdrawals = new ArrayList<>();
+
+        private double getWithdrawn() {
+            double withdrawn = 0;
+            for (Withdrawal withdrawal : withdrawals) {
+                withdrawn += withdrawal.amount;
+            }
+            return withdrawn;
+        }
+    }
+
+    private static class Withdrawal {
+        private final double amount;
+        private final Runnable onRefused;
+        private boolean refused;
+
+        private Withdrawal(double amount, Runnable onRefused) {
+            this.amount = amount;
+            this.onRefused = onRefused;
+        }
+    }
+
+    private static class CachedBalance {
+        private final double balance;
+        private final long time;
+
+        private CachedBalance(double balance) {
+            this.balance = balance;
+            this.time = System.currentTimeMillis();
+        }
+
+        private boolean isStale() {
+            return time + ConfigManager.getInstance().getEconomyBalanceCacheSeconds() * 1000 < System.currentTimeMillis();
+        }
+    }
+}
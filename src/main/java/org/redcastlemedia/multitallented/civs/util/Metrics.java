@@ -0,0 +1,411 @@
+package org.redcastlemedia.multitallented.civs.util;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.redcastlemedia.multitallented.civs.Civs;
+import org.redcastlemedia.multitallented.civs.regions.RegionManager;
+import org.redcastlemedia.multitallented.civs.towns.TownManager;
+
+/**
+ * Counters, gauges and latency timers for finding out what the plugin spends its tick on.
+ * Counters and timers are created once and kept by the code that updates them, so
+ * updating them does not allocate. Timers keep a log scale histogram (8 buckets per
+ * power of two, so percentiles are within about 12%) and belong to a group, like
+ * "handler", "effect" or "region-type", so reports can be broken down by group.
+ *
+ * Everything counts from the last reset. The debug task logs a summary, writes
+ * metrics.yml and resets every 30 seconds when debug-log is on, and /cv debug shows the
+ * current numbers at any time.
+ */
+public final class Metrics {
+    public static final String HANDLER = "handler";
+    public static final String EFFECT = "effect";
+    public static final String REGION_TYPE = "region-type";
+    public static final String SCHEDULER = "scheduler";
+    public static final String PERSISTENCE = "persistence";
+    private static final String FILE_NAME = "metrics.yml";
+
+    private static final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, ConcurrentHashMap<String, Timer>> timers = new ConcurrentHashMap<>();
+    private static volatile long intervalStart = System.currentTimeMillis();
+
+    static {
+        gauge("pending-region-saves", new Gauge() {
+            @Override
+            public long getValue() {
+                return RegionManager.getInstance().getCountOfPendingSaves();
+            }
+        });
+        gauge("pending-town-saves", new Gauge() {
+            @Override
+            public long getValue() {
+                return TownManager.getInstance().getCountOfPendingSaves();
+            }
+        });
+        gauge("queued-file-writes", new Gauge() {
+            @Override
+            public long getValue() {
+                return PersistenceQueue.getInstance().getQueueDepth();
+            }
+        });
+        gauge("pending-economy-transactions", new Gauge() {
+            @Override
+            public long getValue() {
+                return EconomyLedger.getInstance().getPendingCount();
+            }
+        });
+        gauge("regions", new Gauge() {
+            @Override
+            public long getValue() {
+                return RegionManager.getInstance().getAllRegions().size();
+            }
+        });
+        gauge("towns", new Gauge() {
+            @Override
+            public long getValue() {
+                return TownManager.getInstance().getTowns().size();
+            }
+        });
+    }
+
+    private Metrics() {
+
+    }
+
+    public static Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            counter = new Counter();
+            Counter previous = counters.putIfAbsent(name, counter);
+            if (previous != null) {
+                counter = previous;
+            }
+        }
+        return counter;
+    }
+
+    public static void gauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Looking up an existing timer does not allocate, so this can be called with a
+     * region type or effect key on every tick.
+     */
+    public static Timer timer(String group, String name) {
+        ConcurrentHashMap<String, Timer> groupTimers = timers.get(group);
+        if (groupTimers == null) {
+            groupTimers = new ConcurrentHashMap<>();
+            ConcurrentHashMap<String, Timer> previous = timers.putIfAbsent(group, groupTimers);
+            if (previous != null) {
+                groupTimers = previous;
+            }
+        }
+        Timer timer = groupTimers.get(name);
+        if (timer == null) {
+            timer = new Timer();
+            Timer previous = groupTimers.putIfAbsent(name, timer);
+            if (previous != null) {
+                timer = previous;
+            }
+        }
+        return timer;
+    }
+
+    /**
+     * Registers the event handlers of the listener like PluginManager.registerEvents, but
+     * times each one.
+     */
+    public static void registerEvents(Listener listener) {
+        Set<Method> methods = new HashSet<>(Arrays.asList(listener.getClass().getMethods()));
+        methods.addAll(Arrays.asList(listener.getClass().getDeclaredMethods()));
+        for (final Method method : methods) {
+            EventHandler eventHandler = method.getAnnotation(EventHandler.class);
+            if (eventHandler == null || method.isBridge() || method.isSynthetic() ||
+                    method.getParameterTypes().length != 1 ||
+                    !Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                continue;
+            }
+            final Class<? extends Event> eventClass = method.getParameterTypes()[0].asSubclass(Event.class);
+            method.setAccessible(true);
+            final Timer timer = timer(HANDLER, listener.getClass().getSimpleName() + "." + method.getName());
+            EventExecutor executor = new EventExecutor() {
+                @Override
+                public void execute(Listener listener, Event event) throws EventException {
+                    if (!eventClass.isInstance(event)) {
+                        return;
+                    }
+                    long start = System.nanoTime();
+                    try {
+                        method.invoke(listener, event);
+                    } catch (InvocationTargetException e) {
+                        throw new EventException(e.getCause());
+                    } catch (Exception e) {
+                        throw new EventException(e);
+                    } finally {
+                        timer.record(System.nanoTime() - start);
+                    }
+                }
+            };
+            Bukkit.getPluginManager().registerEvent(eventClass, listener, eventHandler.priority(), executor,
+                    Civs.getInstance(), eventHandler.ignoreCancelled());
+        }
+    }
+
+    /**
+     * @param group only include timers of this group, or null for all of them
+     */
+    public static List<String> getReport(String group, int maxTimersPerGroup) {
+        List<String> lines = new ArrayList<>();
+        long seconds = (System.currentTimeMillis() - intervalStart) / 1000;
+        lines.add("Metrics for the last " + seconds + "s");
+        if (group == null) {
+            for (String name : sortedKeys(counters)) {
+                lines.add(name + ": " + counters.get(name).getCount());
+            }
+            for (String name : sortedKeys(gauges)) {
+                lines.add(name + ": " + gauges.get(name).getValue());
+            }
+        }
+        for (String timerGroup : sortedKeys(timers)) {
+            if (group != null && !group.equalsIgnoreCase(timerGroup)) {
+                continue;
+            }
+            List<Map.Entry<String, Timer>> entries = getTimersByTotalTime(timerGroup);
+            if (entries.isEmpty()) {
+                continue;
+            }
+            lines.add(timerGroup + ":");
+            for (int i = 0; i < entries.size() && i < maxTimersPerGroup; i++) {
+                Timer timer = entries.get(i).getValue();
+                lines.add(String.format("  %s: %d calls, %.2fms total, p50 %.3fms, p99 %.3fms, max %.3fms",
+                        entries.get(i).getKey(), timer.getCount(), toMillis(timer.getTotalNanos()),
+                        toMillis(timer.getPercentile(0.5)), toMillis(timer.getPercentile(0.99)),
+                        toMillis(timer.getMaxNanos())));
+            }
+        }
+        return lines;
+    }
+
+    public static FileConfiguration toConfig() {
+        FileConfiguration config = new YamlConfiguration();
+        config.set("interval-start", intervalStart);
+        config.set("interval-end", System.currentTimeMillis());
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            config.set("counters." + entry.getKey(), entry.getValue().getCount());
+        }
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            config.set("gauges." + entry.getKey(), entry.getValue().getValue());
+        }
+        for (String group : timers.keySet()) {
+            for (Map.Entry<String, Timer> entry : getTimersByTotalTime(group)) {
+                String path = "timers." + group + "." + entry.getKey().replace('.', '_');
+                Timer timer = entry.getValue();
+                config.set(path + ".count", timer.getCount());
+                config.set(path + ".total-ms", toMillis(timer.getTotalNanos()));
+                config.set(path + ".p50-ms", toMillis(timer.getPercentile(0.5)));
+                config.set(path + ".p95-ms", toMillis(timer.getPercentile(0.95)));
+                config.set(path + ".p99-ms", toMillis(timer.getPercentile(0.99)));
+                config.set(path + ".max-ms", toMillis(timer.getMaxNanos()));
+            }
+        }
+        return config;
+    }
+
+    public static void reset() {
+        for (Counter counter : counters.values()) {
+            counter.reset();
+        }
+        for (ConcurrentHashMap<String, Timer> groupTimers : timers.values()) {
+            for (Timer timer : groupTimers.values()) {
+                timer.reset();
+            }
+        }
+        intervalStart = System.currentTimeMillis();
+    }
+
+    public static Runnable timedDebugTask() {
+        return new Runnable() {
+
+            @Override
+            public void run() {
+                for (String line : getReport(null, 5)) {
+                    Civs.logger.info(line);
+                }
+                PersistenceQueue.getInstance().write(new File(Civs.dataLocation, FILE_NAME), toConfig());
+                reset();
+            }
+        };
+    }
+
+    private static List<Map.Entry<String, Timer>> getTimersByTotalTime(String group) {
+        List<Map.Entry<String, Timer>> entries = new ArrayList<>();
+        // Handlers of async events can still be recording, so sort on a snapshot of the totals
+        final HashMap<String, Long> totals = new HashMap<>();
+        for (Map.Entry<String, Timer> entry : timers.get(group).entrySet()) {
+            if (entry.getValue().getCount() > 0) {
+                entries.add(entry);
+                totals.put(entry.getKey(), entry.getValue().getTotalNanos());
+            }
+        }
+        entries.sort(new Comparator<Map.Entry<String, Timer>>() {
+            @Override
+            public int compare(Map.Entry<String, Timer> o1, Map.Entry<String, Timer> o2) {
+                return Long.compare(totals.get(o2.getKey()), totals.get(o1.getKey()));
+            }
+        });
+        return entries;
+    }
+
+    private static List<String> sortedKeys(Map<String, ?> map) {
+        List<String> keys = new ArrayList<>(map.keySet());
+        Collections.sort(keys);
+        return keys;
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / 1000000;
+    }
+
+    public interface Gauge {
+        long getValue();
+    }
+
+    public static final class Counter {
+        private final AtomicLong count = new AtomicLong();
+
+        private Counter() {
+
+        }
+
+        public void increment() {
+            count.incrementAndGet();
+        }
+
+        public void add(long amount) {
+            count.addAndGet(amount);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        private void reset() {
+            count.set(0);
+        }
+    }
+
+    public static final class Timer {
+        // Values under 16ns get a bucket each, then 8 buckets per power of two
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int LINEAR_BUCKETS = 16;
+        private static final int BUCKETS = LINEAR_BUCKETS + (63 - 4) * (1 << SUB_BUCKET_BITS);
+
+        private final long[] buckets = new long[BUCKETS];
+        private long count = 0;
+        private long totalNanos = 0;
+        private long maxNanos = 0;
+
+        private Timer() {
+
+        }
+
+        public long start() {
+            return System.nanoTime();
+        }
+
+        public void stop(long start) {
+            record(System.nanoTime() - start);
+        }
+
+        public synchronized void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            buckets[getBucket(nanos)]++;
+            count++;
+            totalNanos += nanos;
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public synchronized long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * @return the upper bound of the bucket holding that fraction of the values
+         */
+        public synchronized long getPercentile(double fraction) {
+            if (count == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(fraction * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= target && seen > 0) {
+                    return Math.min(getUpperBound(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        private synchronized void reset() {
+            Arrays.fill(buckets, 0);
+            count = 0;
+            totalNanos = 0;
+            maxNanos = 0;
+        }
+
+        static int getBucket(long nanos) {
+            if (nanos < LINEAR_BUCKETS) {
+                return (int) nanos;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+            return LINEAR_BUCKETS + ((exponent - 4) << SUB_BUCKET_BITS) + subBucket;
+        }
+
+        static long getUpperBound(int bucket) {
+            if (bucket < LINEAR_BUCKETS) {
+                return bucket;
+            }
+            int exponent = ((bucket - LINEAR_BUCKETS) >> SUB_BUCKET_BITS) + 4;
+            long subBucket = (bucket - LINEAR_BUCKETS) & ((1 << SUB_BUCKET_BITS) - 1);
+            long width = 1L << (exponent - SUB_BUCKET_BITS);
+            return ((1L << SUB_BUCKET_BITS) + subBucket) * width + width - 1;
+        }
+    }
+}
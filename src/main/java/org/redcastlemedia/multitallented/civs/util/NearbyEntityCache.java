@@ -0,0 +1,132 @@
+package org.redcastlemedia.multitallented.civs.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.redcastlemedia.multitallented.civs.Civs;
+
+/**
+ * Answers "entities near this point" for spell targets and region effects without spawning
+ * a marker entity. The entity list of each chunk is read once per tick and shared by every
+ * query that touches it. Positions are read live, so an entity matches when its location
+ * is inside the box, and entities removed earlier in the tick are skipped. Entities
+ * spawned during the tick are only seen if the spawner calls {@link #invalidate}.
+ */
+public final class NearbyEntityCache {
+    private static final Entity[] NO_ENTITIES = new Entity[0];
+    private static final HashMap<UUID, HashMap<Long, Entity[]>> chunkEntities = new HashMap<>();
+    private static boolean clearScheduled = false;
+
+    private NearbyEntityCache() {
+
+    }
+
+    public static <T extends Entity> List<T> getNearbyEntities(Location center, double radiusX, double radiusY,
+                                                               double radiusZ, Class<T> entityClass) {
+        List<T> entities = new ArrayList<>();
+        World world = center.getWorld();
+        if (world == null) {
+            return entities;
+        }
+        double minX = center.getX() - radiusX;
+        double maxX = center.getX() + radiusX;
+        double minY = center.getY() - radiusY;
+        double maxY = center.getY() + radiusY;
+        double minZ = center.getZ() - radiusZ;
+        double maxZ = center.getZ() + radiusZ;
+        int maxChunkX = ((int) Math.floor(maxX)) >> 4;
+        int maxChunkZ = ((int) Math.floor(maxZ)) >> 4;
+        for (int chunkX = ((int) Math.floor(minX)) >> 4; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = ((int) Math.floor(minZ)) >> 4; chunkZ <= maxChunkZ; chunkZ++) {
+                for (Entity entity : getChunkEntities(world, chunkX, chunkZ)) {
+                    if (!entityClass.isInstance(entity) || !entity.isValid()) {
+                        continue;
+                    }
+                    Location location = entity.getLocation();
+                    if (location.getX() >= minX && location.getX() <= maxX &&
+                            location.getY() >= minY && location.getY() <= maxY &&
+                            location.getZ() >= minZ && location.getZ() <= maxZ) {
+                        entities.add(entityClass.cast(entity));
+                    }
+                }
+            }
+        }
+        return entities;
+    }
+
+    public static List<Entity> getNearbyEntities(Location center, double radiusX, double radiusY, double radiusZ) {
+        return getNearbyEntities(center, radiusX, radiusY, radiusZ, Entity.class);
+    }
+
+    /**
+     * Drops the cached entities of the chunk at the location, so an entity spawned
+     * there counts towards the next lookup in the same tick.
+     */
+    public static void invalidate(Location location) {
+        World world = location.getWorld();
+        if (world == null) {
+            return;
+        }
+        HashMap<Long, Entity[]> worldChunks = chunkEntities.get(world.getUID());
+        if (worldChunks != null) {
+            worldChunks.remove(chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+        }
+    }
+
+    private static Entity[] getChunkEntities(World world, int chunkX, int chunkZ) {
+        if (!world.isChunkLoaded(chunkX, chunkZ)) {
+            return NO_ENTITIES;
+        }
+        if (Civs.getInstance() == null) {
+            return readChunk(world, chunkX, chunkZ);
+        }
+        HashMap<Long, Entity[]> worldChunks = chunkEntities.get(world.getUID());
+        if (worldChunks == null) {
+            worldChunks = new HashMap<>();
+            chunkEntities.put(world.getUID(), worldChunks);
+        }
+        long key = chunkKey(chunkX, chunkZ);
+        Entity[] entities = worldChunks.get(key);
+        if (entities == null) {
+            scheduleClear();
+            entities = readChunk(world, chunkX, chunkZ);
+            worldChunks.put(key, entities);
+        }
+        return entities;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static Entity[] readChunk(World world, int chunkX, int chunkZ) {
+        Chunk chunk = world.getChunkAt(chunkX, chunkZ);
+        return chunk == null ? NO_ENTITIES : chunk.getEntities();
+    }
+
+    static void reset() {
+        chunkEntities.clear();
+        clearScheduled = false;
+    }
+
+    private static void scheduleClear() {
+        if (clearScheduled) {
+            return;
+        }
+        Bukkit.getScheduler().scheduleSyncDelayedTask(Civs.getInstance(), new Runnable() {
+            @Override
+            public void run() {
+                chunkEntities.clear();
+                clearScheduled = false;
+            }
+        }, 1L);
+        clearScheduled = true;
+    }
+}
@@ -61,8 +61,8 @@ public final class OwnershipUtil {
 
         if (oligarchyOverride) {
             OfflinePlayer invitePlayer = Bukkit.getOfflinePlayer(invitee.getUuid());
-            Civs.econ.withdrawPlayer(player, price);
-            Civs.econ.depositPlayer(invitePlayer, price);
+            EconomyLedger.getInstance().withdrawNow(player, price);
+            EconomyLedger.getInstance().depositNow(invitePlayer, price);
         }
         return false;
     }
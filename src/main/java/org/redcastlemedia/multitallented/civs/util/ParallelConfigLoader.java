@@ -0,0 +1,142 @@
+package org.redcastlemedia.multitallented.civs.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.redcastlemedia.multitallented.civs.Civs;
+
+/**
+ * Parses every yml file in a data folder on a fork-join pool. Only the YAML parsing
+ * happens off the main thread; turning the configs into regions, towns etc. still has
+ * to be done by the caller on the main thread since that touches the Bukkit API.
+ */
+public final class ParallelConfigLoader {
+    private ParallelConfigLoader() {
+
+    }
+
+    public static List<ParsedConfig> parseFolder(File folder) {
+        File[] files = folder.listFiles();
+        if (files == null || files.length == 0) {
+            return Collections.emptyList();
+        }
+        final List<File> fileList = new ArrayList<>(Arrays.asList(files));
+        fileList.removeIf(file -> !file.isFile() || PersistenceQueue.isTempFile(file));
+        return parseFiles(fileList);
+    }
+
+    public static List<ParsedConfig> parseFiles(List<File> files) {
+        if (files.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return mapInParallel(files, ParallelConfigLoader::parse);
+    }
+
+    /**
+     * Parses YAML that was read from somewhere other than a yml file. Anything that
+     * fails to parse is logged and left out of the returned map.
+     */
+    public static Map<String, FileConfiguration> parseStrings(Map<String, String> sources) {
+        final List<Map.Entry<String, String>> entries = new ArrayList<>(sources.entrySet());
+        List<FileConfiguration> configs = mapInParallel(entries, entry -> {
+            FileConfiguration config = new YamlConfiguration();
+            try {
+                config.loadFromString(entry.getValue());
+                return config;
+            } catch (Exception e) {
+                return null;
+            }
+        });
+        Map<String, FileConfiguration> parsedConfigs = new LinkedHashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            if (configs.get(i) == null) {
+                Civs.logger.log(Level.SEVERE, "Unable to parse {0}", entries.get(i).getKey());
+            } else {
+                parsedConfigs.put(entries.get(i).getKey(), configs.get(i));
+            }
+        }
+        return parsedConfigs;
+    }
+
+    private static <T, R> List<R> mapInParallel(final List<T> inputs, final Function<T, R> mapper) {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        try {
+            return pool.submit(() -> inputs.parallelStream()
+                    .map(mapper)
+                    .collect(Collectors.toList())).get();
+        } catch (Exception e) {
+            Civs.logger.log(Level.SEVERE, "Parallel load failed, loading sequentially", e);
+            List<R> results = new ArrayList<>();
+            for (T input : inputs) {
+                results.add(mapper.apply(input));
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static ParsedConfig parse(File file) {
+        FileConfiguration config = new YamlConfiguration();
+        try {
+            config.load(file);
+            return new ParsedConfig(file, config, null);
+        } catch (Exception e) {
+            return new ParsedConfig(file, null, e);
+        }
+    }
+
+    public static void logTiming(String phase, int count, long parseNanos, long mergeNanos) {
+        Object[] params = { phase, count, TimeUnit.NANOSECONDS.toMillis(parseNanos),
+                TimeUnit.NANOSECONDS.toMillis(mergeNanos) };
+        Civs.logger.log(Level.INFO, "Loaded {1} {0} (parse {2}ms, merge {3}ms)", params);
+    }
+
+    public static final class ParsedConfig {
+        private final File file;
+        private final FileConfiguration config;
+        private final Exception error;
+
+        private ParsedConfig(File file, FileConfiguration config, Exception error) {
+            this.file = file;
+            this.config = config;
+            this.error = error;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public String getName() {
+            return file.getName().replace(".yml", "");
+        }
+
+        /**
+         * @return the parsed config, or null if the file couldn't be parsed
+         */
+        public FileConfiguration getConfig() {
+            return config;
+        }
+
+        public Exception getError() {
+            return error;
+        }
+    }
+}
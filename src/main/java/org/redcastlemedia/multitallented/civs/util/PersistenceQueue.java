@@ -0,0 +1,218 @@
+package org.redcastlemedia.multitallented.civs.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.redcastlemedia.multitallented.civs.Civs;
+
+/**
+ * Write-behind queue for data files. Callers hand over a config snapshot built on the
+ * main thread, and the YAML is serialized and written on a single I/O thread. Repeated
+ * writes of the same file are coalesced so only the newest snapshot gets written.
+ * Since there is only one I/O thread, writes and deletes of a file happen in the order
+ * they were queued.
+ */
+public final class PersistenceQueue {
+    private static PersistenceQueue persistenceQueue = null;
+    public static final FileConfiguration DELETED = new YamlConfiguration();
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final ExecutorService executor;
+    private final ConcurrentHashMap<File, FileConfiguration> pending = new ConcurrentHashMap<>();
+    private final Metrics.Timer writeTimer = Metrics.timer(Metrics.PERSISTENCE, "write");
+    private final Metrics.Timer deleteTimer = Metrics.timer(Metrics.PERSISTENCE, "delete");
+
+    private PersistenceQueue() {
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Civs-Persistence");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static synchronized PersistenceQueue getInstance() {
+        if (persistenceQueue == null) {
+            persistenceQueue = new PersistenceQueue();
+        }
+        return persistenceQueue;
+    }
+
+    public void write(File file, FileConfiguration snapshot) {
+        enqueue(file, snapshot);
+    }
+
+    /**
+     * Like write, but the top-level keys that aren't in managedKeys are kept from the file
+     * on disk. The file is read on the I/O thread right before it is written.
+     */
+    public void merge(File file, FileConfiguration snapshot, Collection<String> managedKeys) {
+        if (pending.get(file) == DELETED) {
+            // Nothing on disk is meant to survive a delete
+            enqueue(file, snapshot);
+            return;
+        }
+        enqueue(file, new MergedConfiguration(snapshot, managedKeys));
+    }
+
+    public void delete(File file) {
+        enqueue(file, DELETED);
+    }
+
+    private void enqueue(final File file, FileConfiguration snapshot) {
+        if (pending.put(file, snapshot) != null) {
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Only dequeued once written so getPending never misses a write in flight
+                FileConfiguration current = pending.get(file);
+                while (current != null) {
+                    if (current == DELETED) {
+                        deleteNow(file);
+                    } else if (current instanceof MergedConfiguration) {
+                        writeNow(file, ((MergedConfiguration) current).mergeInto(file));
+                    } else {
+                        writeNow(file, current);
+                    }
+                    if (pending.remove(file, current)) {
+                        break;
+                    }
+                    current = pending.get(file);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the snapshot still waiting to be written, {@link #DELETED} if the file is
+     * waiting to be deleted, or null if nothing is queued for the file
+     */
+    public FileConfiguration getPending(File file) {
+        return pending.get(file);
+    }
+
+    /**
+     * Runs other file I/O on the persistence thread so that it stays ordered with the
+     * queued writes.
+     */
+    public void submit(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Blocks until everything queued before this call has been written.
+     */
+    public void flush() {
+        try {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    // Marks the point in the queue to wait for
+                }
+            }).get();
+        } catch (Exception e) {
+            Civs.logger.log(Level.SEVERE, "Interrupted while waiting for pending saves", e);
+        }
+    }
+
+    public static synchronized void shutdown() {
+        if (persistenceQueue == null) {
+            return;
+        }
+        persistenceQueue.executor.shutdown();
+        try {
+            if (!persistenceQueue.executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                Civs.logger.log(Level.SEVERE, "Timed out with {0} saves still pending",
+                        persistenceQueue.pending.size());
+            }
+        } catch (InterruptedException e) {
+            Civs.logger.log(Level.SEVERE, "Interrupted while waiting for pending saves", e);
+            Thread.currentThread().interrupt();
+        }
+        persistenceQueue = null;
+    }
+
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    private void writeNow(File file, FileConfiguration snapshot) {
+        long start = writeTimer.start();
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            Civs.logger.log(Level.SEVERE, "Unable to create folder {0}", parent.getName());
+            return;
+        }
+        File tempFile = new File(parent, file.getName() + TEMP_SUFFIX);
+        try {
+            Files.write(tempFile.toPath(), snapshot.saveToString().getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(tempFile.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Civs.logger.log(Level.SEVERE, "Unable to write to " + file.getName(), e);
+            return;
+        }
+        writeTimer.stop(start);
+    }
+
+    private void deleteNow(File file) {
+        long start = deleteTimer.start();
+        if (file.exists() && !file.delete()) {
+            Civs.logger.log(Level.SEVERE, "Unable to delete file {0}", file.getName());
+        }
+        deleteTimer.stop(start);
+    }
+
+    public static boolean isTempFile(File file) {
+        return file.getName().endsWith(TEMP_SUFFIX);
+    }
+
+    private static class MergedConfiguration extends YamlConfiguration {
+        private final Collection<String> managedKeys;
+
+        private MergedConfiguration(FileConfiguration snapshot, Collection<String> managedKeys) {
+            this.managedKeys = new ArrayList<>(managedKeys);
+            for (String key : snapshot.getKeys(false)) {
+                set(key, snapshot.get(key));
+            }
+        }
+
+        private FileConfiguration mergeInto(File file) {
+            if (!file.exists()) {
+                return this;
+            }
+            FileConfiguration config = new YamlConfiguration();
+            try {
+                config.load(file);
+            } catch (Exception e) {
+                Civs.logger.log(Level.WARNING, "Unable to read " + file.getName() + ", overwriting it", e);
+                return this;
+            }
+            for (String key : managedKeys) {
+                config.set(key, null);
+            }
+            for (String key : getKeys(false)) {
+                config.set(key, get(key));
+            }
+            return config;
+        }
+    }
+}
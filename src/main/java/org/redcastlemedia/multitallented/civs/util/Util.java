@@ -62,6 +62,7 @@ public final class Util {
             }
         }
         town.getRawPeople().put(newOwner, Constants.OWNER);
+        MembershipCache.invalidate();
         town.getIdiocracyScore().clear();
         if (save) {
             TownManager.getInstance().saveTown(town);
@@ -305,6 +306,9 @@ public final class Util {
         if (input == null) {
             return null;
         }
+        if (!input.contains("@{")) {
+            return input;
+        }
         String returnInput = new String(input);
         for (ChatColor color : ChatColor.values()) {
             returnInput = returnInput.replaceAll("@\\{" + color.name() + "\\}", color + "");
@@ -448,27 +452,7 @@ public final class Util {
             return false;
         }
 
-        outer: for (List<CVItem> orReqs : req) {
-            for (CVItem orReq : orReqs) {
-
-                int amount = 0;
-                for (ItemStack iss : inv.getContents()) {
-                    if (iss == null) {
-                        continue;
-                    }
-
-                    if (orReq.equivalentItem(iss, true)) {
-                        if ((iss.getAmount() + amount) >= orReq.getQty()) {
-                            continue outer;
-                        } else {
-                            amount += iss.getAmount();
-                        }
-                    }
-                }
-            }
-            return false;
-        }
-        return true;
+        return inv.containsItems(req);
     }
 
     public static ArrayList<Bounty> readBountyList(FileConfiguration config) {
@@ -489,7 +473,7 @@ public final class Util {
     }
 
     public static boolean removeItems(List<List<CVItem>> req, CVInventory inv) {
-        if (inv == null) {
+        if (inv == null || !inv.containsItems(req)) {
             return false;
         }
 
@@ -0,0 +1,240 @@
+package org.redcastlemedia.multitallented.civs;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.mockito.Mockito;
+import org.redcastlemedia.multitallented.civs.items.ItemManager;
+import org.redcastlemedia.multitallented.civs.regions.Region;
+import org.redcastlemedia.multitallented.civs.regions.RegionManager;
+import org.redcastlemedia.multitallented.civs.regions.RegionType;
+import org.redcastlemedia.multitallented.civs.regions.RegionsTests;
+import org.redcastlemedia.multitallented.civs.towns.Town;
+import org.redcastlemedia.multitallented.civs.towns.TownManager;
+import org.redcastlemedia.multitallented.civs.towns.TownTests;
+import org.redcastlemedia.multitallented.civs.util.Constants;
+
+/**
+ * A synthetic server for the JMH benchmarks, built on the unit test doubles. Regions sit
+ * on a grid in the test world, alternating cobble (block_break protection) and power
+ * (power upkeep) regions, and every REGIONS_PER_TOWN-th region has a hamlet2 town around
+ * it. The grid starts far from the blocks TestUtil puts near the origin.
+ *
+ * Everything here goes through the real managers, so results include the indexes.
+ * World and Block are the WorldImpl and BlockImpl fakes. The Server from TestUtil is a
+ * Mockito mock that remembers every call made on it, so stubServer puts a proxy in front
+ * of it that doesn't.
+ */
+public final class BenchmarkWorld {
+    public static final int ORIGIN = 20000;
+    public static final int Y = 64;
+    public static final int SPACING = 32;
+    public static final int REGIONS_PER_TOWN = 25;
+    public static final UUID OWNER = new UUID(1, 4);
+    public static final String PROTECTED_TYPE = "cobble";
+    public static final String UPKEEP_TYPE = "power";
+
+    private static int side;
+
+    private BenchmarkWorld() {
+
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void setup(int regionCount) {
+        TestUtil.serverSetup();
+        stubServer();
+        Logger logger = Logger.getLogger("CivsBenchmark");
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.OFF);
+        Civs.logger = logger;
+
+        RegionsTests.loadRegionTypeCobble();
+        RegionsTests.loadRegionTypePower(true);
+        TownTests.loadTownTypeHamlet2();
+        RegionManager.getInstance().reload();
+        TownManager.getInstance().reload();
+
+        side = (int) Math.ceil(Math.sqrt(regionCount));
+        for (int i = 0; i < regionCount; i++) {
+            String type = i % 2 == 0 ? PROTECTED_TYPE : UPKEEP_TYPE;
+            RegionType regionType = (RegionType) ItemManager.getInstance().getItemType(type);
+            HashMap<UUID, String> people = new HashMap<>();
+            people.put(OWNER, Constants.OWNER);
+            Region region = new Region(type, people, getRegionLocation(i), RegionsTests.getRadii(),
+                    (HashMap<String, String>) regionType.getEffects().clone(), 0);
+            RegionManager.getInstance().addRegion(region);
+            if (i % REGIONS_PER_TOWN == 0) {
+                HashMap<UUID, String> townPeople = new HashMap<>();
+                townPeople.put(OWNER, Constants.OWNER);
+                TownManager.getInstance().addTown(new Town("town" + i, "hamlet2", getRegionLocation(i),
+                        townPeople, 300, 500, 2, 0, -1));
+            }
+        }
+    }
+
+    /**
+     * Replaces the mocked Server with a proxy that asks the mock once per distinct call and
+     * answers from memory after that. Mocks it hands out, like the PluginManager and the
+     * players, get the same proxy. Void calls are dropped since the mocks ignore them anyway.
+     * Calls with arguments other than strings, uuids, numbers and enums still go to the mock.
+     */
+    public static void stubServer() {
+        Server server = Bukkit.getServer();
+        if (Proxy.isProxyClass(server.getClass())) {
+            return;
+        }
+        try {
+            Field serverField = Bukkit.class.getDeclaredField("server");
+            serverField.setAccessible(true);
+            serverField.set(null, StubOnlyHandler.wrap(server, Server.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to replace the test server", e);
+        }
+    }
+
+    /**
+     * @return the center of the nth region on the grid
+     */
+    public static Location getRegionLocation(int index) {
+        return new Location(TestUtil.world, ORIGIN + (index % side) * SPACING + 0.5, Y + 0.5,
+                ORIGIN + (index / side) * SPACING + 0.5);
+    }
+
+    /**
+     * Query points spread over the whole grid, so most miss every region like the
+     * bulk of real block events do.
+     */
+    public static Location[] randomLocations(int count, long seed) {
+        Random random = new Random(seed);
+        Location[] locations = new Location[count];
+        int extent = side * SPACING;
+        for (int i = 0; i < count; i++) {
+            locations[i] = new Location(TestUtil.world, ORIGIN + random.nextInt(extent) + 0.5,
+                    Y + random.nextInt(11) - 5 + 0.5, ORIGIN + random.nextInt(extent) + 0.5);
+        }
+        return locations;
+    }
+
+    /**
+     * Fills the build area of a region with stone and puts the given blocks in its far
+     * corner, so a requirements check has to scan all of it.
+     */
+    public static void fillRegion(Region region, Material... corner) {
+        Location center = region.getLocation();
+        int minX = center.getBlockX() - region.getRadiusXN();
+        int maxX = center.getBlockX() + region.getRadiusXP();
+        int minY = center.getBlockY() - region.getRadiusYN();
+        int maxY = center.getBlockY() + region.getRadiusYP();
+        int minZ = center.getBlockZ() - region.getRadiusZN();
+        int maxZ = center.getBlockZ() + region.getRadiusZP();
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    putBlock(x, y, z, Material.STONE);
+                }
+            }
+        }
+        for (int i = 0; i < corner.length; i++) {
+            putBlock(maxX, maxY, maxZ - i, corner[i]);
+        }
+    }
+
+    private static void putBlock(int x, int y, int z, Material material) {
+        BlockImpl block = new BlockImpl(new Location(TestUtil.world, x, y, z));
+        block.setType(material);
+        TestUtil.world.putBlock(x, y, z, block);
+    }
+
+    private static final class StubOnlyHandler implements InvocationHandler {
+        private final Object mock;
+        private final HashMap<List<Object>, Object> answers = new HashMap<>();
+
+        private StubOnlyHandler(Object mock) {
+            this.mock = mock;
+        }
+
+        private static Object wrap(Object value, Class<?> type) {
+            if (value == null || !type.isInterface() || Proxy.isProxyClass(value.getClass()) ||
+                    !Mockito.mockingDetails(value).isMock()) {
+                return value;
+            }
+            List<Class<?>> interfaces = new ArrayList<>();
+            for (Class<?> mockInterface : value.getClass().getInterfaces()) {
+                if (mockInterface.getName().startsWith("org.bukkit.")) {
+                    interfaces.add(mockInterface);
+                }
+            }
+            if (!interfaces.contains(type)) {
+                interfaces.add(type);
+            }
+            return Proxy.newProxyInstance(BenchmarkWorld.class.getClassLoader(),
+                    interfaces.toArray(new Class<?>[0]), new StubOnlyHandler(value));
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                if ("equals".equals(method.getName())) {
+                    return proxy == args[0];
+                } else if ("hashCode".equals(method.getName())) {
+                    return System.identityHashCode(proxy);
+                }
+                return mock.toString();
+            }
+            if (method.getReturnType() == void.class) {
+                return null;
+            }
+            if (!hasValueArgs(args)) {
+                return wrap(callMock(method, args), method.getReturnType());
+            }
+            List<Object> key = new ArrayList<>();
+            key.add(method);
+            if (args != null) {
+                key.addAll(Arrays.asList(args));
+            }
+            if (answers.containsKey(key)) {
+                return answers.get(key);
+            }
+            Object answer = wrap(callMock(method, args), method.getReturnType());
+            answers.put(key, answer);
+            return answer;
+        }
+
+        private Object callMock(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(mock, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private static boolean hasValueArgs(Object[] args) {
+            if (args == null) {
+                return true;
+            }
+            for (Object arg : args) {
+                if (arg != null && !(arg instanceof String) && !(arg instanceof UUID) &&
+                        !(arg instanceof Number) && !(arg instanceof Boolean) && !(arg instanceof Enum)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -302,6 +302,14 @@ public abstract class TestUtil {
         return is;
     }
 
+    /**
+     * Makes code that only runs inside the plugin take that path. Set it back to
+     * null when done.
+     */
+    public static void setCivsInstance(Civs instance) {
+        Civs.civs = instance;
+    }
+
     public static void createDefaultClass() {
         FileConfiguration config = new YamlConfiguration();
         ItemManager.getInstance().loadClassType(config, "default");
@@ -3,6 +3,7 @@ package org.redcastlemedia.multitallented.civs.alliances;
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 
 import org.bukkit.Bukkit;
 import org.junit.Before;
@@ -43,6 +44,16 @@ public class AllianceMenuTests extends TestUtil {
         assertEquals(0, AllianceManager.getInstance().getAllAlliances().size());
     }
 
+    @Test
+    public void alliedRosterShouldUpdateWhenMembersChange() {
+        AllianceManager.getInstance().allyTheseTowns(town1, town2);
+        assertNull(town1.getPeople().get(TestUtil.player2.getUniqueId()));
+        town2.setPeople(TestUtil.player2.getUniqueId(), "member");
+        assertEquals("allyforeign", town1.getPeople().get(TestUtil.player2.getUniqueId()));
+        AllianceManager.getInstance().unAlly(town1, town2);
+        assertNull(town1.getPeople().get(TestUtil.player2.getUniqueId()));
+    }
+
     @Test
     public void mergeAlliances() {
         AllianceManager.getInstance().allyTheseTowns(town1, town2);
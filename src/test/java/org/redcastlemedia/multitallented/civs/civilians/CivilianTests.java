@@ -4,6 +4,7 @@ import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 import org.bukkit.Material;
@@ -13,6 +14,7 @@ import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.redcastlemedia.multitallented.civs.ConfigManager;
 import org.redcastlemedia.multitallented.civs.SuccessException;
 import org.redcastlemedia.multitallented.civs.TestUtil;
 import org.redcastlemedia.multitallented.civs.items.ItemManager;
@@ -61,6 +63,49 @@ public class CivilianTests extends TestUtil {
         assertEquals(20.0, bounty.getAmount(), 0.1);
     }
 
+    @Test
+    public void getCivilianShouldKeepOfflineCiviliansLoaded() {
+        UUID uuid = new UUID(5, 9);
+        Civilian civilian = CivilianManager.getInstance().getCivilian(uuid);
+        assertSame(civilian, CivilianManager.getInstance().getCivilian(uuid));
+    }
+
+    @Test
+    public void sortedCiviliansShouldBeOrderedByPoints() {
+        CivilianManager civilianManager = CivilianManager.getInstance();
+        Civilian lowCivilian = civilianManager.getCivilian(new UUID(5, 10));
+        Civilian highCivilian = civilianManager.getCivilian(new UUID(5, 11));
+        lowCivilian.setPoints(1);
+        highCivilian.setPoints(50);
+        civilianManager.setListNeedsToBeSorted(true);
+        List<UUID> sortedCivilians = civilianManager.getSortedCivilians();
+        assertTrue(sortedCivilians.indexOf(highCivilian.getUuid()) < sortedCivilians.indexOf(lowCivilian.getUuid()));
+    }
+
+    @Test
+    public void karmaShouldCatchUpOnEveryMissedPeriod() {
+        Civilian civilian = CivilianManager.getInstance().getCivilian(new UUID(5, 12));
+        long karmaPeriod = ConfigManager.getInstance().getKarmaDepreciatePeriod() * 1000;
+        civilian.setKarma(40);
+        civilian.setLastKarmaDepreciation(System.currentTimeMillis() - 3 * karmaPeriod - 1000);
+        assertTrue(CivilianManager.getInstance().depreciateKarma(civilian));
+        assertEquals(5, civilian.getKarma());
+        assertFalse(CivilianManager.getInstance().depreciateKarma(civilian));
+    }
+
+    @Test
+    public void pointsIndexShouldOnlyReportChanges() {
+        CivilianPointsIndex pointsIndex = new CivilianPointsIndex();
+        UUID uuid = new UUID(5, 13);
+        pointsIndex.setPoints(uuid, 12);
+        assertEquals(12, pointsIndex.takeChanges().get(uuid), 0.001);
+        pointsIndex.setPoints(uuid, 12);
+        assertNull(pointsIndex.takeChanges());
+        pointsIndex.remove(uuid);
+        assertTrue(pointsIndex.takeChanges().isEmpty());
+        assertEquals(0, pointsIndex.getPoints(uuid), 0.001);
+    }
+
     public static void loadCivilian(Player player) {
         CivilianManager.getInstance().loadCivilian(player);
     }
@@ -0,0 +1,76 @@
+package org.redcastlemedia.multitallented.civs.items;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.redcastlemedia.multitallented.civs.BenchmarkWorld;
+import org.redcastlemedia.multitallented.civs.TestUtil;
+import org.redcastlemedia.multitallented.civs.util.Util;
+
+/**
+ * Util.containsItems against a full chest in an unloaded chunk, the case where upkeep
+ * reads the cached inventory. One set of requirements is met and one fails on its
+ * last line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ContainsItemsBenchmark {
+    private static final Material[] CONTENTS = {
+            Material.COBBLESTONE, Material.GRAVEL, Material.OAK_LOG, Material.WHEAT, Material.IRON_INGOT,
+            Material.COAL, Material.IRON_PICKAXE, Material.BREAD, Material.OAK_PLANKS
+    };
+
+    private CVInventory inventory;
+    private List<List<CVItem>> metReqs;
+    private List<List<CVItem>> missingReqs;
+
+    @Setup
+    public void setup() {
+        TestUtil.serverSetup();
+        BenchmarkWorld.stubServer();
+        TestUtil.world.setChunkLoaded(false);
+        inventory = new CVInventory(new Location(TestUtil.world, 0, 0, 0));
+        ItemStack[] itemStacks = new ItemStack[inventory.getSize()];
+        for (int i = 0; i < itemStacks.length; i++) {
+            itemStacks[i] = new ItemStack(CONTENTS[i % CONTENTS.length], 32);
+        }
+        inventory.addItem(itemStacks);
+
+        metReqs = new ArrayList<>();
+        metReqs.add(createLine(new CVItem(Material.IRON_PICKAXE, 1)));
+        metReqs.add(createLine(new CVItem(Material.COBBLESTONE, 64), new CVItem(Material.GRAVEL, 8)));
+        metReqs.add(createLine(new CVItem(Material.WHEAT, 16)));
+        missingReqs = new ArrayList<>(metReqs);
+        missingReqs.add(createLine(new CVItem(Material.DIAMOND, 1), new CVItem(Material.EMERALD, 1)));
+    }
+
+    @Benchmark
+    public boolean containsItemsMet() {
+        return Util.containsItems(metReqs, inventory);
+    }
+
+    @Benchmark
+    public boolean containsItemsMissing() {
+        return Util.containsItems(missingReqs, inventory);
+    }
+
+    private static List<CVItem> createLine(CVItem... items) {
+        List<CVItem> line = new ArrayList<>();
+        for (CVItem item : items) {
+            line.add(item);
+        }
+        return line;
+    }
+}
@@ -8,6 +8,7 @@ import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
 import org.bukkit.Bukkit;
@@ -171,6 +172,26 @@ public class ItemsTests extends TestUtil {
         assertTrue(ItemManager.getInstance().hasItemUnlocked(civilian, ItemManager.getInstance().getItemType("tribe")));
     }
 
+    @Test
+    public void populationReqShouldUpdateWhenPlayerJoinsTown() {
+        TownTests.loadTownTypeHamlet2();
+        FileConfiguration config = new YamlConfiguration();
+        config.set("name", "Village2");
+        config.set("type", "town");
+        ArrayList<String> preReqs = new ArrayList<>();
+        preReqs.add("hamlet2:population=3");
+        config.set("pre-reqs", preReqs);
+        config.set("build-radius", 25);
+        ItemManager.getInstance().loadTownType(config, "village2");
+        Town town = TownTests.loadTown("test", "hamlet2", TestUtil.player.getLocation());
+        town.setVillagers(4);
+        Civilian civilian = CivilianManager.getInstance().getCivilian(TestUtil.player.getUniqueId());
+        CivItem village = ItemManager.getInstance().getItemType("village2");
+        assertFalse(ItemManager.getInstance().hasItemUnlocked(civilian, village));
+        town.setPeople(TestUtil.player.getUniqueId(), Constants.OWNER);
+        assertTrue(ItemManager.getInstance().hasItemUnlocked(civilian, village));
+    }
+
     @Test
     public void folderShouldBeCorrect() {
         FolderType folderType = (FolderType) ItemManager.getInstance().getItemType("animals");
@@ -234,6 +255,30 @@ public class ItemsTests extends TestUtil {
         assertTrue(returnedItems.isEmpty());
     }
 
+    @Test
+    public void cvInventoryShouldCountItemsAfterChanges() {
+        TestUtil.world.setChunkLoaded(false);
+        CVInventory cvInventory = new CVInventory(new Location(TestUtil.world, 0, 0, 0));
+        List<List<CVItem>> reqs = new ArrayList<>();
+        List<CVItem> orReqs = new ArrayList<>();
+        orReqs.add(new CVItem(Material.COBBLESTONE, 40));
+        orReqs.add(new CVItem(Material.GRAVEL, 8));
+        reqs.add(orReqs);
+        assertFalse(cvInventory.containsItems(reqs));
+        ItemStack[] itemStacks = {
+                new ItemStack(Material.COBBLESTONE, 32),
+                new ItemStack(Material.GRAVEL, 4)
+        };
+        cvInventory.addItem(itemStacks);
+        assertFalse(cvInventory.containsItems(reqs));
+        ItemStack[] itemStack2 = { new ItemStack(Material.COBBLESTONE, 8) };
+        cvInventory.addItem(itemStack2);
+        assertTrue(cvInventory.containsItems(reqs));
+        ItemStack[] itemStack3 = { new ItemStack(Material.COBBLESTONE, 1) };
+        cvInventory.removeItem(itemStack3);
+        assertFalse(cvInventory.containsItems(reqs));
+    }
+
     private void loadSpellTypeBackflip() {
         ItemManager itemManager = ItemManager.getInstance();
         FileConfiguration config = new YamlConfiguration();
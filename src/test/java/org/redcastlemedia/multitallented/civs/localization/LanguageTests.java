@@ -8,11 +8,13 @@ import static org.mockito.Mockito.when;
 import java.util.ArrayList;
 import java.util.HashMap;
 
+import org.bukkit.ChatColor;
 import org.bukkit.entity.Item;
 import org.bukkit.event.player.PlayerDropItemEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.junit.Test;
+import org.redcastlemedia.multitallented.civs.ConfigManager;
 import org.redcastlemedia.multitallented.civs.SuccessException;
 import org.redcastlemedia.multitallented.civs.TestUtil;
 import org.redcastlemedia.multitallented.civs.civilians.Civilian;
@@ -34,6 +36,26 @@ public class LanguageTests extends TestUtil {
                 localeManager.getTranslation(civilian.getLocale(), "no-region-type-found"));
     }
 
+    @Test
+    public void templateShouldFillSlotsAndFollowChangedTranslations() {
+        assertEquals(ChatColor.RED + "Moenia fue destruida, Moenia! $3",
+                new MessageTemplate("", "@{RED}$1 fue destruida, $1! $3").render("Moenia"));
+
+        HashMap<String, String> mockLanguageMap = new HashMap<>();
+        mockLanguageMap.put("town-destroyed", "$1 fue destruida");
+        LocaleManager.getInstance().languageMap.put("es", mockLanguageMap);
+        try {
+            String prefix = ConfigManager.getInstance().getPrefixAllText();
+            assertEquals(prefix + "Moenia fue destruida",
+                    LocaleManager.getInstance().getTranslation("es", "town-destroyed", "Moenia"));
+            mockLanguageMap.put("town-destroyed", "$1 ha caído");
+            assertEquals(prefix + "Moenia ha caído",
+                    LocaleManager.getInstance().getTranslation("es", "town-destroyed", "Moenia"));
+        } finally {
+            LocaleManager.getInstance().languageMap.remove("es");
+        }
+    }
+
     @Test(expected = SuccessException.class)
     public void playerShouldNotBeAbleToDropItem() {
         RegionsTests.loadRegionTypeCobble();
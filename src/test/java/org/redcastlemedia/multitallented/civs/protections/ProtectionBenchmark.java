@@ -0,0 +1,54 @@
+package org.redcastlemedia.multitallented.civs.protections;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Location;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.redcastlemedia.multitallented.civs.BenchmarkWorld;
+import org.redcastlemedia.multitallented.civs.towns.Town;
+import org.redcastlemedia.multitallented.civs.towns.TownManager;
+
+/**
+ * Town lookups and block_break checks at random points on the grid. The check runs
+ * without a player because the test Player is a mock that records every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProtectionBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int regionCount;
+
+    private Location[] queries;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        BenchmarkWorld.setup(regionCount);
+        queries = BenchmarkWorld.randomLocations(QUERIES, 7);
+    }
+
+    @Benchmark
+    public Town getTownAt() {
+        return TownManager.getInstance().getTownAt(nextQuery());
+    }
+
+    @Benchmark
+    public boolean shouldBlockAction() {
+        return ProtectionHandler.shouldBlockAction(nextQuery(), "block_break");
+    }
+
+    private Location nextQuery() {
+        next = (next + 1) & (QUERIES - 1);
+        return queries[next];
+    }
+}
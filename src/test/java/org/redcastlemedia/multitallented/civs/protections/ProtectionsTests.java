@@ -5,6 +5,8 @@ import org.bukkit.GameMode;
 import org.bukkit.Location;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.TNTPrimed;
 import org.bukkit.event.block.Action;
@@ -16,9 +18,11 @@ import org.junit.Before;
 import org.junit.Test;
 import org.redcastlemedia.multitallented.civs.SuccessException;
 import org.redcastlemedia.multitallented.civs.TestUtil;
+import org.redcastlemedia.multitallented.civs.items.ItemManager;
 import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.regions.RegionsTests;
+import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.towns.TownTests;
 import org.redcastlemedia.multitallented.civs.util.Constants;
@@ -273,6 +277,56 @@ public class ProtectionsTests extends TestUtil {
         protectionHandler.onEntityExplode(event);
     }
 
+    @Test
+    public void explosionsInTheSameBlockShouldBeQueuedOnce() {
+        ExplosionBatch batch = new ExplosionBatch();
+        Location location = new Location(Bukkit.getWorld("world"), 0.2, 1, 0.7);
+        ExplosionBatch.ExplosionArea area = batch.getArea(location);
+        assertSame(area, batch.getArea(new Location(Bukkit.getWorld("world"), 0.9, 1.5, 0.1)));
+        batch.addExplosion(area);
+        batch.addExplosion(batch.getArea(location));
+        batch.addExplosion(batch.getArea(new Location(Bukkit.getWorld("world"), 3, 1, 0)));
+        assertEquals(2, batch.getLocations().size());
+    }
+
+    @Test
+    public void powerShieldReductionsShouldBeSummedPerTown() {
+        TownTests.loadTownTypeHamlet2();
+        Town town = TownTests.loadTown("testTown", "hamlet2", new Location(Bukkit.getWorld("world"), 0, 0, 0));
+        ExplosionBatch batch = new ExplosionBatch();
+        batch.reducePower(town, 20);
+        batch.reducePower(town, 30);
+        assertEquals(50, batch.getPendingPowerReduction(town));
+        batch.applyPowerReductions();
+        assertEquals(450, town.getPower());
+        assertEquals(0, batch.getPendingPowerReduction(town));
+    }
+
+    @Test
+    public void drainedPowerShieldShouldNotProtectLaterExplosions() {
+        loadTownTypeShielded();
+        Town town = TownTests.loadTown("testTown", "shielded", new Location(Bukkit.getWorld("world"), 0, 0, 0));
+        town.setLastDisable(1);
+        ExplosionBatch batch = new ExplosionBatch();
+        ExplosionBatch.ExplosionArea area = batch.getArea(new Location(Bukkit.getWorld("world"), 0, 1, 0));
+        assertTrue(area.hasEffect("power_shield", ExplosionBatch.EXPLOSION_RADIUS));
+        batch.reducePower(town, town.getPower());
+        assertFalse(area.hasEffect("power_shield", ExplosionBatch.EXPLOSION_RADIUS));
+    }
+
+    private static void loadTownTypeShielded() {
+        FileConfiguration config = new YamlConfiguration();
+        config.set("name", "Shielded");
+        config.set("type", "town");
+        config.set("build-radius", 25);
+        ArrayList<String> effects = new ArrayList<>();
+        effects.add("power_shield");
+        config.set("effects", effects);
+        config.set("power", 100);
+        config.set("max-power", 500);
+        ItemManager.getInstance().loadTownType(config, "shielded");
+    }
+
     @Test
     public void explosionShouldBeCancelled() {
         RegionsTests.loadRegionTypeShelter();
@@ -301,6 +355,20 @@ public class ProtectionsTests extends TestUtil {
         assertTrue(ProtectionHandler.shouldBlockAction(location, null, "deny_mob_spawn"));
     }
 
+    @Test
+    public void protectionMapShouldUpdateWhenRegionRemoved() {
+        RegionsTests.loadRegionTypeShelter();
+        Region shelter = RegionsTests.createNewRegion("shelter");
+        Location inside = new Location(Bukkit.getWorld("world"), 10, 0, 6);
+        Location outside = new Location(Bukkit.getWorld("world"), 12, 0, 6);
+        assertTrue(ProtectionMap.getInstance().mayProtect(inside, "chest_use"));
+        assertFalse(ProtectionMap.getInstance().mayProtect(outside, "chest_use"));
+        assertFalse(ProtectionMap.getInstance().mayProtect(inside, "block_liquid"));
+        RegionManager.getInstance().removeRegion(shelter, false, false);
+        assertFalse(ProtectionMap.getInstance().mayProtect(inside, "chest_use"));
+        assertFalse(ProtectionHandler.shouldBlockAction(inside, null, "chest_use"));
+    }
+
     @Test
     public void chestAccessAtFourCornersShouldBeBlocked() {
         RegionsTests.loadRegionTypeShelter();
@@ -0,0 +1,136 @@
+package org.redcastlemedia.multitallented.civs.regions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.redcastlemedia.multitallented.civs.BlockImpl;
+import org.redcastlemedia.multitallented.civs.WorldImpl;
+import org.redcastlemedia.multitallented.civs.items.CVItem;
+
+/**
+ * Compares the compiled build requirement scan with the map based scan it replaced.
+ * Both read the same test world, so this measures the matching and not chunk access.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BuildRequirementsBenchmark {
+
+    @Param({"5", "15", "30"})
+    public int radius;
+
+    private World world;
+    private List<List<CVItem>> reqs;
+    private BuildRequirements buildRequirements;
+
+    @Setup
+    public void setup() {
+        WorldImpl worldImpl = new WorldImpl("benchmark");
+        Material[] filler = { Material.STONE, Material.DIRT, Material.OAK_PLANKS, Material.GLASS };
+        for (int x = -radius; x <= radius; x++) {
+            for (int y = 64 - radius; y <= 64 + radius; y++) {
+                for (int z = -radius; z <= radius; z++) {
+                    BlockImpl block = new BlockImpl(new Location(worldImpl, x, y, z));
+                    block.setType(filler[Math.abs(x + y + z) % filler.length]);
+                    worldImpl.putBlock(x, y, z, block);
+                }
+            }
+        }
+        // The requirements are at the far corner so the whole area gets scanned
+        BlockImpl goldBlock = new BlockImpl(new Location(worldImpl, radius, 64 + radius, radius));
+        goldBlock.setType(Material.GOLD_BLOCK);
+        worldImpl.putBlock(radius, 64 + radius, radius, goldBlock);
+        world = worldImpl;
+
+        reqs = new ArrayList<>();
+        List<CVItem> walls = new ArrayList<>();
+        walls.add(new CVItem(Material.STONE, 20));
+        walls.add(new CVItem(Material.COBBLESTONE, 20));
+        reqs.add(walls);
+        List<CVItem> floor = new ArrayList<>();
+        floor.add(new CVItem(Material.OAK_PLANKS, 10));
+        reqs.add(floor);
+        List<CVItem> center = new ArrayList<>();
+        center.add(new CVItem(Material.GOLD_BLOCK, 1));
+        reqs.add(center);
+        buildRequirements = new BuildRequirements(reqs);
+    }
+
+    @Benchmark
+    public boolean compiledScan() {
+        BuildRequirements.Progress progress = buildRequirements.start(null);
+        BlockScanArea scanArea = new BlockScanArea(world, -radius, radius,
+                64 - radius, 64 + radius, -radius, radius);
+        for (int x = -radius; x <= radius; x++) {
+            for (int y = 64 - radius; y <= 64 + radius; y++) {
+                for (int z = -radius; z <= radius; z++) {
+                    if (progress.count(scanArea.getType(x, y, z)) == BuildRequirements.FINISHED_GROUP &&
+                            progress.isComplete()) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean mapScan() {
+        List<HashMap<Material, Integer>> itemCheck = new ArrayList<>();
+        for (List<CVItem> currentList : reqs) {
+            HashMap<Material, Integer> currentReqMap = new HashMap<>();
+            for (CVItem currentItem : currentList) {
+                CVItem clone = currentItem.clone();
+                currentReqMap.put(clone.getMat(), clone.getQty());
+            }
+            itemCheck.add(currentReqMap);
+        }
+        for (int x = -radius; x <= radius; x++) {
+            for (int y = 64 - radius; y <= 64 + radius; y++) {
+                for (int z = -radius; z <= radius; z++) {
+                    Block currentBlock = world.getBlockAt(x, y, z);
+                    if (currentBlock == null) {
+                        continue;
+                    }
+                    Material mat = currentBlock.getType();
+                    boolean destroyIndex = false;
+                    int i = 0;
+                    for (HashMap<Material, Integer> tempMap : itemCheck) {
+                        if (tempMap.containsKey(mat)) {
+                            if (tempMap.get(mat) < 2) {
+                                destroyIndex = true;
+                            } else {
+                                for (Material currentMat : tempMap.keySet()) {
+                                    tempMap.put(currentMat, tempMap.get(mat) - 1);
+                                }
+                            }
+                            break;
+                        }
+                        i++;
+                    }
+                    if (destroyIndex) {
+                        itemCheck.remove(i);
+                        if (itemCheck.isEmpty()) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,56 @@
+package org.redcastlemedia.multitallented.civs.regions;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Location;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.redcastlemedia.multitallented.civs.BenchmarkWorld;
+
+/**
+ * Region lookups by location, the work behind every protected block event. Half of the
+ * queries are region centers and half are random points on the grid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RegionLookupBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int regionCount;
+
+    private Location[] queries;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        BenchmarkWorld.setup(regionCount);
+        queries = BenchmarkWorld.randomLocations(QUERIES, 42);
+        for (int i = 0; i < QUERIES; i += 2) {
+            queries[i] = BenchmarkWorld.getRegionLocation((i * 7919) % regionCount);
+        }
+    }
+
+    @Benchmark
+    public Region getRegionAt() {
+        return RegionManager.getInstance().getRegionAt(nextQuery());
+    }
+
+    @Benchmark
+    public Set<Region> getRegionsXYZ() {
+        return RegionManager.getInstance().getRegionsXYZ(nextQuery(), 5, 5, 5, true);
+    }
+
+    private Location nextQuery() {
+        next = (next + 1) & (QUERIES - 1);
+        return queries[next];
+    }
+}
@@ -0,0 +1,68 @@
+package org.redcastlemedia.multitallented.civs.regions;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.redcastlemedia.multitallented.civs.BenchmarkWorld;
+
+/**
+ * Work done for a single region: the build requirement scan, an upkeep check and
+ * writing and reading its yml. The upkeep region is outside every town, so its power
+ * upkeep fails the same way every time and the world does not change between runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RegionUpkeepBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int regionCount;
+
+    private Region protectedRegion;
+    private Region upkeepRegion;
+    private String regionYaml;
+
+    @Setup
+    public void setup() {
+        BenchmarkWorld.setup(regionCount);
+        RegionManager regionManager = RegionManager.getInstance();
+        protectedRegion = regionManager.getRegionAt(BenchmarkWorld.getRegionLocation(0));
+        upkeepRegion = regionManager.getRegionAt(BenchmarkWorld.getRegionLocation(1));
+        BenchmarkWorld.fillRegion(protectedRegion, Material.COBBLESTONE, Material.COBBLESTONE,
+                Material.GOLD_BLOCK);
+        regionYaml = RegionManager.createRegionConfig(upkeepRegion).saveToString();
+    }
+
+    @Benchmark
+    public boolean hasRequiredBlocks() {
+        return protectedRegion.hasRequiredBlocks();
+    }
+
+    @Benchmark
+    public boolean runUpkeep() {
+        return upkeepRegion.runUpkeep(false);
+    }
+
+    @Benchmark
+    public String writeYaml() {
+        return RegionManager.createRegionConfig(upkeepRegion).saveToString();
+    }
+
+    @Benchmark
+    public Region readYaml() throws InvalidConfigurationException {
+        FileConfiguration regionConfig = new YamlConfiguration();
+        regionConfig.loadFromString(regionYaml);
+        return RegionManager.getInstance().loadRegion(regionConfig, upkeepRegion.getId());
+    }
+}
@@ -5,10 +5,15 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -413,6 +418,153 @@ public class RegionsTests extends TestUtil {
         assertEquals(location8.getX(), RegionManager.getInstance().getRegionAt(location8).getLocation().getX(), 0.1);
     }
 
+    @Test
+    public void getRegionAtShouldFindRegionAcrossChunkBorders() {
+        loadRegionTypeCobble();
+        HashMap<UUID, String> owners = new HashMap<>();
+        owners.put(new UUID(1, 4), Constants.OWNER);
+        Location location = new Location(Bukkit.getWorld("world"), 15, 70, -1);
+        Region region = new Region("cobble", owners, location, getRadii(), new HashMap<>(),0);
+        RegionManager.getInstance().addRegion(region);
+        assertEquals(region, RegionManager.getInstance().getRegionAt(new Location(Bukkit.getWorld("world"), 19, 72, 3)));
+        assertEquals(region, RegionManager.getInstance().getRegionAt(new Location(Bukkit.getWorld("world"), 11, 68, -5)));
+        assertNull(RegionManager.getInstance().getRegionAt(new Location(Bukkit.getWorld("world"), 22, 70, -1)));
+        RegionManager.getInstance().removeRegion(region, false, false);
+        assertNull(RegionManager.getInstance().getRegionAt(new Location(Bukkit.getWorld("world"), 19, 72, 3)));
+    }
+
+    @Test
+    public void getRegionEffectsAtShouldUseEffectRadius() {
+        loadRegionTypeCobble();
+        HashMap<UUID, String> owners = new HashMap<>();
+        owners.put(new UUID(1, 4), Constants.OWNER);
+        Location location = new Location(Bukkit.getWorld("world"), 300, 70, 300);
+        Region region = new Region("cobble", owners, location, getRadii(), new HashMap<>(),0);
+        RegionManager.getInstance().addRegion(region);
+        Location nearby = new Location(Bukkit.getWorld("world"), 306, 70, 300);
+        assertTrue(RegionManager.getInstance().getContainingRegions(nearby, 0).isEmpty());
+        assertTrue(RegionManager.getInstance().getRegionEffectsAt(nearby, 0).contains(region));
+        assertTrue(RegionManager.getInstance().getContainingRegions(nearby, 2).contains(region));
+    }
+
+    @Test
+    public void logRegionStoreShouldRoundTripRegions() throws IOException {
+        File folder = Files.createTempDirectory("civs-regions").toFile();
+        try {
+            File logFile = new File(folder, LogRegionStore.FILE_NAME);
+            LogRegionStore regionStore = new LogRegionStore(logFile);
+            regionStore.save("world~1~2~3", createStoredConfig("cobble", 1));
+            regionStore.save("world~4~5~6", createStoredConfig("shelter", 2));
+            regionStore.save("world~1~2~3", createStoredConfig("cobble", 3));
+            regionStore.delete("world~4~5~6");
+            assertEquals(3, regionStore.load("world~1~2~3").getInt("exp"));
+            assertNull(regionStore.load("world~4~5~6"));
+            regionStore.close();
+
+            LogRegionStore reopenedStore = new LogRegionStore(logFile);
+            Map<String, FileConfiguration> regionConfigs = reopenedStore.loadAll();
+            assertEquals(1, regionConfigs.size());
+            assertEquals(3, regionConfigs.get("world~1~2~3").getInt("exp"));
+            assertEquals("cobble", reopenedStore.load("world~1~2~3").getString("type"));
+            reopenedStore.close();
+        } finally {
+            deleteFolder(folder);
+        }
+    }
+
+    @Test
+    public void logRegionStoreCompactionShouldKeepLatestRegions() throws IOException {
+        File folder = Files.createTempDirectory("civs-regions").toFile();
+        try {
+            File logFile = new File(folder, LogRegionStore.FILE_NAME);
+            LogRegionStore regionStore = new LogRegionStore(logFile);
+            for (int i = 0; i < 20; i++) {
+                regionStore.save("world~1~2~3", createStoredConfig("cobble", i));
+                regionStore.save("world~4~5~6", createStoredConfig("shelter", i));
+            }
+            regionStore.flush();
+            long length = regionStore.getLength();
+            regionStore.compact();
+            assertTrue(regionStore.getLength() < length);
+            assertEquals(19, regionStore.load("world~4~5~6").getInt("exp"));
+            regionStore.close();
+
+            LogRegionStore reopenedStore = new LogRegionStore(logFile);
+            Map<String, FileConfiguration> regionConfigs = reopenedStore.loadAll();
+            assertEquals(2, regionConfigs.size());
+            assertEquals(19, regionConfigs.get("world~1~2~3").getInt("exp"));
+            reopenedStore.close();
+        } finally {
+            deleteFolder(folder);
+        }
+    }
+
+    @Test
+    public void logRegionStoreShouldSetAsideFilesThatAreNotRegionLogs() throws IOException {
+        File folder = Files.createTempDirectory("civs-regions").toFile();
+        try {
+            File logFile = new File(folder, LogRegionStore.FILE_NAME);
+            Files.write(logFile.toPath(), "not a region log".getBytes(StandardCharsets.UTF_8));
+            LogRegionStore regionStore = new LogRegionStore(logFile);
+            assertTrue(regionStore.loadAll().isEmpty());
+            regionStore.save("world~1~2~3", createStoredConfig("cobble", 1));
+            regionStore.close();
+
+            String[] invalidFiles = folder.list((dir, name) -> name.startsWith(LogRegionStore.FILE_NAME + ".invalid-"));
+            assertEquals(1, invalidFiles.length);
+            LogRegionStore reopenedStore = new LogRegionStore(logFile);
+            assertEquals(1, reopenedStore.loadAll().get("world~1~2~3").getInt("exp"));
+            reopenedStore.close();
+        } finally {
+            deleteFolder(folder);
+        }
+    }
+
+    @Test
+    public void regionStoreShouldMigrateYamlToLogAndBack() throws IOException {
+        File folder = Files.createTempDirectory("civs-regions").toFile();
+        try {
+            File yamlFolder = new File(folder, Constants.REGIONS);
+            yamlFolder.mkdir();
+            createStoredConfig("cobble", 7).save(new File(yamlFolder, "world~1~2~3.yml"));
+            createStoredConfig("shelter", 8).save(new File(yamlFolder, "world~4~5~6.yml"));
+
+            RegionStore logStore = RegionStore.open(RegionStore.LOG, folder);
+            Map<String, FileConfiguration> regionConfigs = logStore.loadAll();
+            assertEquals(2, regionConfigs.size());
+            assertEquals("shelter", regionConfigs.get("world~4~5~6").getString("type"));
+            assertFalse(yamlFolder.exists());
+            logStore.close();
+
+            RegionStore yamlStore = RegionStore.open(RegionStore.YAML, folder);
+            assertFalse(new File(folder, LogRegionStore.FILE_NAME).exists());
+            regionConfigs = yamlStore.loadAll();
+            assertEquals(2, regionConfigs.size());
+            assertEquals(7, regionConfigs.get("world~1~2~3").getInt("exp"));
+            yamlStore.close();
+        } finally {
+            deleteFolder(folder);
+        }
+    }
+
+    private static FileConfiguration createStoredConfig(String type, int exp) {
+        FileConfiguration config = new YamlConfiguration();
+        config.set("type", type);
+        config.set("exp", exp);
+        config.set("people." + new UUID(1, 4), Constants.OWNER);
+        return config;
+    }
+
+    private static void deleteFolder(File folder) {
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                deleteFolder(file);
+            }
+        }
+        folder.delete();
+    }
+
     @Test
     public void shouldNotBeAbleToCreateARegionOnTopOfAnotherRegion() {
         loadRegionTypeCobble();
@@ -784,6 +936,29 @@ public class RegionsTests extends TestUtil {
         assertEquals(412, town.getPower());
     }
 
+    @Test
+    public void buildRequirementsShouldListWhatIsMissing() {
+        List<List<CVItem>> reqs = new ArrayList<>();
+        List<CVItem> walls = new ArrayList<>();
+        walls.add(new CVItem(Material.COBBLESTONE, 3));
+        walls.add(new CVItem(Material.GRASS_BLOCK, 3));
+        reqs.add(walls);
+        List<CVItem> center = new ArrayList<>();
+        center.add(new CVItem(Material.GOLD_BLOCK, 1));
+        reqs.add(center);
+        BuildRequirements.Progress progress = new BuildRequirements(reqs).start(null);
+        assertEquals(BuildRequirements.NO_MATCH, progress.count(Material.DIRT));
+        assertEquals(BuildRequirements.MATCHED, progress.count(Material.GRASS_BLOCK));
+        assertEquals(BuildRequirements.FINISHED_GROUP, progress.count(Material.GOLD_BLOCK));
+        List<HashMap<Material, Integer>> missingBlocks = progress.getMissingBlocks();
+        assertEquals(1, missingBlocks.size());
+        assertEquals(2, (int) missingBlocks.get(0).get(Material.COBBLESTONE));
+        progress.count(Material.COBBLESTONE);
+        assertFalse(progress.isComplete());
+        progress.count(Material.COBBLESTONE);
+        assertTrue(progress.isComplete());
+    }
+
     @Test
     public void dailyRegionShouldNotRunUpkeepTick() {
         loadRegionTypeDaily();
@@ -842,6 +1017,49 @@ public class RegionsTests extends TestUtil {
         assertEquals(1, regionType.getReqs().get(0).size());
     }
 
+    @Test
+    public void blockLoggerShouldFindBlockFromAnyPointInIt() {
+        Location location = new Location(Bukkit.getWorld("world"), -12, 64, 7);
+        CVItem cvItem = new CVItem(Material.CHEST, 1);
+        BlockLogger.getInstance().putBlock(location, cvItem);
+        assertEquals(cvItem, BlockLogger.getInstance().getBlock(new Location(Bukkit.getWorld("world"), -11.5, 64.5, 7.5)));
+        assertNull(BlockLogger.getInstance().getBlock(new Location(Bukkit.getWorld("world"), -11, 64, 7)));
+        BlockLogger.getInstance().removeBlock(new Location(Bukkit.getWorld("world"), -11.5, 64.5, 7.5));
+        assertNull(BlockLogger.getInstance().getBlock(location));
+    }
+
+    @Test
+    public void nearestRegionWithEffectShouldFollowEffectChanges() {
+        loadRegionTypeCobble();
+        Region nearRegion = createNewRegion("cobble", new Location(Bukkit.getWorld("world"), 20.5, 0.5, 0.5));
+        Region farRegion = createNewRegion("cobble", new Location(Bukkit.getWorld("world"), 200.5, 0.5, 0.5));
+        Location location = new Location(Bukkit.getWorld("world"), 0, 0, 0);
+        assertNull(RegionManager.getInstance().getNearestRegionWithEffect(location, "graveyard_public"));
+        HashMap<String, String> effects = new HashMap<>();
+        effects.put("graveyard_public", null);
+        farRegion.setEffects(new HashMap<>(effects));
+        nearRegion.setEffects(new HashMap<>(effects));
+        assertEquals(nearRegion, RegionManager.getInstance().getNearestRegionWithEffect(location, "graveyard_public"));
+        nearRegion.getEffects().clear();
+        assertEquals(farRegion, RegionManager.getInstance().getNearestRegionWithEffect(location, "graveyard_public"));
+        assertEquals(2, RegionManager.getInstance().getRegionsOfType("cobble").size());
+        RegionManager.getInstance().removeRegion(farRegion, false, false);
+        assertNull(RegionManager.getInstance().getNearestRegionWithEffect(location, "graveyard_public"));
+        assertEquals(1, RegionManager.getInstance().getRegionsOfType("cobble").size());
+    }
+
+    @Test
+    public void inactiveJailShouldStillBeFoundByTypeEffect() {
+        loadRegionTypeCobble();
+        Region region = createNewRegion("cobble");
+        assertTrue(RegionManager.getInstance().getRegionsWithTypeEffect("block_build").contains(region));
+        region.getEffects().clear();
+        assertTrue(RegionManager.getInstance().getRegionsWithEffect("block_build").isEmpty());
+        assertTrue(RegionManager.getInstance().getRegionsWithTypeEffect("block_build").contains(region));
+        RegionManager.getInstance().removeRegion(region, false, false);
+        assertTrue(RegionManager.getInstance().getRegionsWithTypeEffect("block_build").isEmpty());
+    }
+
     @Test
     public void regionShouldBeFound() {
         loadRegionTypeCobble();
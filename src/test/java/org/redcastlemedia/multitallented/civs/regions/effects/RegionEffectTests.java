@@ -24,6 +24,7 @@ import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
 import org.redcastlemedia.multitallented.civs.regions.RegionsTests;
 import org.redcastlemedia.multitallented.civs.scheduler.CommonScheduler;
+import org.redcastlemedia.multitallented.civs.scheduler.RegionTickUtil;
 import org.redcastlemedia.multitallented.civs.towns.Town;
 import org.redcastlemedia.multitallented.civs.towns.TownManager;
 import org.redcastlemedia.multitallented.civs.towns.TownTests;
@@ -53,6 +54,8 @@ public class RegionEffectTests extends TestUtil {
     @After
     public void after() {
         TestUtil.world.setChunkLoaded(true);
+        RegionTickUtil.removeRegionTickListener(VillagerEffect.KEY);
+        RegionTickUtil.removeRegionTickListener(WarehouseEffect.KEY);
     }
 
     @Test
@@ -149,7 +152,7 @@ public class RegionEffectTests extends TestUtil {
         TownTests.loadTown("test", "hamlet2", townLocation);
 
         RegionTickEvent regionTickEvent = new RegionTickEvent(warehouse, warehouseType, false, false);
-        warehouseEffect.onCustomEvent(regionTickEvent);
+        warehouseEffect.regionTickHandler(regionTickEvent);
         CVInventory regionInventory = UnloadedInventoryHandler.getInstance().getChestInventory(cobbleRegion.getLocation());
         assertEquals(Material.IRON_PICKAXE, regionInventory.getItem(0).getType());
     }
@@ -161,7 +164,7 @@ public class RegionEffectTests extends TestUtil {
         RegionType regionType = (RegionType) ItemManager.getInstance().getItemType(region.getType());
         ActiveEffect activeEffect = new ActiveEffect();
         RegionTickEvent event = new RegionTickEvent(region, regionType, true, true);
-        activeEffect.onRegionTick(event);
+        activeEffect.regionTickHandler(event);
         assertEquals(3, region.getEffects().size());
     }
 
@@ -12,18 +12,22 @@ import org.redcastlemedia.multitallented.civs.SuccessException;
 import org.redcastlemedia.multitallented.civs.TestUtil;
 import org.redcastlemedia.multitallented.civs.civilians.Civilian;
 import org.redcastlemedia.multitallented.civs.civilians.CivilianManager;
+import org.redcastlemedia.multitallented.civs.events.PlayerEnterRegionEvent;
 import org.redcastlemedia.multitallented.civs.events.RegionTickEvent;
 import org.redcastlemedia.multitallented.civs.items.ItemManager;
 import org.redcastlemedia.multitallented.civs.regions.Region;
 import org.redcastlemedia.multitallented.civs.regions.RegionManager;
 import org.redcastlemedia.multitallented.civs.regions.RegionType;
 import org.redcastlemedia.multitallented.civs.regions.RegionsTests;
+import org.redcastlemedia.multitallented.civs.regions.effects.RegionTickListener;
 import org.redcastlemedia.multitallented.civs.towns.*;
 import org.redcastlemedia.multitallented.civs.util.Constants;
 
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.*;
 
 public class SchedulerTests extends TestUtil {
@@ -32,25 +36,57 @@ public class SchedulerTests extends TestUtil {
     public void regionShouldTickWhenZeroPlayersAreOnline() {
         CommonScheduler commonScheduler = new CommonScheduler();
         RegionsTests.loadRegionTypeCobble();
-        Region region = RegionsTests.createNewRegion("cobble");
-        RegionType regionType = (RegionType) ItemManager.getInstance().getItemType("cobble");
-        Bukkit.getPluginManager().callEvent(null);
-        for (int i=0; i<10; i++) {
-            commonScheduler.run();
+        final Region region = RegionsTests.createNewRegion("cobble");
+        final List<RegionTickEvent> tickEvents = new ArrayList<>();
+        RegionTickUtil.addRegionTickListener("block_build", new RegionTickListener() {
+            @Override
+            public void regionTickHandler(RegionTickEvent event) {
+                if (event.getRegion() == region) {
+                    tickEvents.add(event);
+                }
+            }
+        });
+        try {
+            for (int i=0; i<10; i++) {
+                commonScheduler.run();
+            }
+        } finally {
+            RegionTickUtil.removeRegionTickListener("block_build");
         }
-        ArgumentCaptor<Event> tickCaptor = ArgumentCaptor.forClass(Event.class);
-        verify(Bukkit.getPluginManager(), atLeast(4)).callEvent(
-                tickCaptor.capture()
-        );
-        List<Event> capturedTickEvents = tickCaptor.getAllValues();
-        for (Event event : capturedTickEvents) {
-            if (event == null || !(event instanceof RegionTickEvent)) {
-                continue;
+        assertFalse(tickEvents.isEmpty());
+        assertSame(ItemManager.getInstance().getItemType("cobble"), tickEvents.get(0).getRegionType());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void duplicateRegionTickListenerShouldFail() {
+        RegionTickListener listener = new RegionTickListener() {
+            @Override
+            public void regionTickHandler(RegionTickEvent event) {
+                // Do nothing
             }
-            RegionTickEvent regionTickEvent = (RegionTickEvent) event;
+        };
+        try {
+            RegionTickUtil.addRegionTickListener("block_build", listener);
+            RegionTickUtil.addRegionTickListener("block_build", listener);
+            RegionTickUtil.addRegionTickListener("block_build", new RegionTickListener() {
+                @Override
+                public void regionTickHandler(RegionTickEvent event) {
+                    // Do nothing
+                }
+            });
+        } finally {
+            RegionTickUtil.removeRegionTickListener("block_build");
         }
     }
 
+    @Test
+    public void regionTickEventShouldNotBeFiredWithoutExternalListeners() {
+        RegionsTests.loadRegionTypeCobble();
+        RegionsTests.createNewRegion("cobble");
+        RegionTickUtil.runUpkeeps();
+        verify(Bukkit.getPluginManager(), never()).callEvent(Matchers.isA(RegionTickEvent.class));
+    }
+
     @Test
     public void checkReagentsBeforeProvidingUpkeep() {
         RegionsTests.loadRegionTypeCobble3();
@@ -66,6 +102,26 @@ public class SchedulerTests extends TestUtil {
         RegionTickUtil.runUpkeeps();
     }
 
+    @Test
+    public void movedPlayerShouldEnterRegionOnce() {
+        RegionsTests.loadRegionTypeCobble();
+        Region region = RegionsTests.createNewRegion("cobble");
+        CommonScheduler commonScheduler = new CommonScheduler();
+        CommonScheduler.markMoved(TestUtil.player.getUniqueId());
+        commonScheduler.run();
+        commonScheduler.run();
+        ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+        verify(Bukkit.getPluginManager(), atLeastOnce()).callEvent(eventCaptor.capture());
+        int enterEvents = 0;
+        for (Event event : eventCaptor.getAllValues()) {
+            if (event instanceof PlayerEnterRegionEvent &&
+                    ((PlayerEnterRegionEvent) event).getRegion() == region) {
+                enterEvents++;
+            }
+        }
+        assertEquals(1, enterEvents);
+    }
+
     @Test(expected = SuccessException.class)
     public void messageShouldBeSentWhenEnterTown() {
         TownTests.loadTownTypeHamlet2();
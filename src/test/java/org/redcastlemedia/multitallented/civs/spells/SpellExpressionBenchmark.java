@@ -0,0 +1,64 @@
+package org.redcastlemedia.multitallented.civs.spells;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of the values one AreaTarget cast with a damage effect reads (range, radius,
+ * max-targets and damage) using compiled expressions versus a new script engine per value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SpellExpressionBenchmark {
+    private static final String[] CAST_VALUES = {
+            "15", "5 + $level$", "-1", "4 * $level$ + $damage#bonus$"
+    };
+
+    private Spell spell;
+    private Object target;
+
+    @Setup
+    public void setup() {
+        spell = new Spell("benchmark", null, 3);
+        target = new Object();
+        HashMap<String, Double> componentVars = new HashMap<>();
+        componentVars.put("bonus", 2.0);
+        HashMap<Object, HashMap<String, Double>> targetVars = new HashMap<>();
+        targetVars.put(target, componentVars);
+        spell.getAbilityVariables().put("damage", targetVars);
+    }
+
+    @Benchmark
+    public double compiledCast() {
+        double total = 0;
+        for (String value : CAST_VALUES) {
+            total += Spell.getLevelAdjustedValue(value, 3, target, spell);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double scriptEngineCast() throws Exception {
+        double total = 0;
+        for (String value : CAST_VALUES) {
+            ScriptEngine engine = new ScriptEngineManager().getEngineByName("JavaScript");
+            String script = value.replace("$level$", "3")
+                    .replace("$damage#bonus$", "" + spell.getAbilityVariables().get("damage").get(target).get("bonus"));
+            Object result = engine.eval(script);
+            total += result instanceof Number ? ((Number) result).doubleValue() : 0;
+        }
+        return total;
+    }
+}
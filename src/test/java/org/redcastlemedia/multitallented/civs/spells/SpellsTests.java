@@ -76,6 +76,21 @@ public class SpellsTests extends TestUtil {
         assertTrue((long) civilian.getStates().get("hunger.cooldown^1").getVars().get("cooldown") >= currentTime + 10000);
     }
 
+    @Test
+    public void levelAdjustedValueShouldUseVariables() {
+        Player player = mock(Player.class);
+        Spell spell = new Spell("hunger", player, 3);
+        HashMap<String, Double> componentVars = new HashMap<>();
+        componentVars.put("amount", 4.0);
+        HashMap<Object, HashMap<String, Double>> targetVars = new HashMap<>();
+        targetVars.put(player, componentVars);
+        spell.getAbilityVariables().put("damage", targetVars);
+        assertEquals(7, Spell.getLevelAdjustedValue("2 * $level$ + 1", 3, null, null), 0.0001);
+        assertEquals(2.5, Spell.getLevelAdjustedValue("Math.max(1, $level$ / 2)", 5, null, null), 0.0001);
+        assertEquals(-1, Spell.getLevelAdjustedValue("-(10 % 3)", 1, null, null), 0.0001);
+        assertEquals(12, Spell.getLevelAdjustedValue("$damage#amount$ * $level$", 3, player, spell), 0.0001);
+    }
+
     private static void loadSpellTypeHunger() {
         FileConfiguration config = new YamlConfiguration();
         config.set("icon", "RED_WOOL");
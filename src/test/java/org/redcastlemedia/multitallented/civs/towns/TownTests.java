@@ -11,7 +11,9 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.redcastlemedia.multitallented.civs.SuccessException;
 import org.redcastlemedia.multitallented.civs.TestUtil;
+import org.redcastlemedia.multitallented.civs.civilians.Civilian;
 import org.redcastlemedia.multitallented.civs.civilians.CivilianListener;
+import org.redcastlemedia.multitallented.civs.civilians.CivilianManager;
 import org.redcastlemedia.multitallented.civs.commands.TownCommand;
 import org.redcastlemedia.multitallented.civs.items.ItemManager;
 import org.redcastlemedia.multitallented.civs.menus.MenuManager;
@@ -63,6 +65,18 @@ public class TownTests extends TestUtil {
         assertEquals(town, TownManager.getInstance().getTownAt(new Location(Bukkit.getWorld("world"), 0, 0,0)));
     }
 
+    @Test
+    public void ownedTownShouldUpdateWhenRoleChanges() {
+        loadTownTypeHamlet2();
+        Town town = loadTown("BizRep", "hamlet2", new Location(Bukkit.getWorld("world"), 0, 0, 20));
+        Civilian civilian = CivilianManager.getInstance().getCivilian(TestUtil.player.getUniqueId());
+        town.setPeople(TestUtil.player.getUniqueId(), "member");
+        assertNull(TownManager.getInstance().isOwnerOfATown(civilian));
+        town.setPeople(TestUtil.player.getUniqueId(), Constants.OWNER);
+        assertEquals(town, TownManager.getInstance().isOwnerOfATown(civilian));
+        assertTrue(TownManager.getInstance().getOwnedTowns(civilian).contains(town));
+    }
+
     @Test
     public void shouldNotFindTown() {
         loadTownTypeHamlet2();
@@ -76,6 +90,19 @@ public class TownTests extends TestUtil {
         assertEquals(town, TownManager.getInstance().getTownAt(new Location(Bukkit.getWorld("world"), 0, 0,0)));
     }
 
+    @Test
+    public void townShouldBeFoundAfterRename() {
+        loadTownTypeHamlet2();
+        Town town = loadTown("Oldname", "hamlet2", new Location(Bukkit.getWorld("world"), 1000, 60, 1000));
+        Location location = new Location(Bukkit.getWorld("world"), 1020, 60, 980);
+        assertEquals(town, TownManager.getInstance().getTownAt(location));
+        TownManager.getInstance().removeTown(town, false, false);
+        assertNull(TownManager.getInstance().getTownAt(location));
+        town.setName("Newname");
+        TownManager.getInstance().addTown(town);
+        assertEquals(town, TownManager.getInstance().getTownAt(location));
+    }
+
     @Test
     public void memberShouldBeAdded() {
         loadTownTypeHamlet2();
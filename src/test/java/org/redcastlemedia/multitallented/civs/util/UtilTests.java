@@ -1,29 +1,42 @@
 package org.redcastlemedia.multitallented.civs.util;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.UUID;
 
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.World;
 import org.bukkit.block.Chest;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.redcastlemedia.multitallented.civs.Civs;
 import org.redcastlemedia.multitallented.civs.TestUtil;
 import org.redcastlemedia.multitallented.civs.WorldImpl;
 import org.redcastlemedia.multitallented.civs.civilians.Civilian;
@@ -38,6 +51,8 @@ import org.redcastlemedia.multitallented.civs.placeholderexpansion.PlaceHook;
 
 import net.md_5.bungee.api.ChatColor;
 import net.md_5.bungee.api.chat.TextComponent;
+import net.milkbowl.vault.economy.Economy;
+import net.milkbowl.vault.economy.EconomyResponse;
 
 public class UtilTests extends TestUtil {
 
@@ -46,6 +61,11 @@ public class UtilTests extends TestUtil {
         TownManager.getInstance().reload();
     }
 
+    @After
+    public void cleanup() {
+        NearbyEntityCache.reset();
+    }
+
     @Test
     public void cvItemShouldCreateItemStack() {
         CVItem cvItem = new CVItem(Material.COBBLESTONE,1, 100, "CustomCobble");
@@ -148,6 +168,26 @@ public class UtilTests extends TestUtil {
         assertEquals("mytown2", placeHook.onPlaceholderRequest(TestUtil.player, "townname"));
     }
 
+    @Test
+    public void placeHookShouldUpdateCachedTownWhenPlayerJoins() {
+        CivilianManager.getInstance().createDefaultCivilian(TestUtil.player);
+        TownTests.loadTownTypeHamlet2();
+        Location location = new Location(Bukkit.getWorld("world"), 0,0,0);
+        HashMap<UUID, String> people = new HashMap<>();
+        people.put(TestUtil.player.getUniqueId(), "member");
+        Town town = new Town("mytown1", "hamlet2", location, people, 100, 100,
+                3, 0, -1);
+        TownManager.getInstance().addTown(town);
+        Town town1 = new Town("mytown2", "hamlet2", location, new HashMap<>(), 100, 100,
+                8, 1, -1);
+        TownManager.getInstance().addTown(town1);
+        PlaceHook placeHook = new PlaceHook();
+        assertEquals("mytown1", placeHook.onPlaceholderRequest(TestUtil.player, "townname"));
+        assertEquals("mytown1", placeHook.onPlaceholderRequest(TestUtil.player, "townname"));
+        town1.setPeople(TestUtil.player.getUniqueId(), "member");
+        assertEquals("mytown2", placeHook.onPlaceholderRequest(TestUtil.player, "townname"));
+    }
+
     @Test
     public void placeholderKarmaShouldReportCivKarma() {
         CivilianManager.getInstance().createDefaultCivilian(TestUtil.player);
@@ -166,6 +206,29 @@ public class UtilTests extends TestUtil {
         assertEquals("4", placeHook.onPlaceholderRequest(TestUtil.player, "kills"));
     }
 
+    @Test
+    public void placeholderOffMainThreadShouldOnlyUseCachedValues() {
+        CivilianManager.getInstance().createDefaultCivilian(TestUtil.player);
+        Civilian civilian = CivilianManager.getInstance().getCivilian(TestUtil.player.getUniqueId());
+        civilian.setKarma(6);
+        PlaceHook placeHook = new PlaceHook();
+        assertEquals("6", placeHook.onPlaceholderRequest(TestUtil.player, "karma"));
+        civilian.setKarma(9);
+        OfflinePlayer unknownPlayer = mock(OfflinePlayer.class);
+        when(unknownPlayer.getUniqueId()).thenReturn(new UUID(7, 31));
+        BukkitScheduler scheduler = mock(BukkitScheduler.class);
+        doReturn(scheduler).when(Bukkit.getServer()).getScheduler();
+        TestUtil.setCivsInstance(mock(Civs.class));
+        try {
+            assertEquals("6", placeHook.onPlaceholderRequest(TestUtil.player, "karma"));
+            assertEquals("-", placeHook.onRequest(unknownPlayer, "karma"));
+            assertEquals("-", placeHook.onRequest(unknownPlayer, "karma"));
+            verify(scheduler, times(1)).runTask(Matchers.any(Plugin.class), Matchers.any(Runnable.class));
+        } finally {
+            TestUtil.setCivsInstance(null);
+        }
+    }
+
     @Test
     public void parseColorComponentShouldHandleAllIndexes() {
         String input = "@{RED}Red @{YELLOW}Yellow @{LIGHT_PURPLE} Light Blue";
@@ -244,6 +307,29 @@ public class UtilTests extends TestUtil {
         verify(Bukkit.getServer(), times(1)).dispatchCommand(null,"cv invite Multitallented Moenia");
     }
 
+    @Test
+    public void mergedSaveShouldKeepUnmanagedKeys() throws Exception {
+        File file = File.createTempFile("civs-town", ".yml");
+        try {
+            FileConfiguration existing = new YamlConfiguration();
+            existing.set("name", "Old");
+            existing.set("power", 5);
+            existing.set("custom", "kept");
+            existing.save(file);
+            FileConfiguration snapshot = new YamlConfiguration();
+            snapshot.set("name", "New");
+            PersistenceQueue.getInstance().merge(file, snapshot, Arrays.asList("name", "power"));
+            PersistenceQueue.getInstance().flush();
+
+            FileConfiguration saved = YamlConfiguration.loadConfiguration(file);
+            assertEquals("New", saved.getString("name"));
+            assertFalse(saved.isSet("power"));
+            assertEquals("kept", saved.getString("custom"));
+        } finally {
+            file.delete();
+        }
+    }
+
     @Test
     public void performCommandOpShouldExecuteCorrectCommand() {
         Player player = mock(Player.class);
@@ -280,4 +366,114 @@ public class UtilTests extends TestUtil {
     public void numberFormatShouldNotBeEmpty() {
         assertEquals("100", Util.getNumberFormat(100, "zh"));
     }
+
+    @Test
+    public void timerPercentilesShouldBeWithinABucket() {
+        Metrics.Timer timer = Metrics.timer("test", "timerPercentilesShouldBeWithinABucket");
+        for (long i = 1; i <= 1000; i++) {
+            timer.record(i * 1000);
+        }
+        assertEquals(1000, timer.getCount());
+        assertEquals(1000000, timer.getMaxNanos());
+        long median = timer.getPercentile(0.5);
+        assertTrue(median >= 500000 && median < 500000 * 1.125);
+        assertEquals(1000000, timer.getPercentile(1));
+        assertEquals(7, Metrics.Timer.getUpperBound(Metrics.Timer.getBucket(7)));
+        for (long nanos : new long[] { 16, 17, 1000, 123456789, Long.MAX_VALUE }) {
+            assertTrue(Metrics.Timer.getUpperBound(Metrics.Timer.getBucket(nanos)) >= nanos);
+        }
+    }
+
+    @Test
+    public void economyLedgerShouldSendOneTransactionPerAccount() {
+        Economy economy = mock(Economy.class);
+        when(economy.getBalance(Matchers.any(OfflinePlayer.class))).thenReturn(100.0);
+        Civs.econ = economy;
+        try {
+            UUID uuid = new UUID(7, 24);
+            EconomyLedger economyLedger = EconomyLedger.getInstance();
+            economyLedger.deposit(uuid, 10);
+            economyLedger.withdraw(uuid, 20);
+            economyLedger.withdraw(uuid, 5);
+            assertEquals(85, economyLedger.getBalance(uuid), 0.001);
+            assertFalse(economyLedger.has(uuid, 90));
+            economyLedger.flush();
+            verify(economy, times(1)).depositPlayer(Matchers.any(OfflinePlayer.class), Matchers.eq(10.0));
+            verify(economy, times(1)).withdrawPlayer(Matchers.any(OfflinePlayer.class), Matchers.eq(25.0));
+            assertEquals(0, economyLedger.getPendingCount());
+        } finally {
+            Civs.econ = null;
+            EconomyLedger.reset();
+        }
+    }
+
+    @Test
+    public void refusedEconomyWithdrawalShouldBeRefundedOrKept() {
+        Economy economy = mock(Economy.class);
+        when(economy.getBalance(Matchers.any(OfflinePlayer.class))).thenReturn(10.0);
+        EconomyResponse refused = new EconomyResponse(0, 10, EconomyResponse.ResponseType.FAILURE, "Insufficient funds");
+        when(economy.withdrawPlayer(Matchers.any(OfflinePlayer.class), Matchers.anyDouble())).thenReturn(refused);
+        Civs.econ = economy;
+        try {
+            UUID uuid = new UUID(7, 25);
+            EconomyLedger economyLedger = EconomyLedger.getInstance();
+            final List<String> refunds = new ArrayList<>();
+            economyLedger.deposit(uuid, 30);
+            economyLedger.withdraw(uuid, 15, new Runnable() {
+                @Override
+                public void run() {
+                    refunds.add("taxes");
+                }
+            });
+            economyLedger.withdraw(uuid, 20);
+            economyLedger.flush();
+            verify(economy, times(1)).depositPlayer(Matchers.any(OfflinePlayer.class), Matchers.eq(30.0));
+            assertEquals(1, refunds.size());
+            assertEquals(1, economyLedger.getPendingCount());
+            assertEquals(-10, economyLedger.getBalance(uuid), 0.001);
+        } finally {
+            Civs.econ = null;
+            EconomyLedger.reset();
+        }
+    }
+
+    @Test
+    public void economyLedgerShouldNotReopenAfterShutdown() {
+        EconomyLedger economyLedger = EconomyLedger.getInstance();
+        try {
+            EconomyLedger.shutdown();
+            assertSame(economyLedger, EconomyLedger.getInstance());
+            economyLedger.deposit(new UUID(7, 26), 10);
+            assertEquals(0, economyLedger.getPendingCount());
+        } finally {
+            EconomyLedger.reset();
+        }
+    }
+
+    @Test
+    public void nearbyEntityCacheShouldSeeSpawnsAfterInvalidate() {
+        World world = mock(World.class);
+        when(world.getUID()).thenReturn(new UUID(7, 30));
+        when(world.isChunkLoaded(0, 0)).thenReturn(true);
+        Chunk chunk = mock(Chunk.class);
+        when(world.getChunkAt(0, 0)).thenReturn(chunk);
+        Location center = new Location(world, 8, 64, 8);
+        Entity villager = mock(Entity.class);
+        when(villager.isValid()).thenReturn(true);
+        when(villager.getLocation()).thenReturn(new Location(world, 6, 64, 6));
+        Entity spawnedVillager = mock(Entity.class);
+        when(spawnedVillager.isValid()).thenReturn(true);
+        when(spawnedVillager.getLocation()).thenReturn(new Location(world, 9, 64, 9));
+        when(chunk.getEntities()).thenReturn(new Entity[] { villager });
+        TestUtil.setCivsInstance(mock(Civs.class));
+        try {
+            assertEquals(1, NearbyEntityCache.getNearbyEntities(center, 5, 5, 5).size());
+            when(chunk.getEntities()).thenReturn(new Entity[] { villager, spawnedVillager });
+            assertEquals(1, NearbyEntityCache.getNearbyEntities(center, 5, 5, 5).size());
+            NearbyEntityCache.invalidate(spawnedVillager.getLocation());
+            assertEquals(2, NearbyEntityCache.getNearbyEntities(center, 5, 5, 5).size());
+        } finally {
+            TestUtil.setCivsInstance(null);
+        }
+    }
 }